@@ -0,0 +1,118 @@
+package com.projectmanagement.export;
+
+import com.projectmanagement.dto.KpiValueExportRow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading every exported column of a row through a {@link RowAccessor}, against the
+ * reflective field lookup per cell the exporters used before, and against reflective
+ * fields resolved once. Times are per row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RowAccessorBenchmark {
+
+    private static final int ROWS = 1000;
+
+    private List<String> fields;
+    private KpiValueExportRow[] rows;
+    private Map<String, Object>[] mapRows;
+    private Field[] resolvedFields;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws NoSuchFieldException {
+        fields = RowAccessor.fields(KpiValueExportRow.headers());
+        rows = new KpiValueExportRow[ROWS];
+        mapRows = new Map[ROWS];
+        LocalDateTime date = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = new KpiValueExportRow((long) i % 20, "M" + i % 20, "Metric " + i % 20, i * 1.5,
+                    date.plusHours(i), i % 7 == 0, i % 11 == 0);
+            Map<String, Object> mapRow = new HashMap<>();
+            mapRow.put("metricCode", rows[i].getMetricCode());
+            mapRow.put("metricName", rows[i].getMetricName());
+            mapRow.put("value", rows[i].getValue());
+            mapRow.put("measurementDate", rows[i].getMeasurementDate());
+            mapRow.put("warningThresholdBreached", rows[i].getWarningThresholdBreached());
+            mapRow.put("criticalThresholdBreached", rows[i].getCriticalThresholdBreached());
+            mapRows[i] = mapRow;
+        }
+        resolvedFields = new Field[fields.size()];
+        for (int i = 0; i < resolvedFields.length; i++) {
+            resolvedFields[i] = KpiValueExportRow.class.getDeclaredField(fields.get(i));
+            resolvedFields[i].setAccessible(true);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void reflectionPerCell(Blackhole blackhole) throws IllegalAccessException {
+        for (KpiValueExportRow row : rows) {
+            Class<?> rowType = row.getClass();
+            for (String name : fields) {
+                try {
+                    Field field = rowType.getDeclaredField(name);
+                    field.setAccessible(true);
+                    blackhole.consume(field.get(row));
+                } catch (NoSuchFieldException e) {
+                    blackhole.consume(e);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void reflectionResolvedOnce(Blackhole blackhole) throws IllegalAccessException {
+        for (KpiValueExportRow row : rows) {
+            for (Field field : resolvedFields) {
+                blackhole.consume(field.get(row));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void accessor(Blackhole blackhole) {
+        readAll(rows, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void accessorMapRows(Blackhole blackhole) {
+        readAll(mapRows, blackhole);
+    }
+
+    private void readAll(Object[] data, Blackhole blackhole) {
+        RowAccessor accessor = null;
+        for (Object row : data) {
+            accessor = RowAccessor.forRow(row, fields, accessor);
+            for (int column = 0; column < accessor.getColumnCount(); column++) {
+                blackhole.consume(accessor.get(row, column));
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.projectmanagement.kpi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation of a compiled KPI formula, against compiling the formula for every evaluation.
+ * Run with {@code -prof gc} to check that the compiled evaluation allocates nothing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KpiFormulaBenchmark {
+
+    private static final Map<String, String> FORMULAS = new HashMap<>();
+
+    static {
+        FORMULAS.put("budget", "USED_BUDGET / TOTAL_BUDGET * 100");
+        FORMULAS.put("delay", "MAX(END_DATE - CURRENT_DATE, 0)");
+        FORMULAS.put("mixed", "ROUND(COMPLETED_ACTIONS / TOTAL_ACTIONS * 100) - MIN(OVERDUE_ACTIONS, 10) * 2.5");
+    }
+
+    @Param({"budget", "delay", "mixed"})
+    public String formulaName;
+
+    private String source;
+    private KpiFormula formula;
+    private double[] values;
+
+    @Setup
+    public void setUp() {
+        source = FORMULAS.get(formulaName);
+        formula = KpiFormulaCompiler.compile(source);
+        values = new double[KpiVariable.count()];
+        for (KpiVariable variable : KpiVariable.values()) {
+            values[variable.ordinal()] = 10 + variable.ordinal() * 3.5;
+        }
+    }
+
+    @Benchmark
+    public double compiled() {
+        return formula.evaluate(values);
+    }
+
+    @Benchmark
+    public double compiledEachTime() {
+        return KpiFormulaCompiler.compile(source).evaluate(values);
+    }
+}
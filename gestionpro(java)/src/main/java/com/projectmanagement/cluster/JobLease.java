@@ -0,0 +1,28 @@
+package com.projectmanagement.cluster;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lease held by this node on a job, or on one partition of a job, for one run.
+ * Acquired and released through {@link JobLeaseManager}.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public class JobLease {
+
+    private final String name;
+    private final String owner;
+
+    /**
+     * Fencing token: incremented every time the lease is acquired, by any node.
+     */
+    private final Long token;
+
+    private final LocalDateTime runDate;
+}
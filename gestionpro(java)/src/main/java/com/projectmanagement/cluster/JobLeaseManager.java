@@ -0,0 +1,294 @@
+package com.projectmanagement.cluster;
+
+import com.projectmanagement.entity.JobLock;
+import com.projectmanagement.repository.JobLockRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Coordinates the scheduled jobs of the application nodes through leases stored in
+ * {@code tbjoblck}, so that each run of a job is done by one node only.
+ * <p>
+ * A lease is acquired with a conditional update that succeeds only if the lease is free
+ * (expired or released) and the run was not already completed, so concurrent nodes are
+ * serialised by the row lock. While a job runs, its lease is extended every third of the
+ * lease duration; if the node dies, the lease expires and another node can take it over.
+ * Every acquisition increments the lease's fencing token: jobs pass
+ * {@link #checkHeld(JobLease)} in the transactions of their writes, so a node that lost
+ * its lease (for example during a long pause) rolls its writes back instead of
+ * duplicating the work of the node that took over.
+ * <p>
+ * Lease dates come from the clock of each node, so the node clocks must be synchronised
+ * to well within the lease duration ({@code app.cluster.lease-seconds}).
+ */
+@Component
+@Slf4j
+public class JobLeaseManager {
+
+    private final JobLockRepository jobLockRepository;
+    private final TransactionTemplate leaseTransaction;
+    private final TransactionTemplate guardTransaction;
+    private final String nodeId;
+    private final long leaseSeconds;
+    private final long pollSeconds;
+
+    private ThreadPoolTaskScheduler heartbeat;
+
+    @Autowired
+    public JobLeaseManager(JobLockRepository jobLockRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${app.cluster.node-id:}") String nodeId,
+                           @Value("${app.cluster.lease-seconds:120}") long leaseSeconds,
+                           @Value("${app.cluster.poll-seconds:5}") long pollSeconds) {
+        if (leaseSeconds < 3 || pollSeconds < 1) {
+            throw new IllegalArgumentException("Job lease duration must be at least 3 seconds and poll interval positive");
+        }
+        this.jobLockRepository = jobLockRepository;
+        this.nodeId = nodeId != null && !nodeId.trim().isEmpty() ? nodeId.trim() : defaultNodeId();
+        this.leaseSeconds = leaseSeconds;
+        this.pollSeconds = pollSeconds;
+
+        this.leaseTransaction = new TransactionTemplate(transactionManager);
+        this.leaseTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // Joins the transaction of the guarded writes, so the lease row stays locked until they commit
+        this.guardTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void start() {
+        heartbeat = new ThreadPoolTaskScheduler();
+        heartbeat.setPoolSize(1);
+        heartbeat.setThreadNamePrefix("job-lease-");
+        heartbeat.setDaemon(true);
+        heartbeat.initialize();
+        log.info("Job leases held as node {}", nodeId);
+    }
+
+    @PreDestroy
+    void stop() {
+        heartbeat.shutdown();
+    }
+
+    /**
+     * @return the name this node holds leases under
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Run a job on one node only. The node acquiring the job's lease runs it and records
+     * the run as completed; the other nodes, and this one, skip the job until a later run date.
+     *
+     * @param name    the job name
+     * @param runDate the date identifying the run, the same on every node
+     * @param job     the job
+     * @return true if this node ran the job
+     */
+    public boolean runOnce(String name, LocalDateTime runDate, Runnable job) {
+        Optional<JobLease> lease = tryAcquire(name, runDate);
+        if (!lease.isPresent()) {
+            log.debug("Job {} for {} is run by another node", name, runDate);
+            return false;
+        }
+        run(lease.get(), job);
+        return true;
+    }
+
+    /**
+     * Run a job split into partitions, sharing them with the other nodes doing the same run.
+     * Each partition has its own lease ({@code name#partition}) and this node runs every
+     * partition it can acquire. Partitions held by other nodes are waited for, and taken
+     * over if their lease expires, so the method returns once every partition of the run is
+     * completed, or after one lease duration without progress.
+     *
+     * @param name       the job name
+     * @param runDate    the date identifying the run, the same on every node
+     * @param partitions the number of partitions
+     * @param job        the job, called with the lease and the number of each partition to run
+     * @return the number of partitions run by this node
+     */
+    public int runPartitioned(String name, LocalDateTime runDate, int partitions, ObjIntConsumer<JobLease> job) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("Number of partitions must be positive");
+        }
+        // Nodes start at different partitions, so they rarely compete for the same lease
+        int first = Math.floorMod(nodeId.hashCode(), partitions);
+        List<Integer> pending = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            pending.add((first + i) % partitions);
+        }
+
+        int ran = 0;
+        LocalDateTime deadline = LocalDateTime.now().plusSeconds(leaseSeconds + pollSeconds);
+        while (true) {
+            Iterator<Integer> iterator = pending.iterator();
+            while (iterator.hasNext()) {
+                int partition = iterator.next();
+                String partitionName = name + "#" + partition;
+                Optional<JobLease> lease = tryAcquire(partitionName, runDate);
+                if (lease.isPresent()) {
+                    run(lease.get(), () -> job.accept(lease.get(), partition));
+                    ran++;
+                    iterator.remove();
+                    deadline = LocalDateTime.now().plusSeconds(leaseSeconds + pollSeconds);
+                } else if (isCompleted(partitionName, runDate)) {
+                    iterator.remove();
+                }
+            }
+            if (pending.isEmpty() || !LocalDateTime.now().isBefore(deadline) || !pause()) {
+                break;
+            }
+        }
+        if (!pending.isEmpty()) {
+            log.warn("Partitions {} of job {} for {} are still held by other nodes", pending, name, runDate);
+        }
+        return ran;
+    }
+
+    /**
+     * Acquire the lease of a job for a run, if it is free and the run was not completed yet.
+     *
+     * @param name    the lease name
+     * @param runDate the date identifying the run
+     * @return the lease, or empty if another node holds it or the run was completed
+     */
+    public Optional<JobLease> tryAcquire(String name, LocalDateTime runDate) {
+        createIfAbsent(name);
+        LocalDateTime now = LocalDateTime.now();
+        return leaseTransaction.execute(status -> {
+            if (jobLockRepository.acquire(name, nodeId, now, now.plusSeconds(leaseSeconds), runDate) == 0) {
+                return Optional.<JobLease>empty();
+            }
+            JobLock lock = jobLockRepository.findByName(name)
+                    .orElseThrow(() -> new IllegalStateException("Job lease not found: " + name));
+            log.debug("Acquired job lease {} with token {}", name, lock.getToken());
+            return Optional.of(new JobLease(name, nodeId, lock.getToken(), runDate));
+        });
+    }
+
+    /**
+     * Check that a lease is still held, and extend it. Called in the transaction of the
+     * writes done under the lease: the lease row then stays locked until they commit, so
+     * no other node can take the lease over in between.
+     *
+     * @param lease the lease
+     * @throws IllegalStateException if another node acquired the lease since
+     */
+    public void checkHeld(JobLease lease) {
+        guardTransaction.executeWithoutResult(status -> {
+            if (!extend(lease)) {
+                throw new IllegalStateException("Job lease " + lease.getName() + " was taken over by another node");
+            }
+        });
+    }
+
+    /**
+     * Run a job under a lease, extending the lease while the job runs, then release it.
+     * The run is recorded as completed only if the job did not throw.
+     */
+    private void run(JobLease lease, Runnable job) {
+        long period = Math.max(1, leaseSeconds / 3);
+        ScheduledFuture<?> renewal = heartbeat.scheduleAtFixedRate(() -> renew(lease),
+                Instant.now().plusSeconds(period), Duration.ofSeconds(period));
+        boolean completed = false;
+        try {
+            job.run();
+            completed = true;
+        } finally {
+            renewal.cancel(false);
+            boolean done = completed;
+            LocalDateTime now = LocalDateTime.now();
+            Integer released = leaseTransaction.execute(status -> done
+                    ? jobLockRepository.complete(lease.getName(), nodeId, lease.getToken(), now, lease.getRunDate())
+                    : jobLockRepository.release(lease.getName(), nodeId, lease.getToken(), now));
+            if (released == null || released == 0) {
+                log.warn("Job lease {} was taken over by another node before the job ended", lease.getName());
+            }
+        }
+    }
+
+    private void renew(JobLease lease) {
+        try {
+            if (!leaseTransaction.execute(status -> extend(lease))) {
+                log.warn("Job lease {} was taken over by another node", lease.getName());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not extend job lease {}: {}", lease.getName(), e.getMessage());
+        }
+    }
+
+    private boolean extend(JobLease lease) {
+        LocalDateTime expiry = LocalDateTime.now().plusSeconds(leaseSeconds);
+        return jobLockRepository.extend(lease.getName(), nodeId, lease.getToken(), expiry) > 0;
+    }
+
+    private boolean isCompleted(String name, LocalDateTime runDate) {
+        return leaseTransaction.execute(status -> jobLockRepository.findByName(name)
+                .map(lock -> lock.getLastRunDate() != null && !lock.getLastRunDate().isBefore(runDate))
+                .orElse(false));
+    }
+
+    private void createIfAbsent(String name) {
+        if (leaseTransaction.execute(status -> jobLockRepository.findByName(name).isPresent())) {
+            return;
+        }
+        try {
+            leaseTransaction.executeWithoutResult(status -> {
+                JobLock lock = new JobLock();
+                lock.setName(name);
+                jobLockRepository.saveAndFlush(lock);
+            });
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Job lease {} was created by another node", name);
+        }
+    }
+
+    /**
+     * Wait before polling the leases held by other nodes again.
+     *
+     * @return false if the thread was interrupted
+     */
+    private boolean pause() {
+        try {
+            TimeUnit.SECONDS.sleep(pollSeconds);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -1,5 +1,7 @@
 package com.projectmanagement.config;
 
+import com.projectmanagement.cluster.JobLeaseManager;
+import com.projectmanagement.export.ExportJobManager;
 import com.projectmanagement.service.KpiService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -7,8 +9,18 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
 /**
  * Configuration for scheduled tasks.
+ * Automatic KPI updates are not scheduled here: {@code KpiUpdateScheduler} runs each
+ * metric at its own update frequency.
+ * <p>
+ * The KPI jobs run on one node only when several nodes are deployed: each run is
+ * identified by its scheduled date and done by the node acquiring its lease through
+ * {@link JobLeaseManager}. Export eviction stays per node, as export results are local.
  */
 @Configuration
 @EnableScheduling
@@ -16,39 +28,48 @@ import org.springframework.scheduling.annotation.Scheduled;
 public class SchedulingConfig {
 
     private final KpiService kpiService;
+    private final ExportJobManager exportJobManager;
+    private final JobLeaseManager jobLeaseManager;
 
     @Autowired
-    public SchedulingConfig(KpiService kpiService) {
+    public SchedulingConfig(KpiService kpiService, ExportJobManager exportJobManager, JobLeaseManager jobLeaseManager) {
         this.kpiService = kpiService;
+        this.exportJobManager = exportJobManager;
+        this.jobLeaseManager = jobLeaseManager;
     }
 
     /**
-     * Scheduled task to update KPIs automatically.
-     * Runs every hour (3600000 ms).
+     * Scheduled task to check KPI thresholds and send notifications.
+     * Runs every 15 minutes, on the quarter hour so that all nodes agree on the run.
      */
-    @Scheduled(fixedRate = 3600000)
-    public void scheduledKpiUpdate() {
-        log.info("Running scheduled KPI update task");
-        kpiService.updateKpisAutomatically();
+    @Scheduled(cron = "0 0/15 * * * ?")
+    public void scheduledThresholdCheck() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime runDate = now.minusMinutes(now.getMinute() % 15);
+        jobLeaseManager.runOnce("kpi-threshold-check", runDate, () -> {
+            log.info("Running scheduled KPI threshold check");
+            kpiService.checkThresholdsAndNotify();
+        });
     }
-
+    
     /**
-     * Scheduled task to check KPI thresholds and send notifications.
-     * Runs every 15 minutes (900000 ms).
+     * Scheduled task to delete expired export results.
+     * Runs every 5 minutes (300000 ms).
      */
-    @Scheduled(fixedRate = 900000)
-    public void scheduledThresholdCheck() {
-        log.info("Running scheduled KPI threshold check");
-        kpiService.checkThresholdsAndNotify();
+    @Scheduled(fixedDelay = 300000)
+    public void scheduledExportEviction() {
+        exportJobManager.evictExpired();
     }
     
     /**
      * Scheduled task that runs at midnight every day.
-     * Can be used for daily reports or data exports.
+     * Moves the KPI values older than the retention horizon to the archive.
      */
     @Scheduled(cron = "0 0 0 * * ?")
     public void scheduledDailyTask() {
-        log.info("Running scheduled daily task");
-        // Implement daily tasks here if needed
+        jobLeaseManager.runOnce("kpi-archive", LocalDate.now().atStartOfDay(), () -> {
+            log.info("Running scheduled daily task");
+            kpiService.archiveKpiValues();
+        });
     }
 } 
\ No newline at end of file
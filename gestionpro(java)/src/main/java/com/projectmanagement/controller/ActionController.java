@@ -3,6 +3,7 @@ package com.projectmanagement.controller;
 import com.projectmanagement.dto.ActionDTO;
 import com.projectmanagement.entity.Action;
 import com.projectmanagement.export.ExportFormat;
+import com.projectmanagement.export.ExportWriter;
 import com.projectmanagement.service.ActionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -14,6 +15,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -40,9 +42,7 @@ public class ActionController {
      */
     @GetMapping
     public ResponseEntity<List<ActionDTO>> getAll() {
-        List<ActionDTO> actions = actionService.findAll().stream()
-                .map(actionService::toDTO)
-                .collect(Collectors.toList());
+        List<ActionDTO> actions = actionService.toDTOs(actionService.findAll());
         return ResponseEntity.ok(actions);
     }
 
@@ -193,17 +193,47 @@ public class ActionController {
     }
 
     /**
-     * Update the progress of an action.
+     * Update the progress of an action without sub-actions.
+     * The progress of an action with sub-actions is derived from them and cannot be set.
      *
      * @param id the action ID
      * @param progress the new progress value (0-100)
-     * @return the updated action
+     * @return the updated action, or 400 if the progress is out of range or the action has sub-actions
      */
     @PatchMapping("/{id}/progress")
     public ResponseEntity<ActionDTO> updateProgress(
             @PathVariable Long id,
             @RequestParam int progress) {
-        return ResponseEntity.ok(actionService.updateProgress(id));
+        try {
+            return ResponseEntity.ok(actionService.updateProgress(id, progress));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Mark a sub-action as finished.
+     *
+     * @param subActionId the sub-action ID
+     * @param actualEndDate the actual end date (defaults to today)
+     * @return the updated parent action
+     */
+    @PatchMapping("/sub-actions/{subActionId}/complete")
+    public ResponseEntity<ActionDTO> completeSubAction(
+            @PathVariable Long subActionId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate actualEndDate) {
+        return ResponseEntity.ok(actionService.completeSubAction(subActionId, actualEndDate));
+    }
+
+    /**
+     * Mark a sub-action as not finished.
+     *
+     * @param subActionId the sub-action ID
+     * @return the updated parent action
+     */
+    @PatchMapping("/sub-actions/{subActionId}/reopen")
+    public ResponseEntity<ActionDTO> reopenSubAction(@PathVariable Long subActionId) {
+        return ResponseEntity.ok(actionService.reopenSubAction(subActionId));
     }
 
     /**
@@ -214,8 +244,7 @@ public class ActionController {
      */
     @GetMapping("/{id}/dependencies")
     public ResponseEntity<List<ActionDTO>> getDependencies(@PathVariable Long id) {
-        // This endpoint requires additional implementation in the service layer
-        return ResponseEntity.ok(List.of());
+        return ResponseEntity.ok(actionService.findDependencies(id));
     }
 
     /**
@@ -256,30 +285,19 @@ public class ActionController {
      * @return the exported file
      */
     @GetMapping("/{id}/export")
-    public ResponseEntity<byte[]> exportAction(
+    public ResponseEntity<StreamingResponseBody> exportAction(
             @PathVariable Long id,
             @RequestParam(defaultValue = "excel") String format) {
         
-        // This is a mock implementation since we don't have actual export functionality
-        byte[] reportContent = new byte[0]; // Service method should be implemented
-        
-        String contentType;
-        String extension;
-        
-        try {
-            ExportFormat exportFormat = ExportFormat.valueOf(format.toUpperCase());
-            contentType = exportFormat.getContentType();
-            extension = exportFormat.getExtension();
-        } catch (IllegalArgumentException e) {
-            // Default to Excel if format is invalid
-            contentType = ExportFormat.EXCEL.getContentType();
-            extension = ExportFormat.EXCEL.getExtension();
-        }
+        // Unknown formats fall back to Excel
+        ExportFormat exportFormat = ExportFormat.fromName(format);
+        ExportWriter writer = actionService.exportAction(id, exportFormat);
         
+        // Rows are written to the response as they are read from the database
         return ResponseEntity
                 .ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=action_" + id + "." + extension)
-                .body(reportContent);
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=action_" + id + "." + exportFormat.getExtension())
+                .body(writer::writeTo);
     }
 } 
\ No newline at end of file
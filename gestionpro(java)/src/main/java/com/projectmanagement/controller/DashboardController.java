@@ -3,6 +3,7 @@ package com.projectmanagement.controller;
 import com.projectmanagement.dto.ActionDTO;
 import com.projectmanagement.dto.ProjectDTO;
 import com.projectmanagement.service.ActionService;
+import com.projectmanagement.service.DashboardService;
 import com.projectmanagement.service.ProjectService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -12,8 +13,6 @@ import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,11 +28,16 @@ public class DashboardController {
 
     private final ProjectService projectService;
     private final ActionService actionService;
+    private final DashboardService dashboardService;
 
     @Autowired
-    public DashboardController(ProjectService projectService, ActionService actionService) {
+    public DashboardController(
+            ProjectService projectService,
+            ActionService actionService,
+            DashboardService dashboardService) {
         this.projectService = projectService;
         this.actionService = actionService;
+        this.dashboardService = dashboardService;
     }
 
     /**
@@ -43,38 +47,7 @@ public class DashboardController {
      */
     @GetMapping("/summary")
     public ResponseEntity<Map<String, Object>> getDashboardSummary() {
-        Map<String, Object> summary = new HashMap<>();
-        
-        // Project counts by status - mock implementation
-        Map<String, Long> projectStatusCounts = new HashMap<>();
-        projectStatusCounts.put("Not Started", 3L);
-        projectStatusCounts.put("In Progress", 5L);
-        projectStatusCounts.put("Completed", 2L);
-        projectStatusCounts.put("On Hold", 1L);
-        summary.put("projectStatusCounts", projectStatusCounts);
-        
-        // Project counts by priority - mock implementation
-        Map<String, Long> projectPriorityCounts = new HashMap<>();
-        projectPriorityCounts.put("Low", 2L);
-        projectPriorityCounts.put("Medium", 4L);
-        projectPriorityCounts.put("High", 3L);
-        projectPriorityCounts.put("Critical", 2L);
-        summary.put("projectPriorityCounts", projectPriorityCounts);
-        
-        // Action counts by status - mock implementation
-        Map<String, Long> actionStatusCounts = new HashMap<>();
-        actionStatusCounts.put("Not Started", 10L);
-        actionStatusCounts.put("In Progress", 15L);
-        actionStatusCounts.put("Completed", 8L);
-        actionStatusCounts.put("Overdue", 3L);
-        summary.put("actionStatusCounts", actionStatusCounts);
-        
-        // Total counts - mock implementation
-        summary.put("totalProjects", 11L);
-        summary.put("totalActions", 36L);
-        summary.put("overdueActions", 3L);
-        
-        return ResponseEntity.ok(summary);
+        return ResponseEntity.ok(dashboardService.getSummary());
     }
 
     /**
@@ -86,8 +59,7 @@ public class DashboardController {
     @GetMapping("/recent-projects")
     public ResponseEntity<List<ProjectDTO>> getRecentProjects(@RequestParam(defaultValue = "5") int limit) {
         // Mock implementation - would normally use a service method to get recently updated projects
-        List<ProjectDTO> projects = projectService.findAll().stream()
-                .map(projectService::toDTO)
+        List<ProjectDTO> projects = projectService.toDTOs(projectService.findAll()).stream()
                 .sorted((p1, p2) -> p2.getDateModification().compareTo(p1.getDateModification()))
                 .limit(limit)
                 .collect(Collectors.toList());
@@ -135,18 +107,7 @@ public class DashboardController {
      */
     @GetMapping("/project-completion-trend")
     public ResponseEntity<Map<String, Long>> getProjectCompletionTrend(@RequestParam(defaultValue = "12") int months) {
-        // Mock implementation - would normally use a service method
-        Map<String, Long> trend = new HashMap<>();
-        LocalDate today = LocalDate.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM yyyy");
-        
-        for (int i = 0; i < months; i++) {
-            LocalDate date = today.minusMonths(i);
-            String month = date.format(formatter);
-            trend.put(month, (long) (Math.random() * 5)); // Random number of completed projects
-        }
-        
-        return ResponseEntity.ok(trend);
+        return ResponseEntity.ok(dashboardService.getProjectCompletionTrend(months));
     }
 
     /**
@@ -160,8 +121,7 @@ public class DashboardController {
         Map<String, Object> userDashboard = new HashMap<>();
         
         // User's projects - mock implementation
-        List<ProjectDTO> userProjects = projectService.findAll().stream()
-                .map(projectService::toDTO)
+        List<ProjectDTO> userProjects = projectService.toDTOs(projectService.findAll()).stream()
                 .filter(p -> {
                     // In a real implementation, this would check if the user is assigned to the project
                     // Since getTeamMembers() is not available, we'll mock the behavior
@@ -0,0 +1,207 @@
+package com.projectmanagement.controller;
+
+import com.projectmanagement.dto.ExportJobDTO;
+import com.projectmanagement.export.ExportFormat;
+import com.projectmanagement.export.ExportJob;
+import com.projectmanagement.export.ExportJobManager;
+import com.projectmanagement.export.ExportWriter;
+import com.projectmanagement.service.ActionService;
+import com.projectmanagement.service.KpiService;
+import com.projectmanagement.service.PlanningService;
+import com.projectmanagement.service.ProjectService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * REST controller for background export jobs.
+ * An export is submitted, its status polled, then the finished file downloaded.
+ */
+@RestController
+@RequestMapping("/api/exports")
+public class ExportJobController {
+
+    private final ExportJobManager exportJobManager;
+    private final ProjectService projectService;
+    private final PlanningService planningService;
+    private final ActionService actionService;
+    private final KpiService kpiService;
+
+    @Autowired
+    public ExportJobController(
+            ExportJobManager exportJobManager,
+            ProjectService projectService,
+            PlanningService planningService,
+            ActionService actionService,
+            KpiService kpiService) {
+        this.exportJobManager = exportJobManager;
+        this.projectService = projectService;
+        this.planningService = planningService;
+        this.actionService = actionService;
+        this.kpiService = kpiService;
+    }
+
+    /**
+     * Submit an export of all active projects.
+     *
+     * @param format the export format (excel, pdf, csv)
+     * @return the pending job
+     */
+    @PostMapping("/projects")
+    public ResponseEntity<ExportJobDTO> exportProjects(@RequestParam(defaultValue = "excel") String format) {
+        ExportFormat exportFormat = ExportFormat.fromName(format);
+        return submit(projectService.exportProjects(exportFormat), exportFormat, "projects");
+    }
+
+    /**
+     * Submit an export of the actions of a project.
+     *
+     * @param id the project ID
+     * @param format the export format (excel, pdf, csv)
+     * @return the pending job
+     */
+    @PostMapping("/projects/{id}")
+    public ResponseEntity<ExportJobDTO> exportProject(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "excel") String format) {
+        ExportFormat exportFormat = ExportFormat.fromName(format);
+        return submit(projectService.exportProject(id, exportFormat), exportFormat, "project_" + id);
+    }
+
+    /**
+     * Submit an export of the actions of a planning.
+     *
+     * @param id the planning ID
+     * @param format the export format (excel, pdf, csv)
+     * @return the pending job
+     */
+    @PostMapping("/plannings/{id}")
+    public ResponseEntity<ExportJobDTO> exportPlanning(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "excel") String format) {
+        ExportFormat exportFormat = ExportFormat.fromName(format);
+        return submit(planningService.exportPlanning(id, exportFormat), exportFormat, "planning_" + id);
+    }
+
+    /**
+     * Submit an export of the sub-actions of an action.
+     *
+     * @param id the action ID
+     * @param format the export format (excel, pdf, csv)
+     * @return the pending job
+     */
+    @PostMapping("/actions/{id}")
+    public ResponseEntity<ExportJobDTO> exportAction(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "excel") String format) {
+        ExportFormat exportFormat = ExportFormat.fromName(format);
+        return submit(actionService.exportAction(id, exportFormat), exportFormat, "action_" + id);
+    }
+
+    /**
+     * Submit an export of the latest KPI values of a project.
+     *
+     * @param projectId the project ID
+     * @param format the export format (excel, pdf, csv)
+     * @return the pending job
+     */
+    @PostMapping("/kpis/project/{projectId}")
+    public ResponseEntity<ExportJobDTO> exportKpiData(
+            @PathVariable Long projectId,
+            @RequestParam(defaultValue = "excel") String format) {
+        ExportFormat exportFormat = ExportFormat.fromName(format);
+        return submit(kpiService.exportKpiData(projectId, exportFormat), exportFormat, "kpi_report_" + projectId);
+    }
+
+    /**
+     * Get the status of an export job.
+     *
+     * @param jobId the job ID
+     * @return the job status
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ExportJobDTO> getStatus(@PathVariable String jobId) {
+        return exportJobManager.find(jobId)
+                .map(job -> ResponseEntity.ok(toDTO(job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Download the file of a completed export job.
+     *
+     * @param jobId the job ID
+     * @return the exported file, or 409 if the job is not completed
+     */
+    @GetMapping("/{jobId}/download")
+    public ResponseEntity<Resource> download(@PathVariable String jobId) {
+        Optional<ExportJob> job = exportJobManager.find(jobId);
+        if (!job.isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (job.get().getStatus() != ExportJob.Status.COMPLETED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        
+        return ResponseEntity
+                .ok()
+                .contentType(MediaType.parseMediaType(job.get().getFormat().getContentType()))
+                .contentLength(job.get().getFileSize())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + job.get().getFileName())
+                .body(new FileSystemResource(job.get().getFile()));
+    }
+
+    /**
+     * Delete a finished export job and its file.
+     *
+     * @param jobId the job ID
+     * @return no content, or 409 if the job is still running
+     */
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<Void> delete(@PathVariable String jobId) {
+        try {
+            return exportJobManager.delete(jobId)
+                    ? ResponseEntity.noContent().build()
+                    : ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    private ResponseEntity<ExportJobDTO> submit(ExportWriter writer, ExportFormat format, String baseName) {
+        try {
+            ExportJob job = exportJobManager.submit(writer, format, baseName);
+            return ResponseEntity.accepted().body(toDTO(job));
+        } catch (RejectedExecutionException e) {
+            // Too many exports queued: the client should retry later
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    private ExportJobDTO toDTO(ExportJob job) {
+        return ExportJobDTO.builder()
+                .id(job.getId())
+                .status(job.getStatus().name())
+                .format(job.getFormat().name())
+                .fileName(job.getFileName())
+                .rowsWritten(job.getRowsWritten())
+                .fileSize(job.getStatus() == ExportJob.Status.COMPLETED ? job.getFileSize() : null)
+                .submittedAt(job.getSubmittedAt())
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt())
+                .error(job.getError())
+                .downloadUrl(job.getStatus() == ExportJob.Status.COMPLETED
+                        ? ServletUriComponentsBuilder.fromCurrentContextPath()
+                                .path("/api/exports/{jobId}/download").buildAndExpand(job.getId()).toUriString()
+                        : null)
+                .build();
+    }
+}
@@ -1,9 +1,14 @@
 package com.projectmanagement.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.projectmanagement.dto.KpiMetricDTO;
+import com.projectmanagement.dto.KpiTrendDTO;
 import com.projectmanagement.dto.KpiValueDTO;
+import com.projectmanagement.dto.KpiValuePageDTO;
 import com.projectmanagement.entity.KpiMetric;
 import com.projectmanagement.export.ExportFormat;
+import com.projectmanagement.export.ExportWriter;
 import com.projectmanagement.service.KpiService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -11,11 +16,16 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * REST controller for KPI operations.
@@ -25,10 +35,12 @@ import java.util.stream.Collectors;
 public class KpiController {
 
     private final KpiService kpiService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public KpiController(KpiService kpiService) {
+    public KpiController(KpiService kpiService, ObjectMapper objectMapper) {
         this.kpiService = kpiService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -179,6 +191,101 @@ public class KpiController {
         return ResponseEntity.ok(kpiService.findKpiValuesForProjectInDateRange(projectId, startDate, endDate));
     }
 
+    /**
+     * Get one page of the KPI value history of a project. The next page is requested with
+     * the nextAfterDate and nextAfterId of the previous one.
+     *
+     * @param projectId the ID of the project
+     * @param metricIds the IDs of the metrics to include (all metrics if omitted)
+     * @param startDate the start date
+     * @param endDate the end date
+     * @param afterDate the measurement date of the last value of the previous page
+     * @param afterId the ID of the last value of the previous page
+     * @param size the maximum number of values of the page
+     * @return the page of KPI values
+     */
+    @GetMapping("/values/project/{projectId}/history")
+    public ResponseEntity<KpiValuePageDTO> getKpiValueHistoryPage(
+            @PathVariable Long projectId,
+            @RequestParam(required = false) List<Long> metricIds,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterDate,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "500") int size) {
+        return ResponseEntity.ok(kpiService.findKpiValueHistoryPage(projectId, metricIds, startDate, endDate,
+                afterDate, afterId, size));
+    }
+
+    /**
+     * Stream the whole KPI value history of a project over a period, as one JSON object per line.
+     *
+     * @param projectId the ID of the project
+     * @param metricIds the IDs of the metrics to include (all metrics if omitted)
+     * @param startDate the start date
+     * @param endDate the end date
+     * @return the KPI values, written as they are read page by page
+     */
+    @GetMapping("/values/project/{projectId}/history/stream")
+    public ResponseEntity<StreamingResponseBody> streamKpiValueHistory(
+            @PathVariable Long projectId,
+            @RequestParam(required = false) List<Long> metricIds,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+        
+        // Validated before the response starts; pages are only read while it is written
+        Stream<KpiValueDTO> values = kpiService.streamKpiValueHistory(projectId, metricIds, startDate, endDate);
+        ObjectWriter writer = objectMapper.writerFor(KpiValueDTO.class);
+        
+        return ResponseEntity
+                .ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(outputStream -> writeLines(values, writer, outputStream));
+    }
+
+    private static void writeLines(Stream<KpiValueDTO> values, ObjectWriter writer, OutputStream outputStream)
+            throws IOException {
+        try (Stream<KpiValueDTO> stream = values) {
+            Iterator<KpiValueDTO> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                outputStream.write(writer.writeValueAsBytes(iterator.next()));
+                outputStream.write('\n');
+            }
+        }
+        outputStream.flush();
+    }
+
+    /**
+     * Get the KPI trend of a project from the pre-aggregated roll-ups.
+     *
+     * @param projectId the ID of the project
+     * @param metricIds the IDs of the metrics to include (all metrics if omitted)
+     * @param startDate the start date
+     * @param endDate the end date
+     * @param maxPoints the maximum number of points per metric
+     * @return the KPI trend
+     */
+    @GetMapping("/values/project/{projectId}/trend")
+    public ResponseEntity<KpiTrendDTO> getKpiTrend(
+            @PathVariable Long projectId,
+            @RequestParam(required = false) List<Long> metricIds,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "500") int maxPoints) {
+        return ResponseEntity.ok(kpiService.findKpiTrend(projectId, metricIds, startDate, endDate, maxPoints));
+    }
+
+    /**
+     * Rebuild the KPI value roll-ups from all recorded values.
+     *
+     * @return success message
+     */
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<String> rebuildRollups() {
+        long values = kpiService.rebuildKpiRollups();
+        return ResponseEntity.ok("KPI roll-ups rebuilt from " + values + " values");
+    }
+
     /**
      * Manually trigger KPI updates.
      *
@@ -201,6 +308,17 @@ public class KpiController {
         return ResponseEntity.ok("Threshold check triggered successfully");
     }
 
+    /**
+     * Manually archive the KPI values older than the retention horizon.
+     *
+     * @return success message
+     */
+    @PostMapping("/archive")
+    public ResponseEntity<String> archiveKpiValues() {
+        long archived = kpiService.archiveKpiValues();
+        return ResponseEntity.ok(archived + " KPI values archived");
+    }
+
     /**
      * Export KPI data for a project.
      *
@@ -209,29 +327,19 @@ public class KpiController {
      * @return the exported file
      */
     @GetMapping("/export/project/{projectId}")
-    public ResponseEntity<byte[]> exportKpiData(
+    public ResponseEntity<StreamingResponseBody> exportKpiData(
             @PathVariable Long projectId,
             @RequestParam(defaultValue = "excel") String format) {
         
-        byte[] reportContent = kpiService.exportKpiData(projectId, format);
-        
-        String contentType;
-        String extension;
-        
-        try {
-            ExportFormat exportFormat = ExportFormat.valueOf(format.toUpperCase());
-            contentType = exportFormat.getContentType();
-            extension = exportFormat.getExtension();
-        } catch (IllegalArgumentException e) {
-            // Default to Excel if format is invalid
-            contentType = ExportFormat.EXCEL.getContentType();
-            extension = ExportFormat.EXCEL.getExtension();
-        }
+        // Unknown formats fall back to Excel
+        ExportFormat exportFormat = ExportFormat.fromName(format);
+        ExportWriter writer = kpiService.exportKpiData(projectId, exportFormat);
         
+        // Rows are written to the response as they are read from the database
         return ResponseEntity
                 .ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=kpi_report." + extension)
-                .body(reportContent);
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=kpi_report_" + projectId + "." + exportFormat.getExtension())
+                .body(writer::writeTo);
     }
 } 
\ No newline at end of file
@@ -2,14 +2,18 @@ package com.projectmanagement.controller;
 
 import com.projectmanagement.dto.ActionDTO;
 import com.projectmanagement.dto.PlanningDTO;
+import com.projectmanagement.dto.PlanningGanttDTO;
+import com.projectmanagement.dto.PlanningScheduleDTO;
 import com.projectmanagement.entity.Planning;
 import com.projectmanagement.export.ExportFormat;
+import com.projectmanagement.export.ExportWriter;
 import com.projectmanagement.service.PlanningService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -35,9 +39,7 @@ public class PlanningController {
      */
     @GetMapping
     public ResponseEntity<List<PlanningDTO>> getAll() {
-        List<PlanningDTO> plannings = planningService.findAll().stream()
-                .map(planningService::toDTO)
-                .collect(Collectors.toList());
+        List<PlanningDTO> plannings = planningService.toDTOs(planningService.findAll());
         return ResponseEntity.ok(plannings);
     }
 
@@ -172,6 +174,39 @@ public class PlanningController {
         return ResponseEntity.ok(List.of());
     }
 
+    /**
+     * Get the critical path schedule of the actions of a planning.
+     *
+     * @param id the planning ID
+     * @return the earliest and latest dates, float and critical path of the actions
+     */
+    @GetMapping("/{id}/schedule")
+    public ResponseEntity<PlanningScheduleDTO> getSchedule(@PathVariable Long id) {
+        return ResponseEntity.ok(planningService.computeSchedule(id));
+    }
+
+    /**
+     * Get the critical path schedule of the actions of all the plannings of a project.
+     *
+     * @param projectId the project ID
+     * @return the earliest and latest dates, float and critical path of the actions
+     */
+    @GetMapping("/project/{projectId}/schedule")
+    public ResponseEntity<PlanningScheduleDTO> getProjectSchedule(@PathVariable Long projectId) {
+        return ResponseEntity.ok(planningService.computeProjectSchedule(projectId));
+    }
+
+    /**
+     * Get the Gantt chart of a planning.
+     *
+     * @param id the planning ID
+     * @return the actions, sub-actions and dependencies of the planning, in columns
+     */
+    @GetMapping("/{id}/gantt")
+    public ResponseEntity<PlanningGanttDTO> getGantt(@PathVariable Long id) {
+        return ResponseEntity.ok(planningService.findGantt(id));
+    }
+
     /**
      * Recalculate the progress of a planning.
      *
@@ -191,30 +226,19 @@ public class PlanningController {
      * @return the exported file
      */
     @GetMapping("/{id}/export")
-    public ResponseEntity<byte[]> exportPlanning(
+    public ResponseEntity<StreamingResponseBody> exportPlanning(
             @PathVariable Long id,
             @RequestParam(defaultValue = "excel") String format) {
         
-        // This is a mock implementation since we don't have actual export functionality
-        byte[] reportContent = new byte[0]; // Service method should be implemented
-        
-        String contentType;
-        String extension;
-        
-        try {
-            ExportFormat exportFormat = ExportFormat.valueOf(format.toUpperCase());
-            contentType = exportFormat.getContentType();
-            extension = exportFormat.getExtension();
-        } catch (IllegalArgumentException e) {
-            // Default to Excel if format is invalid
-            contentType = ExportFormat.EXCEL.getContentType();
-            extension = ExportFormat.EXCEL.getExtension();
-        }
+        // Unknown formats fall back to Excel
+        ExportFormat exportFormat = ExportFormat.fromName(format);
+        ExportWriter writer = planningService.exportPlanning(id, exportFormat);
         
+        // Rows are written to the response as they are read from the database
         return ResponseEntity
                 .ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=planning_" + id + "." + extension)
-                .body(reportContent);
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=planning_" + id + "." + exportFormat.getExtension())
+                .body(writer::writeTo);
     }
 } 
\ No newline at end of file
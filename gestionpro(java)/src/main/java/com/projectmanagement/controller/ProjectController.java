@@ -3,6 +3,7 @@ package com.projectmanagement.controller;
 import com.projectmanagement.dto.ProjectDTO;
 import com.projectmanagement.entity.Project;
 import com.projectmanagement.export.ExportFormat;
+import com.projectmanagement.export.ExportWriter;
 import com.projectmanagement.service.ProjectService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -14,6 +15,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -40,9 +42,7 @@ public class ProjectController {
      */
     @GetMapping
     public ResponseEntity<List<ProjectDTO>> getAll() {
-        List<ProjectDTO> projects = projectService.findAll().stream()
-                .map(projectService::toDTO)
-                .collect(Collectors.toList());
+        List<ProjectDTO> projects = projectService.toDTOs(projectService.findAll());
         return ResponseEntity.ok(projects);
     }
 
@@ -211,6 +211,50 @@ public class ProjectController {
         return ResponseEntity.ok(page.getContent());
     }
 
+    /**
+     * Recalculate the progress of a project from its plannings and actions.
+     *
+     * @param id the project ID
+     * @return the updated project with recalculated progress
+     */
+    @PostMapping("/{id}/recalculate-progress")
+    public ResponseEntity<ProjectDTO> recalculateProgress(@PathVariable Long id) {
+        return ResponseEntity.ok(projectService.updateProgress(id));
+    }
+
+    /**
+     * Recalculate the progress of all projects, plannings and actions.
+     *
+     * @return no content response
+     */
+    @PostMapping("/recalculate-progress")
+    public ResponseEntity<Void> recalculateAllProgress() {
+        projectService.recalculateAllProgress();
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Export all active projects.
+     *
+     * @param format the export format (excel, pdf, csv)
+     * @return the exported file
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProjects(
+            @RequestParam(defaultValue = "excel") String format) {
+        
+        // Unknown formats fall back to Excel
+        ExportFormat exportFormat = ExportFormat.fromName(format);
+        ExportWriter writer = projectService.exportProjects(exportFormat);
+        
+        // Rows are written to the response as they are read from the database
+        return ResponseEntity
+                .ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=projects." + exportFormat.getExtension())
+                .body(writer::writeTo);
+    }
+
     /**
      * Export project data.
      *
@@ -219,30 +263,19 @@ public class ProjectController {
      * @return the exported file
      */
     @GetMapping("/{id}/export")
-    public ResponseEntity<byte[]> exportProject(
+    public ResponseEntity<StreamingResponseBody> exportProject(
             @PathVariable Long id,
             @RequestParam(defaultValue = "excel") String format) {
         
-        // This is a mock implementation since we don't have actual export functionality
-        byte[] reportContent = new byte[0]; // Service method should be implemented
-        
-        String contentType;
-        String extension;
-        
-        try {
-            ExportFormat exportFormat = ExportFormat.valueOf(format.toUpperCase());
-            contentType = exportFormat.getContentType();
-            extension = exportFormat.getExtension();
-        } catch (IllegalArgumentException e) {
-            // Default to Excel if format is invalid
-            contentType = ExportFormat.EXCEL.getContentType();
-            extension = ExportFormat.EXCEL.getExtension();
-        }
+        // Unknown formats fall back to Excel
+        ExportFormat exportFormat = ExportFormat.fromName(format);
+        ExportWriter writer = projectService.exportProject(id, exportFormat);
         
+        // Rows are written to the response as they are read from the database
         return ResponseEntity
                 .ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=project_" + id + "." + extension)
-                .body(reportContent);
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=project_" + id + "." + exportFormat.getExtension())
+                .body(writer::writeTo);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,83 @@
+package com.projectmanagement.dashboard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Short-lived cache of dashboard data, keyed by name.
+ * <p>
+ * Entries expire after {@code app.dashboard.cache-ttl-seconds} and are all evicted as soon
+ * as a write to a project or an action commits (see {@link DashboardCacheListener}). A
+ * value loaded while an eviction happens is returned but not cached, so a write is never
+ * hidden for a whole TTL by a load that read the data just before it committed.
+ */
+@Component
+@Slf4j
+public class DashboardCache {
+
+    private final long ttlNanos;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    public DashboardCache(@Value("${app.dashboard.cache-ttl-seconds:30}") long ttlSeconds) {
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+    }
+
+    /**
+     * Get a cached value, loading it if it is missing or expired.
+     *
+     * @param key    the cache key
+     * @param loader loads the value
+     * @param <T>    the type of the value
+     * @return the value
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader) {
+        long now = System.nanoTime();
+        Entry entry = entries.get(key);
+        if (entry != null && now - entry.loadedAt < ttlNanos) {
+            return (T) entry.value;
+        }
+
+        long loadGeneration = generation.get();
+        T value = loader.get();
+        if (ttlNanos > 0 && generation.get() == loadGeneration) {
+            Entry loaded = new Entry(value, now);
+            entries.put(key, loaded);
+            // An eviction that started between the check and the put may have cleared the
+            // entries before the put: it has bumped the generation, so undo the put
+            if (generation.get() != loadGeneration) {
+                entries.remove(key, loaded);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Evict all entries.
+     */
+    public void evictAll() {
+        generation.incrementAndGet();
+        if (!entries.isEmpty()) {
+            entries.clear();
+            log.debug("Dashboard cache evicted");
+        }
+    }
+
+    private static final class Entry {
+
+        private final Object value;
+        private final long loadedAt;
+
+        Entry(Object value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.projectmanagement.dashboard;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA entity listener evicting the dashboard cache when a project or an action is written.
+ * <p>
+ * The callbacks run when the change is flushed, before it commits: a dashboard loaded in
+ * between would still read the previous data. The cache is therefore evicted once the
+ * transaction completes, with one synchronization per transaction however many entities
+ * it writes. It is also evicted after a rollback, in case the transaction itself loaded
+ * dashboard data after writing. Writes made without a transaction evict it immediately.
+ * <p>
+ * Instantiated by Hibernate through the Spring bean container configured in
+ * {@code JpaConfig}. Bulk JPQL updates bypass entity listeners; they only touch the
+ * progress roll-ups, which the dashboard summary does not show.
+ */
+@Component
+public class DashboardCacheListener {
+
+    private final DashboardCache dashboardCache;
+
+    @Autowired
+    public DashboardCacheListener(DashboardCache dashboardCache) {
+        this.dashboardCache = dashboardCache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onWrite(Object entity) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            dashboardCache.evictAll();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(DashboardCacheListener.this);
+                dashboardCache.evictAll();
+            }
+        });
+    }
+}
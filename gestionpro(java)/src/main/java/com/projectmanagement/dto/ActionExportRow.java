@@ -0,0 +1,56 @@
+package com.projectmanagement.dto;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One row of an action export, read with a JPQL constructor expression.
+ */
+@Getter
+public class ActionExportRow {
+
+    private final Long id;
+    private final String name;
+    private final String phase;
+    private final String status;
+    private final String responsable;
+    private final LocalDate startDate;
+    private final LocalDate plannedEndDate;
+    private final LocalDate actualEndDate;
+    private final Double progress;
+
+    public ActionExportRow(Long id, String name, String phase, String status,
+                           String responsableFirstName, String responsableLastName,
+                           LocalDate startDate, LocalDate plannedEndDate, LocalDate actualEndDate, Double progress) {
+        this.id = id;
+        this.name = name;
+        this.phase = phase;
+        this.status = status;
+        this.responsable = responsableFirstName != null || responsableLastName != null
+                ? responsableFirstName + " " + responsableLastName : null;
+        this.startDate = startDate;
+        this.plannedEndDate = plannedEndDate;
+        this.actualEndDate = actualEndDate;
+        this.progress = progress != null ? progress : 0.0;
+    }
+
+    /**
+     * @return the exported fields and their display names
+     */
+    public static Map<String, String> headers() {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("id", "ID");
+        headers.put("name", "Name");
+        headers.put("phase", "Phase");
+        headers.put("status", "Status");
+        headers.put("responsable", "Responsible");
+        headers.put("startDate", "Start Date");
+        headers.put("plannedEndDate", "Planned End Date");
+        headers.put("actualEndDate", "Actual End Date");
+        headers.put("progress", "Progress (%)");
+        return headers;
+    }
+}
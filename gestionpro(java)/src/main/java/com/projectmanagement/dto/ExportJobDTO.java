@@ -0,0 +1,30 @@
+package com.projectmanagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for the status of a background export job.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportJobDTO {
+
+    private String id;
+    private String status;
+    private String format;
+    private String fileName;
+    private Long rowsWritten;
+    private Long fileSize;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+    private String downloadUrl;
+}
@@ -0,0 +1,25 @@
+package com.projectmanagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO for the downsampled trend of the KPI values of a project.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class KpiTrendDTO {
+
+    private Long projectId;
+    private String resolution;
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+    private List<KpiTrendPointDTO> points;
+}
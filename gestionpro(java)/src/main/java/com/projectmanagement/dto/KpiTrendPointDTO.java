@@ -0,0 +1,27 @@
+package com.projectmanagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for one time bucket of a KPI trend.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class KpiTrendPointDTO {
+
+    private Long metricId;
+    private LocalDateTime bucketStart;
+    private Long count;
+    private Double minValue;
+    private Double maxValue;
+    private Double averageValue;
+    private Double lastValue;
+    private LocalDateTime lastMeasurementDate;
+}
@@ -0,0 +1,38 @@
+package com.projectmanagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One row of a KPI value export, read with a JPQL constructor expression.
+ */
+@Getter
+@AllArgsConstructor
+public class KpiValueExportRow {
+
+    private final Long metricId;
+    private final String metricCode;
+    private final String metricName;
+    private final Double value;
+    private final LocalDateTime measurementDate;
+    private final Boolean warningThresholdBreached;
+    private final Boolean criticalThresholdBreached;
+
+    /**
+     * @return the exported fields and their display names
+     */
+    public static Map<String, String> headers() {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("metricCode", "Metric Code");
+        headers.put("metricName", "Metric Name");
+        headers.put("value", "Value");
+        headers.put("measurementDate", "Measurement Date");
+        headers.put("warningThresholdBreached", "Warning Threshold Breached");
+        headers.put("criticalThresholdBreached", "Critical Threshold Breached");
+        return headers;
+    }
+}
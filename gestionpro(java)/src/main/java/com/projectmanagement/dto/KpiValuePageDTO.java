@@ -0,0 +1,31 @@
+package com.projectmanagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO for one page of the KPI value history of a project, in measurement date then ID order.
+ * The next page starts after the (nextAfterDate, nextAfterId) position, which is null on the last page.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class KpiValuePageDTO {
+
+    private List<KpiValueDTO> values;
+    private LocalDateTime nextAfterDate;
+    private Long nextAfterId;
+
+    /**
+     * @return true if there are more values after this page
+     */
+    public boolean isHasMore() {
+        return nextAfterId != null;
+    }
+}
@@ -0,0 +1,52 @@
+package com.projectmanagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * DTO for the Gantt chart of a planning.
+ * <p>
+ * Columnar: the action arrays are aligned, one entry per active action in ID order, and so
+ * are the sub-action arrays and the dependency arrays. Dates are day offsets from
+ * {@code startDate}, the earliest date of the actions and sub-actions, and are null when not
+ * set. Sub-actions and dependencies reference actions by ID; the prerequisite of a
+ * dependency may be an action of another planning.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlanningGanttDTO {
+
+    private Long planningId;
+    private Long projectId;
+    private String projectName;
+    private LocalDate startDate;
+
+    private long[] actionIds;
+    private String[] actionNames;
+    private Integer[] actionStarts;
+    private Integer[] actionPlannedEnds;
+    private Integer[] actionActualEnds;
+    private double[] actionProgress;
+    private String[] actionStatuses;
+    private String[] actionResponsables;
+
+    private long[] subActionIds;
+    private long[] subActionActionIds;
+    private String[] subActionNames;
+    private Integer[] subActionStarts;
+    private Integer[] subActionPlannedEnds;
+    private Integer[] subActionActualEnds;
+    private String[] subActionStatuses;
+
+    /**
+     * IDs of the dependent actions, aligned with {@link #dependencyDependsOnIds}.
+     */
+    private long[] dependencyActionIds;
+    private long[] dependencyDependsOnIds;
+}
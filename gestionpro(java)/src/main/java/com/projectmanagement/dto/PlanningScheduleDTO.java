@@ -0,0 +1,37 @@
+package com.projectmanagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * DTO for the critical path schedule of the actions of a planning or a project.
+ * <p>
+ * Columnar: the arrays are aligned, one entry per action in topological order. Starts and
+ * finishes are day offsets from {@code startDate}, finishes being exclusive (the day the
+ * successors can start).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlanningScheduleDTO {
+
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private int duration;
+    private long[] actionIds;
+    private int[] earliestStart;
+    private int[] earliestFinish;
+    private int[] latestStart;
+    private int[] latestFinish;
+    private int[] totalFloat;
+
+    /**
+     * IDs of the critical actions, in topological order.
+     */
+    private long[] criticalPath;
+}
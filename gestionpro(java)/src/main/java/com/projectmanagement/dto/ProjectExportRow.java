@@ -0,0 +1,59 @@
+package com.projectmanagement.dto;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One row of a project list export, read with a JPQL constructor expression.
+ */
+@Getter
+public class ProjectExportRow {
+
+    private final Long id;
+    private final String name;
+    private final String type;
+    private final String status;
+    private final String priority;
+    private final String direction;
+    private final LocalDate startDate;
+    private final LocalDate plannedEndDate;
+    private final LocalDate actualEndDate;
+    private final Double progress;
+
+    public ProjectExportRow(Long id, String name, String type, String status, String priority, String direction,
+                            LocalDate startDate, LocalDate plannedEndDate, LocalDate actualEndDate,
+                            Integer actionCount, Double progressSum) {
+        this.id = id;
+        this.name = name;
+        this.type = type;
+        this.status = status;
+        this.priority = priority;
+        this.direction = direction;
+        this.startDate = startDate;
+        this.plannedEndDate = plannedEndDate;
+        this.actualEndDate = actualEndDate;
+        this.progress = actionCount != null && actionCount > 0 && progressSum != null
+                ? progressSum / actionCount : 0.0;
+    }
+
+    /**
+     * @return the exported fields and their display names
+     */
+    public static Map<String, String> headers() {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("id", "ID");
+        headers.put("name", "Name");
+        headers.put("type", "Type");
+        headers.put("status", "Status");
+        headers.put("priority", "Priority");
+        headers.put("direction", "Direction");
+        headers.put("startDate", "Start Date");
+        headers.put("plannedEndDate", "Planned End Date");
+        headers.put("actualEndDate", "Actual End Date");
+        headers.put("progress", "Progress (%)");
+        return headers;
+    }
+}
@@ -0,0 +1,39 @@
+package com.projectmanagement.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One row of a sub-action export, read with a JPQL constructor expression.
+ */
+@Getter
+@AllArgsConstructor
+public class SubActionExportRow {
+
+    private final Long id;
+    private final String name;
+    private final String description;
+    private final String status;
+    private final LocalDate startDate;
+    private final LocalDate plannedEndDate;
+    private final LocalDate actualEndDate;
+
+    /**
+     * @return the exported fields and their display names
+     */
+    public static Map<String, String> headers() {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("id", "ID");
+        headers.put("name", "Name");
+        headers.put("description", "Description");
+        headers.put("status", "Status");
+        headers.put("startDate", "Start Date");
+        headers.put("plannedEndDate", "Planned End Date");
+        headers.put("actualEndDate", "Actual End Date");
+        return headers;
+    }
+}
@@ -1,8 +1,12 @@
 package com.projectmanagement.entity;
 
+import com.projectmanagement.dashboard.DashboardCacheListener;
+import com.projectmanagement.kpi.KpiDirtyProjectListener;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -10,9 +14,18 @@ import java.util.List;
 
 /**
  * Entity representing project actions (tbact table).
+ * <p>
+ * The {@code Action.summary} entity graph fetches the references an {@code ActionDTO} shows
+ * (planning and its project, status, responsable) with the actions themselves.
  */
 @Entity
 @Table(name = "tbact")
+@NamedEntityGraph(name = "Action.summary", attributeNodes = {
+        @NamedAttributeNode(value = "planning", subgraph = "planning"),
+        @NamedAttributeNode("status"),
+        @NamedAttributeNode("responsable")
+}, subgraphs = @NamedSubgraph(name = "planning", attributeNodes = @NamedAttributeNode("project")))
+@EntityListeners({DashboardCacheListener.class, KpiDirtyProjectListener.class})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -47,7 +60,22 @@ public class Action extends BaseEntity {
     @Column(name = "prog")
     private Double progress;
     
+    /**
+     * Number of sub-actions, maintained by {@code ProgressRollupService}.
+     */
+    @Column(name = "nbsact", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Integer subActionCount;
+    
+    /**
+     * Number of finished sub-actions, maintained by {@code ProgressRollupService}.
+     */
+    @Column(name = "nbsactc", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Integer completedSubActionCount;
+    
     @OneToMany(mappedBy = "action", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 100)
     @Builder.Default
     private List<SubAction> subActions = new ArrayList<>();
     
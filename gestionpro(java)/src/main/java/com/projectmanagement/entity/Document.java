@@ -1,5 +1,6 @@
 package com.projectmanagement.entity;
 
+import com.projectmanagement.kpi.KpiDirtyProjectListener;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
@@ -12,6 +13,7 @@ import java.time.LocalDateTime;
  */
 @Entity
 @Table(name = "tbdoc")
+@EntityListeners(KpiDirtyProjectListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
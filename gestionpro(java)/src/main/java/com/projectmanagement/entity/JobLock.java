@@ -0,0 +1,51 @@
+package com.projectmanagement.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lease on a scheduled job (or on one partition of a job), shared by the application nodes.
+ * <p>
+ * The node holding an unexpired lease is the only one running the job. Every acquisition
+ * increments the fencing token, so a node that lost its lease while paused can tell, in
+ * the transaction of its writes, that another node took over. The date of the last run
+ * completed under the lease lets the other nodes skip a run already done.
+ */
+@Entity
+@Table(name = "tbjoblck",
+        uniqueConstraints = @UniqueConstraint(name = "uk_tbjoblck", columnNames = "lib"))
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class JobLock extends BaseEntity {
+
+    @Column(name = "lib", nullable = false, length = 100)
+    private String name;
+
+    /**
+     * Node holding or that last held the lease, null if the lease was never acquired.
+     */
+    @Column(name = "owner", length = 100)
+    private String owner;
+
+    /**
+     * End of the lease; the lease is free once it is past.
+     */
+    @Column(name = "dexp")
+    private LocalDateTime expiryDate;
+
+    @Column(name = "token", nullable = false)
+    private Long token = 0L;
+
+    /**
+     * Date of the last run completed under the lease.
+     */
+    @Column(name = "drun")
+    private LocalDateTime lastRunDate;
+}
@@ -0,0 +1,40 @@
+package com.projectmanagement.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Record that the KPI inputs of a project changed.
+ * <p>
+ * Written by {@code KpiDirtyProjectListener} in the transaction of the change, and read by
+ * {@code KpiUpdateScheduler} to recompute only the projects changed since a metric's last
+ * update. The project is identified directly, or through the planning or the action that
+ * changed, resolved when the marks are read.
+ */
+@Entity
+@Table(name = "tbkpidrt", indexes = {
+        @Index(name = "ix_tbkpidrt_dmark", columnList = "dmark")
+})
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class KpiDirtyMark extends BaseEntity {
+
+    @Column(name = "idpro")
+    private Long projectId;
+
+    @Column(name = "idplan")
+    private Long planningId;
+
+    @Column(name = "idact")
+    private Long actionId;
+
+    @Column(name = "dmark", nullable = false)
+    private LocalDateTime markDate;
+}
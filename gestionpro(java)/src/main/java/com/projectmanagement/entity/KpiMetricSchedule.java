@@ -0,0 +1,44 @@
+package com.projectmanagement.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Next due date of the automatic update of a KPI metric.
+ * <p>
+ * One row per metric with an update frequency, kept by {@code KpiUpdateScheduler} so that
+ * the update schedule survives restarts. The frequency the due date was computed for is
+ * stored with it, so a frequency change reschedules the metric.
+ */
+@Entity
+@Table(name = "tbkpisch",
+        uniqueConstraints = @UniqueConstraint(name = "uk_tbkpisch", columnNames = "idkpim"))
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class KpiMetricSchedule extends BaseEntity {
+
+    @Column(name = "idkpim", nullable = false)
+    private Long metricId;
+
+    /**
+     * Update frequency, in minutes, the next due date was computed for.
+     */
+    @Column(name = "freq", nullable = false)
+    private Integer frequencyMinutes;
+
+    @Column(name = "dnext", nullable = false)
+    private LocalDateTime nextDueDate;
+
+    /**
+     * Date of the last automatic update, null if the metric was never updated.
+     */
+    @Column(name = "dlast")
+    private LocalDateTime lastRunDate;
+}
@@ -0,0 +1,130 @@
+package com.projectmanagement.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pending or sent notification of a KPI threshold breach (notification outbox).
+ * <p>
+ * A row is written in the same transaction as the breaching {@link KpiValue} and holds
+ * everything the notification needs, so the dispatcher never loads the value, its metric
+ * or its project. Identifiers are plain columns for the same reason.
+ * <p>
+ * Notifications are sent grouped by recipient, the direction of the project: a pending
+ * notification is first claimed by a {@link KpiNotificationDigest}, then marked as sent
+ * when that digest is delivered.
+ */
+@Entity
+@Table(name = "tbkpinot", indexes = {
+        @Index(name = "ix_tbkpinot_pend", columnList = "dtenv, iddig, iddir"),
+        @Index(name = "ix_tbkpinot_dig", columnList = "iddig")
+})
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class KpiNotification extends BaseEntity {
+
+    /**
+     * Severity of a threshold breach.
+     */
+    public enum Level {
+        WARNING,
+        CRITICAL
+    }
+
+    /**
+     * ID of the breaching KPI value.
+     */
+    @Column(name = "idkpiv")
+    private Long kpiValueId;
+
+    @Column(name = "idkpim", nullable = false)
+    private Long metricId;
+
+    @Column(name = "idpro")
+    private Long projectId;
+
+    /**
+     * Direction of the project, which receives the notification.
+     */
+    @Column(name = "iddir")
+    private Long directionId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "lvl", length = 10, nullable = false)
+    private Level level;
+
+    @Column(name = "val", nullable = false)
+    private Double value;
+
+    @Column(name = "mdate", nullable = false)
+    private LocalDateTime measurementDate;
+
+    @Column(name = "libkpim", length = 100)
+    private String metricName;
+
+    @Column(name = "libpro", length = 200)
+    private String projectName;
+
+    /**
+     * Date the notification was sent, null while it is pending.
+     */
+    @Column(name = "dtenv")
+    private LocalDateTime sentDate;
+
+    /**
+     * Digest the notification belongs to, null until a digest claims it.
+     */
+    @Column(name = "iddig")
+    private Long digestId;
+
+    /**
+     * Build the notification of a KPI value, if it breaches a threshold.
+     *
+     * @param value the KPI value, with its metric and project set
+     * @return the notification, or null if the value breaches no threshold
+     */
+    public static KpiNotification forValue(KpiValue value) {
+        Level level = levelOf(value);
+        if (level == null) {
+            return null;
+        }
+        KpiNotification notification = new KpiNotification();
+        notification.setKpiValueId(value.getId());
+        notification.setMetricId(value.getMetric().getId());
+        notification.setMetricName(value.getMetric().getName());
+        if (value.getProject() != null) {
+            notification.setProjectId(value.getProject().getId());
+            notification.setProjectName(value.getProject().getName());
+            if (value.getProject().getDirection() != null) {
+                notification.setDirectionId(value.getProject().getDirection().getId());
+            }
+        }
+        notification.setLevel(level);
+        notification.setValue(value.getValue());
+        notification.setMeasurementDate(value.getMeasurementDate());
+        return notification;
+    }
+
+    /**
+     * Get the most severe threshold breached by a KPI value.
+     *
+     * @param value the KPI value
+     * @return the breach level, or null if no threshold is breached
+     */
+    public static Level levelOf(KpiValue value) {
+        if (Boolean.TRUE.equals(value.getCriticalThresholdBreached())) {
+            return Level.CRITICAL;
+        }
+        if (Boolean.TRUE.equals(value.getWarningThresholdBreached())) {
+            return Level.WARNING;
+        }
+        return null;
+    }
+}
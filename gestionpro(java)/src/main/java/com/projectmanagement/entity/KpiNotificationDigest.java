@@ -0,0 +1,56 @@
+package com.projectmanagement.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * One digest of KPI threshold notifications sent to a recipient (a project direction).
+ * <p>
+ * The digest row is written, and the pending notifications of its recipient are claimed
+ * by it, before anything is sent. It therefore records how far delivery went for that
+ * recipient: a digest without sending date was claimed but not delivered, and is sent
+ * again with the same ID and the same notifications by the next dispatch.
+ */
+@Entity
+@Table(name = "tbkpidig", indexes = {
+        @Index(name = "ix_tbkpidig_dtenv", columnList = "dtenv, iddir")
+})
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class KpiNotificationDigest extends BaseEntity {
+
+    /**
+     * Recipient direction, null for projects without a direction.
+     */
+    @Column(name = "iddir")
+    private Long directionId;
+
+    @Column(name = "libdir", length = 100)
+    private String directionName;
+
+    @Column(name = "nbcrit", nullable = false)
+    private Integer criticalCount = 0;
+
+    @Column(name = "nbwarn", nullable = false)
+    private Integer warningCount = 0;
+
+    /**
+     * Date the digest was delivered, null while it is pending.
+     */
+    @Column(name = "dtenv")
+    private LocalDateTime sentDate;
+
+    /**
+     * @return the number of notifications in the digest
+     */
+    public int getNotificationCount() {
+        return criticalCount + warningCount;
+    }
+}
@@ -12,7 +12,10 @@ import java.time.LocalDateTime;
  * Entity representing actual KPI values measured for projects.
  */
 @Entity
-@Table(name = "tbkpiv")
+@Table(name = "tbkpiv", indexes = {
+        @Index(name = "ix_tbkpiv_pro_met_date", columnList = "idpro, idkpim, mdate DESC"),
+        @Index(name = "ix_tbkpiv_pro_date", columnList = "idpro, mdate")
+})
 @Data
 @NoArgsConstructor
 @EqualsAndHashCode(callSuper = true)
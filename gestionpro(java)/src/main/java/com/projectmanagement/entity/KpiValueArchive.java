@@ -0,0 +1,102 @@
+package com.projectmanagement.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * KPI value moved out of {@code tbkpiv} by the retention job.
+ * <p>
+ * The archive table has the columns of {@code tbkpiv} and keeps the value IDs, so archived
+ * values are read back as {@link KpiValue}s in the same (measurement date, ID) order as the
+ * hot ones. Rows are only written by {@code INSERT ... SELECT} from {@code tbkpiv}.
+ */
+@Entity
+@Table(name = "tbkpiva", indexes = {
+        @Index(name = "ix_tbkpiva_pro_date", columnList = "idpro, mdate")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString(exclude = {"metric", "project", "portfolioPhase"})
+public class KpiValueArchive {
+
+    /**
+     * ID of the value in {@code tbkpiv}.
+     */
+    @Id
+    @Column(name = "id")
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "idkpim", nullable = false)
+    private KpiMetric metric;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "idpro")
+    private Project project;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "idkpi")
+    private PortfolioPhase portfolioPhase;
+
+    @Column(name = "val", nullable = false)
+    private Double value;
+
+    @Column(name = "mdate", nullable = false)
+    private LocalDateTime measurementDate;
+
+    @Column(name = "comm", length = 500)
+    private String comment;
+
+    @Column(name = "warnbr")
+    private Boolean warningThresholdBreached;
+
+    @Column(name = "critbr")
+    private Boolean criticalThresholdBreached;
+
+    @Column(name = "notsnt")
+    private Boolean notificationSent;
+
+    @Column(name = "dtcrea", nullable = false)
+    private LocalDateTime dateCreation;
+
+    @Column(name = "dtmod")
+    private LocalDateTime dateModification;
+
+    @Column(name = "actif", nullable = false)
+    private Boolean actif;
+
+    /**
+     * Date the value was moved to the archive.
+     */
+    @Column(name = "dtarch", nullable = false)
+    private LocalDateTime archivedDate;
+
+    /**
+     * Copy this archived value to a detached KPI value with the same ID.
+     *
+     * @return the KPI value
+     */
+    public KpiValue toKpiValue() {
+        KpiValue value = new KpiValue();
+        value.setId(id);
+        value.setMetric(metric);
+        value.setProject(project);
+        value.setPortfolioPhase(portfolioPhase);
+        value.setValue(this.value);
+        value.setMeasurementDate(measurementDate);
+        value.setComment(comment);
+        value.setWarningThresholdBreached(warningThresholdBreached);
+        value.setCriticalThresholdBreached(criticalThresholdBreached);
+        value.setNotificationSent(notificationSent);
+        value.setDateCreation(dateCreation);
+        value.setDateModification(dateModification);
+        value.setActif(actif);
+        return value;
+    }
+}
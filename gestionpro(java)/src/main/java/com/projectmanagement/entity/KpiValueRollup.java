@@ -0,0 +1,118 @@
+package com.projectmanagement.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Aggregate of the KPI values of one project and metric over one time bucket.
+ * <p>
+ * Roll-ups are kept at three resolutions (hour, day, month) and updated as values are
+ * recorded, so trend queries read a bounded number of rows instead of every raw value.
+ * The average is derived from the stored sum and count.
+ */
+@Entity
+@Table(name = "tbkpir",
+        uniqueConstraints = @UniqueConstraint(name = "uk_tbkpir", columnNames = {"idpro", "idkpim", "res", "dbuck"}))
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class KpiValueRollup extends BaseEntity {
+
+    /**
+     * Size of the time buckets of a roll-up.
+     */
+    public enum Resolution {
+        HOUR(ChronoUnit.HOURS.getDuration().getSeconds()),
+        DAY(ChronoUnit.DAYS.getDuration().getSeconds()),
+        MONTH(ChronoUnit.MONTHS.getDuration().getSeconds());
+
+        private final long approximateSeconds;
+
+        Resolution(long approximateSeconds) {
+            this.approximateSeconds = approximateSeconds;
+        }
+
+        /**
+         * Get the start of the bucket containing a date.
+         *
+         * @param date the date
+         * @return the start of its bucket
+         */
+        public LocalDateTime bucketStart(LocalDateTime date) {
+            switch (this) {
+                case HOUR:
+                    return date.truncatedTo(ChronoUnit.HOURS);
+                case DAY:
+                    return date.truncatedTo(ChronoUnit.DAYS);
+                default:
+                    return date.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+            }
+        }
+
+        /**
+         * Estimate the number of buckets between two dates.
+         *
+         * @param start the start date
+         * @param end   the end date
+         * @return the approximate number of buckets, at least 1
+         */
+        public long estimateBuckets(LocalDateTime start, LocalDateTime end) {
+            long seconds = Math.max(0, ChronoUnit.SECONDS.between(start, end));
+            return seconds / approximateSeconds + 1;
+        }
+    }
+
+    @Column(name = "idpro", nullable = false)
+    private Long projectId;
+
+    @Column(name = "idkpim", nullable = false)
+    private Long metricId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "res", length = 10, nullable = false)
+    private Resolution resolution;
+
+    /**
+     * Start of the bucket.
+     */
+    @Column(name = "dbuck", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "nb", nullable = false)
+    private Long count;
+
+    @Column(name = "vmin", nullable = false)
+    private Double minValue;
+
+    @Column(name = "vmax", nullable = false)
+    private Double maxValue;
+
+    @Column(name = "vsum", nullable = false)
+    private Double sumValue;
+
+    /**
+     * Most recent value of the bucket.
+     */
+    @Column(name = "vlast", nullable = false)
+    private Double lastValue;
+
+    /**
+     * Measurement date of the most recent value of the bucket.
+     */
+    @Column(name = "dlast", nullable = false)
+    private LocalDateTime lastMeasurementDate;
+
+    /**
+     * @return the average value of the bucket
+     */
+    public double getAverageValue() {
+        return count > 0 ? sumValue / count : 0;
+    }
+}
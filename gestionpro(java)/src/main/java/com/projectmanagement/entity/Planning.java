@@ -1,8 +1,10 @@
 package com.projectmanagement.entity;
 
+import com.projectmanagement.kpi.KpiDirtyProjectListener;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -12,6 +14,7 @@ import java.util.List;
  */
 @Entity
 @Table(name = "tbplan")
+@EntityListeners(KpiDirtyProjectListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -27,6 +30,20 @@ public class Planning extends BaseEntity {
     @JoinColumn(name = "idkpi")
     private PortfolioPhase phase;
     
+    /**
+     * Number of actions counted in {@link #progressSum}, maintained by {@code ProgressRollupService}.
+     */
+    @Column(name = "nbact", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Integer actionCount;
+    
+    /**
+     * Sum of the progress of the actions, maintained by {@code ProgressRollupService}.
+     */
+    @Column(name = "sprog", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Double progressSum;
+    
     @OneToMany(mappedBy = "planning", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
     private List<Action> actions = new ArrayList<>();
@@ -1,8 +1,11 @@
 package com.projectmanagement.entity;
 
+import com.projectmanagement.dashboard.DashboardCacheListener;
+import com.projectmanagement.kpi.KpiDirtyProjectListener;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.Type;
 
 import java.time.LocalDate;
@@ -11,9 +14,20 @@ import java.util.List;
 
 /**
  * Entity representing projects (tbpro table).
+ * <p>
+ * The {@code Project.summary} entity graph fetches the references a {@code ProjectDTO} shows
+ * with the projects themselves.
  */
 @Entity
 @Table(name = "tbpro")
+@NamedEntityGraph(name = "Project.summary", attributeNodes = {
+        @NamedAttributeNode("type"),
+        @NamedAttributeNode("status"),
+        @NamedAttributeNode("priority"),
+        @NamedAttributeNode("direction"),
+        @NamedAttributeNode("team")
+})
+@EntityListeners({DashboardCacheListener.class, KpiDirtyProjectListener.class})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -62,6 +76,27 @@ public class Project extends BaseEntity {
     @Column(name = "dfr")
     private LocalDate actualEndDate;
     
+    /**
+     * Number of actions counted in {@link #progressSum}, maintained by {@code ProgressRollupService}.
+     */
+    @Column(name = "nbact", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Integer actionCount;
+    
+    /**
+     * Sum of the progress of the actions, maintained by {@code ProgressRollupService}.
+     */
+    @Column(name = "sprog", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Double progressSum;
+    
+    /**
+     * Version of the action dependencies of the project, incremented by {@code DependencyIndex}.
+     */
+    @Column(name = "vdep", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long dependencyVersion;
+    
     @OneToMany(mappedBy = "project", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
     private List<Planning> plannings = new ArrayList<>();
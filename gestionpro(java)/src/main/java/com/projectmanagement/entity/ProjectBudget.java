@@ -1,5 +1,6 @@
 package com.projectmanagement.entity;
 
+import com.projectmanagement.kpi.KpiDirtyProjectListener;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
@@ -11,6 +12,7 @@ import java.math.BigDecimal;
  */
 @Entity
 @Table(name = "tbprbudg")
+@EntityListeners(KpiDirtyProjectListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
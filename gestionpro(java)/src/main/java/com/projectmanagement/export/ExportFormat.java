@@ -45,4 +45,21 @@ public enum ExportFormat {
     public String getDisplayName() {
         return displayName;
     }
+    
+    /**
+     * Get the format with the given name, ignoring case.
+     * 
+     * @param name the format name (e.g., "excel", "pdf", "csv")
+     * @return the format, or EXCEL if the name is empty or unknown
+     */
+    public static ExportFormat fromName(String name) {
+        if (name != null) {
+            for (ExportFormat format : values()) {
+                if (format.name().equalsIgnoreCase(name.trim())) {
+                    return format;
+                }
+            }
+        }
+        return EXCEL;
+    }
 } 
\ No newline at end of file
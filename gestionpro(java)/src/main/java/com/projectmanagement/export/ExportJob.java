@@ -0,0 +1,72 @@
+package com.projectmanagement.export;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+/**
+ * An export rendered in the background into a temporary file by {@link ExportJobManager}.
+ * <p>
+ * The state is written by the worker thread and read by status requests, hence the
+ * volatile fields.
+ */
+@Getter
+public class ExportJob {
+
+    /**
+     * Lifecycle of an export job.
+     */
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id;
+    private final ExportFormat format;
+    private final String fileName;
+    private final Path file;
+    private final LocalDateTime submittedAt;
+
+    private volatile Status status = Status.PENDING;
+    private volatile long rowsWritten;
+    private volatile long fileSize;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    ExportJob(String id, ExportFormat format, String fileName, Path file) {
+        this.id = id;
+        this.format = format;
+        this.fileName = fileName;
+        this.file = file;
+        this.submittedAt = LocalDateTime.now();
+    }
+
+    /**
+     * @return true if the job is completed or failed
+     */
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    void start() {
+        startedAt = LocalDateTime.now();
+        status = Status.RUNNING;
+    }
+
+    void progress(long rows) {
+        rowsWritten = rows;
+    }
+
+    void complete(long size) {
+        fileSize = size;
+        finishedAt = LocalDateTime.now();
+        status = Status.COMPLETED;
+    }
+
+    void fail(String message) {
+        error = message;
+        finishedAt = LocalDateTime.now();
+        status = Status.FAILED;
+    }
+}
@@ -0,0 +1,191 @@
+package com.projectmanagement.export;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs exports in the background and keeps their results on disk.
+ * <p>
+ * A submitted {@link ExportWriter} is queued on a bounded worker pool and written into a file
+ * of the results directory; the request thread only gets the job back. Jobs are kept in
+ * memory, so they are local to the application instance. Finished jobs are evicted, with
+ * their file, once they are older than the configured time to live.
+ */
+@Component
+@Slf4j
+public class ExportJobManager {
+
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+    private final int threads;
+    private final int queueCapacity;
+    private final long ttlMinutes;
+    private final Path directory;
+
+    private ThreadPoolExecutor executor;
+
+    @Autowired
+    public ExportJobManager(@Value("${app.export.jobs.threads:2}") int threads,
+                            @Value("${app.export.jobs.queue-capacity:20}") int queueCapacity,
+                            @Value("${app.export.jobs.ttl-minutes:60}") long ttlMinutes,
+                            @Value("${app.export.jobs.directory:}") String directory) {
+        if (threads < 1 || queueCapacity < 1 || ttlMinutes < 1) {
+            throw new IllegalArgumentException("Export job threads, queue capacity and TTL must be positive");
+        }
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.ttlMinutes = ttlMinutes;
+        this.directory = directory.isEmpty()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "project-exports")
+                : Paths.get(directory);
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        Files.createDirectories(directory);
+        AtomicInteger counter = new AtomicInteger();
+        // A full queue rejects the submission rather than blocking the request thread
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "export-job-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+        jobs.values().forEach(this::deleteFile);
+        jobs.clear();
+    }
+
+    /**
+     * Queue an export.
+     *
+     * @param writer   the export to write
+     * @param format   the export format
+     * @param baseName the download file name, without extension
+     * @return the pending job
+     * @throws RejectedExecutionException if too many exports are already queued
+     */
+    public ExportJob submit(ExportWriter writer, ExportFormat format, String baseName) {
+        String id = UUID.randomUUID().toString();
+        ExportJob job = new ExportJob(id, format, baseName + "." + format.getExtension(),
+                directory.resolve(id + "." + format.getExtension()));
+        jobs.put(id, job);
+        try {
+            executor.execute(() -> run(job, writer));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(id);
+            log.warn("Export queue is full, rejected {} export {}", format, job.getFileName());
+            throw e;
+        }
+        log.debug("Queued export job {} ({})", id, job.getFileName());
+        return job;
+    }
+
+    /**
+     * Find a job.
+     *
+     * @param id the job ID
+     * @return the job, if it exists and has not been evicted
+     */
+    public Optional<ExportJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * Delete a finished job and its file.
+     *
+     * @param id the job ID
+     * @return false if there is no such job
+     * @throws IllegalStateException if the job is still pending or running
+     */
+    public boolean delete(String id) {
+        ExportJob job = jobs.get(id);
+        if (job == null) {
+            return false;
+        }
+        if (!job.isFinished()) {
+            throw new IllegalStateException("Export job " + id + " is still " + job.getStatus());
+        }
+        jobs.remove(id);
+        deleteFile(job);
+        return true;
+    }
+
+    /**
+     * Evict the finished jobs older than the time to live, with their files.
+     *
+     * @return the number of evicted jobs
+     */
+    public int evictExpired() {
+        LocalDateTime limit = LocalDateTime.now().minusMinutes(ttlMinutes);
+        int evicted = 0;
+        for (ExportJob job : jobs.values()) {
+            if (job.isFinished() && job.getFinishedAt().isBefore(limit) && jobs.remove(job.getId(), job)) {
+                deleteFile(job);
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            log.info("Evicted {} expired export jobs", evicted);
+        }
+        return evicted;
+    }
+
+    private void run(ExportJob job, ExportWriter writer) {
+        job.start();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(job.getFile()))) {
+            writer.writeTo(out, job::progress);
+        } catch (Throwable e) {
+            // Errors too, or the job would stay RUNNING with its file left behind
+            log.error("Export job {} failed: {}", job.getId(), e.getMessage(), e);
+            deleteFile(job);
+            job.fail(e.getMessage());
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            return;
+        }
+        try {
+            job.complete(Files.size(job.getFile()));
+            log.debug("Export job {} completed: {} rows", job.getId(), job.getRowsWritten());
+        } catch (IOException e) {
+            job.fail(e.getMessage());
+        }
+    }
+
+    private void deleteFile(ExportJob job) {
+        try {
+            Files.deleteIfExists(job.getFile());
+        } catch (IOException e) {
+            log.warn("Cannot delete export file {}: {}", job.getFile(), e.getMessage());
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.projectmanagement.export;
 
 import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -9,6 +11,21 @@ import java.util.Map;
  */
 public interface ExportService {
 
+    /**
+     * Exports rows to a specific format, reading them one at a time.
+     * Rows are written as they are read, so the iterator can come from a database cursor.
+     * The output stream is flushed but not closed.
+     *
+     * @param rows          The rows to export
+     * @param headers       Map of header names and their display names
+     * @param outputStream  The output stream to write the exported data to
+     * @param options       Additional export options
+     * @param <T>           The type of data to export
+     * @throws ExportException if an error occurs during export
+     */
+    <T> void export(Iterator<T> rows, Map<String, String> headers, OutputStream outputStream, 
+                   ExportOptions options) throws ExportException;
+    
     /**
      * Exports data to a specific format.
      *
@@ -19,8 +36,10 @@ public interface ExportService {
      * @param <T>           The type of data to export
      * @throws ExportException if an error occurs during export
      */
-    <T> void export(List<T> data, Map<String, String> headers, OutputStream outputStream, 
-                   ExportOptions options) throws ExportException;
+    default <T> void export(List<T> data, Map<String, String> headers, OutputStream outputStream, 
+                   ExportOptions options) throws ExportException {
+        export(data != null ? data.iterator() : Collections.<T>emptyIterator(), headers, outputStream, options);
+    }
     
     /**
      * Get the content type of the export format.
@@ -0,0 +1,35 @@
+package com.projectmanagement.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.LongConsumer;
+
+/**
+ * Deferred export, written to an output stream when the caller is ready to receive it.
+ * <p>
+ * The single-argument {@link #writeTo(OutputStream)} has the same shape as Spring MVC's
+ * {@code StreamingResponseBody}, so a controller can return {@code writer::writeTo} and let
+ * the export be written straight to the response.
+ */
+@FunctionalInterface
+public interface ExportWriter {
+
+    /**
+     * Write the export, reporting progress. The output stream is flushed but not closed.
+     *
+     * @param outputStream the output stream to write the export to
+     * @param progress     receives the number of rows written so far
+     * @throws IOException if the export cannot be written
+     */
+    void writeTo(OutputStream outputStream, LongConsumer progress) throws IOException;
+
+    /**
+     * Write the export. The output stream is flushed but not closed.
+     *
+     * @param outputStream the output stream to write the export to
+     * @throws IOException if the export cannot be written
+     */
+    default void writeTo(OutputStream outputStream) throws IOException {
+        writeTo(outputStream, rows -> { });
+    }
+}
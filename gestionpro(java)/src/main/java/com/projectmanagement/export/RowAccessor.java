@@ -0,0 +1,179 @@
+package com.projectmanagement.export;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads the exported columns of a row.
+ * <p>
+ * An accessor is resolved once per row class and list of fields, and cached: for a
+ * {@link Map} row, columns are read by key; for any other row, each column is bound to the
+ * public getter ({@code getX} or {@code isX}) or, failing that, to the field of that name
+ * declared in the class or one of its superclasses, as a {@link MethodHandle}. Reading a cell
+ * is then a single handle invocation, without any reflective lookup. Columns that match
+ * nothing read as null.
+ */
+public final class RowAccessor {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final Map<Key, RowAccessor> CACHE = new ConcurrentHashMap<>();
+
+    private final Class<?> rowType;
+    private final List<String> fields;
+    private final MethodHandle[] getters;
+
+    private RowAccessor(Class<?> rowType, List<String> fields, MethodHandle[] getters) {
+        this.rowType = rowType;
+        this.fields = fields;
+        this.getters = getters;
+    }
+
+    /**
+     * Get the accessor for a row, reusing the previous one when the row has the same class.
+     *
+     * @param row      the row
+     * @param fields   the exported field names (or map keys), in column order;
+     *                 the same as for the previous row
+     * @param previous the accessor used for the previous row, or null
+     * @return the accessor
+     */
+    public static RowAccessor forRow(Object row, List<String> fields, RowAccessor previous) {
+        if (previous != null && previous.rowType == row.getClass()) {
+            return previous;
+        }
+        return of(row.getClass(), fields);
+    }
+
+    /**
+     * Get the accessor for a row class, building it on first use.
+     *
+     * @param rowType the row class
+     * @param fields  the exported field names (or map keys), in column order
+     * @return the accessor
+     */
+    public static RowAccessor of(Class<?> rowType, List<String> fields) {
+        return CACHE.computeIfAbsent(new Key(rowType, fields), key -> build(rowType, key.fields));
+    }
+
+    /**
+     * Get the exported field names of a header map, in column order.
+     *
+     * @param headers map of field names and their display names
+     * @return the field names
+     */
+    public static List<String> fields(Map<String, String> headers) {
+        return headers != null ? new ArrayList<>(headers.keySet()) : Collections.emptyList();
+    }
+
+    /**
+     * @return the number of columns
+     */
+    public int getColumnCount() {
+        return fields.size();
+    }
+
+    /**
+     * Read one column of a row.
+     *
+     * @param row    the row, of the class this accessor was built for
+     * @param column the column index
+     * @return the value, or null if the column matches no field
+     */
+    public Object get(Object row, int column) {
+        if (getters == null) {
+            return ((Map<?, ?>) row).get(fields.get(column));
+        }
+        MethodHandle getter = getters[column];
+        if (getter == null) {
+            return null;
+        }
+        try {
+            return (Object) getter.invokeExact(row);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot read field " + fields.get(column) + " of " + rowType.getName(), e);
+        }
+    }
+
+    private static RowAccessor build(Class<?> rowType, List<String> fields) {
+        if (Map.class.isAssignableFrom(rowType)) {
+            return new RowAccessor(rowType, fields, null);
+        }
+        MethodHandle[] getters = new MethodHandle[fields.size()];
+        for (int i = 0; i < getters.length; i++) {
+            getters[i] = findGetter(rowType, fields.get(i));
+        }
+        return new RowAccessor(rowType, fields, getters);
+    }
+
+    private static MethodHandle findGetter(Class<?> rowType, String name) {
+        String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (String prefix : new String[] {"get", "is"}) {
+            try {
+                Method method = rowType.getMethod(prefix + suffix);
+                if (method.getReturnType() != void.class && !Modifier.isStatic(method.getModifiers())) {
+                    method.trySetAccessible();
+                    return LOOKUP.unreflect(method).asType(GETTER_TYPE);
+                }
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                // Try the next prefix, then the field
+            }
+        }
+        for (Class<?> type = rowType; type != null && type != Object.class; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(name);
+                if (!Modifier.isStatic(field.getModifiers()) && field.trySetAccessible()) {
+                    return LOOKUP.unreflectGetter(field).asType(GETTER_TYPE);
+                }
+            } catch (NoSuchFieldException | IllegalAccessException e) {
+                // Look in the superclass
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cache key: a row class and a list of fields.
+     */
+    private static final class Key {
+
+        final Class<?> rowType;
+        final List<String> fields;
+
+        Key(Class<?> rowType, Collection<String> fields) {
+            this.rowType = rowType;
+            this.fields = Collections.unmodifiableList(new ArrayList<>(fields));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return rowType == other.rowType && fields.equals(other.fields);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(rowType, fields);
+        }
+    }
+}
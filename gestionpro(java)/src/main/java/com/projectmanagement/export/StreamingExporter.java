@@ -0,0 +1,98 @@
+package com.projectmanagement.export;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Builds exports that are written row by row from a database cursor.
+ * <p>
+ * The rows come from a repository {@link Stream} that is opened when the export is written,
+ * inside a read-only transaction lasting as long as the writing, and are handed one at a time
+ * to the {@link ExportService} of the requested format. No list of rows is ever built, so the
+ * memory used does not depend on the number of rows. Rows should be scalar projections rather
+ * than entities, so that the persistence context does not grow either.
+ */
+@Component
+@Slf4j
+public class StreamingExporter {
+
+    private final ExportServiceFactory exportServiceFactory;
+    private final PlatformTransactionManager transactionManager;
+
+    @Autowired
+    public StreamingExporter(ExportServiceFactory exportServiceFactory,
+                             PlatformTransactionManager transactionManager) {
+        this.exportServiceFactory = exportServiceFactory;
+        this.transactionManager = transactionManager;
+    }
+
+    /**
+     * Create an export writer reading its rows from a stream.
+     *
+     * @param format  the export format
+     * @param rows    opens the stream of rows; called once per write, inside the transaction
+     * @param headers map of row field names and their display names
+     * @param options additional export options
+     * @param <T>     the type of the rows
+     * @return the export writer
+     */
+    public <T> ExportWriter writer(ExportFormat format, Supplier<Stream<T>> rows,
+                                   Map<String, String> headers, ExportOptions options) {
+        ExportService exportService = exportServiceFactory.getExportService(format);
+
+        return (outputStream, progress) -> {
+            DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+            definition.setReadOnly(true);
+            TransactionStatus transaction = transactionManager.getTransaction(definition);
+            try (Stream<T> stream = rows.get()) {
+                exportService.export(new CountingIterator<>(stream.iterator(), progress), headers, outputStream, options);
+            } catch (ExportException e) {
+                transactionManager.rollback(transaction);
+                log.error("Error writing {} export: {}", format, e.getMessage(), e);
+                throw new IOException("Failed to write " + format.getDisplayName() + " export", e);
+            } catch (RuntimeException | Error e) {
+                transactionManager.rollback(transaction);
+                throw e;
+            }
+            transactionManager.commit(transaction);
+        };
+    }
+
+    /**
+     * Iterator reporting the number of rows read so far.
+     */
+    private static final class CountingIterator<T> implements Iterator<T> {
+
+        private final Iterator<T> rows;
+        private final LongConsumer progress;
+        private long count;
+
+        CountingIterator(Iterator<T> rows, LongConsumer progress) {
+            this.rows = rows;
+            this.progress = progress;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return rows.hasNext();
+        }
+
+        @Override
+        public T next() {
+            T row = rows.next();
+            progress.accept(++count);
+            return row;
+        }
+    }
+}
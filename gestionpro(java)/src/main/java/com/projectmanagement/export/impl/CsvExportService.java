@@ -4,6 +4,7 @@ import com.projectmanagement.export.ExportException;
 import com.projectmanagement.export.ExportFormat;
 import com.projectmanagement.export.ExportOptions;
 import com.projectmanagement.export.ExportService;
+import com.projectmanagement.export.RowAccessor;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 import org.springframework.stereotype.Service;
@@ -11,14 +12,13 @@ import org.springframework.stereotype.Service;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -29,9 +29,12 @@ import java.util.Map;
 public class CsvExportService implements ExportService {
 
     @Override
-    public <T> void export(List<T> data, Map<String, String> headers, OutputStream outputStream, 
+    public <T> void export(Iterator<T> rows, Map<String, String> headers, OutputStream outputStream, 
                           ExportOptions options) throws ExportException {
-        try (OutputStreamWriter writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)) {
+        try {
+            // The writer is not closed: the caller owns the output stream
+            OutputStreamWriter writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+            
             // Prepare CSV format
             CSVFormat.Builder formatBuilder = CSVFormat.DEFAULT.builder();
             
@@ -44,31 +47,24 @@ public class CsvExportService implements ExportService {
             CSVFormat csvFormat = formatBuilder.build();
             
             // Create CSV printer
-            try (CSVPrinter csvPrinter = new CSVPrinter(writer, csvFormat)) {
-                // Add data rows
-                if (data != null && !data.isEmpty()) {
-                    Class<?> clazz = data.get(0).getClass();
-                    
-                    for (T item : data) {
-                        List<Object> rowData = new ArrayList<>();
-                        
-                        for (String fieldName : headers.keySet()) {
-                            try {
-                                Field field = clazz.getDeclaredField(fieldName);
-                                field.setAccessible(true);
-                                Object value = field.get(item);
-                                rowData.add(formatValue(value, options));
-                            } catch (NoSuchFieldException | IllegalAccessException e) {
-                                rowData.add("");
-                            }
-                        }
-                        
-                        csvPrinter.printRecord(rowData);
-                    }
+            CSVPrinter csvPrinter = new CSVPrinter(writer, csvFormat);
+            
+            // Add data rows, written out as the writer's buffer fills up
+            List<String> fields = RowAccessor.fields(headers);
+            RowAccessor accessor = null;
+            Object[] rowData = new Object[fields.size()];
+            while (rows.hasNext()) {
+                T item = rows.next();
+                accessor = RowAccessor.forRow(item, fields, accessor);
+                
+                for (int column = 0; column < rowData.length; column++) {
+                    rowData[column] = formatValue(accessor.get(item, column), options);
                 }
                 
-                csvPrinter.flush();
+                csvPrinter.printRecord(rowData);
             }
+            
+            csvPrinter.flush();
         } catch (IOException e) {
             throw new ExportException("Error creating CSV file", e);
         }
@@ -4,13 +4,14 @@ import com.projectmanagement.export.ExportException;
 import com.projectmanagement.export.ExportFormat;
 import com.projectmanagement.export.ExportOptions;
 import com.projectmanagement.export.ExportService;
+import com.projectmanagement.export.RowAccessor;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.lang.reflect.Field;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -19,15 +20,38 @@ import java.util.*;
 
 /**
  * Implementation of ExportService for Excel exports using Apache POI.
+ * <p>
+ * The workbook is streamed with {@link SXSSFWorkbook}: only the last {@link #ROW_WINDOW}
+ * rows are kept in memory, older rows being flushed to a compressed temporary file, so
+ * the heap used does not depend on the number of rows. Column widths are estimated from
+ * the headers and the first {@link #WIDTH_SAMPLE_ROWS} rows instead of auto-sizing,
+ * which would have to rescan every row.
  */
 @Service
 public class ExcelExportService implements ExportService {
 
+    /**
+     * Number of rows kept in memory before being flushed to the temporary file.
+     */
+    private static final int ROW_WINDOW = 200;
+
+    /**
+     * Number of rows read to estimate the column widths.
+     */
+    private static final int WIDTH_SAMPLE_ROWS = 500;
+
+    /**
+     * Maximum column width, in characters (Excel allows 255).
+     */
+    private static final int MAX_COLUMN_CHARS = 80;
+
     @Override
-    public <T> void export(List<T> data, Map<String, String> headers, OutputStream outputStream, 
+    public <T> void export(Iterator<T> rows, Map<String, String> headers, OutputStream outputStream, 
                           ExportOptions options) throws ExportException {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet(options.getTitle() != null ? options.getTitle() : "Export");
+        SXSSFWorkbook workbook = new SXSSFWorkbook(null, ROW_WINDOW, true);
+        try {
+            Sheet sheet = workbook.createSheet(WorkbookUtil.createSafeSheetName(
+                    options.getTitle() != null ? options.getTitle() : "Export"));
             
             // Create header style
             CellStyle headerStyle = workbook.createCellStyle();
@@ -50,6 +74,8 @@ public class ExcelExportService implements ExportService {
             numberStyle.setDataFormat(createHelper.createDataFormat().getFormat(numberPattern));
             
             int rowNum = 0;
+            List<String> fields = RowAccessor.fields(headers);
+            int[] widths = new int[fields.size()];
             
             // Add headers if requested
             if (options.isIncludeHeaders() && headers != null && !headers.isEmpty()) {
@@ -57,6 +83,7 @@ public class ExcelExportService implements ExportService {
                 int colNum = 0;
                 
                 for (Map.Entry<String, String> entry : headers.entrySet()) {
+                    widths[colNum] = estimateWidth(entry.getValue(), datePattern);
                     Cell cell = headerRow.createCell(colNum++);
                     cell.setCellValue(entry.getValue());
                     cell.setCellStyle(headerStyle);
@@ -64,33 +91,27 @@ public class ExcelExportService implements ExportService {
             }
             
             // Add data rows
-            if (data != null && !data.isEmpty()) {
-                Class<?> clazz = data.get(0).getClass();
-                Field[] fields = clazz.getDeclaredFields();
+            RowAccessor accessor = null;
+            int sampledRows = 0;
+            while (rows.hasNext()) {
+                T item = rows.next();
+                accessor = RowAccessor.forRow(item, fields, accessor);
+                Row row = sheet.createRow(rowNum++);
+                boolean sample = sampledRows++ < WIDTH_SAMPLE_ROWS;
                 
-                for (T item : data) {
-                    Row row = sheet.createRow(rowNum++);
-                    int colNum = 0;
-                    
-                    for (Map.Entry<String, String> entry : headers.entrySet()) {
-                        String fieldName = entry.getKey();
-                        try {
-                            Field field = clazz.getDeclaredField(fieldName);
-                            field.setAccessible(true);
-                            Object value = field.get(item);
-                            
-                            Cell cell = row.createCell(colNum++);
-                            setCellValue(cell, value, dateStyle, numberStyle, options);
-                        } catch (NoSuchFieldException | IllegalAccessException e) {
-                            row.createCell(colNum++).setCellValue("");
-                        }
+                for (int colNum = 0; colNum < fields.size(); colNum++) {
+                    Object value = accessor.get(item, colNum);
+                    Cell cell = row.createCell(colNum);
+                    setCellValue(cell, value, dateStyle, numberStyle, options);
+                    if (sample) {
+                        widths[colNum] = Math.max(widths[colNum], estimateWidth(value, datePattern));
                     }
                 }
             }
             
-            // Auto-size columns
-            for (int i = 0; i < headers.size(); i++) {
-                sheet.autoSizeColumn(i);
+            // Size columns from the sampled widths
+            for (int i = 0; i < widths.length; i++) {
+                sheet.setColumnWidth(i, (Math.min(widths[i], MAX_COLUMN_CHARS) + 2) * 256);
             }
             
             // Add metadata if available - commented out because getProperties() is not available
@@ -106,6 +127,9 @@ public class ExcelExportService implements ExportService {
             workbook.write(outputStream);
         } catch (IOException e) {
             throw new ExportException("Error creating Excel file", e);
+        } finally {
+            // Delete the temporary file holding the flushed rows
+            workbook.dispose();
         }
     }
 
@@ -119,6 +143,24 @@ public class ExcelExportService implements ExportService {
         return ExportFormat.EXCEL.getExtension();
     }
     
+    /**
+     * Estimates the width of a value, in characters, as displayed by Excel.
+     */
+    private int estimateWidth(Object value, String datePattern) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Number) {
+            // Digits, grouping separators and two decimals
+            String digits = String.valueOf(Math.abs(((Number) value).longValue()));
+            return digits.length() + digits.length() / 3 + 4;
+        }
+        if (value instanceof LocalDate || value instanceof LocalDateTime || value instanceof Date) {
+            return datePattern.length();
+        }
+        return value.toString().length();
+    }
+    
     /**
      * Sets the cell value based on the value's type.
      */
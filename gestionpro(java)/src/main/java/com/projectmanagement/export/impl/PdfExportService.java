@@ -8,31 +8,47 @@ import com.projectmanagement.export.ExportException;
 import com.projectmanagement.export.ExportFormat;
 import com.projectmanagement.export.ExportOptions;
 import com.projectmanagement.export.ExportService;
+import com.projectmanagement.export.RowAccessor;
 import org.springframework.stereotype.Service;
 
 import java.io.OutputStream;
-import java.lang.reflect.Field;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Implementation of ExportService for PDF exports using iText.
+ * <p>
+ * The table is marked incomplete and added to the document every {@link #FLUSH_ROWS} rows:
+ * iText then renders the finished pages and drops their rows, repeating the header row on
+ * each page, so the heap used depends on the page size rather than on the number of rows.
+ * Data cells are built from the table's default cell with shared fonts and colours.
  */
 @Service
 public class PdfExportService implements ExportService {
 
+    /**
+     * Number of rows added to the table before it is rendered and emptied.
+     */
+    private static final int FLUSH_ROWS = 100;
+
+    private static final BaseColor HEADER_COLOR = new BaseColor(79, 129, 189); // Blue header
+    private static final BaseColor ALTERNATE_COLOR = new BaseColor(242, 242, 242); // Light gray for alternate rows
+
     @Override
-    public <T> void export(List<T> data, Map<String, String> headers, OutputStream outputStream, 
+    public <T> void export(Iterator<T> rows, Map<String, String> headers, OutputStream outputStream, 
                           ExportOptions options) throws ExportException {
         try {
             // Create document
             Document document = new Document(PageSize.A4.rotate(), 36, 36, 36, 36);
-            PdfWriter.getInstance(document, outputStream);
+            PdfWriter writer = PdfWriter.getInstance(document, outputStream);
+            // Closing the document must not close the caller's output stream
+            writer.setCloseStream(false);
             document.open();
             
             // Add document metadata
@@ -55,19 +71,19 @@ public class PdfExportService implements ExportService {
                 document.add(title);
             }
             
-            // Create table
+            // Create table, rendered by chunks as rows are added
             PdfPTable table = new PdfPTable(headers.size());
             table.setWidthPercentage(100);
+            table.setComplete(false);
             
             // Set up table headers
             if (options.isIncludeHeaders() && headers != null && !headers.isEmpty()) {
                 // Header style
                 Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12, BaseColor.WHITE);
-                BaseColor headerBg = new BaseColor(79, 129, 189); // Blue header
                 
                 for (String headerText : headers.values()) {
                     PdfPCell cell = new PdfPCell(new Phrase(headerText, headerFont));
-                    cell.setBackgroundColor(headerBg);
+                    cell.setBackgroundColor(HEADER_COLOR);
                     cell.setPadding(5);
                     cell.setHorizontalAlignment(Element.ALIGN_CENTER);
                     table.addCell(cell);
@@ -75,44 +91,35 @@ public class PdfExportService implements ExportService {
                 table.setHeaderRows(1);
             }
             
+            // Data cells are copied from the default cell, with one shared font
+            PdfPCell defaultCell = table.getDefaultCell();
+            defaultCell.setPadding(5);
+            Font cellFont = FontFactory.getFont(FontFactory.HELVETICA, 12);
+            
             // Add data rows
-            if (data != null && !data.isEmpty()) {
-                Class<?> clazz = data.get(0).getClass();
-                BaseColor altColor = new BaseColor(242, 242, 242); // Light gray for alternate rows
-                boolean alternate = false;
+            boolean alternate = false;
+            int rowCount = 0;
+            
+            List<String> fields = RowAccessor.fields(headers);
+            RowAccessor accessor = null;
+            while (rows.hasNext()) {
+                T item = rows.next();
+                accessor = RowAccessor.forRow(item, fields, accessor);
+                alternate = !alternate;
+                defaultCell.setBackgroundColor(alternate ? ALTERNATE_COLOR : null);
+                
+                for (int column = 0; column < fields.size(); column++) {
+                    String formattedValue = formatValue(accessor.get(item, column), options);
+                    table.addCell(new Phrase(formattedValue, cellFont));
+                }
                 
-                for (T item : data) {
-                    alternate = !alternate;
-                    
-                    for (String fieldName : headers.keySet()) {
-                        try {
-                            Field field = clazz.getDeclaredField(fieldName);
-                            field.setAccessible(true);
-                            Object value = field.get(item);
-                            
-                            String formattedValue = formatValue(value, options);
-                            PdfPCell cell = new PdfPCell(new Phrase(formattedValue));
-                            cell.setPadding(5);
-                            
-                            if (alternate) {
-                                cell.setBackgroundColor(altColor);
-                            }
-                            
-                            table.addCell(cell);
-                        } catch (NoSuchFieldException | IllegalAccessException e) {
-                            PdfPCell cell = new PdfPCell(new Phrase(""));
-                            cell.setPadding(5);
-                            
-                            if (alternate) {
-                                cell.setBackgroundColor(altColor);
-                            }
-                            
-                            table.addCell(cell);
-                        }
-                    }
+                // Render the finished pages and release their rows
+                if (++rowCount % FLUSH_ROWS == 0) {
+                    document.add(table);
                 }
             }
             
+            table.setComplete(true);
             document.add(table);
             
             // Add footer with timestamp
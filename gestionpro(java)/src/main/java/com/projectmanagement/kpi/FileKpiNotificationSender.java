@@ -0,0 +1,68 @@
+package com.projectmanagement.kpi;
+
+import com.projectmanagement.entity.KpiNotification;
+import com.projectmanagement.entity.KpiNotificationDigest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Notification sender appending digests to a file as tab-separated lines, for
+ * environments without a mail or messaging gateway.
+ * <p>
+ * Each digest starts with a {@code DIGEST} line (digest ID, direction ID, direction name,
+ * critical count, warning count) followed by one line per notification (notification ID,
+ * level, project ID, project name, metric ID, metric name, value, measurement date).
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "app.kpi.notifications.sender", havingValue = "file")
+public class FileKpiNotificationSender implements KpiNotificationSender {
+
+    private final Path file;
+
+    @Autowired
+    public FileKpiNotificationSender(@Value("${app.kpi.notifications.file:}") String file) {
+        this.file = file.isEmpty()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "kpi-notifications.log")
+                : Paths.get(file);
+    }
+
+    @Override
+    public synchronized void send(KpiNotificationDigest digest, List<KpiNotification> notifications)
+            throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write("DIGEST\t" + digest.getId() + "\t" + digest.getDirectionId()
+                    + "\t" + clean(digest.getDirectionName())
+                    + "\t" + digest.getCriticalCount() + "\t" + digest.getWarningCount());
+            writer.newLine();
+            for (KpiNotification notification : notifications) {
+                writer.write(notification.getId() + "\t" + notification.getLevel()
+                        + "\t" + notification.getProjectId() + "\t" + clean(notification.getProjectName())
+                        + "\t" + notification.getMetricId() + "\t" + clean(notification.getMetricName())
+                        + "\t" + notification.getValue() + "\t" + notification.getMeasurementDate());
+                writer.newLine();
+            }
+        }
+        log.debug("Wrote KPI notification digest {} to {}", digest.getId(), file);
+    }
+
+    private static String clean(String text) {
+        return text != null ? text.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ') : "";
+    }
+}
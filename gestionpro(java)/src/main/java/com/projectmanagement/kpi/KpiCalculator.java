@@ -0,0 +1,248 @@
+package com.projectmanagement.kpi;
+
+import com.projectmanagement.entity.KpiValue;
+import com.projectmanagement.entity.Project;
+import com.projectmanagement.entity.ProjectBudget;
+import com.projectmanagement.service.ProgressService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Computes KPI values for a project and builds the corresponding {@link KpiValue} rows.
+ * <p>
+ * The calculator works on metric definitions from the {@link KpiMetricRegistry} and on
+ * already loaded projects, and never goes back to the database itself, so callers decide
+ * how the project graph is fetched.
+ */
+@Component
+@Slf4j
+public class KpiCalculator {
+
+    private final ProgressService progressService;
+
+    /**
+     * Formula variable values of each thread, reused by every custom formula evaluation.
+     */
+    private final ThreadLocal<double[]> variableValues = ThreadLocal.withInitial(() -> new double[KpiVariable.count()]);
+
+    @Autowired
+    public KpiCalculator(ProgressService progressService) {
+        this.progressService = progressService;
+    }
+
+    /**
+     * Calculate the value of a metric for a project.
+     * The project progress, if the metric needs it, is computed with one aggregate query.
+     *
+     * @param metric  the metric to calculate
+     * @param project the project, with the associations required by the metric loaded
+     * @return the calculated value, or null if the metric cannot be calculated
+     */
+    public Double calculate(KpiMetricDefinition metric, Project project) {
+        return calculate(metric, project, null);
+    }
+
+    /**
+     * Calculate the value of a metric for a project whose progress is already known.
+     *
+     * @param metric   the metric to calculate
+     * @param project  the project, with the associations required by the metric loaded
+     * @param progress the project progress from {@link ProgressService}, or null to compute it if needed
+     * @return the calculated value, or null if the metric cannot be calculated
+     */
+    public Double calculate(KpiMetricDefinition metric, Project project, Double progress) {
+        // Exit early if no calculation formula is defined
+        if (!metric.hasFormula()) {
+            log.debug("No calculation formula defined for KPI: {}", metric.getCode());
+            return null;
+        }
+
+        log.debug("Calculating KPI {} for project {}", metric.getCode(), project.getName());
+
+        // Implement specific calculations based on KPI code
+        switch (metric.getCode()) {
+            case "COMPLETION_RATE":
+                // Calculate completion rate based on project's actions progress
+                return calculateCompletionRate(project, progress);
+
+            case "BUDGET_UTILIZATION":
+                // Calculate budget utilization based on project's budget data
+                return calculateBudgetUtilization(project);
+
+            default:
+                // For custom formulas, try to evaluate the formula string
+                try {
+                    return evaluateCustomFormula(metric, project, progress);
+                } catch (Exception e) {
+                    log.warn("Error evaluating custom formula for KPI {}: {}",
+                            metric.getCode(), e.getMessage());
+                    return null;
+                }
+        }
+    }
+
+    /**
+     * Get the project variables read when calculating a metric.
+     *
+     * @param metric the metric
+     * @return the variables; empty if the metric has no formula or an invalid one
+     */
+    public Set<KpiVariable> requiredVariables(KpiMetricDefinition metric) {
+        if (!metric.hasFormula()) {
+            return Collections.emptySet();
+        }
+        switch (metric.getCode()) {
+            case "COMPLETION_RATE":
+                return EnumSet.of(KpiVariable.PROGRESS);
+            case "BUDGET_UTILIZATION":
+                return EnumSet.of(KpiVariable.BUDGET_CONSUMPTION);
+            default:
+                return metric.getFormula() != null ? metric.getFormula().getVariables() : Collections.<KpiVariable>emptySet();
+        }
+    }
+
+    /**
+     * Build a new KPI value for a metric and a project, with threshold flags set.
+     *
+     * @param metric          the measured metric
+     * @param project         the measured project
+     * @param value           the measured value
+     * @param comment         an optional comment
+     * @param measurementDate the measurement date
+     * @return the new, unsaved KPI value
+     */
+    public KpiValue newValue(KpiMetricDefinition metric, Project project, Double value, String comment,
+                             LocalDateTime measurementDate) {
+        KpiValue kpiValue = new KpiValue();
+        kpiValue.setMetric(metric.toEntity());
+        kpiValue.setProject(project);
+        kpiValue.setValue(value);
+        kpiValue.setMeasurementDate(measurementDate);
+        kpiValue.setComment(comment);
+
+        // Set the portfolio phase based on the metric's phase (if it has one)
+        // The database trigger will enforce this rule, but we also implement it here
+        // for better application-level consistency
+        if (kpiValue.getMetric().getPortfolioPhase() != null) {
+            kpiValue.setPortfolioPhase(kpiValue.getMetric().getPortfolioPhase());
+        }
+
+        applyThresholds(metric, kpiValue);
+        return kpiValue;
+    }
+
+    /**
+     * Set the warning and critical threshold flags of a KPI value.
+     *
+     * @param metric   the metric holding the thresholds
+     * @param kpiValue the value to flag
+     */
+    public void applyThresholds(KpiMetricDefinition metric, KpiValue kpiValue) {
+        Double value = kpiValue.getValue();
+        if (value == null) {
+            return;
+        }
+
+        if (metric.getThresholdWarning() != null) {
+            kpiValue.setWarningThresholdBreached(isBreached(metric, value, metric.getThresholdWarning()));
+        }
+
+        if (metric.getThresholdCritical() != null) {
+            kpiValue.setCriticalThresholdBreached(isBreached(metric, value, metric.getThresholdCritical()));
+        }
+    }
+
+    private boolean isBreached(KpiMetricDefinition metric, double value, double threshold) {
+        if (metric.isHigherIsBetter()) {
+            return value < threshold;
+        }
+        return value > threshold;
+    }
+
+    /**
+     * Calculate the completion rate of a project based on actions progress.
+     *
+     * @param project  The project to calculate completion rate for
+     * @param progress The known project progress, or null
+     * @return The completion rate as a percentage (0-100)
+     */
+    private Double calculateCompletionRate(Project project, Double progress) {
+        return progress != null ? progress : projectProgress(project);
+    }
+
+    /**
+     * Compute the progress of a project in the database rather than through its plannings and actions.
+     */
+    private double projectProgress(Project project) {
+        if (project.getId() == null) {
+            return project.calculateProgress();
+        }
+        return progressService.findProjectProgress(Collections.singletonList(project.getId())).get(project.getId());
+    }
+
+    /**
+     * Calculate the budget utilization of a project.
+     *
+     * @param project The project to calculate budget utilization for
+     * @return The budget utilization as a percentage (0-100)
+     */
+    private Double calculateBudgetUtilization(Project project) {
+        if (project.getBudgets() == null || project.getBudgets().isEmpty()) {
+            log.debug("No budget data available for project: {}", project.getName());
+            return null;
+        }
+
+        // Get the most recent budget entry
+        // In a real implementation, you might want to handle multiple budget entries differently
+        ProjectBudget budget = project.getBudgets().stream()
+                .filter(b -> b.getActif())
+                .findFirst()
+                .orElse(null);
+
+        if (budget == null || budget.getInitialBudget() == null ||
+                budget.getInitialBudget().doubleValue() == 0) {
+            log.debug("Invalid budget data for project: {}", project.getName());
+            return null;
+        }
+
+        return budget.getConsumptionPercentage();
+    }
+
+    /**
+     * Evaluate a custom formula for KPI calculation.
+     * The formula is compiled once per metric and only the variables it references are resolved.
+     *
+     * @param metric   The metric holding the formula to evaluate
+     * @param project  The project context for the formula
+     * @param progress The known project progress, or null
+     * @return The calculated value, or null if the formula has no value for the project
+     */
+    private Double evaluateCustomFormula(KpiMetricDefinition metric, Project project, Double progress) {
+        KpiFormula formula = metric.compiledFormula();
+
+        // Only the variables of the formula are read, so values left by a previous formula are harmless
+        double[] values = variableValues.get();
+        LocalDate today = LocalDate.now();
+        for (KpiVariable variable : formula.getVariables()) {
+            if (variable == KpiVariable.PROGRESS) {
+                values[variable.ordinal()] = progress != null ? progress : projectProgress(project);
+            } else {
+                values[variable.ordinal()] = variable.resolve(project, today);
+            }
+        }
+
+        double result = formula.evaluate(values);
+        if (Double.isNaN(result) || Double.isInfinite(result)) {
+            log.debug("Formula of KPI {} has no value for project {}", metric.getCode(), project.getName());
+            return null;
+        }
+        return result;
+    }
+}
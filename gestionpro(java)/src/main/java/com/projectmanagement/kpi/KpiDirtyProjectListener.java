@@ -0,0 +1,150 @@
+package com.projectmanagement.kpi;
+
+import com.projectmanagement.entity.Action;
+import com.projectmanagement.entity.BaseEntity;
+import com.projectmanagement.entity.Document;
+import com.projectmanagement.entity.Planning;
+import com.projectmanagement.entity.Project;
+import com.projectmanagement.entity.ProjectBudget;
+import com.projectmanagement.entity.SubAction;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * JPA entity listener marking a project as changed, for the KPI updates, when the project
+ * or one of the entities its KPI variables read is written.
+ * <p>
+ * The mark is inserted into {@code tbkpidrt} with plain JDBC on the connection of the
+ * current transaction, so it commits or rolls back with the change and no change is lost
+ * across restarts. Only the first write to each project, planning or action in a
+ * transaction is marked. Actions and sub-actions are marked through their planning and
+ * action, whose projects are resolved when the marks are read, so that no lazy association
+ * is loaded while Hibernate flushes. Bulk JPQL updates bypass entity listeners: the
+ * progress roll-ups they adjust, which include the previous planning and project of a
+ * moved action or planning, are marked by {@code ProgressRollupServiceImpl} through
+ * {@link #markPlanning(Long)} and {@link #markProjects(Collection)}.
+ * <p>
+ * Instantiated by Hibernate through the Spring bean container configured in {@code JpaConfig}.
+ */
+@Component
+public class KpiDirtyProjectListener {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO tbkpidrt (idpro, idplan, idact, dmark, dtcrea, actif) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public KpiDirtyProjectListener(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onWrite(Object entity) {
+        Long projectId = null;
+        Long planningId = null;
+        Long actionId = null;
+        if (entity instanceof Project) {
+            projectId = ((Project) entity).getId();
+        } else if (entity instanceof Planning) {
+            projectId = idOf(((Planning) entity).getProject());
+        } else if (entity instanceof ProjectBudget) {
+            projectId = idOf(((ProjectBudget) entity).getProject());
+        } else if (entity instanceof Document) {
+            projectId = idOf(((Document) entity).getProject());
+        } else if (entity instanceof Action) {
+            planningId = idOf(((Action) entity).getPlanning());
+        } else if (entity instanceof SubAction) {
+            actionId = idOf(((SubAction) entity).getAction());
+        }
+        if (projectId == null && planningId == null && actionId == null) {
+            return;
+        }
+
+        String key = projectId + "/" + planningId + "/" + actionId;
+        if (markedInTransaction(key)) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update(INSERT_SQL, projectId, planningId, actionId, now, now, true);
+    }
+
+    /**
+     * Mark the project of a planning as changed, for a write that bypassed the entity listeners.
+     * Must be called in the transaction of the write.
+     *
+     * @param planningId the planning ID
+     */
+    public void markPlanning(Long planningId) {
+        if (planningId != null && !markedInTransaction("null/" + planningId + "/null")) {
+            LocalDateTime now = LocalDateTime.now();
+            jdbcTemplate.update(INSERT_SQL, null, planningId, null, now, now, true);
+        }
+    }
+
+    /**
+     * Mark projects as changed, for a write that bypassed the entity listeners.
+     * Must be called in the transaction of the write.
+     *
+     * @param projectIds the project IDs
+     */
+    public void markProjects(Collection<Long> projectIds) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>();
+        for (Long projectId : projectIds) {
+            if (projectId != null && !markedInTransaction(projectId + "/null/null")) {
+                rows.add(new Object[]{projectId, null, null, now, now, true});
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        }
+    }
+
+    /**
+     * Record a key in the current transaction, and tell whether it was already recorded.
+     * The keys live in a synchronization, so that a nested REQUIRES_NEW transaction gets its own.
+     */
+    private static boolean markedInTransaction(String key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof Marks) {
+                return !((Marks) synchronization).keys.add(key);
+            }
+        }
+        Marks marks = new Marks();
+        marks.keys.add(key);
+        TransactionSynchronizationManager.registerSynchronization(marks);
+        return false;
+    }
+
+    private static Long idOf(BaseEntity entity) {
+        return entity != null ? entity.getId() : null;
+    }
+
+    /**
+     * Keys marked in one transaction.
+     */
+    private static final class Marks implements TransactionSynchronization {
+
+        final Set<String> keys = new HashSet<>();
+    }
+}
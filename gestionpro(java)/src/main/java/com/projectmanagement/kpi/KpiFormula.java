@@ -0,0 +1,159 @@
+package com.projectmanagement.kpi;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Immutable, compiled form of a KPI calculation formula.
+ * <p>
+ * The formula is stored as a postfix program: each instruction is an opcode in the low
+ * byte and an operand (constant index or variable ordinal) in the upper bits. Evaluation
+ * runs the program over a value stack whose maximum depth is known at compile time; each
+ * thread reuses one stack array, so an evaluation allocates nothing and never touches the
+ * formula text again. {@code ROUND} rounds halves away from zero, like
+ * {@link java.math.RoundingMode#HALF_UP}. Instances are safe to share between threads.
+ */
+public final class KpiFormula {
+
+    static final int PUSH_CONST = 0;
+    static final int PUSH_VAR = 1;
+    static final int ADD = 2;
+    static final int SUB = 3;
+    static final int MUL = 4;
+    static final int DIV = 5;
+    static final int NEG = 6;
+    static final int MIN = 7;
+    static final int MAX = 8;
+    static final int ABS = 9;
+    static final int ROUND = 10;
+
+    static final int OPERAND_SHIFT = 8;
+
+    /**
+     * Evaluation stack of each thread, grown to the deepest formula the thread evaluated.
+     */
+    private static final ThreadLocal<double[]> STACKS = ThreadLocal.withInitial(() -> new double[16]);
+
+    private final String source;
+    private final int[] code;
+    private final double[] constants;
+    private final int maxStack;
+    private final Set<KpiVariable> variables;
+
+    KpiFormula(String source, int[] code, double[] constants, int maxStack, EnumSet<KpiVariable> variables) {
+        this.source = source;
+        this.code = code;
+        this.constants = constants;
+        this.maxStack = maxStack;
+        this.variables = Collections.unmodifiableSet(variables);
+    }
+
+    /**
+     * @return the formula text this program was compiled from
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return the variables referenced by the formula
+     */
+    public Set<KpiVariable> getVariables() {
+        return variables;
+    }
+
+    /**
+     * Whether the result can change with time alone.
+     *
+     * @return true if the formula references a time-dependent variable
+     */
+    public boolean isTimeDependent() {
+        for (KpiVariable variable : variables) {
+            if (variable.isTimeDependent()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Evaluate the formula.
+     *
+     * @param values variable values indexed by {@link KpiVariable#ordinal()}; only the
+     *               variables returned by {@link #getVariables()} are read
+     * @return the result, NaN if a referenced variable is NaN, or infinite on division by zero
+     */
+    public double evaluate(double[] values) {
+        double[] stack = STACKS.get();
+        if (stack.length < maxStack) {
+            stack = new double[maxStack];
+            STACKS.set(stack);
+        }
+        int top = -1;
+        for (int instruction : code) {
+            int operand = instruction >>> OPERAND_SHIFT;
+            switch (instruction & 0xFF) {
+                case PUSH_CONST:
+                    stack[++top] = constants[operand];
+                    break;
+                case PUSH_VAR:
+                    stack[++top] = values[operand];
+                    break;
+                case ADD:
+                    top--;
+                    stack[top] += stack[top + 1];
+                    break;
+                case SUB:
+                    top--;
+                    stack[top] -= stack[top + 1];
+                    break;
+                case MUL:
+                    top--;
+                    stack[top] *= stack[top + 1];
+                    break;
+                case DIV:
+                    top--;
+                    stack[top] /= stack[top + 1];
+                    break;
+                case NEG:
+                    stack[top] = -stack[top];
+                    break;
+                case MIN:
+                    top--;
+                    stack[top] = Math.min(stack[top], stack[top + 1]);
+                    break;
+                case MAX:
+                    top--;
+                    stack[top] = Math.max(stack[top], stack[top + 1]);
+                    break;
+                case ABS:
+                    stack[top] = Math.abs(stack[top]);
+                    break;
+                case ROUND:
+                    stack[top] = roundHalfUp(stack[top]);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown opcode: " + (instruction & 0xFF));
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Round to the nearest integer, halves away from zero: 2.5 gives 3 and -2.5 gives -3.
+     */
+    static double roundHalfUp(double value) {
+        double magnitude = Math.abs(value);
+        double rounded = Math.floor(magnitude);
+        if (magnitude - rounded >= 0.5) {
+            rounded++;
+        }
+        return value < 0 ? 0 - rounded : rounded;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
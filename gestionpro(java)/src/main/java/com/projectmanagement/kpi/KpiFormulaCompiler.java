@@ -0,0 +1,227 @@
+package com.projectmanagement.kpi;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compiles KPI calculation formulas into {@link KpiFormula} programs.
+ * <p>
+ * Supported syntax: decimal numbers, {@link KpiVariable} names, the operators
+ * {@code + - * /}, unary minus, parentheses and the functions {@code MIN}, {@code MAX}
+ * (two or more arguments), {@code ABS} and {@code ROUND} (halves away from zero). For example:
+ * {@code USED_BUDGET / TOTAL_BUDGET * 100} or {@code MAX(END_DATE - CURRENT_DATE, 0)}.
+ */
+public final class KpiFormulaCompiler {
+
+    private final String source;
+    private final List<Integer> code = new ArrayList<>();
+    private final List<Double> constants = new ArrayList<>();
+    private final EnumSet<KpiVariable> variables = EnumSet.noneOf(KpiVariable.class);
+    private int pos;
+    private int depth;
+    private int maxDepth;
+
+    private KpiFormulaCompiler(String source) {
+        this.source = source;
+    }
+
+    /**
+     * Compile a formula.
+     *
+     * @param formula the formula text
+     * @return the compiled formula
+     * @throws KpiFormulaException if the formula is empty or invalid
+     */
+    public static KpiFormula compile(String formula) {
+        if (formula == null || formula.trim().isEmpty()) {
+            throw new KpiFormulaException("Empty formula", String.valueOf(formula), 0);
+        }
+        return new KpiFormulaCompiler(formula).compileFormula();
+    }
+
+    private KpiFormula compileFormula() {
+        expression();
+        skipWhitespace();
+        if (pos < source.length()) {
+            throw error("Unexpected character '" + source.charAt(pos) + "'");
+        }
+
+        int[] program = new int[code.size()];
+        for (int i = 0; i < program.length; i++) {
+            program[i] = code.get(i);
+        }
+        double[] constantPool = new double[constants.size()];
+        for (int i = 0; i < constantPool.length; i++) {
+            constantPool[i] = constants.get(i);
+        }
+        return new KpiFormula(source, program, constantPool, maxDepth, variables);
+    }
+
+    // expression := term (('+' | '-') term)*
+    private void expression() {
+        term();
+        while (true) {
+            if (accept('+')) {
+                term();
+                emit(KpiFormula.ADD, 0, -1);
+            } else if (accept('-')) {
+                term();
+                emit(KpiFormula.SUB, 0, -1);
+            } else {
+                return;
+            }
+        }
+    }
+
+    // term := unary (('*' | '/') unary)*
+    private void term() {
+        unary();
+        while (true) {
+            if (accept('*')) {
+                unary();
+                emit(KpiFormula.MUL, 0, -1);
+            } else if (accept('/')) {
+                unary();
+                emit(KpiFormula.DIV, 0, -1);
+            } else {
+                return;
+            }
+        }
+    }
+
+    // unary := ('-' | '+') unary | primary
+    private void unary() {
+        if (accept('-')) {
+            unary();
+            emit(KpiFormula.NEG, 0, 0);
+        } else if (accept('+')) {
+            unary();
+        } else {
+            primary();
+        }
+    }
+
+    // primary := number | variable | function '(' arguments ')' | '(' expression ')'
+    private void primary() {
+        skipWhitespace();
+        if (pos >= source.length()) {
+            throw error("Unexpected end of formula");
+        }
+
+        char c = source.charAt(pos);
+        if (accept('(')) {
+            expression();
+            expect(')');
+        } else if (Character.isDigit(c) || c == '.') {
+            number();
+        } else if (Character.isLetter(c) || c == '_') {
+            identifier();
+        } else {
+            throw error("Unexpected character '" + c + "'");
+        }
+    }
+
+    private void number() {
+        int start = pos;
+        while (pos < source.length() && (Character.isDigit(source.charAt(pos)) || source.charAt(pos) == '.')) {
+            pos++;
+        }
+        double value;
+        try {
+            value = Double.parseDouble(source.substring(start, pos));
+        } catch (NumberFormatException e) {
+            throw new KpiFormulaException("Invalid number", source, start);
+        }
+        constants.add(value);
+        emit(KpiFormula.PUSH_CONST, constants.size() - 1, 1);
+    }
+
+    private void identifier() {
+        int start = pos;
+        while (pos < source.length()
+                && (Character.isLetterOrDigit(source.charAt(pos)) || source.charAt(pos) == '_')) {
+            pos++;
+        }
+        String name = source.substring(start, pos);
+
+        skipWhitespace();
+        if (pos < source.length() && source.charAt(pos) == '(') {
+            function(name.toUpperCase(Locale.ROOT), start);
+            return;
+        }
+
+        KpiVariable variable = KpiVariable.fromName(name);
+        if (variable == null) {
+            throw new KpiFormulaException("Unknown variable '" + name + "'", source, start);
+        }
+        variables.add(variable);
+        emit(KpiFormula.PUSH_VAR, variable.ordinal(), 1);
+    }
+
+    private void function(String name, int start) {
+        expect('(');
+        int arguments = 0;
+        if (!accept(')')) {
+            do {
+                expression();
+                arguments++;
+            } while (accept(','));
+            expect(')');
+        }
+
+        switch (name) {
+            case "MIN":
+            case "MAX":
+                if (arguments < 2) {
+                    throw new KpiFormulaException(name + " expects at least 2 arguments", source, start);
+                }
+                // MIN(a, b, c) is folded as MIN(MIN(a, b), c)
+                for (int i = 1; i < arguments; i++) {
+                    emit("MIN".equals(name) ? KpiFormula.MIN : KpiFormula.MAX, 0, -1);
+                }
+                break;
+            case "ABS":
+            case "ROUND":
+                if (arguments != 1) {
+                    throw new KpiFormulaException(name + " expects 1 argument", source, start);
+                }
+                emit("ABS".equals(name) ? KpiFormula.ABS : KpiFormula.ROUND, 0, 0);
+                break;
+            default:
+                throw new KpiFormulaException("Unknown function '" + name + "'", source, start);
+        }
+    }
+
+    private void emit(int opcode, int operand, int stackEffect) {
+        code.add(opcode | (operand << KpiFormula.OPERAND_SHIFT));
+        depth += stackEffect;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    private boolean accept(char expected) {
+        skipWhitespace();
+        if (pos < source.length() && source.charAt(pos) == expected) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char expected) {
+        if (!accept(expected)) {
+            throw error("Expected '" + expected + "'");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < source.length() && Character.isWhitespace(source.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private KpiFormulaException error(String message) {
+        return new KpiFormulaException(message, source, pos);
+    }
+}
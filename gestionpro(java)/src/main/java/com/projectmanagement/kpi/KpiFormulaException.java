@@ -0,0 +1,32 @@
+package com.projectmanagement.kpi;
+
+/**
+ * Exception thrown when a KPI calculation formula cannot be compiled.
+ */
+public class KpiFormulaException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int position;
+
+    /**
+     * Constructs a new formula exception.
+     *
+     * @param message  the detail message
+     * @param formula  the formula being compiled
+     * @param position the position of the error in the formula (0-based)
+     */
+    public KpiFormulaException(String message, String formula, int position) {
+        super(message + " at position " + position + " in formula: " + formula);
+        this.position = position;
+    }
+
+    /**
+     * Get the position of the error in the formula.
+     *
+     * @return the 0-based position
+     */
+    public int getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,135 @@
+package com.projectmanagement.kpi;
+
+import com.projectmanagement.entity.KpiMetric;
+import com.projectmanagement.entity.PortfolioPhase;
+import lombok.Getter;
+
+/**
+ * Immutable copy of a {@link KpiMetric}, as held by the {@link KpiMetricRegistry}.
+ * <p>
+ * The formula of the metric, if any, is compiled when the definition is built; an
+ * invalid formula is kept with its compilation error, so a broken metric fails fast
+ * instead of being reparsed for every project.
+ */
+@Getter
+public final class KpiMetricDefinition {
+
+    private final Long id;
+    private final String code;
+    private final String name;
+    private final String unit;
+    private final Double thresholdWarning;
+    private final Double thresholdCritical;
+    private final boolean higherIsBetter;
+    private final String calculationFormula;
+    private final Integer updateFrequencyMinutes;
+    private final boolean enableNotifications;
+    private final Long portfolioPhaseId;
+    private final boolean active;
+
+    /**
+     * Compiled formula, null if the metric has no formula or an invalid one.
+     */
+    private final KpiFormula formula;
+
+    /**
+     * Compilation error of the formula, null if it is valid.
+     */
+    private final KpiFormulaException formulaError;
+
+    private KpiMetricDefinition(KpiMetric metric) {
+        this.id = metric.getId();
+        this.code = metric.getCode();
+        this.name = metric.getName();
+        this.unit = metric.getUnit();
+        this.thresholdWarning = metric.getThresholdWarning();
+        this.thresholdCritical = metric.getThresholdCritical();
+        this.higherIsBetter = Boolean.TRUE.equals(metric.getHigherIsBetter());
+        this.calculationFormula = metric.getCalculationFormula();
+        this.updateFrequencyMinutes = metric.getUpdateFrequencyMinutes();
+        this.enableNotifications = Boolean.TRUE.equals(metric.getEnableNotifications());
+        this.portfolioPhaseId = metric.getPortfolioPhase() != null ? metric.getPortfolioPhase().getId() : null;
+        this.active = metric.isActive();
+
+        KpiFormula compiled = null;
+        KpiFormulaException error = null;
+        if (hasFormula()) {
+            try {
+                compiled = KpiFormulaCompiler.compile(calculationFormula);
+            } catch (KpiFormulaException e) {
+                error = e;
+            }
+        }
+        this.formula = compiled;
+        this.formulaError = error;
+    }
+
+    /**
+     * Build the definition of a metric.
+     *
+     * @param metric the metric; its portfolio phase is only read for its ID
+     * @return the definition
+     */
+    public static KpiMetricDefinition of(KpiMetric metric) {
+        return new KpiMetricDefinition(metric);
+    }
+
+    /**
+     * @return true if the metric has a calculation formula
+     */
+    public boolean hasFormula() {
+        return calculationFormula != null && !calculationFormula.isEmpty();
+    }
+
+    /**
+     * Get the compiled formula.
+     *
+     * @return the compiled formula
+     * @throws KpiFormulaException if the formula is invalid
+     * @throws IllegalStateException if the metric has no formula
+     */
+    public KpiFormula compiledFormula() {
+        if (formulaError != null) {
+            throw formulaError;
+        }
+        if (formula == null) {
+            throw new IllegalStateException("KPI " + code + " has no calculation formula");
+        }
+        return formula;
+    }
+
+    /**
+     * @return true if the metric is recomputed periodically
+     */
+    public boolean requiresUpdates() {
+        return updateFrequencyMinutes != null && updateFrequencyMinutes > 0;
+    }
+
+    /**
+     * Build a detached {@link KpiMetric} with the values of this definition, to reference
+     * the metric from a new {@code KpiValue} without loading it. A new instance is returned
+     * on every call, so the definition itself cannot be modified through it.
+     *
+     * @return the detached metric
+     */
+    public KpiMetric toEntity() {
+        KpiMetric metric = new KpiMetric();
+        metric.setId(id);
+        metric.setCode(code);
+        metric.setName(name);
+        metric.setUnit(unit);
+        metric.setThresholdWarning(thresholdWarning);
+        metric.setThresholdCritical(thresholdCritical);
+        metric.setHigherIsBetter(higherIsBetter);
+        metric.setCalculationFormula(calculationFormula);
+        metric.setUpdateFrequencyMinutes(updateFrequencyMinutes);
+        metric.setEnableNotifications(enableNotifications);
+        metric.setActif(active);
+        if (portfolioPhaseId != null) {
+            PortfolioPhase phase = new PortfolioPhase();
+            phase.setId(portfolioPhaseId);
+            metric.setPortfolioPhase(phase);
+        }
+        return metric;
+    }
+}
@@ -0,0 +1,206 @@
+package com.projectmanagement.kpi;
+
+import com.projectmanagement.entity.KpiMetric;
+import com.projectmanagement.repository.KpiMetricRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory registry of the KPI metric definitions.
+ * <p>
+ * All metrics are loaded with one query into an immutable, versioned {@link Snapshot}
+ * that threshold checks and recomputes read instead of the {@code pkpim} table. Metric
+ * changes made through {@code KpiService} invalidate the snapshot once their transaction
+ * commits, and the next read loads a new one. Changes made elsewhere (another instance,
+ * direct database updates) are picked up when the snapshot is older than
+ * {@code app.kpi.metric-registry.max-age-seconds}.
+ */
+@Component
+@Slf4j
+public class KpiMetricRegistry {
+
+    private final KpiMetricRepository kpiMetricRepository;
+    private final TransactionTemplate readTransaction;
+    private final long maxAgeNanos;
+
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong versions = new AtomicLong();
+    private final List<Runnable> invalidationListeners = new CopyOnWriteArrayList<>();
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public KpiMetricRegistry(KpiMetricRepository kpiMetricRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.kpi.metric-registry.max-age-seconds:300}") long maxAgeSeconds) {
+        this.kpiMetricRepository = kpiMetricRepository;
+        this.maxAgeNanos = maxAgeSeconds > 0 ? TimeUnit.SECONDS.toNanos(maxAgeSeconds) : Long.MAX_VALUE;
+
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Get the current snapshot, loading a new one if it was invalidated or has expired.
+     *
+     * @return the current snapshot
+     */
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null && current.isValid(invalidations.get(), maxAgeNanos)) {
+            return current;
+        }
+        return reload();
+    }
+
+    /**
+     * Get the definition of a metric.
+     *
+     * @param metricId the metric ID
+     * @return the definition
+     * @throws EntityNotFoundException if there is no metric with that ID
+     */
+    public KpiMetricDefinition get(Long metricId) {
+        KpiMetricDefinition definition = current().find(metricId);
+        if (definition == null) {
+            throw new EntityNotFoundException("KPI metric not found with ID: " + metricId);
+        }
+        return definition;
+    }
+
+    /**
+     * Discard the current snapshot once the current transaction commits, or immediately
+     * if there is no transaction.
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidated();
+                }
+            });
+        } else {
+            invalidated();
+        }
+    }
+
+    /**
+     * Register a callback run each time the snapshot is invalidated, after the change commits.
+     * Callbacks run on the thread that made the change and should return quickly.
+     *
+     * @param listener the callback
+     */
+    public void addInvalidationListener(Runnable listener) {
+        invalidationListeners.add(listener);
+    }
+
+    private void invalidated() {
+        invalidations.incrementAndGet();
+        for (Runnable listener : invalidationListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                log.warn("KPI metric registry listener failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private synchronized Snapshot reload() {
+        // Another thread may have reloaded while this one was waiting
+        long generation = invalidations.get();
+        Snapshot current = snapshot;
+        if (current != null && current.isValid(generation, maxAgeNanos)) {
+            return current;
+        }
+
+        List<KpiMetric> metrics = readTransaction.execute(status -> kpiMetricRepository.findAll());
+        Map<Long, KpiMetricDefinition> definitions = new LinkedHashMap<>();
+        for (KpiMetric metric : metrics) {
+            definitions.put(metric.getId(), KpiMetricDefinition.of(metric));
+        }
+
+        current = new Snapshot(versions.incrementAndGet(), generation, definitions);
+        snapshot = current;
+        log.debug("Loaded KPI metric registry version {} with {} metrics", current.getVersion(), definitions.size());
+        return current;
+    }
+
+    /**
+     * Immutable set of metric definitions loaded at one point in time.
+     */
+    public static final class Snapshot {
+
+        private final long version;
+        private final long generation;
+        private final long loadedAt;
+        private final Map<Long, KpiMetricDefinition> definitions;
+        private final List<KpiMetricDefinition> requiringUpdates;
+
+        Snapshot(long version, long generation, Map<Long, KpiMetricDefinition> definitions) {
+            this.version = version;
+            this.generation = generation;
+            this.loadedAt = System.nanoTime();
+            this.definitions = Collections.unmodifiableMap(definitions);
+
+            List<KpiMetricDefinition> periodic = new ArrayList<>();
+            for (KpiMetricDefinition definition : definitions.values()) {
+                if (definition.requiresUpdates()) {
+                    periodic.add(definition);
+                }
+            }
+            this.requiringUpdates = Collections.unmodifiableList(periodic);
+        }
+
+        boolean isValid(long currentGeneration, long maxAgeNanos) {
+            return generation == currentGeneration && System.nanoTime() - loadedAt < maxAgeNanos;
+        }
+
+        /**
+         * @return the version of this snapshot, incremented on every load
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Find the definition of a metric.
+         *
+         * @param metricId the metric ID
+         * @return the definition, or null if there is no metric with that ID
+         */
+        public KpiMetricDefinition find(Long metricId) {
+            return definitions.get(metricId);
+        }
+
+        /**
+         * @return all definitions
+         */
+        public Collection<KpiMetricDefinition> getAll() {
+            return definitions.values();
+        }
+
+        /**
+         * @return the definitions of the metrics recomputed periodically
+         */
+        public List<KpiMetricDefinition> getRequiringUpdates() {
+            return requiringUpdates;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.projectmanagement.kpi;
+
+import com.projectmanagement.entity.Direction;
+import com.projectmanagement.entity.KpiNotification;
+import com.projectmanagement.entity.KpiNotificationDigest;
+import com.projectmanagement.repository.DirectionRepository;
+import com.projectmanagement.repository.KpiNotificationDigestRepository;
+import com.projectmanagement.repository.KpiNotificationRepository;
+import com.projectmanagement.repository.KpiValueRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Drains the KPI notification outbox as one digest per recipient direction.
+ * <p>
+ * A dispatch first re-sends the digests a previous run claimed but did not deliver, then
+ * builds new ones for the directions with pending notifications, the one waiting the
+ * longest first. Building a digest stores it and claims all unclaimed notifications of its
+ * direction with one {@code UPDATE}, in the same transaction, before anything is sent; the
+ * digest is then sent and acknowledged with one {@code UPDATE} on the outbox and one on the
+ * KPI values. The stored digests act as persisted watermarks: after a failure or a restart
+ * a claimed digest is sent again with the same ID and content, and notifications created
+ * while it was being sent go to the next one, so nothing is dropped and a notification
+ * never appears in two digests.
+ * <p>
+ * A direction receives at most one digest per {@code app.kpi.notifications.digest.window-minutes},
+ * so breaches raised over that window are merged; at most
+ * {@code app.kpi.notifications.digest.max-per-cycle} digests are sent per dispatch and the
+ * remaining directions wait for the next one. Only the first
+ * {@code app.kpi.notifications.digest.max-items} notifications of a digest are loaded, which
+ * bounds memory use whatever the size of the backlog.
+ */
+@Component
+@Slf4j
+public class KpiNotificationDispatcher {
+
+    private final KpiNotificationRepository kpiNotificationRepository;
+    private final KpiNotificationDigestRepository kpiNotificationDigestRepository;
+    private final KpiValueRepository kpiValueRepository;
+    private final DirectionRepository directionRepository;
+    private final KpiNotificationSender sender;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final int maxItems;
+    private final int maxPerCycle;
+    private final int windowMinutes;
+    private final int retentionDays;
+
+    @Autowired
+    public KpiNotificationDispatcher(KpiNotificationRepository kpiNotificationRepository,
+                                     KpiNotificationDigestRepository kpiNotificationDigestRepository,
+                                     KpiValueRepository kpiValueRepository,
+                                     DirectionRepository directionRepository,
+                                     KpiNotificationSender sender,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${app.kpi.notifications.digest.max-items:50}") int maxItems,
+                                     @Value("${app.kpi.notifications.digest.max-per-cycle:20}") int maxPerCycle,
+                                     @Value("${app.kpi.notifications.digest.window-minutes:60}") int windowMinutes,
+                                     @Value("${app.kpi.notifications.retention-days:30}") int retentionDays) {
+        if (maxItems < 1 || maxPerCycle < 1) {
+            throw new IllegalArgumentException("KPI notification digest sizes must be positive");
+        }
+        this.kpiNotificationRepository = kpiNotificationRepository;
+        this.kpiNotificationDigestRepository = kpiNotificationDigestRepository;
+        this.kpiValueRepository = kpiValueRepository;
+        this.directionRepository = directionRepository;
+        this.sender = sender;
+        this.maxItems = maxItems;
+        this.maxPerCycle = maxPerCycle;
+        this.windowMinutes = windowMinutes;
+        this.retentionDays = retentionDays;
+
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Send the pending digests, then delete notifications and digests sent before the
+     * retention period.
+     *
+     * @return the number of digests sent
+     */
+    public synchronized int dispatchPending() {
+        int sent = 0;
+        boolean failed = false;
+
+        // Digests claimed by an earlier dispatch but not delivered
+        List<KpiNotificationDigest> unsent = readTransaction.execute(status ->
+                kpiNotificationDigestRepository.findPending(PageRequest.of(0, maxPerCycle)));
+        for (KpiNotificationDigest digest : unsent) {
+            if (!deliver(digest)) {
+                failed = true;
+                break;
+            }
+            sent++;
+        }
+
+        if (!failed && sent < maxPerCycle) {
+            LocalDateTime since = LocalDateTime.now().minusMinutes(windowMinutes);
+            Set<Long> coalescing = new HashSet<>(readTransaction.execute(status ->
+                    kpiNotificationDigestRepository.findDirectionIdsSentSince(since)));
+            List<Object[]> recipients = readTransaction.execute(status ->
+                    kpiNotificationRepository.findPendingRecipients());
+
+            int deferred = 0;
+            for (Object[] recipient : recipients) {
+                Long directionId = (Long) recipient[0];
+                if (coalescing.contains(directionId)) {
+                    continue;
+                }
+                if (failed || sent >= maxPerCycle) {
+                    deferred++;
+                    continue;
+                }
+                KpiNotificationDigest digest = writeTransaction.execute(status -> claim(directionId));
+                if (digest == null) {
+                    continue;
+                }
+                if (deliver(digest)) {
+                    sent++;
+                } else {
+                    failed = true;
+                }
+            }
+            if (deferred > 0) {
+                log.info("Deferred KPI notification digests of {} directions to the next dispatch", deferred);
+            }
+        }
+
+        purge();
+        return sent;
+    }
+
+    /**
+     * Store a new digest for a direction and claim its unclaimed notifications.
+     *
+     * @return the digest, or null if there was nothing left to claim
+     */
+    private KpiNotificationDigest claim(Long directionId) {
+        KpiNotificationDigest digest = new KpiNotificationDigest();
+        digest.setDirectionId(directionId);
+        if (directionId != null) {
+            digest.setDirectionName(directionRepository.findById(directionId).map(Direction::getName).orElse(null));
+        }
+        digest = kpiNotificationDigestRepository.save(digest);
+
+        int claimed = directionId != null
+                ? kpiNotificationRepository.claimForDigest(digest.getId(), directionId)
+                : kpiNotificationRepository.claimWithoutDirectionForDigest(digest.getId());
+        if (claimed == 0) {
+            kpiNotificationDigestRepository.delete(digest);
+            return null;
+        }
+
+        for (Object[] row : kpiNotificationRepository.countByLevelForDigest(digest.getId())) {
+            int count = ((Number) row[1]).intValue();
+            if (row[0] == KpiNotification.Level.CRITICAL) {
+                digest.setCriticalCount(count);
+            } else {
+                digest.setWarningCount(count);
+            }
+        }
+        return digest;
+    }
+
+    /**
+     * Send a claimed digest and acknowledge it.
+     *
+     * @return false if the sender failed; the digest then stays pending
+     */
+    private boolean deliver(KpiNotificationDigest digest) {
+        Long digestId = digest.getId();
+        List<KpiNotification> notifications = readTransaction.execute(status ->
+                kpiNotificationRepository.findByDigestId(digestId, PageRequest.of(0, maxItems)));
+        try {
+            sender.send(digest, notifications);
+        } catch (IOException | RuntimeException e) {
+            log.error("Error sending KPI notification digest {}: {}", digestId, e.getMessage(), e);
+            return false;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        writeTransaction.executeWithoutResult(status -> {
+            kpiValueRepository.markNotificationSentForDigest(digestId);
+            kpiNotificationRepository.markSentForDigest(digestId, now);
+            kpiNotificationDigestRepository.markSent(digestId, now);
+        });
+        log.debug("Sent KPI notification digest {} with {} notifications", digestId, digest.getNotificationCount());
+        return true;
+    }
+
+    private void purge() {
+        if (retentionDays <= 0) {
+            return;
+        }
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        writeTransaction.executeWithoutResult(status -> {
+            int notifications = kpiNotificationRepository.deleteSentBefore(before);
+            int digests = kpiNotificationDigestRepository.deleteSentBefore(before);
+            if (notifications > 0 || digests > 0) {
+                log.debug("Deleted {} KPI notifications and {} digests sent before {}", notifications, digests, before);
+            }
+        });
+    }
+}
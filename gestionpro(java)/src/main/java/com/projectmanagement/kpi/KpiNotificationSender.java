@@ -0,0 +1,27 @@
+package com.projectmanagement.kpi;
+
+import com.projectmanagement.entity.KpiNotification;
+import com.projectmanagement.entity.KpiNotificationDigest;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Delivers digests of KPI threshold notifications, one per recipient direction.
+ * <p>
+ * The implementation is chosen with {@code app.kpi.notifications.sender}. A digest that
+ * fails, or whose delivery was interrupted by a restart, is sent again later with the same
+ * ID and the same notifications, so the digest ID can be used to discard duplicates.
+ */
+public interface KpiNotificationSender {
+
+    /**
+     * Send a digest.
+     *
+     * @param digest        the digest, with its recipient and its number of notifications by level
+     * @param notifications the first notifications of the digest, critical ones first; the
+     *                      digest counts give the totals when there are more
+     * @throws IOException if the digest could not be delivered
+     */
+    void send(KpiNotificationDigest digest, List<KpiNotification> notifications) throws IOException;
+}
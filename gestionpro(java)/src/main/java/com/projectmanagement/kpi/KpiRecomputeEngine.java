@@ -0,0 +1,247 @@
+package com.projectmanagement.kpi;
+
+import com.projectmanagement.entity.KpiValue;
+import com.projectmanagement.entity.Project;
+import com.projectmanagement.kpi.KpiRecomputeReport.ChunkResult;
+import com.projectmanagement.repository.PlanningRepository;
+import com.projectmanagement.repository.ProjectRepository;
+import com.projectmanagement.service.ProgressService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recomputes KPI values for every (metric, project) pair.
+ * <p>
+ * Projects are split into chunks that run on a bounded worker pool. Each chunk runs in
+ * its own short transaction and prefetches the project graphs it needs with a few
+ * set-based queries, so a failing chunk only rolls back its own values. Metric
+ * definitions come from the {@link KpiMetricRegistry} and are shared, read-only, by all
+ * workers. The values of a chunk are
+ * written with one JDBC batch insert through {@link KpiValueBatchWriter}.
+ */
+@Component
+@Slf4j
+public class KpiRecomputeEngine {
+
+    private final KpiMetricRegistry kpiMetricRegistry;
+    private final KpiValueBatchWriter kpiValueBatchWriter;
+    private final ProjectRepository projectRepository;
+    private final PlanningRepository planningRepository;
+    private final KpiCalculator kpiCalculator;
+    private final ProgressService progressService;
+    private final TransactionTemplate chunkTransaction;
+    private final int threads;
+    private final int chunkSize;
+
+    private ThreadPoolExecutor executor;
+
+    @Autowired
+    public KpiRecomputeEngine(KpiMetricRegistry kpiMetricRegistry,
+                              KpiValueBatchWriter kpiValueBatchWriter,
+                              ProjectRepository projectRepository,
+                              PlanningRepository planningRepository,
+                              KpiCalculator kpiCalculator,
+                              ProgressService progressService,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.kpi.recompute.threads:4}") int threads,
+                              @Value("${app.kpi.recompute.chunk-size:50}") int chunkSize) {
+        if (threads < 1 || chunkSize < 1) {
+            throw new IllegalArgumentException("KPI recompute threads and chunk size must be positive");
+        }
+        this.kpiMetricRegistry = kpiMetricRegistry;
+        this.kpiValueBatchWriter = kpiValueBatchWriter;
+        this.projectRepository = projectRepository;
+        this.planningRepository = planningRepository;
+        this.kpiCalculator = kpiCalculator;
+        this.progressService = progressService;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    void start() {
+        AtomicInteger counter = new AtomicInteger();
+        // A full queue makes the submitting thread run the chunk itself, which
+        // throttles submission instead of queueing the whole project list.
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 2),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "kpi-recompute-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Recompute every metric requiring updates for every project.
+     *
+     * @return the run report
+     */
+    public KpiRecomputeReport recomputeAll() {
+        List<KpiMetricDefinition> metrics = kpiMetricRegistry.current().getRequiringUpdates();
+        List<Long> projectIds = projectRepository.findAllIds();
+        return recompute(metrics, projectIds);
+    }
+
+    /**
+     * Recompute the given metrics for the given projects.
+     *
+     * @param metrics    the definitions of the metrics to compute
+     * @param projectIds the IDs of the projects to compute them for
+     * @return the run report
+     */
+    public KpiRecomputeReport recompute(List<KpiMetricDefinition> metrics, List<Long> projectIds) {
+        return recompute(metrics, projectIds, () -> { });
+    }
+
+    /**
+     * Recompute the given metrics for the given projects, running a guard in the
+     * transaction of each chunk before its values are written. A guard that throws rolls
+     * the chunk back; it is used to check that a job lease is still held.
+     *
+     * @param metrics    the definitions of the metrics to compute
+     * @param projectIds the IDs of the projects to compute them for
+     * @param chunkGuard the guard
+     * @return the run report
+     */
+    public KpiRecomputeReport recompute(List<KpiMetricDefinition> metrics, List<Long> projectIds, Runnable chunkGuard) {
+        long start = System.nanoTime();
+
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < projectIds.size(); from += chunkSize) {
+            chunks.add(projectIds.subList(from, Math.min(from + chunkSize, projectIds.size())));
+        }
+
+        Set<KpiVariable> variables = EnumSet.noneOf(KpiVariable.class);
+        for (KpiMetricDefinition metric : metrics) {
+            variables.addAll(kpiCalculator.requiredVariables(metric));
+        }
+
+        List<Future<ChunkResult>> futures = new ArrayList<>(chunks.size());
+        if (!metrics.isEmpty()) {
+            for (int i = 0; i < chunks.size(); i++) {
+                int index = i;
+                List<Long> chunk = chunks.get(i);
+                futures.add(executor.submit(() -> processChunk(index, metrics, chunk, variables, chunkGuard)));
+            }
+        }
+
+        List<ChunkResult> results = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            results.add(await(futures.get(i), i, metrics.size(), chunks.get(i).size()));
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new KpiRecomputeReport(metrics.size(), projectIds.size(), elapsedMillis, results);
+    }
+
+    private ChunkResult await(Future<ChunkResult> future, int index, int metricCount, int projectCount) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return failedChunk(index, metricCount, projectCount);
+        } catch (ExecutionException e) {
+            log.error("KPI recompute chunk {} rolled back: {}", index, e.getCause().getMessage(), e.getCause());
+            return failedChunk(index, metricCount, projectCount);
+        }
+    }
+
+    private ChunkResult failedChunk(int index, int metricCount, int projectCount) {
+        long pairs = (long) metricCount * projectCount;
+        return new ChunkResult(index, projectCount, pairs, 0, pairs, true);
+    }
+
+    private ChunkResult processChunk(int index, List<KpiMetricDefinition> metrics, List<Long> projectIds,
+                                     Set<KpiVariable> variables, Runnable chunkGuard) {
+        return chunkTransaction.execute(status -> {
+            List<Project> projects = prefetch(projectIds, variables);
+            Map<Long, Double> progress = variables.contains(KpiVariable.PROGRESS)
+                    ? progressService.findProjectProgress(projectIds) : null;
+            LocalDateTime now = LocalDateTime.now();
+            String comment = "Automatically calculated on " + now;
+
+            List<KpiValue> values = new ArrayList<>(projects.size() * metrics.size());
+            long failures = 0;
+            for (Project project : projects) {
+                for (KpiMetricDefinition metric : metrics) {
+                    try {
+                        Double value = kpiCalculator.calculate(metric, project,
+                                progress != null ? progress.get(project.getId()) : null);
+                        if (value != null) {
+                            values.add(kpiCalculator.newValue(metric, project, value, comment, now));
+                        }
+                    } catch (RuntimeException e) {
+                        failures++;
+                        log.error("Error calculating KPI {} for project {}: {}",
+                                metric.getCode(), project.getName(), e.getMessage(), e);
+                    }
+                }
+            }
+
+            chunkGuard.run();
+            long recorded = kpiValueBatchWriter.insertAll(values);
+            long pairs = (long) metrics.size() * projects.size();
+            log.debug("KPI recompute chunk {}: {} projects, {} values, {} failures",
+                    index, projects.size(), recorded, failures);
+            return new ChunkResult(index, projects.size(), pairs, recorded, failures, false);
+        });
+    }
+
+    /**
+     * Load the projects of a chunk with only the collections the metrics' variables
+     * read. Progress comes from an aggregate query, so actions are loaded only for the
+     * action count variables. Collections are fetched by separate queries so that no
+     * query multiplies rows across two collections.
+     */
+    private List<Project> prefetch(List<Long> projectIds, Set<KpiVariable> variables) {
+        List<Project> projects = projectRepository.findAllById(projectIds);
+        if (variables.contains(KpiVariable.TOTAL_ACTIONS) || variables.contains(KpiVariable.COMPLETED_ACTIONS)
+                || variables.contains(KpiVariable.OVERDUE_ACTIONS)) {
+            projectRepository.findWithPlanningsByIdIn(projectIds);
+            planningRepository.findWithActionsByProjectIdIn(projectIds);
+        }
+        if (variables.contains(KpiVariable.BUDGET_CONSUMPTION) || variables.contains(KpiVariable.TOTAL_BUDGET)
+                || variables.contains(KpiVariable.USED_BUDGET)) {
+            projectRepository.findWithBudgetsByIdIn(projectIds);
+        }
+        if (variables.contains(KpiVariable.DOCUMENT_COUNT)) {
+            projectRepository.findWithDocumentsByIdIn(projectIds);
+        }
+        return projects;
+    }
+}
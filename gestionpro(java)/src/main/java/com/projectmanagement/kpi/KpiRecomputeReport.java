@@ -0,0 +1,96 @@
+package com.projectmanagement.kpi;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a KPI recomputation run.
+ */
+@Getter
+public class KpiRecomputeReport {
+
+    private final int metricCount;
+    private final int projectCount;
+    private final long pairsEvaluated;
+    private final long valuesRecorded;
+    private final long elapsedMillis;
+    private final List<ChunkResult> chunks;
+
+    public KpiRecomputeReport(int metricCount, int projectCount, long elapsedMillis, List<ChunkResult> chunks) {
+        this.metricCount = metricCount;
+        this.projectCount = projectCount;
+        this.elapsedMillis = elapsedMillis;
+        this.chunks = Collections.unmodifiableList(chunks);
+
+        long evaluated = 0;
+        long recorded = 0;
+        for (ChunkResult chunk : chunks) {
+            evaluated += chunk.getPairsEvaluated();
+            recorded += chunk.getValuesRecorded();
+        }
+        this.pairsEvaluated = evaluated;
+        this.valuesRecorded = recorded;
+    }
+
+    /**
+     * @return the number of (metric, project) pairs evaluated per second
+     */
+    public double getPairsPerSecond() {
+        if (elapsedMillis <= 0) {
+            return pairsEvaluated;
+        }
+        return pairsEvaluated * 1000.0 / elapsedMillis;
+    }
+
+    /**
+     * @return the total number of failed pairs across all chunks
+     */
+    public long getFailureCount() {
+        long failures = 0;
+        for (ChunkResult chunk : chunks) {
+            failures += chunk.getFailures();
+        }
+        return failures;
+    }
+
+    /**
+     * @return the number of chunks whose transaction was rolled back
+     */
+    public long getFailedChunkCount() {
+        return chunks.stream().filter(ChunkResult::isRolledBack).count();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d pairs (%d metrics x %d projects) in %d ms, %.1f pairs/s, "
+                        + "%d values recorded, %d failures, %d/%d chunks rolled back",
+                pairsEvaluated, metricCount, projectCount, elapsedMillis, getPairsPerSecond(),
+                valuesRecorded, getFailureCount(), getFailedChunkCount(), chunks.size());
+    }
+
+    /**
+     * Outcome of one chunk of projects.
+     */
+    @Getter
+    public static class ChunkResult {
+
+        private final int index;
+        private final int projectCount;
+        private final long pairsEvaluated;
+        private final long valuesRecorded;
+        private final long failures;
+        private final boolean rolledBack;
+
+        public ChunkResult(int index, int projectCount, long pairsEvaluated, long valuesRecorded,
+                           long failures, boolean rolledBack) {
+            this.index = index;
+            this.projectCount = projectCount;
+            this.pairsEvaluated = pairsEvaluated;
+            this.valuesRecorded = valuesRecorded;
+            this.failures = failures;
+            this.rolledBack = rolledBack;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.projectmanagement.kpi;
+
+import com.projectmanagement.repository.KpiValueArchiveRepository;
+import com.projectmanagement.repository.KpiValueRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Rebuilds the KPI value roll-ups from the recorded values, to fill them for values
+ * recorded before they existed or to repair them after direct database changes.
+ * <p>
+ * Values are read in ID order by pages of {@value #PAGE_SIZE} (keyset pagination), and
+ * each page is aggregated and merged in its own transaction, so the run holds one page
+ * in memory whatever the number of values. Archived values are read first, then the hot
+ * ones. It should run while no recompute or archiving is running: values recorded or
+ * archived during the rebuild may be counted twice or missed.
+ */
+@Component
+@Slf4j
+public class KpiRollupRebuilder {
+
+    private static final int PAGE_SIZE = 5000;
+
+    private final KpiValueRepository kpiValueRepository;
+    private final KpiValueArchiveRepository kpiValueArchiveRepository;
+    private final KpiRollupWriter kpiRollupWriter;
+    private final TransactionTemplate pageTransaction;
+
+    @Autowired
+    public KpiRollupRebuilder(KpiValueRepository kpiValueRepository,
+                              KpiValueArchiveRepository kpiValueArchiveRepository,
+                              KpiRollupWriter kpiRollupWriter,
+                              PlatformTransactionManager transactionManager) {
+        this.kpiValueRepository = kpiValueRepository;
+        this.kpiValueArchiveRepository = kpiValueArchiveRepository;
+        this.kpiRollupWriter = kpiRollupWriter;
+
+        this.pageTransaction = new TransactionTemplate(transactionManager);
+        this.pageTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Delete all roll-ups and rebuild them from the KPI values.
+     *
+     * @return the number of values read
+     */
+    public synchronized long rebuildAll() {
+        long start = System.currentTimeMillis();
+        int deleted = pageTransaction.execute(status -> kpiRollupWriter.deleteAll());
+
+        // Archived values keep counting in the roll-ups
+        long values = addAll(kpiValueArchiveRepository::findRollupSamplesAfter)
+                + addAll(kpiValueRepository::findRollupSamplesAfter);
+
+        log.info("Rebuilt KPI roll-ups from {} values ({} old rows deleted) in {} ms",
+                values, deleted, System.currentTimeMillis() - start);
+        return values;
+    }
+
+    /**
+     * Add the samples of one table to the roll-ups, page by page.
+     */
+    private long addAll(BiFunction<Long, Pageable, List<Object[]>> query) {
+        long lastId = 0;
+        long values = 0;
+        while (true) {
+            long after = lastId;
+            List<Object[]> page = pageTransaction.execute(status -> {
+                List<Object[]> samples = query.apply(after, PageRequest.of(0, PAGE_SIZE));
+                kpiRollupWriter.addSamples(samples);
+                return samples;
+            });
+            if (page == null || page.isEmpty()) {
+                break;
+            }
+            values += page.size();
+            lastId = ((Number) page.get(page.size() - 1)[0]).longValue();
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+        }
+        return values;
+    }
+}
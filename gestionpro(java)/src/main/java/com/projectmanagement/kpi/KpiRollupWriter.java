@@ -0,0 +1,306 @@
+package com.projectmanagement.kpi;
+
+import com.projectmanagement.entity.KpiValue;
+import com.projectmanagement.entity.KpiValueRollup.Resolution;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Maintains the KPI value roll-ups ({@code tbkpir}) as values are recorded.
+ * <p>
+ * Values are first aggregated in memory per (project, metric, resolution, bucket), then
+ * merged into the table with one JDBC batch of {@code UPDATE}s that add to the existing
+ * buckets, and one batch of {@code INSERT}s for the buckets that did not exist yet. The
+ * updates are relative ({@code nb = nb + ?}, {@code LEAST}, {@code GREATEST}), so
+ * concurrent writers to the same bucket do not lose each other's values.
+ * <p>
+ * It joins the current transaction like any repository call. The inserts run after a JDBC
+ * savepoint: when another transaction created one of the buckets since the update, the
+ * batch is rolled back to the savepoint and the buckets are merged one by one, each insert
+ * that hits the unique key being replaced by the update. The caller's transaction, and the
+ * KPI values it records, are not affected.
+ */
+@Repository
+@Slf4j
+public class KpiRollupWriter {
+
+    // vlast is assigned before dlast because MySQL evaluates assignments from left to right
+    private static final String UPDATE_SQL =
+            "UPDATE tbkpir SET nb = nb + ?, vsum = vsum + ?, vmin = LEAST(vmin, ?), vmax = GREATEST(vmax, ?), "
+            + "vlast = CASE WHEN dlast <= ? THEN ? ELSE vlast END, "
+            + "dlast = CASE WHEN dlast <= ? THEN ? ELSE dlast END, dtmod = ? "
+            + "WHERE idpro = ? AND idkpim = ? AND res = ? AND dbuck = ?";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO tbkpir (idpro, idkpim, res, dbuck, nb, vmin, vmax, vsum, vlast, dlast, dtcrea, actif) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    @Autowired
+    public KpiRollupWriter(DataSource dataSource,
+                           @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("JDBC batch size must be positive");
+        }
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Add KPI values to the roll-ups of every resolution.
+     * Values without a project or without a value are ignored.
+     *
+     * @param values the values, with metric, project and measurement date set
+     * @return the number of roll-up rows written
+     */
+    public int addAll(List<KpiValue> values) {
+        Map<Key, Bucket> buckets = new LinkedHashMap<>();
+        for (KpiValue value : values) {
+            if (value.getProject() == null || value.getValue() == null) {
+                continue;
+            }
+            add(buckets, value.getProject().getId(), value.getMetric().getId(), value.getValue(),
+                    value.getMeasurementDate());
+        }
+        return write(buckets);
+    }
+
+    /**
+     * Add raw samples to the roll-ups of every resolution.
+     *
+     * @param samples rows of [value ID, project ID, metric ID, value, measurement date], as read by
+     *                {@code KpiValueRepository.findRollupSamplesAfter}
+     * @return the number of roll-up rows written
+     */
+    public int addSamples(List<Object[]> samples) {
+        Map<Key, Bucket> buckets = new LinkedHashMap<>();
+        for (Object[] sample : samples) {
+            if (sample[1] == null || sample[3] == null) {
+                continue;
+            }
+            add(buckets, ((Number) sample[1]).longValue(), ((Number) sample[2]).longValue(),
+                    ((Number) sample[3]).doubleValue(), (LocalDateTime) sample[4]);
+        }
+        return write(buckets);
+    }
+
+    /**
+     * Delete all roll-ups.
+     *
+     * @return the number of deleted rows
+     */
+    public int deleteAll() {
+        return jdbcTemplate.update("DELETE FROM tbkpir");
+    }
+
+    private static void add(Map<Key, Bucket> buckets, Long projectId, Long metricId, double value,
+                            LocalDateTime date) {
+        for (Resolution resolution : Resolution.values()) {
+            Key key = new Key(projectId, metricId, resolution, resolution.bucketStart(date));
+            buckets.computeIfAbsent(key, k -> new Bucket()).add(value, date);
+        }
+    }
+
+    private int write(Map<Key, Bucket> buckets) {
+        if (buckets.isEmpty()) {
+            return 0;
+        }
+
+        List<Map.Entry<Key, Bucket>> entries = new ArrayList<>(buckets.entrySet());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, entries, batchSize,
+                (ps, entry) -> setUpdate(ps, entry, now));
+
+        List<Map.Entry<Key, Bucket>> missing = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                Map.Entry<Key, Bucket> entry = entries.get(index++);
+                if (count == 0) {
+                    missing.add(entry);
+                } else if (count == Statement.SUCCESS_NO_INFO) {
+                    // Driver without row counts for batches: check this bucket on its own
+                    if (exists(entry.getKey())) {
+                        continue;
+                    }
+                    missing.add(entry);
+                }
+            }
+        }
+
+        if (!missing.isEmpty() && !insert(missing, now)) {
+            log.debug("KPI roll-up buckets created concurrently, merging them one by one");
+            for (Map.Entry<Key, Bucket> entry : missing) {
+                if (!insert(Collections.singletonList(entry), now)) {
+                    jdbcTemplate.update(UPDATE_SQL, ps -> setUpdate(ps, entry, now));
+                }
+            }
+        }
+
+        log.debug("Merged {} KPI roll-up buckets ({} new)", entries.size(), missing.size());
+        return entries.size();
+    }
+
+    /**
+     * Insert buckets in JDBC batches after a savepoint.
+     *
+     * @return false if a bucket already existed, in which case none of them was inserted
+     */
+    private boolean insert(List<Map.Entry<Key, Bucket>> entries, Timestamp now) {
+        Boolean inserted = jdbcTemplate.execute((ConnectionCallback<Boolean>) con -> {
+            Savepoint savepoint = con.getAutoCommit() ? null : con.setSavepoint();
+            try (PreparedStatement ps = con.prepareStatement(INSERT_SQL)) {
+                for (int start = 0; start < entries.size(); start += batchSize) {
+                    for (Map.Entry<Key, Bucket> entry : entries.subList(start, Math.min(start + batchSize, entries.size()))) {
+                        setInsert(ps, entry, now);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            } catch (SQLException e) {
+                if (!(jdbcTemplate.getExceptionTranslator().translate("KPI roll-up insert", INSERT_SQL, e)
+                        instanceof DuplicateKeyException)) {
+                    throw e;
+                }
+                if (savepoint != null) {
+                    con.rollback(savepoint);
+                }
+                return false;
+            }
+            if (savepoint != null) {
+                releaseSavepoint(con, savepoint);
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(inserted);
+    }
+
+    private static void releaseSavepoint(Connection con, Savepoint savepoint) {
+        try {
+            con.releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            // Oracle does not release savepoints: they end with the transaction
+        }
+    }
+
+    private static void setUpdate(PreparedStatement ps, Map.Entry<Key, Bucket> entry, Timestamp now)
+            throws SQLException {
+        Key key = entry.getKey();
+        Bucket bucket = entry.getValue();
+        Timestamp last = Timestamp.valueOf(bucket.lastDate);
+        ps.setLong(1, bucket.count);
+        ps.setDouble(2, bucket.sum);
+        ps.setDouble(3, bucket.min);
+        ps.setDouble(4, bucket.max);
+        ps.setTimestamp(5, last);
+        ps.setDouble(6, bucket.last);
+        ps.setTimestamp(7, last);
+        ps.setTimestamp(8, last);
+        ps.setTimestamp(9, now);
+        ps.setLong(10, key.projectId);
+        ps.setLong(11, key.metricId);
+        ps.setString(12, key.resolution.name());
+        ps.setTimestamp(13, Timestamp.valueOf(key.bucketStart));
+    }
+
+    private static void setInsert(PreparedStatement ps, Map.Entry<Key, Bucket> entry, Timestamp now)
+            throws SQLException {
+        Key key = entry.getKey();
+        Bucket bucket = entry.getValue();
+        ps.setLong(1, key.projectId);
+        ps.setLong(2, key.metricId);
+        ps.setString(3, key.resolution.name());
+        ps.setTimestamp(4, Timestamp.valueOf(key.bucketStart));
+        ps.setLong(5, bucket.count);
+        ps.setDouble(6, bucket.min);
+        ps.setDouble(7, bucket.max);
+        ps.setDouble(8, bucket.sum);
+        ps.setDouble(9, bucket.last);
+        ps.setTimestamp(10, Timestamp.valueOf(bucket.lastDate));
+        ps.setTimestamp(11, now);
+        ps.setBoolean(12, true);
+    }
+
+    private boolean exists(Key key) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM tbkpir WHERE idpro = ? AND idkpim = ? AND res = ? AND dbuck = ?",
+                Integer.class, key.projectId, key.metricId, key.resolution.name(), Timestamp.valueOf(key.bucketStart));
+        return count != null && count > 0;
+    }
+
+    private static final class Key {
+
+        final Long projectId;
+        final Long metricId;
+        final Resolution resolution;
+        final LocalDateTime bucketStart;
+
+        Key(Long projectId, Long metricId, Resolution resolution, LocalDateTime bucketStart) {
+            this.projectId = projectId;
+            this.metricId = metricId;
+            this.resolution = resolution;
+            this.bucketStart = bucketStart;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return projectId.equals(other.projectId) && metricId.equals(other.metricId)
+                    && resolution == other.resolution && bucketStart.equals(other.bucketStart);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(projectId, metricId, resolution, bucketStart);
+        }
+    }
+
+    private static final class Bucket {
+
+        long count;
+        double sum;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double last;
+        LocalDateTime lastDate;
+
+        void add(double value, LocalDateTime date) {
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            if (lastDate == null || !date.isBefore(lastDate)) {
+                last = value;
+                lastDate = date;
+            }
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package com.projectmanagement.kpi;
+
+import com.projectmanagement.cluster.JobLeaseManager;
+import com.projectmanagement.entity.KpiMetricSchedule;
+import com.projectmanagement.repository.KpiDirtyMarkRepository;
+import com.projectmanagement.repository.KpiMetricScheduleRepository;
+import com.projectmanagement.repository.ProjectRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Runs the automatic KPI updates of each metric when they are due, according to the
+ * metric's {@code updateFrequencyMinutes}.
+ * <p>
+ * The next due date of every metric with a frequency is stored in {@code tbkpisch}, so
+ * the schedule survives restarts, and kept in memory in a priority queue ordered by due
+ * date. A single timer is set for the head of the queue: the scheduler only wakes when a
+ * metric is due, recomputes all the metrics due at that time with one
+ * {@link KpiRecomputeEngine} run, and moves them to their next due date. Metric changes
+ * made through {@code KpiService} wake it up to reschedule; changes made elsewhere are
+ * picked up at the latest after {@code app.kpi.scheduler.max-sleep-seconds}.
+ * <p>
+ * Due dates are slots of the metric's period shifted by an offset derived from the metric
+ * ID, so metrics sharing a frequency are spread over the whole period instead of all
+ * firing at the same second. A metric whose due date was missed (for example while the
+ * application was stopped) runs once, then resumes on its next slot.
+ * <p>
+ * A due metric is only recomputed for the projects marked changed by
+ * {@link KpiDirtyProjectListener} since its last update, as the marks are stored in
+ * {@code tbkpidrt} with the changes. Metrics reading a time-dependent variable, and metrics
+ * never updated yet, are recomputed for all projects. The marks are read from a little
+ * before the last update ({@code app.kpi.scheduler.dirty-overlap-seconds}), so that changes
+ * committed after the update started are not missed, and purged once no metric needs them.
+ * <p>
+ * Every node runs its own scheduler on the shared schedule, so all nodes wake for the same
+ * run. The projects of a run are split into {@code app.kpi.scheduler.partitions}
+ * partitions by ID, each with its own {@link JobLeaseManager} lease, so the nodes share the
+ * partitions and each partition is recomputed once; the partitions of a node that dies
+ * are taken over by the others.
+ */
+@Component
+@Slf4j
+public class KpiUpdateScheduler {
+
+    /**
+     * Multiplier of the Fibonacci hashing that spreads consecutive metric IDs over a period.
+     */
+    private static final long SPREAD_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Name of the job leases of the project partitions.
+     */
+    private static final String LEASE_NAME = "kpi-update";
+
+    private final KpiMetricRegistry kpiMetricRegistry;
+    private final KpiRecomputeEngine kpiRecomputeEngine;
+    private final KpiCalculator kpiCalculator;
+    private final ProjectRepository projectRepository;
+    private final KpiMetricScheduleRepository kpiMetricScheduleRepository;
+    private final KpiDirtyMarkRepository kpiDirtyMarkRepository;
+    private final JobLeaseManager jobLeaseManager;
+    private final TransactionTemplate scheduleTransaction;
+    private final boolean enabled;
+    private final long maxSleepSeconds;
+    private final long dirtyOverlapSeconds;
+    private final int partitions;
+
+    private final PriorityQueue<Due> queue = new PriorityQueue<>();
+    private final Object wakeUpLock = new Object();
+    private long syncedVersion = -1;
+    private ThreadPoolTaskScheduler taskScheduler;
+    private ScheduledFuture<?> wakeUp;
+
+    @Autowired
+    public KpiUpdateScheduler(KpiMetricRegistry kpiMetricRegistry,
+                              KpiRecomputeEngine kpiRecomputeEngine,
+                              KpiCalculator kpiCalculator,
+                              ProjectRepository projectRepository,
+                              KpiMetricScheduleRepository kpiMetricScheduleRepository,
+                              KpiDirtyMarkRepository kpiDirtyMarkRepository,
+                              JobLeaseManager jobLeaseManager,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.features.kpi-calculation-enabled:true}") boolean enabled,
+                              @Value("${app.kpi.scheduler.max-sleep-seconds:3600}") long maxSleepSeconds,
+                              @Value("${app.kpi.scheduler.dirty-overlap-seconds:300}") long dirtyOverlapSeconds,
+                              @Value("${app.kpi.scheduler.partitions:8}") int partitions) {
+        if (maxSleepSeconds < 1) {
+            throw new IllegalArgumentException("KPI scheduler maximum sleep must be positive");
+        }
+        if (dirtyOverlapSeconds < 0) {
+            throw new IllegalArgumentException("KPI scheduler dirty overlap must not be negative");
+        }
+        if (partitions < 1) {
+            throw new IllegalArgumentException("KPI scheduler partitions must be positive");
+        }
+        this.kpiMetricRegistry = kpiMetricRegistry;
+        this.kpiRecomputeEngine = kpiRecomputeEngine;
+        this.kpiCalculator = kpiCalculator;
+        this.projectRepository = projectRepository;
+        this.kpiMetricScheduleRepository = kpiMetricScheduleRepository;
+        this.kpiDirtyMarkRepository = kpiDirtyMarkRepository;
+        this.jobLeaseManager = jobLeaseManager;
+        this.enabled = enabled;
+        this.maxSleepSeconds = maxSleepSeconds;
+        this.dirtyOverlapSeconds = dirtyOverlapSeconds;
+        this.partitions = partitions;
+
+        this.scheduleTransaction = new TransactionTemplate(transactionManager);
+        this.scheduleTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Automatic KPI updates are disabled");
+            return;
+        }
+        taskScheduler = new ThreadPoolTaskScheduler();
+        taskScheduler.setPoolSize(1);
+        taskScheduler.setThreadNamePrefix("kpi-scheduler-");
+        taskScheduler.setDaemon(true);
+        taskScheduler.initialize();
+
+        kpiMetricRegistry.addInvalidationListener(this::wakeUpNow);
+        wakeUpNow();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (taskScheduler != null) {
+            taskScheduler.shutdown();
+        }
+    }
+
+    /**
+     * Recompute the metrics due at a date and move them to their next due date.
+     *
+     * @param now the current date
+     * @return the number of metrics recomputed
+     */
+    public synchronized int runDue(LocalDateTime now) {
+        sync(now);
+
+        List<Due> due = new ArrayList<>();
+        while (!queue.isEmpty() && !queue.peek().date.isAfter(now)) {
+            due.add(queue.poll());
+        }
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        // Metrics recomputed for all projects, and the others by date of their last update
+        KpiMetricRegistry.Snapshot registry = kpiMetricRegistry.current();
+        List<KpiMetricDefinition> fullMetrics = new ArrayList<>();
+        Map<LocalDateTime, List<KpiMetricDefinition>> changedMetrics = new TreeMap<>();
+        for (Due entry : due) {
+            KpiMetricDefinition metric = registry.find(entry.metricId);
+            if (metric == null || !metric.requiresUpdates()) {
+                continue;
+            }
+            if (entry.lastRunDate == null || isTimeDependent(metric)) {
+                fullMetrics.add(metric);
+            } else {
+                changedMetrics.computeIfAbsent(entry.lastRunDate, date -> new ArrayList<>()).add(metric);
+            }
+        }
+
+        // The run is identified by its latest due date, which every node computes alike
+        LocalDateTime runDate = due.get(due.size() - 1).date;
+        List<Work> work = new ArrayList<>();
+        if (!fullMetrics.isEmpty()) {
+            work.add(new Work(fullMetrics, projectRepository.findAllIds()));
+        }
+        for (Map.Entry<LocalDateTime, List<KpiMetricDefinition>> group : changedMetrics.entrySet()) {
+            List<Long> projectIds = findChangedProjectIds(group.getKey().minusSeconds(dirtyOverlapSeconds));
+            if (projectIds.isEmpty()) {
+                log.debug("No project changed since {}, skipping {} due metrics", group.getKey(), group.getValue().size());
+            } else {
+                work.add(new Work(group.getValue(), projectIds));
+            }
+        }
+
+        int count = 0;
+        boolean completed = false;
+        try {
+            if (!work.isEmpty()) {
+                int ran = jobLeaseManager.runPartitioned(LEASE_NAME, runDate, partitions,
+                        (lease, partition) -> recomputePartition(work, partition, () -> jobLeaseManager.checkHeld(lease)));
+                log.info("Scheduled KPI update for {}: {} of {} partitions run on this node", runDate, ran, partitions);
+                for (Work item : work) {
+                    count += item.metrics.size();
+                }
+            }
+            completed = true;
+        } finally {
+            // A failed run is not retried before the next slot, but keeps its last update
+            // date so that the changes it missed are picked up by the next one
+            for (Due entry : due) {
+                entry.date = nextSlot(now, entry.metricId, entry.frequencyMinutes);
+                if (completed) {
+                    entry.lastRunDate = runDate;
+                }
+                queue.add(entry);
+            }
+            saveDueDates(due);
+            purgeDirtyMarks(now);
+        }
+        return count;
+    }
+
+    /**
+     * Recompute the projects of one partition, writing each chunk only if the guard passes.
+     */
+    private void recomputePartition(List<Work> work, int partition, Runnable chunkGuard) {
+        for (Work item : work) {
+            List<Long> projectIds = new ArrayList<>();
+            for (Long projectId : item.projectIds) {
+                if (Math.floorMod(projectId, partitions) == partition) {
+                    projectIds.add(projectId);
+                }
+            }
+            if (!projectIds.isEmpty()) {
+                KpiRecomputeReport report = kpiRecomputeEngine.recompute(item.metrics, projectIds, chunkGuard);
+                log.info("Scheduled KPI update of {} due metrics for {} projects of partition {}: {}",
+                        item.metrics.size(), projectIds.size(), partition, report);
+            }
+        }
+    }
+
+    /**
+     * @return the date of the next metric update, or null if no metric is scheduled
+     */
+    public synchronized LocalDateTime getNextDueDate() {
+        Due head = queue.peek();
+        return head != null ? head.date : null;
+    }
+
+    /**
+     * Rebuild the queue from the schedule table when the metric definitions changed,
+     * scheduling new metrics and metrics whose frequency changed on their next slot.
+     */
+    private void sync(LocalDateTime now) {
+        KpiMetricRegistry.Snapshot registry = kpiMetricRegistry.current();
+        if (registry.getVersion() == syncedVersion) {
+            return;
+        }
+
+        Map<Long, KpiMetricDefinition> metrics = new HashMap<>();
+        for (KpiMetricDefinition metric : registry.getRequiringUpdates()) {
+            metrics.put(metric.getId(), metric);
+        }
+
+        List<KpiMetricSchedule> schedules;
+        try {
+            schedules = scheduleTransaction.execute(status -> loadSchedules(metrics, now));
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the same schedules at the same time
+            schedules = scheduleTransaction.execute(status -> loadSchedules(metrics, now));
+        }
+
+        queue.clear();
+        for (KpiMetricSchedule schedule : schedules) {
+            queue.add(new Due(schedule.getMetricId(), schedule.getFrequencyMinutes(),
+                    schedule.getNextDueDate(), schedule.getLastRunDate()));
+        }
+        syncedVersion = registry.getVersion();
+        log.debug("KPI update schedule synchronised with registry version {}: {} metrics", syncedVersion, queue.size());
+    }
+
+    /**
+     * Read the schedules of the metrics, deleting those of other metrics and creating or
+     * rescheduling those whose frequency changed.
+     */
+    private List<KpiMetricSchedule> loadSchedules(Map<Long, KpiMetricDefinition> metrics, LocalDateTime now) {
+        List<KpiMetricSchedule> kept = new ArrayList<>();
+        List<KpiMetricSchedule> stale = new ArrayList<>();
+        Map<Long, KpiMetricSchedule> byMetric = new HashMap<>();
+        for (KpiMetricSchedule schedule : kpiMetricScheduleRepository.findAll()) {
+            if (metrics.containsKey(schedule.getMetricId())) {
+                byMetric.put(schedule.getMetricId(), schedule);
+            } else {
+                stale.add(schedule);
+            }
+        }
+        kpiMetricScheduleRepository.deleteAllInBatch(stale);
+
+        for (KpiMetricDefinition metric : metrics.values()) {
+            KpiMetricSchedule schedule = byMetric.get(metric.getId());
+            if (schedule == null) {
+                schedule = new KpiMetricSchedule();
+                schedule.setMetricId(metric.getId());
+            }
+            if (!metric.getUpdateFrequencyMinutes().equals(schedule.getFrequencyMinutes())) {
+                schedule.setFrequencyMinutes(metric.getUpdateFrequencyMinutes());
+                schedule.setNextDueDate(nextSlot(now, metric.getId(), metric.getUpdateFrequencyMinutes()));
+                schedule = kpiMetricScheduleRepository.save(schedule);
+            }
+            kept.add(schedule);
+        }
+        return kept;
+    }
+
+    private void saveDueDates(List<Due> due) {
+        Map<Long, Due> byMetric = new HashMap<>();
+        for (Due entry : due) {
+            byMetric.put(entry.metricId, entry);
+        }
+        scheduleTransaction.execute(status -> {
+            for (KpiMetricSchedule schedule : kpiMetricScheduleRepository.findAll()) {
+                Due entry = byMetric.get(schedule.getMetricId());
+                if (entry != null) {
+                    schedule.setNextDueDate(entry.date);
+                    schedule.setLastRunDate(entry.lastRunDate);
+                }
+            }
+            return null;
+        });
+    }
+
+    private boolean isTimeDependent(KpiMetricDefinition metric) {
+        for (KpiVariable variable : kpiCalculator.requiredVariables(metric)) {
+            if (variable.isTimeDependent()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find the projects marked changed since a date, directly or through a planning or an action.
+     */
+    private List<Long> findChangedProjectIds(LocalDateTime since) {
+        return scheduleTransaction.execute(status -> {
+            Set<Long> projectIds = new TreeSet<>(kpiDirtyMarkRepository.findProjectIdsMarkedSince(since));
+            projectIds.addAll(kpiDirtyMarkRepository.findProjectIdsOfPlanningsMarkedSince(since));
+            projectIds.addAll(kpiDirtyMarkRepository.findProjectIdsOfActionsMarkedSince(since));
+            return new ArrayList<>(projectIds);
+        });
+    }
+
+    /**
+     * Delete the marks older than the overlap before the oldest last update of the scheduled
+     * metrics. Metrics never updated are recomputed for all projects and need no mark.
+     */
+    private void purgeDirtyMarks(LocalDateTime now) {
+        LocalDateTime oldest = now;
+        for (Due entry : queue) {
+            if (entry.lastRunDate != null && entry.lastRunDate.isBefore(oldest)) {
+                oldest = entry.lastRunDate;
+            }
+        }
+        LocalDateTime cutoff = oldest.minusSeconds(dirtyOverlapSeconds);
+        Integer deleted = scheduleTransaction.execute(status -> kpiDirtyMarkRepository.deleteMarkedBefore(cutoff));
+        log.debug("Purged {} KPI dirty marks older than {}", deleted, cutoff);
+    }
+
+    /**
+     * Get the first slot of a metric strictly after a date. Slots are spaced by the
+     * metric's period and shifted by an offset derived from its ID.
+     */
+    static LocalDateTime nextSlot(LocalDateTime after, long metricId, int frequencyMinutes) {
+        long period = frequencyMinutes * 60L;
+        // High 32 bits of the hash, scaled to the period
+        long offset = (((metricId * SPREAD_MULTIPLIER) >>> 32) * period) >>> 32;
+        long seconds = after.toEpochSecond(ZoneOffset.UTC);
+        long slot = (Math.floorDiv(seconds - offset, period) + 1) * period + offset;
+        return LocalDateTime.ofEpochSecond(slot, 0, ZoneOffset.UTC);
+    }
+
+    private void wakeUpNow() {
+        setWakeUp(LocalDateTime.now());
+    }
+
+    private void wake() {
+        try {
+            runDue(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.error("Scheduled KPI update failed: {}", e.getMessage(), e);
+        } finally {
+            LocalDateTime latest = LocalDateTime.now().plusSeconds(maxSleepSeconds);
+            LocalDateTime next = getNextDueDate();
+            setWakeUp(next != null && next.isBefore(latest) ? next : latest);
+        }
+    }
+
+    /**
+     * Set the timer, replacing the previous one. Not synchronised on the scheduler, so that
+     * a metric change does not wait for a running update to set it.
+     */
+    private void setWakeUp(LocalDateTime date) {
+        synchronized (wakeUpLock) {
+            if (taskScheduler == null) {
+                return;
+            }
+            if (wakeUp != null) {
+                wakeUp.cancel(false);
+            }
+            wakeUp = taskScheduler.schedule(this::wake, date.atZone(ZoneId.systemDefault()).toInstant());
+        }
+    }
+
+    /**
+     * Metrics to recompute for a list of projects.
+     */
+    private static final class Work {
+
+        final List<KpiMetricDefinition> metrics;
+        final List<Long> projectIds;
+
+        Work(List<KpiMetricDefinition> metrics, List<Long> projectIds) {
+            this.metrics = metrics;
+            this.projectIds = projectIds;
+        }
+    }
+
+    /**
+     * Next due date of one metric in the queue.
+     */
+    private static final class Due implements Comparable<Due> {
+
+        final Long metricId;
+        final Integer frequencyMinutes;
+        LocalDateTime date;
+        LocalDateTime lastRunDate;
+
+        Due(Long metricId, Integer frequencyMinutes, LocalDateTime date, LocalDateTime lastRunDate) {
+            this.metricId = metricId;
+            this.frequencyMinutes = frequencyMinutes;
+            this.date = date;
+            this.lastRunDate = lastRunDate;
+        }
+
+        @Override
+        public int compareTo(Due other) {
+            return date.compareTo(other.date);
+        }
+    }
+}
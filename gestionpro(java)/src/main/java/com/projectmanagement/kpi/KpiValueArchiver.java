@@ -0,0 +1,102 @@
+package com.projectmanagement.kpi;
+
+import com.projectmanagement.repository.InClauses;
+import com.projectmanagement.repository.KpiValueArchiveRepository;
+import com.projectmanagement.repository.KpiValueRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves the KPI values older than the retention horizon from {@code tbkpiv} to the
+ * {@code tbkpiva} archive.
+ * <p>
+ * Values are moved by batches of IDs, each copied and deleted in its own transaction, so a
+ * value is always in exactly one of the two tables and an interrupted run resumes where it
+ * stopped. {@link KpiValueHistoryReader} reads the archive along with the hot table, while
+ * the latest-value, export and dashboard queries only read {@code tbkpiv}. Roll-ups are
+ * left untouched and keep covering the archived values.
+ */
+@Component
+@Slf4j
+public class KpiValueArchiver {
+
+    private final KpiValueRepository kpiValueRepository;
+    private final KpiValueArchiveRepository kpiValueArchiveRepository;
+    private final TransactionTemplate batchTransaction;
+    private final int retentionDays;
+    private final int batchSize;
+
+    @Autowired
+    public KpiValueArchiver(KpiValueRepository kpiValueRepository,
+                            KpiValueArchiveRepository kpiValueArchiveRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.kpi.archive.retention-days:365}") int retentionDays,
+                            @Value("${app.kpi.archive.batch-size:1000}") int batchSize) {
+        if (retentionDays < 1) {
+            throw new IllegalArgumentException("KPI archive retention must be at least one day");
+        }
+        if (batchSize < 1 || batchSize > InClauses.MAX_SIZE) {
+            throw new IllegalArgumentException("KPI archive batch size must be between 1 and " + InClauses.MAX_SIZE);
+        }
+        this.kpiValueRepository = kpiValueRepository;
+        this.kpiValueArchiveRepository = kpiValueArchiveRepository;
+        this.retentionDays = retentionDays;
+        this.batchSize = batchSize;
+
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.batchTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Archive the values measured before the retention horizon.
+     *
+     * @return the number of archived values
+     */
+    public long archiveExpired() {
+        return archiveBefore(LocalDateTime.now().minusDays(retentionDays));
+    }
+
+    /**
+     * Archive the values measured before a date.
+     *
+     * @param cutoff the date
+     * @return the number of archived values
+     */
+    public synchronized long archiveBefore(LocalDateTime cutoff) {
+        long start = System.currentTimeMillis();
+        long archived = 0;
+        while (true) {
+            Integer moved = batchTransaction.execute(status -> {
+                List<Long> ids = kpiValueRepository.findIdsMeasuredBefore(cutoff, PageRequest.of(0, batchSize));
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                kpiValueArchiveRepository.copyFromValues(ids, LocalDateTime.now());
+                kpiValueRepository.deleteByIdIn(ids);
+                return ids.size();
+            });
+            if (moved == null || moved == 0) {
+                break;
+            }
+            archived += moved;
+            if (moved < batchSize) {
+                break;
+            }
+        }
+
+        if (archived > 0) {
+            log.info("Archived {} KPI values measured before {} in {} ms",
+                    archived, cutoff, System.currentTimeMillis() - start);
+        }
+        return archived;
+    }
+}
@@ -0,0 +1,200 @@
+package com.projectmanagement.kpi;
+
+import com.projectmanagement.entity.KpiNotification;
+import com.projectmanagement.entity.KpiValue;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk insert path for KPI values.
+ * <p>
+ * {@link KpiValue} inherits an IDENTITY key from {@code BaseEntity}, which makes Hibernate
+ * insert rows one statement at a time. This writer sends the rows as JDBC batches instead.
+ * On MySQL the keys are generated by AUTO_INCREMENT and read back from each batch. The
+ * Oracle driver does not return the generated keys of a batch, so on Oracle the keys of all
+ * the rows are first reserved from {@code seq_tbkpiv} in one query and inserted with the
+ * rows. It joins the current transaction like any repository call.
+ * <p>
+ * Written rows are not attached to the persistence context, but their IDs are set on the
+ * given values. Values breaching a threshold are then queued in the notification outbox
+ * ({@link KpiNotification}) by a second batch, linked to those IDs, and every value is
+ * added to the roll-ups through {@link KpiRollupWriter}.
+ */
+@Repository
+@Slf4j
+public class KpiValueBatchWriter {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO tbkpiv (idkpim, idpro, idkpi, val, mdate, comm, warnbr, critbr, notsnt, dtcrea, actif) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_WITH_ID_SQL =
+            "INSERT INTO tbkpiv (idkpim, idpro, idkpi, val, mdate, comm, warnbr, critbr, notsnt, dtcrea, actif, id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String RESERVE_IDS_SQL = "SELECT seq_tbkpiv.NEXTVAL FROM dual CONNECT BY LEVEL <= ?";
+
+    private static final String INSERT_NOTIFICATION_SQL =
+            "INSERT INTO tbkpinot (idkpiv, idkpim, idpro, iddir, lvl, val, mdate, libkpim, libpro, dtcrea, actif) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final KpiRollupWriter kpiRollupWriter;
+    private final int batchSize;
+
+    /**
+     * Whether the keys are reserved from the Oracle sequence, detected on first use.
+     */
+    private volatile Boolean reserveIds;
+
+    @Autowired
+    public KpiValueBatchWriter(DataSource dataSource,
+                               KpiRollupWriter kpiRollupWriter,
+                               @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("JDBC batch size must be positive");
+        }
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.kpiRollupWriter = kpiRollupWriter;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Insert KPI values in JDBC batches, and set their generated IDs.
+     *
+     * @param values the values to insert; metric and measurement date are required
+     * @return the number of inserted rows
+     */
+    public int insertAll(List<KpiValue> values) {
+        if (values.isEmpty()) {
+            return 0;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        if (reservesIds()) {
+            List<Long> ids = jdbcTemplate.queryForList(RESERVE_IDS_SQL, Long.class, values.size());
+            for (int i = 0; i < values.size(); i++) {
+                values.get(i).setId(ids.get(i));
+            }
+            jdbcTemplate.batchUpdate(INSERT_WITH_ID_SQL, values, batchSize, (ps, value) -> {
+                setValue(ps, value, now);
+                ps.setLong(12, value.getId());
+            });
+        } else {
+            jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+                try (PreparedStatement ps = con.prepareStatement(INSERT_SQL, new String[] {"id"})) {
+                    for (int start = 0; start < values.size(); start += batchSize) {
+                        List<KpiValue> batch = values.subList(start, Math.min(start + batchSize, values.size()));
+                        for (KpiValue value : batch) {
+                            setValue(ps, value, now);
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                        readIds(ps, batch);
+                    }
+                }
+                return null;
+            });
+        }
+
+        log.debug("Inserted {} KPI values in batches of {}", values.size(), batchSize);
+        insertNotifications(values, now);
+        kpiRollupWriter.addAll(values);
+        return values.size();
+    }
+
+    private boolean reservesIds() {
+        Boolean reserve = reserveIds;
+        if (reserve == null) {
+            reserve = jdbcTemplate.execute((ConnectionCallback<Boolean>) con ->
+                    con.getMetaData().getDatabaseProductName().startsWith("Oracle"));
+            reserveIds = reserve;
+        }
+        return reserve;
+    }
+
+    private static void setValue(PreparedStatement ps, KpiValue value, Timestamp now) throws SQLException {
+        ps.setLong(1, value.getMetric().getId());
+        setId(ps, 2, value.getProject() != null ? value.getProject().getId() : null);
+        setId(ps, 3, value.getPortfolioPhase() != null ? value.getPortfolioPhase().getId() : null);
+        ps.setDouble(4, value.getValue());
+        ps.setTimestamp(5, measurementDate(value.getMeasurementDate()));
+        ps.setString(6, value.getComment());
+        ps.setBoolean(7, Boolean.TRUE.equals(value.getWarningThresholdBreached()));
+        ps.setBoolean(8, Boolean.TRUE.equals(value.getCriticalThresholdBreached()));
+        ps.setBoolean(9, Boolean.TRUE.equals(value.getNotificationSent()));
+        ps.setTimestamp(10, value.getDateCreation() != null ? Timestamp.valueOf(value.getDateCreation()) : now);
+        ps.setBoolean(11, !Boolean.FALSE.equals(value.getActif()));
+    }
+
+    private static void readIds(PreparedStatement ps, List<KpiValue> batch) throws SQLException {
+        try (ResultSet keys = ps.getGeneratedKeys()) {
+            for (KpiValue value : batch) {
+                if (!keys.next()) {
+                    throw new IllegalStateException("The database did not return the IDs of the inserted KPI values");
+                }
+                value.setId(keys.getLong(1));
+            }
+        }
+    }
+
+    private void insertNotifications(List<KpiValue> values, Timestamp now) {
+        List<KpiNotification> notifications = new ArrayList<>();
+        for (KpiValue value : values) {
+            KpiNotification notification = KpiNotification.forValue(value);
+            if (notification != null) {
+                notifications.add(notification);
+            }
+        }
+        if (notifications.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_NOTIFICATION_SQL, notifications, batchSize, (ps, notification) -> {
+            ps.setLong(1, notification.getKpiValueId());
+            ps.setLong(2, notification.getMetricId());
+            setId(ps, 3, notification.getProjectId());
+            setId(ps, 4, notification.getDirectionId());
+            ps.setString(5, notification.getLevel().name());
+            ps.setDouble(6, notification.getValue());
+            ps.setTimestamp(7, measurementDate(notification.getMeasurementDate()));
+            ps.setString(8, notification.getMetricName());
+            ps.setString(9, notification.getProjectName());
+            ps.setTimestamp(10, now);
+            ps.setBoolean(11, true);
+        });
+        log.debug("Queued {} KPI threshold notifications", notifications.size());
+    }
+
+    /**
+     * Measurement dates are stored with microsecond precision (TIMESTAMP(6) on Oracle,
+     * DATETIME(6) on MySQL); truncating them before binding keeps the notification date
+     * equal to the stored value date.
+     */
+    private static Timestamp measurementDate(LocalDateTime date) {
+        return Timestamp.valueOf(date.truncatedTo(ChronoUnit.MICROS));
+    }
+
+    private static void setId(PreparedStatement ps, int index, Long id) throws SQLException {
+        if (id != null) {
+            ps.setLong(index, id);
+        } else {
+            ps.setNull(index, Types.NUMERIC);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.projectmanagement.kpi;
+
+import com.projectmanagement.entity.KpiValue;
+import com.projectmanagement.entity.KpiValueArchive;
+import com.projectmanagement.repository.KpiValueArchiveRepository;
+import com.projectmanagement.repository.KpiValueRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the KPI value history of a project with keyset pagination.
+ * <p>
+ * Values are read in (measurement date, ID) order and each page starts after the last
+ * position of the previous one, so every page is an index range scan on (idpro, mdate)
+ * whatever its depth, and values recorded meanwhile never shift the pages. A stream reads
+ * one page at a time, each in its own read-only transaction, so neither the memory used nor
+ * the persistence context grows with the length of the history.
+ * <p>
+ * Values moved to the archive by {@link KpiValueArchiver} keep their ID and measurement
+ * date, so pages are read from both tables and merged in the same order; the archive is
+ * only queried when the page starts before the latest archived value of the project.
+ */
+@Component
+public class KpiValueHistoryReader {
+
+    private final KpiValueRepository kpiValueRepository;
+    private final KpiValueArchiveRepository kpiValueArchiveRepository;
+    private final TransactionTemplate pageTransaction;
+    private final int pageSize;
+
+    @Autowired
+    public KpiValueHistoryReader(KpiValueRepository kpiValueRepository,
+                                 KpiValueArchiveRepository kpiValueArchiveRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.kpi.history.page-size:1000}") int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("KPI history page size must be positive");
+        }
+        this.kpiValueRepository = kpiValueRepository;
+        this.kpiValueArchiveRepository = kpiValueArchiveRepository;
+        this.pageSize = pageSize;
+
+        this.pageTransaction = new TransactionTemplate(transactionManager);
+        this.pageTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.pageTransaction.setReadOnly(true);
+    }
+
+    /**
+     * @return the maximum number of values of a page
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Read one page of values, in the current transaction.
+     *
+     * @param projectId the ID of the project
+     * @param metricIds the IDs of the metrics, or null or empty for all metrics
+     * @param afterDate the measurement date of the last value of the previous page, or the start date
+     * @param afterId   the ID of the last value of the previous page, or 0 for the first page
+     * @param endDate   the end date (inclusive)
+     * @param limit     the maximum number of values
+     * @return the values, with the metric and project fetched
+     */
+    public List<KpiValue> readPage(Long projectId, Collection<Long> metricIds, LocalDateTime afterDate,
+                                   long afterId, LocalDateTime endDate, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        boolean allMetrics = metricIds == null || metricIds.isEmpty();
+        List<KpiValue> values = allMetrics
+                ? kpiValueRepository.findHistoryPage(projectId, afterDate, afterId, endDate, page)
+                : kpiValueRepository.findHistoryPageForMetrics(projectId, metricIds, afterDate, afterId, endDate, page);
+
+        LocalDateTime latestArchived = kpiValueArchiveRepository.findLatestMeasurementDateForProject(projectId);
+        if (latestArchived == null || latestArchived.isBefore(afterDate)) {
+            return values;
+        }
+        List<KpiValueArchive> archived = allMetrics
+                ? kpiValueArchiveRepository.findHistoryPage(projectId, afterDate, afterId, endDate, page)
+                : kpiValueArchiveRepository.findHistoryPageForMetrics(projectId, metricIds, afterDate, afterId, endDate, page);
+        return merge(archived, values, limit);
+    }
+
+    /**
+     * Merge archived and hot values, both in (measurement date, ID) order, keeping the first ones.
+     */
+    private static List<KpiValue> merge(List<KpiValueArchive> archived, List<KpiValue> values, int limit) {
+        List<KpiValue> merged = new ArrayList<>(Math.min(limit, archived.size() + values.size()));
+        int a = 0;
+        int v = 0;
+        while (merged.size() < limit && (a < archived.size() || v < values.size())) {
+            if (v == values.size() || (a < archived.size() && precedes(archived.get(a), values.get(v)))) {
+                merged.add(archived.get(a++).toKpiValue());
+            } else {
+                merged.add(values.get(v++));
+            }
+        }
+        return merged;
+    }
+
+    private static boolean precedes(KpiValueArchive archived, KpiValue value) {
+        int byDate = archived.getMeasurementDate().compareTo(value.getMeasurementDate());
+        return byDate < 0 || (byDate == 0 && archived.getId() < value.getId());
+    }
+
+    /**
+     * Stream all the values of a period. Pages are read lazily as the stream is consumed,
+     * and the mapper is applied inside the transaction of each page.
+     *
+     * @param projectId the ID of the project
+     * @param metricIds the IDs of the metrics, or null or empty for all metrics
+     * @param startDate the start date (inclusive)
+     * @param endDate   the end date (inclusive)
+     * @param mapper    maps each value to the stream element
+     * @param <T>       the type of the stream elements
+     * @return the stream of mapped values, in measurement date then ID order
+     */
+    public <T> Stream<T> stream(Long projectId, Collection<Long> metricIds, LocalDateTime startDate,
+                                LocalDateTime endDate, Function<KpiValue, T> mapper) {
+        Collection<Long> metrics = metricIds == null ? null : new ArrayList<>(metricIds);
+        Iterator<T> iterator = new HistoryIterator<>(projectId, metrics, startDate, endDate, mapper);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+    }
+
+    /**
+     * Iterator reading the next page after the last (measurement date, ID) position when the current one is consumed.
+     */
+    private final class HistoryIterator<T> implements Iterator<T> {
+
+        private final Long projectId;
+        private final Collection<Long> metricIds;
+        private final LocalDateTime endDate;
+        private final Function<KpiValue, T> mapper;
+
+        private LocalDateTime afterDate;
+        private long afterId;
+        private boolean lastPage;
+        private Iterator<T> page = Collections.emptyIterator();
+
+        HistoryIterator(Long projectId, Collection<Long> metricIds, LocalDateTime startDate,
+                        LocalDateTime endDate, Function<KpiValue, T> mapper) {
+            this.projectId = projectId;
+            this.metricIds = metricIds;
+            this.endDate = endDate;
+            this.mapper = mapper;
+            this.afterDate = startDate;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!page.hasNext() && !lastPage) {
+                page = pageTransaction.execute(status -> readNextPage()).iterator();
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.next();
+        }
+
+        private List<T> readNextPage() {
+            List<KpiValue> values = readPage(projectId, metricIds, afterDate, afterId, endDate, pageSize);
+            lastPage = values.size() < pageSize;
+
+            List<T> mapped = new ArrayList<>(values.size());
+            for (KpiValue value : values) {
+                mapped.add(mapper.apply(value));
+            }
+            if (!values.isEmpty()) {
+                KpiValue last = values.get(values.size() - 1);
+                afterDate = last.getMeasurementDate();
+                afterId = last.getId();
+            }
+            return mapped;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.projectmanagement.kpi;
+
+import com.projectmanagement.entity.Action;
+import com.projectmanagement.entity.Planning;
+import com.projectmanagement.entity.Project;
+import com.projectmanagement.entity.ProjectBudget;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Project variables that can be referenced by a KPI calculation formula.
+ * <p>
+ * Names are matched case-insensitively. A variable that has no value for a project
+ * (for example a budget variable on a project without an active budget) resolves to NaN,
+ * which makes the whole formula yield no value.
+ */
+public enum KpiVariable {
+
+    /** Average action progress of the project (0-100), computed by {@code ProgressService} when available. */
+    PROGRESS(false) {
+        @Override
+        double resolve(Project project, LocalDate today) {
+            return project.calculateProgress();
+        }
+    },
+
+    /** Consumption percentage of the active budget (0-100). */
+    BUDGET_CONSUMPTION(false) {
+        @Override
+        double resolve(Project project, LocalDate today) {
+            ProjectBudget budget = activeBudget(project);
+            return budget != null ? budget.getConsumptionPercentage() : Double.NaN;
+        }
+    },
+
+    /** Initial amount of the active budget. */
+    TOTAL_BUDGET(false) {
+        @Override
+        double resolve(Project project, LocalDate today) {
+            ProjectBudget budget = activeBudget(project);
+            return budget != null && budget.getInitialBudget() != null
+                    ? budget.getInitialBudget().doubleValue() : Double.NaN;
+        }
+    },
+
+    /** Consumed amount of the active budget. */
+    USED_BUDGET(false) {
+        @Override
+        double resolve(Project project, LocalDate today) {
+            ProjectBudget budget = activeBudget(project);
+            if (budget == null) {
+                return Double.NaN;
+            }
+            return budget.getConsumedBudget() != null ? budget.getConsumedBudget().doubleValue() : 0;
+        }
+    },
+
+    /** Number of actions across all plannings. */
+    TOTAL_ACTIONS(false) {
+        @Override
+        double resolve(Project project, LocalDate today) {
+            int count = 0;
+            for (Planning planning : project.getPlannings()) {
+                count += planning.getActions().size();
+            }
+            return count;
+        }
+    },
+
+    /** Number of actions that are finished or at 100% progress. */
+    COMPLETED_ACTIONS(false) {
+        @Override
+        double resolve(Project project, LocalDate today) {
+            int count = 0;
+            for (Planning planning : project.getPlannings()) {
+                for (Action action : planning.getActions()) {
+                    if (isCompleted(action)) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+    },
+
+    /** Number of unfinished actions whose planned end date is in the past. */
+    OVERDUE_ACTIONS(true) {
+        @Override
+        double resolve(Project project, LocalDate today) {
+            int count = 0;
+            for (Planning planning : project.getPlannings()) {
+                for (Action action : planning.getActions()) {
+                    if (!isCompleted(action) && action.getPlannedEndDate() != null
+                            && action.getPlannedEndDate().isBefore(today)) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+    },
+
+    /** Number of documents attached to the project. */
+    DOCUMENT_COUNT(false) {
+        @Override
+        double resolve(Project project, LocalDate today) {
+            return project.getDocuments().size();
+        }
+    },
+
+    /** Planned end date of the project, in days since 1970-01-01. */
+    END_DATE(false) {
+        @Override
+        double resolve(Project project, LocalDate today) {
+            return project.getPlannedEndDate() != null ? project.getPlannedEndDate().toEpochDay() : Double.NaN;
+        }
+    },
+
+    /** Current date, in days since 1970-01-01. */
+    CURRENT_DATE(true) {
+        @Override
+        double resolve(Project project, LocalDate today) {
+            return today.toEpochDay();
+        }
+    };
+
+    private static final KpiVariable[] VALUES = values();
+
+    private final boolean timeDependent;
+
+    KpiVariable(boolean timeDependent) {
+        this.timeDependent = timeDependent;
+    }
+
+    /**
+     * Whether the value of this variable can change with time alone, without any change to the project.
+     *
+     * @return true for date-based variables
+     */
+    public boolean isTimeDependent() {
+        return timeDependent;
+    }
+
+    /**
+     * Resolve the value of this variable for a project.
+     *
+     * @param project the project, with the associations the variable reads loaded
+     * @param today   the reference date
+     * @return the value, or NaN if it is not defined for the project
+     */
+    abstract double resolve(Project project, LocalDate today);
+
+    /**
+     * Find a variable by name, ignoring case.
+     *
+     * @param name the variable name
+     * @return the variable, or null if there is none with that name
+     */
+    public static KpiVariable fromName(String name) {
+        String upper = name.toUpperCase(Locale.ROOT);
+        for (KpiVariable variable : VALUES) {
+            if (variable.name().equals(upper)) {
+                return variable;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the variable with the given ordinal.
+     *
+     * @param ordinal the ordinal
+     * @return the variable
+     */
+    static KpiVariable ofOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * @return the number of variables
+     */
+    static int count() {
+        return VALUES.length;
+    }
+
+    private static ProjectBudget activeBudget(Project project) {
+        for (ProjectBudget budget : project.getBudgets()) {
+            if (Boolean.TRUE.equals(budget.getActif())) {
+                return budget;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isCompleted(Action action) {
+        return action.getActualEndDate() != null
+                || (action.getProgress() != null && action.getProgress() >= 100);
+    }
+}
@@ -0,0 +1,32 @@
+package com.projectmanagement.kpi;
+
+import com.projectmanagement.entity.KpiNotification;
+import com.projectmanagement.entity.KpiNotificationDigest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Default notification sender, writing each digest to the application log.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "app.kpi.notifications.sender", havingValue = "log", matchIfMissing = true)
+public class LoggingKpiNotificationSender implements KpiNotificationSender {
+
+    @Override
+    public void send(KpiNotificationDigest digest, List<KpiNotification> notifications) {
+        log.info("KPI Threshold Breach Digest {} - Direction: {}, Critical: {}, Warning: {}",
+                digest.getId(), digest.getDirectionName(), digest.getCriticalCount(), digest.getWarningCount());
+        for (KpiNotification notification : notifications) {
+            log.info("KPI Threshold Breach Notification - Level: {}, Project: {}, Metric: {}, Value: {}",
+                    notification.getLevel(), notification.getProjectName(), notification.getMetricName(),
+                    notification.getValue());
+        }
+        if (notifications.size() < digest.getNotificationCount()) {
+            log.info("... and {} more", digest.getNotificationCount() - notifications.size());
+        }
+    }
+}
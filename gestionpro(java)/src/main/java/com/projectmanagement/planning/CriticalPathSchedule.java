@@ -0,0 +1,166 @@
+package com.projectmanagement.planning;
+
+import java.util.Arrays;
+
+/**
+ * Critical path schedule of a {@link DependencyGraph}.
+ * <p>
+ * Computed in O(actions + dependencies): a topological order (Kahn's algorithm), a forward
+ * pass in that order for the earliest start and finish of each action, and a backward pass
+ * for the latest start and finish that do not delay the end of the schedule. All dates are
+ * day offsets from the graph's origin, finishes being exclusive (an action starting on day
+ * 2 and lasting 3 days finishes on day 5, when its successors can start). Actions with no
+ * total float are critical.
+ */
+public final class CriticalPathSchedule {
+
+    private final DependencyGraph graph;
+    private final int[] order;
+    private final int[] earliestStart;
+    private final int[] earliestFinish;
+    private final int[] latestStart;
+    private final int[] latestFinish;
+    private final int duration;
+
+    private CriticalPathSchedule(DependencyGraph graph, int[] order, int[] earliestStart, int[] earliestFinish,
+                                 int[] latestStart, int[] latestFinish, int duration) {
+        this.graph = graph;
+        this.order = order;
+        this.earliestStart = earliestStart;
+        this.earliestFinish = earliestFinish;
+        this.latestStart = latestStart;
+        this.latestFinish = latestFinish;
+        this.duration = duration;
+    }
+
+    /**
+     * Compute the schedule of a graph.
+     *
+     * @param graph the graph
+     * @return the schedule
+     * @throws IllegalArgumentException if the dependencies contain a cycle
+     */
+    public static CriticalPathSchedule compute(DependencyGraph graph) {
+        int n = graph.size();
+
+        int[] inDegree = new int[n];
+        for (int u = 0; u < n; u++) {
+            for (int p = graph.successorStart(u); p < graph.successorEnd(u); p++) {
+                inDegree[graph.successor(p)]++;
+            }
+        }
+
+        // Topological order, with the order array doubling as the queue
+        int[] order = new int[n];
+        int tail = 0;
+        for (int u = 0; u < n; u++) {
+            if (inDegree[u] == 0) {
+                order[tail++] = u;
+            }
+        }
+        int[] earliestStart = new int[n];
+        int[] earliestFinish = new int[n];
+        for (int u = 0; u < n; u++) {
+            earliestStart[u] = graph.release(u);
+        }
+        int end = 0;
+        for (int head = 0; head < tail; head++) {
+            int u = order[head];
+            int finish = earliestStart[u] + graph.duration(u);
+            earliestFinish[u] = finish;
+            end = Math.max(end, finish);
+            for (int p = graph.successorStart(u); p < graph.successorEnd(u); p++) {
+                int v = graph.successor(p);
+                if (finish > earliestStart[v]) {
+                    earliestStart[v] = finish;
+                }
+                if (--inDegree[v] == 0) {
+                    order[tail++] = v;
+                }
+            }
+        }
+        if (tail < n) {
+            for (int u = 0; u < n; u++) {
+                if (inDegree[u] > 0) {
+                    throw new IllegalArgumentException(
+                            "Action dependencies contain a cycle through action " + graph.actionId(u));
+                }
+            }
+        }
+
+        int[] latestStart = new int[n];
+        int[] latestFinish = new int[n];
+        for (int i = n - 1; i >= 0; i--) {
+            int u = order[i];
+            int finish = end;
+            for (int p = graph.successorStart(u); p < graph.successorEnd(u); p++) {
+                finish = Math.min(finish, latestStart[graph.successor(p)]);
+            }
+            latestFinish[u] = finish;
+            latestStart[u] = finish - graph.duration(u);
+        }
+        return new CriticalPathSchedule(graph, order, earliestStart, earliestFinish, latestStart, latestFinish, end);
+    }
+
+    public DependencyGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the action indexes in topological order
+     */
+    public int[] getOrder() {
+        return order;
+    }
+
+    /**
+     * @return the length of the schedule, in days from the origin
+     */
+    public int getDuration() {
+        return duration;
+    }
+
+    public int earliestStart(int index) {
+        return earliestStart[index];
+    }
+
+    public int earliestFinish(int index) {
+        return earliestFinish[index];
+    }
+
+    public int latestStart(int index) {
+        return latestStart[index];
+    }
+
+    public int latestFinish(int index) {
+        return latestFinish[index];
+    }
+
+    /**
+     * @return the number of days the action can slip without delaying the end of the schedule
+     */
+    public int totalFloat(int index) {
+        return latestStart[index] - earliestStart[index];
+    }
+
+    public boolean isCritical(int index) {
+        return latestStart[index] == earliestStart[index];
+    }
+
+    /**
+     * Get the critical actions in topological order. When several chains have the
+     * same, longest, length they are all included.
+     *
+     * @return the indexes of the critical actions
+     */
+    public int[] getCriticalPath() {
+        int[] path = new int[order.length];
+        int count = 0;
+        for (int u : order) {
+            if (isCritical(u)) {
+                path[count++] = u;
+            }
+        }
+        return Arrays.copyOf(path, count);
+    }
+}
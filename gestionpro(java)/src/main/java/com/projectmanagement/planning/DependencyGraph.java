@@ -0,0 +1,176 @@
+package com.projectmanagement.planning;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finish-to-start dependency graph of a set of actions, stored in int-indexed arrays.
+ * <p>
+ * Actions are numbered 0..n-1 in increasing ID order, and the successors of each action
+ * are stored contiguously (compressed sparse rows): the successors of action {@code i}
+ * are {@code successors[successorStart[i]]} to {@code successors[successorStart[i + 1] - 1]}.
+ * Dates are stored as day offsets from the earliest start date of the actions, the origin.
+ * An action lasts from its start date to its planned end date inclusive, so an action
+ * starting and ending the same day lasts one day; an action without both dates lasts zero
+ * days. Its start date, when set, is the earliest day it can start.
+ */
+public final class DependencyGraph {
+
+    private final LocalDate origin;
+    private final long[] actionIds;
+    private final int[] releases;
+    private final int[] durations;
+    private final int[] successorStart;
+    private final int[] successors;
+
+    private DependencyGraph(LocalDate origin, long[] actionIds, int[] releases, int[] durations,
+                            int[] successorStart, int[] successors) {
+        this.origin = origin;
+        this.actionIds = actionIds;
+        this.releases = releases;
+        this.durations = durations;
+        this.successorStart = successorStart;
+        this.successors = successors;
+    }
+
+    /**
+     * Build a graph from rows of {@code [actionId, startDate, plannedEndDate, dependsOnId]},
+     * one per action and dependency, ordered by action ID. Actions without dependencies
+     * have one row with a null {@code dependsOnId}. Dependencies on actions that are not
+     * in the rows are ignored.
+     *
+     * @param rows the rows
+     * @return the graph
+     */
+    public static DependencyGraph fromRows(List<Object[]> rows) {
+        long[] ids = new long[rows.size()];
+        LocalDate[] starts = new LocalDate[rows.size()];
+        LocalDate[] ends = new LocalDate[rows.size()];
+        int n = 0;
+        for (Object[] row : rows) {
+            long id = ((Number) row[0]).longValue();
+            if (n > 0 && ids[n - 1] == id) {
+                continue;
+            }
+            if (n > 0 && ids[n - 1] > id) {
+                throw new IllegalArgumentException("Schedule rows must be ordered by action ID");
+            }
+            ids[n] = id;
+            starts[n] = (LocalDate) row[1];
+            ends[n] = (LocalDate) row[2];
+            n++;
+        }
+        long[] actionIds = Arrays.copyOf(ids, n);
+
+        LocalDate origin = null;
+        for (int i = 0; i < n; i++) {
+            if (starts[i] != null && (origin == null || starts[i].isBefore(origin))) {
+                origin = starts[i];
+            }
+        }
+        if (origin == null) {
+            origin = LocalDate.now();
+        }
+
+        int[] releases = new int[n];
+        int[] durations = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (starts[i] != null) {
+                releases[i] = (int) ChronoUnit.DAYS.between(origin, starts[i]);
+                if (ends[i] != null && !ends[i].isBefore(starts[i])) {
+                    durations[i] = (int) ChronoUnit.DAYS.between(starts[i], ends[i]) + 1;
+                }
+            }
+        }
+
+        // Edges as (predecessor, successor) index pairs, then grouped by predecessor
+        int[] from = new int[rows.size()];
+        int[] to = new int[rows.size()];
+        int edges = 0;
+        int current = -1;
+        long currentId = Long.MIN_VALUE;
+        for (Object[] row : rows) {
+            long id = ((Number) row[0]).longValue();
+            if (id != currentId) {
+                currentId = id;
+                current++;
+            }
+            if (row[3] == null) {
+                continue;
+            }
+            int predecessor = Arrays.binarySearch(actionIds, ((Number) row[3]).longValue());
+            if (predecessor >= 0) {
+                from[edges] = predecessor;
+                to[edges] = current;
+                edges++;
+            }
+        }
+
+        int[] successorStart = new int[n + 1];
+        for (int e = 0; e < edges; e++) {
+            successorStart[from[e] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            successorStart[i + 1] += successorStart[i];
+        }
+        int[] fill = Arrays.copyOf(successorStart, n);
+        int[] successors = new int[edges];
+        for (int e = 0; e < edges; e++) {
+            successors[fill[from[e]]++] = to[e];
+        }
+        return new DependencyGraph(origin, actionIds, releases, durations, successorStart, successors);
+    }
+
+    /**
+     * @return the date of day 0
+     */
+    public LocalDate getOrigin() {
+        return origin;
+    }
+
+    /**
+     * @return the number of actions
+     */
+    public int size() {
+        return actionIds.length;
+    }
+
+    /**
+     * @return the number of dependencies
+     */
+    public int edgeCount() {
+        return successors.length;
+    }
+
+    public long actionId(int index) {
+        return actionIds[index];
+    }
+
+    /**
+     * @return the earliest day the action can start
+     */
+    public int release(int index) {
+        return releases[index];
+    }
+
+    /**
+     * @return the duration of the action, in days
+     */
+    public int duration(int index) {
+        return durations[index];
+    }
+
+    int successorStart(int index) {
+        return successorStart[index];
+    }
+
+    int successorEnd(int index) {
+        return successorStart[index + 1];
+    }
+
+    int successor(int position) {
+        return successors[position];
+    }
+}
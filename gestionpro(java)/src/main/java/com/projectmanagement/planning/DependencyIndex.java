@@ -0,0 +1,512 @@
+package com.projectmanagement.planning;
+
+import com.projectmanagement.repository.ActionRepository;
+import com.projectmanagement.repository.ProjectRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * In-memory index of the action dependencies, used to reject the dependencies that would
+ * create a cycle without walking the lazy dependency collections.
+ * <p>
+ * The prerequisites of all the actions of a project are loaded in one query the first time
+ * the project is needed, and cached with the dependency version of the project
+ * ({@code tbpro.vdep}). Every change to the dependencies or to the actions of a project
+ * increments that version, so a node reloads a project whose version changed elsewhere.
+ * Adding or removing a dependency locks the project rows of both actions until the end of
+ * the transaction, which serializes the changes to a project across nodes.
+ * <p>
+ * On this node, the cycle check and the addition of the accepted dependency to the index
+ * are done under one lock, before the transaction commits: a concurrent check sees every
+ * dependency that may still commit, so two dependencies that would only form a cycle
+ * together cannot both be accepted. A rolled back addition is removed from the index
+ * again, and a removal is applied to the index once committed. The index thus holds a superset
+ * of the committed dependencies and can only err towards rejecting. The dependencies of
+ * actions that are not in any project are read from the database for each check.
+ * <p>
+ * The lock is only held while walking the graphs in memory. When a walk needs a graph or
+ * the project of an action that it does not have yet, it releases the lock, reads them from
+ * the database and starts again, so checks in unrelated projects do not wait for each
+ * other's queries. At most {@code app.planning.dependency-index.max-projects} graphs are
+ * cached, the least recently used being evicted first; a graph with an addition that is
+ * not committed yet is kept until the transaction ends.
+ */
+@Component
+@Slf4j
+public class DependencyIndex {
+
+    private final ActionRepository actionRepository;
+    private final ProjectRepository projectRepository;
+
+    private final int maxProjects;
+
+    /**
+     * Cached graphs by project ID, in access order, guarded by {@code this}.
+     */
+    private final Map<Long, ProjectGraph> graphs = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Number of reachability searches so far, guarded by {@code this}.
+     */
+    private int walks;
+
+    @Autowired
+    public DependencyIndex(ActionRepository actionRepository, ProjectRepository projectRepository,
+                           @Value("${app.planning.dependency-index.max-projects:500}") int maxProjects) {
+        if (maxProjects < 1) {
+            throw new IllegalArgumentException("Dependency index must cache at least one project");
+        }
+        this.actionRepository = actionRepository;
+        this.projectRepository = projectRepository;
+        this.maxProjects = maxProjects;
+    }
+
+    /**
+     * Check that an action can depend on another one, and add the dependency to the index.
+     * Must be called in the transaction that saves the dependency.
+     *
+     * @param actionId           the dependent action ID
+     * @param projectId          the project of the dependent action, or null
+     * @param dependsOnId        the prerequisite action ID
+     * @param dependsOnProjectId the project of the prerequisite action, or null
+     * @throws IllegalArgumentException if the prerequisite depends, directly or not, on the action
+     */
+    public void addDependency(Long actionId, Long projectId, Long dependsOnId, Long dependsOnProjectId) {
+        Map<Long, Long> lockedVersions = lockProjects(projectId, dependsOnProjectId);
+
+        Walk walk = new Walk(lockedVersions);
+        ProjectGraph graph = null;
+        while (true) {
+            synchronized (this) {
+                long start = System.nanoTime();
+                Boolean cycle = walk.reaches(dependsOnId, dependsOnProjectId, actionId, projectId);
+                if (cycle != null) {
+                    log.debug("Checked dependency {} -> {} against {} actions in {} µs", actionId, dependsOnId,
+                            walk.visited, (System.nanoTime() - start) / 1000);
+                    if (!cycle && projectId != null) {
+                        graph = walk.graph(projectId);
+                        graph.add(actionId, dependsOnId);
+                        graph.uncommitted++;
+                    }
+                    evict();
+                    if (cycle) {
+                        throw new IllegalArgumentException("Dependency would create a cycle");
+                    }
+                    break;
+                }
+            }
+            walk.loadMissing();
+        }
+        if (graph == null) {
+            return;
+        }
+
+        projectRepository.incrementDependencyVersion(Collections.singletonList(projectId));
+        ProjectGraph addedTo = graph;
+        long version = lockedVersions.get(projectId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (DependencyIndex.this) {
+                    addedTo.uncommitted--;
+                    if (graphs.get(projectId) == addedTo && addedTo.version == version) {
+                        if (status == STATUS_COMMITTED) {
+                            addedTo.version = version + 1;
+                        } else {
+                            addedTo.remove(actionId, dependsOnId);
+                        }
+                    }
+                    evict();
+                }
+            }
+        });
+    }
+
+    /**
+     * Remove a dependency from the index once the current transaction commits.
+     * Must be called in the transaction that deletes the dependency.
+     *
+     * @param actionId    the dependent action ID
+     * @param projectId   the project of the dependent action, or null
+     * @param dependsOnId the prerequisite action ID
+     */
+    public void removeDependency(Long actionId, Long projectId, Long dependsOnId) {
+        if (projectId == null) {
+            return;
+        }
+        long version = lockProjects(projectId, null).get(projectId);
+        projectRepository.incrementDependencyVersion(Collections.singletonList(projectId));
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                synchronized (DependencyIndex.this) {
+                    ProjectGraph graph = graphs.get(projectId);
+                    if (graph != null && graph.version == version) {
+                        graph.remove(actionId, dependsOnId);
+                        graph.version = version + 1;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Record that actions moved from one project to another or were deleted, so that every
+     * node reloads the dependencies of both projects.
+     * Must be called in the transaction that makes the change.
+     *
+     * @param projectBefore the project of the actions before the change, or null
+     * @param projectAfter  the project of the actions after the change, or null
+     */
+    public void projectChanged(Long projectBefore, Long projectAfter) {
+        if (Objects.equals(projectBefore, projectAfter)) {
+            return;
+        }
+        TreeSet<Long> projectIds = new TreeSet<>();
+        if (projectBefore != null) {
+            projectIds.add(projectBefore);
+        }
+        if (projectAfter != null) {
+            projectIds.add(projectAfter);
+        }
+        projectRepository.incrementDependencyVersion(projectIds);
+    }
+
+    /**
+     * Lock the project rows, in ID order so that concurrent calls cannot deadlock, and read
+     * their dependency versions.
+     */
+    private Map<Long, Long> lockProjects(Long projectId, Long otherProjectId) {
+        TreeMap<Long, Long> versions = new TreeMap<>();
+        if (projectId != null) {
+            versions.put(projectId, null);
+        }
+        if (otherProjectId != null) {
+            versions.put(otherProjectId, null);
+        }
+        for (Map.Entry<Long, Long> entry : versions.entrySet()) {
+            Long id = entry.getKey();
+            entry.setValue(projectRepository.findDependencyVersionForUpdate(id)
+                    .orElseThrow(() -> new EntityNotFoundException("Project not found with id: " + id)));
+        }
+        return versions;
+    }
+
+    /**
+     * Evict the least recently used graphs while too many are cached, except those with
+     * additions not committed yet. Must be called while holding the lock on the index.
+     */
+    private void evict() {
+        Iterator<ProjectGraph> eldest = graphs.values().iterator();
+        while (graphs.size() > maxProjects && eldest.hasNext()) {
+            if (eldest.next().uncommitted == 0) {
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * One reachability search, resolving each project graph at most once.
+     * <p>
+     * The search runs while holding the lock on the index, and stops as soon as it needs
+     * something from the database: {@link #loadMissing()} then reads it without the lock,
+     * and the search is started again.
+     */
+    private final class Walk {
+
+        final Map<Long, Long> versions;
+        final Map<Long, ProjectGraph> loaded = new HashMap<>();
+        final Map<Long, Long> actionProjects = new HashMap<>();
+        ProjectGraph withoutProject;
+        Runnable missing;
+
+        final Map<Long, ProjectGraph> resolved = new HashMap<>();
+        final Set<Long> visitedExternal = new HashSet<>();
+        int stamp;
+        int[] stack = new int[64];
+        int visited;
+
+        Walk(Map<Long, Long> lockedVersions) {
+            this.versions = new HashMap<>(lockedVersions);
+        }
+
+        /**
+         * Read what the last search was missing. Must be called without the lock on the index.
+         */
+        void loadMissing() {
+            Runnable load = missing;
+            missing = null;
+            load.run();
+        }
+
+        /**
+         * Tell whether an action depends, directly or not, on another one, resolving the
+         * graph of the project of the other one as well.
+         *
+         * @return null if the search needs a graph or a project that must be loaded first
+         */
+        Boolean reaches(Long fromId, Long fromProjectId, Long targetId, Long targetProjectId) {
+            resolved.clear();
+            visitedExternal.clear();
+            visited = 0;
+            stamp = ++walks;
+            if (targetProjectId != null && graph(targetProjectId) == null) {
+                return null;
+            }
+            ArrayDeque<Long> external = new ArrayDeque<>();
+            ProjectGraph graph = graph(fromProjectId);
+            if (graph == null) {
+                return null;
+            }
+            if (graph.indexOf(fromId) >= 0) {
+                if (search(graph, fromId, targetId, external)) {
+                    return true;
+                }
+            } else {
+                external.push(fromId);
+            }
+            while (!external.isEmpty()) {
+                // A prerequisite in another project, or an action created or moved since the load
+                Long actionId = external.peek();
+                if (visitedExternal.contains(actionId)) {
+                    external.pop();
+                    continue;
+                }
+                if (!actionProjects.containsKey(actionId)) {
+                    missing = () -> actionProjects.put(actionId, actionRepository.findProjectIdById(actionId));
+                    return null;
+                }
+                ProjectGraph projectGraph = graph(actionProjects.get(actionId));
+                if (projectGraph == null) {
+                    return null;
+                }
+                external.pop();
+                visitedExternal.add(actionId);
+                if (search(projectGraph, actionId, targetId, external)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Depth-first search of the prerequisites of an action within one project graph,
+         * queueing the prerequisites that are not in the graph.
+         */
+        private boolean search(ProjectGraph graph, long fromId, long targetId, ArrayDeque<Long> external) {
+            if (fromId == targetId) {
+                return true;
+            }
+            int from = graph.indexOf(fromId);
+            if (from < 0 || graph.marks[from] == stamp) {
+                return false;
+            }
+            graph.marks[from] = stamp;
+            stack[0] = from;
+            int top = 1;
+            while (top > 0) {
+                int action = stack[--top];
+                visited++;
+                if (graph.actionIds[action] == targetId) {
+                    return true;
+                }
+                for (int prerequisite : graph.prerequisites[action]) {
+                    if (graph.marks[prerequisite] != stamp) {
+                        graph.marks[prerequisite] = stamp;
+                        if (top == stack.length) {
+                            stack = Arrays.copyOf(stack, top * 2);
+                        }
+                        stack[top++] = prerequisite;
+                    }
+                }
+                for (long prerequisiteId : graph.externalPrerequisites[action]) {
+                    external.push(prerequisiteId);
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Get the up-to-date graph of a project, from the cache or as loaded by
+         * {@link #loadMissing()}.
+         *
+         * @return the graph, or null if it must be loaded first
+         */
+        ProjectGraph graph(Long projectId) {
+            ProjectGraph graph = resolved.get(projectId);
+            if (graph != null) {
+                return graph;
+            }
+            if (projectId == null) {
+                if (withoutProject == null) {
+                    missing = () -> withoutProject =
+                            ProjectGraph.fromRows(actionRepository.findDependencyRowsWithoutProject(), 0);
+                    return null;
+                }
+                graph = withoutProject;
+            } else if (!versions.containsKey(projectId)) {
+                missing = () -> versions.put(projectId,
+                        projectRepository.findDependencyVersionById(projectId).orElse(null));
+                return null;
+            } else {
+                Long version = versions.get(projectId);
+                graph = graphs.get(projectId);
+                if (version == null) {
+                    graphs.remove(projectId);
+                    graph = ProjectGraph.fromRows(Collections.emptyList(), 0);
+                } else if (graph == null || graph.version != version) {
+                    ProjectGraph load = loaded.remove(projectId);
+                    if (load == null) {
+                        missing = () -> loaded.put(projectId,
+                                ProjectGraph.fromRows(actionRepository.findDependencyRowsByProjectId(projectId), version));
+                        return null;
+                    }
+                    // A newer graph cached meanwhile may hold additions not committed yet: keep it
+                    if (graph == null || graph.version < version) {
+                        graphs.put(projectId, load);
+                        log.debug("Loaded dependencies of {} actions of project {} at version {}",
+                                load.size, projectId, version);
+                    }
+                    graph = load;
+                }
+            }
+            resolved.put(projectId, graph);
+            return graph;
+        }
+    }
+
+    /**
+     * Prerequisites of every action of a project, at a dependency version.
+     * <p>
+     * Actions are numbered in the order they are added. The prerequisites of an action in
+     * the same project are stored by number, the others by action ID: they were in another
+     * project, or not yet known, when the dependency was added.
+     */
+    private static final class ProjectGraph {
+
+        private static final int[] NO_NUMBERS = new int[0];
+        private static final long[] NO_IDS = new long[0];
+
+        final Map<Long, Integer> indexes = new HashMap<>();
+        long[] actionIds = new long[16];
+        int[][] prerequisites = new int[16][];
+        long[][] externalPrerequisites = new long[16][];
+        /**
+         * Number of the last walk that visited each action.
+         */
+        int[] marks = new int[16];
+        int size;
+        long version;
+        /**
+         * Number of additions whose transaction has not ended yet.
+         */
+        int uncommitted;
+
+        private ProjectGraph(long version) {
+            this.version = version;
+        }
+
+        /**
+         * Build a graph from rows of {@code [actionId, dependsOnId]}, with a null
+         * {@code dependsOnId} for an action without dependencies.
+         */
+        static ProjectGraph fromRows(List<Object[]> rows, long version) {
+            ProjectGraph graph = new ProjectGraph(version);
+            for (Object[] row : rows) {
+                graph.node(((Number) row[0]).longValue());
+            }
+            for (Object[] row : rows) {
+                if (row[1] != null) {
+                    graph.add(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+                }
+            }
+            return graph;
+        }
+
+        int indexOf(long actionId) {
+            Integer index = indexes.get(actionId);
+            return index != null ? index : -1;
+        }
+
+        void add(long actionId, long dependsOnId) {
+            int action = node(actionId);
+            int dependsOn = indexOf(dependsOnId);
+            if (dependsOn >= 0) {
+                int[] numbers = prerequisites[action];
+                int[] added = Arrays.copyOf(numbers, numbers.length + 1);
+                added[numbers.length] = dependsOn;
+                prerequisites[action] = added;
+            } else {
+                long[] ids = externalPrerequisites[action];
+                long[] added = Arrays.copyOf(ids, ids.length + 1);
+                added[ids.length] = dependsOnId;
+                externalPrerequisites[action] = added;
+            }
+        }
+
+        void remove(long actionId, long dependsOnId) {
+            int action = indexOf(actionId);
+            if (action < 0) {
+                return;
+            }
+            int dependsOn = indexOf(dependsOnId);
+            int[] numbers = prerequisites[action];
+            for (int i = 0; i < numbers.length; i++) {
+                if (numbers[i] == dependsOn) {
+                    int[] removed = Arrays.copyOf(numbers, numbers.length - 1);
+                    System.arraycopy(numbers, i + 1, removed, i, numbers.length - i - 1);
+                    prerequisites[action] = removed;
+                    return;
+                }
+            }
+            long[] ids = externalPrerequisites[action];
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == dependsOnId) {
+                    long[] removed = Arrays.copyOf(ids, ids.length - 1);
+                    System.arraycopy(ids, i + 1, removed, i, ids.length - i - 1);
+                    externalPrerequisites[action] = removed;
+                    return;
+                }
+            }
+        }
+
+        private int node(long actionId) {
+            Integer index = indexes.get(actionId);
+            if (index != null) {
+                return index;
+            }
+            if (size == actionIds.length) {
+                int capacity = size * 2;
+                actionIds = Arrays.copyOf(actionIds, capacity);
+                prerequisites = Arrays.copyOf(prerequisites, capacity);
+                externalPrerequisites = Arrays.copyOf(externalPrerequisites, capacity);
+                marks = Arrays.copyOf(marks, capacity);
+            }
+            actionIds[size] = actionId;
+            prerequisites[size] = NO_NUMBERS;
+            externalPrerequisites[size] = NO_IDS;
+            indexes.put(actionId, size);
+            return size++;
+        }
+    }
+}
@@ -1,17 +1,28 @@
 package com.projectmanagement.repository;
 
+import com.projectmanagement.dto.ActionExportRow;
 import com.projectmanagement.entity.Action;
 import com.projectmanagement.entity.Planning;
 import com.projectmanagement.entity.Status;
 import com.projectmanagement.entity.User;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository for actions.
@@ -27,19 +38,21 @@ public interface ActionRepository extends BaseRepository<Action, Long> {
     List<Action> findByPlanning(Planning planning);
     
     /**
-     * Find all active actions by planning.
+     * Find all active actions by planning, with their references and sub-actions.
      * 
      * @param planning the planning to search for
      * @return the list of actions
      */
+    @EntityGraph(attributePaths = {"planning.project", "status", "responsable", "subActions"})
     List<Action> findByPlanningAndActifTrue(Planning planning);
     
     /**
-     * Find all actions by status.
+     * Find all actions by status, with their references.
      * 
      * @param status the status to search for
      * @return the list of actions
      */
+    @EntityGraph("Action.summary")
     List<Action> findByStatus(Status status);
     
     /**
@@ -57,24 +70,26 @@ public interface ActionRepository extends BaseRepository<Action, Long> {
      * @param pageable the pagination information
      * @return a page of actions
      */
+    @EntityGraph("Action.summary")
     Page<Action> findByResponsableAndActifTrue(User responsable, Pageable pageable);
     
     /**
-     * Find all active actions with a deadline approaching within X days.
+     * Find all active actions with a deadline between two dates.
      * 
      * @param currentDate the current date
-     * @param daysThreshold the number of days to consider as approaching
+     * @param endDate the last deadline to consider as approaching
      * @param pageable the pagination information
      * @return a page of actions
      */
+    @EntityGraph("Action.summary")
     @Query("SELECT a FROM Action a WHERE " +
            "a.plannedEndDate IS NOT NULL AND " +
            "a.actualEndDate IS NULL AND " +
-           "a.plannedEndDate BETWEEN :currentDate AND :currentDate + :daysThreshold AND " +
+           "a.plannedEndDate BETWEEN :currentDate AND :endDate AND " +
            "a.actif = true")
     Page<Action> findUpcomingDeadlines(
             @Param("currentDate") LocalDate currentDate,
-            @Param("daysThreshold") Long daysThreshold,
+            @Param("endDate") LocalDate endDate,
             Pageable pageable);
     
     /**
@@ -84,6 +99,7 @@ public interface ActionRepository extends BaseRepository<Action, Long> {
      * @param pageable the pagination information
      * @return a page of actions
      */
+    @EntityGraph("Action.summary")
     @Query("SELECT a FROM Action a WHERE " +
            "a.plannedEndDate IS NOT NULL AND " +
            "a.actualEndDate IS NULL AND " +
@@ -105,6 +121,7 @@ public interface ActionRepository extends BaseRepository<Action, Long> {
      * @param pageable the pagination information
      * @return a page of actions
      */
+    @EntityGraph("Action.summary")
     @Query("SELECT a FROM Action a WHERE " +
            "(:name IS NULL OR LOWER(a.name) LIKE LOWER(CONCAT('%', :name, '%'))) AND " +
            "(:statusId IS NULL OR a.status.id = :statusId) AND " +
@@ -121,4 +138,227 @@ public interface ActionRepository extends BaseRepository<Action, Long> {
             @Param("endDate") LocalDate endDate,
             @Param("planningId") Long planningId,
             Pageable pageable);
-} 
\ No newline at end of file
+    
+    /**
+     * Find an action and lock its row until the end of the transaction.
+     * 
+     * @param id the action ID
+     * @return the action if found, empty otherwise
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Action a WHERE a.id = :id")
+    Optional<Action> findByIdForUpdate(@Param("id") Long id);
+    
+    /**
+     * Read the planning and the stored progress of an action.
+     * 
+     * @param id the action ID
+     * @return one row holding the planning ID and the progress, or no row if the action does not exist
+     */
+    @Query("SELECT a.planning.id, a.progress FROM Action a WHERE a.id = :id")
+    List<Object[]> findPlanningAndProgressById(@Param("id") Long id);
+    
+    /**
+     * Read the stored progress and sub-action counters of several actions.
+     * Each row holds the action ID, its progress, the number of sub-actions
+     * and the number of finished sub-actions.
+     * 
+     * @param actionIds the action IDs
+     * @return one row per existing action
+     */
+    @Query("SELECT a.id, a.progress, a.subActionCount, a.completedSubActionCount FROM Action a " +
+           "WHERE a.id IN :actionIds")
+    List<Object[]> findProgressRollupsByIdIn(@Param("actionIds") Collection<Long> actionIds);
+    
+    /**
+     * Count the sub-actions of an action.
+     * 
+     * @param actionId the action ID
+     * @return one row holding the number of sub-actions and the number of finished sub-actions
+     */
+    @Query("SELECT COUNT(sa), COALESCE(SUM(CASE WHEN sa.actualEndDate IS NOT NULL THEN 1 ELSE 0 END), 0) " +
+           "FROM SubAction sa WHERE sa.action.id = :actionId")
+    List<Object[]> countSubActions(@Param("actionId") Long actionId);
+    
+    /**
+     * Store the sub-action counters and the progress of an action.
+     * 
+     * @param id the action ID
+     * @param subActions the number of sub-actions
+     * @param completedSubActions the number of finished sub-actions
+     * @param progress the progress (0-100)
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE Action a SET a.subActionCount = :subActions, a.completedSubActionCount = :completedSubActions, " +
+           "a.progress = :progress WHERE a.id = :id")
+    int updateRollup(
+            @Param("id") Long id,
+            @Param("subActions") int subActions,
+            @Param("completedSubActions") int completedSubActions,
+            @Param("progress") Double progress);
+    
+    /**
+     * Recount the sub-actions of the actions of several plannings.
+     * 
+     * @param planningIds the planning IDs
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE Action a SET " +
+           "a.subActionCount = (SELECT COUNT(sa) FROM SubAction sa WHERE sa.action = a), " +
+           "a.completedSubActionCount = (SELECT COUNT(sa) FROM SubAction sa WHERE sa.action = a AND sa.actualEndDate IS NOT NULL) " +
+           "WHERE a.planning.id IN :planningIds")
+    int recountSubActionsByPlanningIdIn(@Param("planningIds") Collection<Long> planningIds);
+    
+    /**
+     * Set the progress of the actions having sub-actions to the share of finished sub-actions.
+     * 
+     * @param planningIds the planning IDs
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE Action a SET a.progress = a.completedSubActionCount * 100.0 / a.subActionCount " +
+           "WHERE a.subActionCount > 0 AND a.planning.id IN :planningIds")
+    int updateProgressFromSubActionsByPlanningIdIn(@Param("planningIds") Collection<Long> planningIds);
+    
+    /**
+     * Count active actions per status.
+     * Each row holds the status name (null for actions without status), the number of
+     * actions and the number of overdue actions, as defined by {@link #findOverdueActions}.
+     * 
+     * @param currentDate the current date
+     * @return one row per status
+     */
+    @Query("SELECT s.name, COUNT(a), " +
+           "SUM(CASE WHEN a.plannedEndDate < :currentDate AND a.actualEndDate IS NULL THEN 1 ELSE 0 END) " +
+           "FROM Action a LEFT JOIN a.status s WHERE a.actif = true GROUP BY s.name")
+    List<Object[]> countActiveByStatus(@Param("currentDate") LocalDate currentDate);
+
+    /**
+     * Stream the export rows of the active actions of a project, read from a cursor.
+     * Must be consumed (and closed) inside a transaction.
+     *
+     * @param projectId the project ID
+     * @return the export rows, ordered by planning then by ID
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.projectmanagement.dto.ActionExportRow(a.id, a.name, ph.name, s.name, u.firstName, u.lastName, " +
+           "a.startDate, a.plannedEndDate, a.actualEndDate, a.progress) " +
+           "FROM Action a JOIN a.planning pl LEFT JOIN pl.phase ph LEFT JOIN a.status s LEFT JOIN a.responsable u " +
+           "WHERE pl.project.id = :projectId AND a.actif = true ORDER BY pl.id, a.id")
+    Stream<ActionExportRow> streamExportRowsByProjectId(@Param("projectId") Long projectId);
+
+    /**
+     * Stream the export rows of the active actions of a planning, read from a cursor.
+     * Must be consumed (and closed) inside a transaction.
+     *
+     * @param planningId the planning ID
+     * @return the export rows, ordered by ID
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.projectmanagement.dto.ActionExportRow(a.id, a.name, ph.name, s.name, u.firstName, u.lastName, " +
+           "a.startDate, a.plannedEndDate, a.actualEndDate, a.progress) " +
+           "FROM Action a JOIN a.planning pl LEFT JOIN pl.phase ph LEFT JOIN a.status s LEFT JOIN a.responsable u " +
+           "WHERE pl.id = :planningId AND a.actif = true ORDER BY a.id")
+    Stream<ActionExportRow> streamExportRowsByPlanningId(@Param("planningId") Long planningId);
+
+    /**
+     * Find the actions an action depends on through active dependencies.
+     *
+     * @param actionId the action ID
+     * @return the prerequisite actions, ordered by ID
+     */
+    @Query("SELECT d.dependsOn FROM ActionDependency d WHERE d.action.id = :actionId AND d.actif = true " +
+           "ORDER BY d.dependsOn.id")
+    List<Action> findDependenciesById(@Param("actionId") Long actionId);
+
+    /**
+     * Find the scheduling rows of the active actions of a planning: one row
+     * {@code [actionId, startDate, plannedEndDate, dependsOnId]} per active dependency,
+     * or one row with a null {@code dependsOnId} for an action without any.
+     *
+     * @param planningId the planning ID
+     * @return the rows, ordered by action ID
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT a.id, a.startDate, a.plannedEndDate, d.dependsOn.id " +
+           "FROM Action a LEFT JOIN a.dependencies d ON d.actif = true " +
+           "WHERE a.planning.id = :planningId AND a.actif = true ORDER BY a.id")
+    List<Object[]> findScheduleRowsByPlanningId(@Param("planningId") Long planningId);
+
+    /**
+     * Find the scheduling rows of the active actions of all the plannings of a project,
+     * as {@link #findScheduleRowsByPlanningId(Long)} does for one planning.
+     *
+     * @param projectId the project ID
+     * @return the rows, ordered by action ID
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT a.id, a.startDate, a.plannedEndDate, d.dependsOn.id " +
+           "FROM Action a JOIN a.planning pl LEFT JOIN a.dependencies d ON d.actif = true " +
+           "WHERE pl.project.id = :projectId AND a.actif = true ORDER BY a.id")
+    List<Object[]> findScheduleRowsByProjectId(@Param("projectId") Long projectId);
+
+    /**
+     * Find the Gantt rows of the active actions of a planning:
+     * {@code [id, name, startDate, plannedEndDate, actualEndDate, progress, subActionCount,
+     * completedSubActionCount, statusName, responsableFirstName, responsableLastName]}.
+     *
+     * @param planningId the planning ID
+     * @return the rows, ordered by ID
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT a.id, a.name, a.startDate, a.plannedEndDate, a.actualEndDate, a.progress, " +
+           "a.subActionCount, a.completedSubActionCount, s.name, u.firstName, u.lastName " +
+           "FROM Action a LEFT JOIN a.status s LEFT JOIN a.responsable u " +
+           "WHERE a.planning.id = :planningId AND a.actif = true ORDER BY a.id")
+    List<Object[]> findGanttRowsByPlanningId(@Param("planningId") Long planningId);
+
+    /**
+     * Find the active dependencies of the active actions of a planning, as
+     * {@code [actionId, dependsOnId]} rows. The prerequisite may be in another planning.
+     *
+     * @param planningId the planning ID
+     * @return the rows, ordered by action ID and prerequisite ID
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT a.id, d.dependsOn.id FROM ActionDependency d JOIN d.action a " +
+           "WHERE a.planning.id = :planningId AND a.actif = true AND d.actif = true " +
+           "ORDER BY a.id, d.dependsOn.id")
+    List<Object[]> findDependencyEdgesByPlanningId(@Param("planningId") Long planningId);
+
+    /**
+     * Find the dependency rows of all the actions of a project, active or not: one row
+     * {@code [actionId, dependsOnId]} per active dependency, or one row with a null
+     * {@code dependsOnId} for an action without any.
+     *
+     * @param projectId the project ID
+     * @return the rows, ordered by action ID
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT a.id, d.dependsOn.id " +
+           "FROM Action a JOIN a.planning pl LEFT JOIN a.dependencies d ON d.actif = true " +
+           "WHERE pl.project.id = :projectId ORDER BY a.id")
+    List<Object[]> findDependencyRowsByProjectId(@Param("projectId") Long projectId);
+
+    /**
+     * Find the dependency rows, as {@link #findDependencyRowsByProjectId(Long)} does, of the
+     * actions that are not in any project.
+     *
+     * @return the rows, ordered by action ID
+     */
+    @Query("SELECT a.id, d.dependsOn.id " +
+           "FROM Action a LEFT JOIN a.planning pl LEFT JOIN a.dependencies d ON d.actif = true " +
+           "WHERE pl.id IS NULL OR pl.project.id IS NULL ORDER BY a.id")
+    List<Object[]> findDependencyRowsWithoutProject();
+
+    /**
+     * Find the project of an action.
+     *
+     * @param id the action ID
+     * @return the project ID, or null if the action does not exist or is not in a project
+     */
+    @Query("SELECT pl.project.id FROM Action a JOIN a.planning pl WHERE a.id = :id")
+    Long findProjectIdById(@Param("id") Long id);
+}
\ No newline at end of file
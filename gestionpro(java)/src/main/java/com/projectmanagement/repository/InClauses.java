@@ -0,0 +1,37 @@
+package com.projectmanagement.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Limits of the repository queries that bind a collection of IDs to an IN clause.
+ */
+public final class InClauses {
+
+    /**
+     * Maximum number of values bound to one IN clause (Oracle rejects more than 1000).
+     */
+    public static final int MAX_SIZE = 1000;
+
+    private InClauses() {
+    }
+
+    /**
+     * Split IDs into batches of at most {@link #MAX_SIZE}, without duplicates or nulls.
+     *
+     * @param ids the IDs, in the order to keep
+     * @param <T> the ID type
+     * @return the batches, empty if there is no ID
+     */
+    public static <T> List<List<T>> partition(Collection<T> ids) {
+        List<T> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        distinct.remove(null);
+        List<List<T>> batches = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += MAX_SIZE) {
+            batches.add(distinct.subList(from, Math.min(from + MAX_SIZE, distinct.size())));
+        }
+        return batches;
+    }
+}
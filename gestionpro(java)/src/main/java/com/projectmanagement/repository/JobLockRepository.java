@@ -0,0 +1,87 @@
+package com.projectmanagement.repository;
+
+import com.projectmanagement.entity.JobLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Repository for job leases.
+ * <p>
+ * Leases change only through conditional updates, so that two nodes racing for the same
+ * lease are serialised by the row lock and only one of them updates it.
+ */
+@Repository
+public interface JobLockRepository extends JpaRepository<JobLock, Long> {
+
+    Optional<JobLock> findByName(String name);
+
+    /**
+     * Acquire a lease if it is free and the run was not completed yet, incrementing its token.
+     *
+     * @param name    the lease name
+     * @param owner   the acquiring node
+     * @param now     the current date
+     * @param expiry  the end of the new lease
+     * @param runDate the date of the run
+     * @return 1 if the lease was acquired, 0 otherwise
+     */
+    @Modifying
+    @Query("UPDATE JobLock l SET l.owner = :owner, l.expiryDate = :expiry, l.token = l.token + 1, " +
+           "l.dateModification = :now " +
+           "WHERE l.name = :name AND (l.expiryDate IS NULL OR l.expiryDate <= :now) " +
+           "AND (l.lastRunDate IS NULL OR l.lastRunDate < :runDate)")
+    int acquire(@Param("name") String name, @Param("owner") String owner, @Param("now") LocalDateTime now,
+                @Param("expiry") LocalDateTime expiry, @Param("runDate") LocalDateTime runDate);
+
+    /**
+     * Move the end of a lease, if it was not taken over since it was acquired.
+     *
+     * @param name   the lease name
+     * @param owner  the holding node
+     * @param token  the token of the lease
+     * @param expiry the new end of the lease
+     * @return 1 if the lease is still held, 0 otherwise
+     */
+    @Modifying
+    @Query("UPDATE JobLock l SET l.expiryDate = :expiry " +
+           "WHERE l.name = :name AND l.owner = :owner AND l.token = :token")
+    int extend(@Param("name") String name, @Param("owner") String owner, @Param("token") Long token,
+               @Param("expiry") LocalDateTime expiry);
+
+    /**
+     * Free a lease.
+     *
+     * @param name  the lease name
+     * @param owner the holding node
+     * @param token the token of the lease
+     * @param now   the current date
+     * @return 1 if the lease was still held, 0 otherwise
+     */
+    @Modifying
+    @Query("UPDATE JobLock l SET l.expiryDate = :now, l.dateModification = :now " +
+           "WHERE l.name = :name AND l.owner = :owner AND l.token = :token")
+    int release(@Param("name") String name, @Param("owner") String owner, @Param("token") Long token,
+                @Param("now") LocalDateTime now);
+
+    /**
+     * Free a lease and record its run as completed.
+     *
+     * @param name    the lease name
+     * @param owner   the holding node
+     * @param token   the token of the lease
+     * @param now     the current date
+     * @param runDate the date of the completed run
+     * @return 1 if the lease was still held, 0 otherwise
+     */
+    @Modifying
+    @Query("UPDATE JobLock l SET l.expiryDate = :now, l.lastRunDate = :runDate, l.dateModification = :now " +
+           "WHERE l.name = :name AND l.owner = :owner AND l.token = :token")
+    int complete(@Param("name") String name, @Param("owner") String owner, @Param("token") Long token,
+                 @Param("now") LocalDateTime now, @Param("runDate") LocalDateTime runDate);
+}
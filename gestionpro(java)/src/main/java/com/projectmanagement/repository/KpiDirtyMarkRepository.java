@@ -0,0 +1,57 @@
+package com.projectmanagement.repository;
+
+import com.projectmanagement.entity.KpiDirtyMark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for the marks of projects whose KPI inputs changed.
+ */
+@Repository
+public interface KpiDirtyMarkRepository extends JpaRepository<KpiDirtyMark, Long> {
+
+    /**
+     * Find the projects marked directly since a date.
+     *
+     * @param since the date
+     * @return the project IDs
+     */
+    @Query("SELECT DISTINCT m.projectId FROM KpiDirtyMark m WHERE m.markDate >= :since AND m.projectId IS NOT NULL")
+    List<Long> findProjectIdsMarkedSince(@Param("since") LocalDateTime since);
+
+    /**
+     * Find the projects of the plannings marked since a date.
+     *
+     * @param since the date
+     * @return the project IDs
+     */
+    @Query("SELECT DISTINCT p.project.id FROM Planning p WHERE p.project IS NOT NULL AND p.id IN (" +
+           "SELECT m.planningId FROM KpiDirtyMark m WHERE m.markDate >= :since)")
+    List<Long> findProjectIdsOfPlanningsMarkedSince(@Param("since") LocalDateTime since);
+
+    /**
+     * Find the projects of the actions marked since a date.
+     *
+     * @param since the date
+     * @return the project IDs
+     */
+    @Query("SELECT DISTINCT a.planning.project.id FROM Action a WHERE a.id IN (" +
+           "SELECT m.actionId FROM KpiDirtyMark m WHERE m.markDate >= :since)")
+    List<Long> findProjectIdsOfActionsMarkedSince(@Param("since") LocalDateTime since);
+
+    /**
+     * Delete the marks older than a date.
+     *
+     * @param cutoff the date
+     * @return the number of deleted marks
+     */
+    @Modifying
+    @Query("DELETE FROM KpiDirtyMark m WHERE m.markDate < :cutoff")
+    int deleteMarkedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -27,9 +27,11 @@ public interface KpiMetricRepository extends JpaRepository<KpiMetric, Long> {
     /**
      * Find KPI metrics that require automatic updates.
      *
+     * The portfolio phase is fetched so the metrics can be shared by recomputation workers.
+     *
      * @return list of KPI metrics with update frequency defined
      */
-    @Query("SELECT k FROM KpiMetric k WHERE k.updateFrequencyMinutes IS NOT NULL AND k.updateFrequencyMinutes > 0")
+    @Query("SELECT k FROM KpiMetric k LEFT JOIN FETCH k.portfolioPhase WHERE k.updateFrequencyMinutes IS NOT NULL AND k.updateFrequencyMinutes > 0")
     List<KpiMetric> findMetricsRequiringUpdates();
     
     /**
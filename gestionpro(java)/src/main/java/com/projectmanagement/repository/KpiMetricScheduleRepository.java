@@ -0,0 +1,12 @@
+package com.projectmanagement.repository;
+
+import com.projectmanagement.entity.KpiMetricSchedule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for KPI metric update schedules.
+ */
+@Repository
+public interface KpiMetricScheduleRepository extends JpaRepository<KpiMetricSchedule, Long> {
+}
@@ -0,0 +1,58 @@
+package com.projectmanagement.repository;
+
+import com.projectmanagement.entity.KpiNotificationDigest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for KPI notification digests.
+ */
+@Repository
+public interface KpiNotificationDigestRepository extends JpaRepository<KpiNotificationDigest, Long> {
+
+    /**
+     * Find digests claimed but not delivered yet, oldest first.
+     *
+     * @param pageable the maximum number of digests to read
+     * @return the pending digests
+     */
+    @Query("SELECT d FROM KpiNotificationDigest d WHERE d.sentDate IS NULL ORDER BY d.id")
+    List<KpiNotificationDigest> findPending(Pageable pageable);
+
+    /**
+     * Find the directions that were sent a digest since a given date.
+     *
+     * @param since the start of the coalescing window
+     * @return the direction IDs (null for projects without a direction)
+     */
+    @Query("SELECT DISTINCT d.directionId FROM KpiNotificationDigest d WHERE d.sentDate >= :since")
+    List<Long> findDirectionIdsSentSince(@Param("since") LocalDateTime since);
+
+    /**
+     * Mark a digest as delivered.
+     *
+     * @param id       the digest ID
+     * @param sentDate the sending date
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE KpiNotificationDigest d SET d.sentDate = :sentDate WHERE d.id = :id")
+    int markSent(@Param("id") Long id, @Param("sentDate") LocalDateTime sentDate);
+
+    /**
+     * Delete digests sent before a given date.
+     *
+     * @param before the retention limit
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Query("DELETE FROM KpiNotificationDigest d WHERE d.sentDate < :before")
+    int deleteSentBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,102 @@
+package com.projectmanagement.repository;
+
+import com.projectmanagement.entity.KpiNotification;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for the KPI notification outbox.
+ */
+@Repository
+public interface KpiNotificationRepository extends JpaRepository<KpiNotification, Long> {
+
+    /**
+     * Count pending notifications.
+     *
+     * @return the number of notifications not sent yet
+     */
+    @Query("SELECT COUNT(n) FROM KpiNotification n WHERE n.sentDate IS NULL")
+    long countPending();
+
+    /**
+     * Find the recipients with notifications not claimed by a digest yet, the one waiting
+     * the longest first.
+     *
+     * @return rows of [direction ID (null for projects without a direction), oldest notification ID]
+     */
+    @Query("SELECT n.directionId, MIN(n.id) FROM KpiNotification n " +
+           "WHERE n.sentDate IS NULL AND n.digestId IS NULL " +
+           "GROUP BY n.directionId ORDER BY MIN(n.id)")
+    List<Object[]> findPendingRecipients();
+
+    /**
+     * Claim the unclaimed notifications of a direction for a digest.
+     *
+     * @param digestId    the digest ID
+     * @param directionId the direction ID
+     * @return the number of claimed notifications
+     */
+    @Modifying
+    @Query("UPDATE KpiNotification n SET n.digestId = :digestId " +
+           "WHERE n.directionId = :directionId AND n.sentDate IS NULL AND n.digestId IS NULL")
+    int claimForDigest(@Param("digestId") Long digestId, @Param("directionId") Long directionId);
+
+    /**
+     * Claim the unclaimed notifications of projects without a direction for a digest.
+     *
+     * @param digestId the digest ID
+     * @return the number of claimed notifications
+     */
+    @Modifying
+    @Query("UPDATE KpiNotification n SET n.digestId = :digestId " +
+           "WHERE n.directionId IS NULL AND n.sentDate IS NULL AND n.digestId IS NULL")
+    int claimWithoutDirectionForDigest(@Param("digestId") Long digestId);
+
+    /**
+     * Count the notifications of a digest by level.
+     *
+     * @param digestId the digest ID
+     * @return rows of [level, count]
+     */
+    @Query("SELECT n.level, COUNT(n) FROM KpiNotification n WHERE n.digestId = :digestId GROUP BY n.level")
+    List<Object[]> countByLevelForDigest(@Param("digestId") Long digestId);
+
+    /**
+     * Find the notifications of a digest, critical ones first then in ID order.
+     *
+     * @param digestId the digest ID
+     * @param pageable the maximum number of notifications to read
+     * @return the notifications
+     */
+    @Query("SELECT n FROM KpiNotification n WHERE n.digestId = :digestId " +
+           "ORDER BY CASE WHEN n.level = CRITICAL THEN 0 ELSE 1 END, n.id")
+    List<KpiNotification> findByDigestId(@Param("digestId") Long digestId, Pageable pageable);
+
+    /**
+     * Mark the notifications of a digest as sent.
+     *
+     * @param digestId the digest ID
+     * @param sentDate the sending date
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE KpiNotification n SET n.sentDate = :sentDate WHERE n.digestId = :digestId")
+    int markSentForDigest(@Param("digestId") Long digestId, @Param("sentDate") LocalDateTime sentDate);
+
+    /**
+     * Delete notifications sent before a given date.
+     *
+     * @param before the retention limit
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Query("DELETE FROM KpiNotification n WHERE n.sentDate < :before")
+    int deleteSentBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,97 @@
+package com.projectmanagement.repository;
+
+import com.projectmanagement.entity.KpiValueArchive;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for archived KPI values.
+ */
+@Repository
+public interface KpiValueArchiveRepository extends JpaRepository<KpiValueArchive, Long> {
+
+    /**
+     * Copy KPI values to the archive, keeping their IDs.
+     *
+     * @param ids          the IDs of the values (at most 1000)
+     * @param archivedDate the archive date
+     * @return the number of archived rows
+     */
+    @Modifying
+    @Query(value = "INSERT INTO tbkpiva (id, idkpim, idpro, idkpi, val, mdate, comm, warnbr, critbr, notsnt, " +
+                   "dtcrea, dtmod, actif, dtarch) " +
+                   "SELECT id, idkpim, idpro, idkpi, val, mdate, comm, warnbr, critbr, notsnt, " +
+                   "dtcrea, dtmod, actif, :archivedDate FROM tbkpiv WHERE id IN (:ids)", nativeQuery = true)
+    int copyFromValues(@Param("ids") Collection<Long> ids, @Param("archivedDate") LocalDateTime archivedDate);
+
+    /**
+     * Find the measurement date of the most recent archived value of a project.
+     *
+     * @param projectId the ID of the project
+     * @return the date, or null if no value of the project is archived
+     */
+    @Query("SELECT MAX(a.measurementDate) FROM KpiValueArchive a WHERE a.project.id = :projectId")
+    LocalDateTime findLatestMeasurementDateForProject(@Param("projectId") Long projectId);
+
+    /**
+     * Find the archived values of a project after a (measurement date, ID) position,
+     * as {@code KpiValueRepository.findHistoryPage} does for hot values.
+     *
+     * @param projectId the ID of the project
+     * @param afterDate the measurement date of the last value of the previous page
+     * @param afterId   the ID of the last value of the previous page
+     * @param endDate   the end date (inclusive)
+     * @param pageable  the page size (the page number must be 0)
+     * @return list of archived values, with the metric and project fetched
+     */
+    @Query("SELECT a FROM KpiValueArchive a JOIN FETCH a.metric m JOIN FETCH a.project p " +
+           "WHERE p.id = :projectId AND a.measurementDate <= :endDate " +
+           "AND (a.measurementDate > :afterDate OR (a.measurementDate = :afterDate AND a.id > :afterId)) " +
+           "ORDER BY a.measurementDate, a.id")
+    List<KpiValueArchive> findHistoryPage(@Param("projectId") Long projectId,
+                                          @Param("afterDate") LocalDateTime afterDate,
+                                          @Param("afterId") Long afterId,
+                                          @Param("endDate") LocalDateTime endDate,
+                                          Pageable pageable);
+
+    /**
+     * Same as {@link #findHistoryPage}, restricted to some metrics.
+     *
+     * @param projectId the ID of the project
+     * @param metricIds the IDs of the metrics
+     * @param afterDate the measurement date of the last value of the previous page
+     * @param afterId   the ID of the last value of the previous page
+     * @param endDate   the end date (inclusive)
+     * @param pageable  the page size (the page number must be 0)
+     * @return list of archived values, with the metric and project fetched
+     */
+    @Query("SELECT a FROM KpiValueArchive a JOIN FETCH a.metric m JOIN FETCH a.project p " +
+           "WHERE p.id = :projectId AND m.id IN :metricIds AND a.measurementDate <= :endDate " +
+           "AND (a.measurementDate > :afterDate OR (a.measurementDate = :afterDate AND a.id > :afterId)) " +
+           "ORDER BY a.measurementDate, a.id")
+    List<KpiValueArchive> findHistoryPageForMetrics(@Param("projectId") Long projectId,
+                                                    @Param("metricIds") Collection<Long> metricIds,
+                                                    @Param("afterDate") LocalDateTime afterDate,
+                                                    @Param("afterId") Long afterId,
+                                                    @Param("endDate") LocalDateTime endDate,
+                                                    Pageable pageable);
+
+    /**
+     * Read archived values as roll-up samples, in ID order after a given ID (keyset pagination).
+     *
+     * @param lastId   the last ID of the previous page, 0 for the first page
+     * @param pageable the page size (the page number must be 0)
+     * @return rows of [ID, project ID, metric ID, value, measurement date]
+     */
+    @Query("SELECT a.id, a.project.id, a.metric.id, a.value, a.measurementDate FROM KpiValueArchive a " +
+           "WHERE a.id > :lastId ORDER BY a.id")
+    List<Object[]> findRollupSamplesAfter(@Param("lastId") Long lastId, Pageable pageable);
+}
@@ -1,16 +1,24 @@
 package com.projectmanagement.repository;
 
+import com.projectmanagement.dto.KpiValueExportRow;
 import com.projectmanagement.entity.KpiMetric;
 import com.projectmanagement.entity.KpiValue;
 import com.projectmanagement.entity.Project;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository for KPI values.
@@ -53,6 +61,22 @@ public interface KpiValueRepository extends JpaRepository<KpiValue, Long> {
     @Query("SELECT kv FROM KpiValue kv WHERE kv.project = :project AND kv.metric = :metric ORDER BY kv.measurementDate DESC")
     List<KpiValue> findLatestForProjectAndMetric(@Param("project") Project project, @Param("metric") KpiMetric metric);
     
+    /**
+     * Find the most recent KPI value of every metric for a project in a single query.
+     * Uses a correlated MAX subquery (greatest-per-group) so that it runs unchanged on
+     * Oracle and MySQL; the subquery is resolved from the (idpro, idkpim, mdate DESC) index.
+     * Several rows can be returned for one metric if they share the same measurement date.
+     *
+     * @param projectId the ID of the project to search for
+     * @return the latest KPI value of each metric, with the metric and project fetched
+     */
+    @Query("SELECT kv FROM KpiValue kv JOIN FETCH kv.metric m JOIN FETCH kv.project p " +
+           "WHERE p.id = :projectId AND kv.measurementDate = (" +
+           "SELECT MAX(kv2.measurementDate) FROM KpiValue kv2 " +
+           "WHERE kv2.project.id = :projectId AND kv2.metric.id = m.id) " +
+           "ORDER BY m.id, kv.id DESC")
+    List<KpiValue> findLatestForProject(@Param("projectId") Long projectId);
+    
     /**
      * Find KPI values measured between two dates.
      *
@@ -62,6 +86,50 @@ public interface KpiValueRepository extends JpaRepository<KpiValue, Long> {
      */
     List<KpiValue> findByMeasurementDateBetween(LocalDateTime startDate, LocalDateTime endDate);
     
+    /**
+     * Find the KPI values of a project measured up to a date, after a (measurement date, ID)
+     * position, in that order (keyset pagination). The range is read from the (idpro, mdate) index.
+     * For the first page, pass the start date and ID 0 as the position.
+     *
+     * @param projectId the ID of the project
+     * @param afterDate the measurement date of the last value of the previous page
+     * @param afterId the ID of the last value of the previous page
+     * @param endDate the end date (inclusive)
+     * @param pageable the page size (the page number must be 0)
+     * @return list of KPI values, with the metric and project fetched
+     */
+    @Query("SELECT kv FROM KpiValue kv JOIN FETCH kv.metric m JOIN FETCH kv.project p " +
+           "WHERE p.id = :projectId AND kv.measurementDate <= :endDate " +
+           "AND (kv.measurementDate > :afterDate OR (kv.measurementDate = :afterDate AND kv.id > :afterId)) " +
+           "ORDER BY kv.measurementDate, kv.id")
+    List<KpiValue> findHistoryPage(@Param("projectId") Long projectId,
+                                   @Param("afterDate") LocalDateTime afterDate,
+                                   @Param("afterId") Long afterId,
+                                   @Param("endDate") LocalDateTime endDate,
+                                   Pageable pageable);
+    
+    /**
+     * Same as {@link #findHistoryPage}, restricted to some metrics.
+     *
+     * @param projectId the ID of the project
+     * @param metricIds the IDs of the metrics
+     * @param afterDate the measurement date of the last value of the previous page
+     * @param afterId the ID of the last value of the previous page
+     * @param endDate the end date (inclusive)
+     * @param pageable the page size (the page number must be 0)
+     * @return list of KPI values, with the metric and project fetched
+     */
+    @Query("SELECT kv FROM KpiValue kv JOIN FETCH kv.metric m JOIN FETCH kv.project p " +
+           "WHERE p.id = :projectId AND m.id IN :metricIds AND kv.measurementDate <= :endDate " +
+           "AND (kv.measurementDate > :afterDate OR (kv.measurementDate = :afterDate AND kv.id > :afterId)) " +
+           "ORDER BY kv.measurementDate, kv.id")
+    List<KpiValue> findHistoryPageForMetrics(@Param("projectId") Long projectId,
+                                             @Param("metricIds") Collection<Long> metricIds,
+                                             @Param("afterDate") LocalDateTime afterDate,
+                                             @Param("afterId") Long afterId,
+                                             @Param("endDate") LocalDateTime endDate,
+                                             Pageable pageable);
+    
     /**
      * Find KPI values that have breached thresholds but haven't sent notifications.
      *
@@ -69,4 +137,64 @@ public interface KpiValueRepository extends JpaRepository<KpiValue, Long> {
      */
     @Query("SELECT kv FROM KpiValue kv WHERE (kv.warningThresholdBreached = true OR kv.criticalThresholdBreached = true) AND kv.notificationSent = false")
     List<KpiValue> findBreachedThresholdsWithoutNotifications();
-} 
\ No newline at end of file
+
+    /**
+     * Flag the KPI values notified by a digest as notified.
+     *
+     * @param digestId the notification digest ID
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE KpiValue kv SET kv.notificationSent = true WHERE kv.id IN (" +
+           "SELECT n.kpiValueId FROM KpiNotification n WHERE n.digestId = :digestId)")
+    int markNotificationSentForDigest(@Param("digestId") Long digestId);
+    
+    /**
+     * Stream the export rows of the most recent KPI value of every metric for a project,
+     * read from a cursor with the same greatest-per-group query as {@link #findLatestForProject}.
+     * Must be consumed (and closed) inside a transaction.
+     *
+     * @param projectId the ID of the project
+     * @return the export rows, ordered by metric then by descending value ID
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.projectmanagement.dto.KpiValueExportRow(m.id, m.code, m.name, kv.value, kv.measurementDate, " +
+           "kv.warningThresholdBreached, kv.criticalThresholdBreached) " +
+           "FROM KpiValue kv JOIN kv.metric m " +
+           "WHERE kv.project.id = :projectId AND kv.measurementDate = (" +
+           "SELECT MAX(kv2.measurementDate) FROM KpiValue kv2 " +
+           "WHERE kv2.project.id = :projectId AND kv2.metric.id = m.id) " +
+           "ORDER BY m.id, kv.id DESC")
+    Stream<KpiValueExportRow> streamLatestExportRowsForProject(@Param("projectId") Long projectId);
+
+    /**
+     * Find the IDs of the values measured before a date, in ID order.
+     *
+     * @param cutoff   the date
+     * @param pageable the number of IDs (the page number must be 0)
+     * @return the IDs
+     */
+    @Query("SELECT kv.id FROM KpiValue kv WHERE kv.measurementDate < :cutoff ORDER BY kv.id")
+    List<Long> findIdsMeasuredBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    /**
+     * Delete KPI values by ID.
+     *
+     * @param ids the IDs (at most 1000)
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Query("DELETE FROM KpiValue kv WHERE kv.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Read KPI values as roll-up samples, in ID order after a given ID (keyset pagination).
+     *
+     * @param lastId   the last ID of the previous page, 0 for the first page
+     * @param pageable the page size (the page number must be 0)
+     * @return rows of [ID, project ID, metric ID, value, measurement date]
+     */
+    @Query("SELECT kv.id, kv.project.id, kv.metric.id, kv.value, kv.measurementDate FROM KpiValue kv " +
+           "WHERE kv.id > :lastId ORDER BY kv.id")
+    List<Object[]> findRollupSamplesAfter(@Param("lastId") Long lastId, Pageable pageable);
+}
@@ -0,0 +1,54 @@
+package com.projectmanagement.repository;
+
+import com.projectmanagement.entity.KpiValueRollup;
+import com.projectmanagement.entity.KpiValueRollup.Resolution;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for KPI value roll-ups.
+ */
+@Repository
+public interface KpiValueRollupRepository extends JpaRepository<KpiValueRollup, Long> {
+
+    /**
+     * Find the roll-ups of all metrics of a project at one resolution.
+     *
+     * @param projectId  the project ID
+     * @param resolution the resolution
+     * @param from       the first bucket start
+     * @param to         the last bucket start
+     * @return the roll-ups, by metric then by bucket
+     */
+    @Query("SELECT r FROM KpiValueRollup r WHERE r.projectId = :projectId AND r.resolution = :resolution " +
+           "AND r.bucketStart BETWEEN :from AND :to ORDER BY r.metricId, r.bucketStart")
+    List<KpiValueRollup> findForProject(@Param("projectId") Long projectId,
+                                        @Param("resolution") Resolution resolution,
+                                        @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to);
+
+    /**
+     * Find the roll-ups of some metrics of a project at one resolution.
+     *
+     * @param projectId  the project ID
+     * @param metricIds  the metric IDs
+     * @param resolution the resolution
+     * @param from       the first bucket start
+     * @param to         the last bucket start
+     * @return the roll-ups, by metric then by bucket
+     */
+    @Query("SELECT r FROM KpiValueRollup r WHERE r.projectId = :projectId AND r.metricId IN :metricIds " +
+           "AND r.resolution = :resolution AND r.bucketStart BETWEEN :from AND :to " +
+           "ORDER BY r.metricId, r.bucketStart")
+    List<KpiValueRollup> findForProjectAndMetrics(@Param("projectId") Long projectId,
+                                                  @Param("metricIds") Collection<Long> metricIds,
+                                                  @Param("resolution") Resolution resolution,
+                                                  @Param("from") LocalDateTime from,
+                                                  @Param("to") LocalDateTime to);
+}
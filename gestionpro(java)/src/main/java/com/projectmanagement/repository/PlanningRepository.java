@@ -3,8 +3,14 @@ package com.projectmanagement.repository;
 import com.projectmanagement.entity.Planning;
 import com.projectmanagement.entity.Project;
 import com.projectmanagement.entity.PortfolioPhase;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -45,4 +51,94 @@ public interface PlanningRepository extends BaseRepository<Planning, Long> {
      * @return the planning if found, empty otherwise
      */
     Optional<Planning> findByProjectAndPhase(Project project, PortfolioPhase phase);
-} 
\ No newline at end of file
+    
+    /**
+     * Find the plannings of several projects with their actions fetched.
+     * 
+     * @param projectIds the project IDs
+     * @return the list of plannings
+     */
+    @Query("SELECT DISTINCT pl FROM Planning pl LEFT JOIN FETCH pl.actions WHERE pl.project.id IN :projectIds")
+    List<Planning> findWithActionsByProjectIdIn(@Param("projectIds") Collection<Long> projectIds);
+    
+    /**
+     * Find a planning and lock its row until the end of the transaction.
+     * 
+     * @param id the planning ID
+     * @return the planning if found, empty otherwise
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT pl FROM Planning pl WHERE pl.id = :id")
+    Optional<Planning> findByIdForUpdate(@Param("id") Long id);
+    
+    /**
+     * Find the project of a planning.
+     * 
+     * @param id the planning ID
+     * @return the project ID, or null if the planning does not exist or has no project
+     */
+    @Query("SELECT pl.project.id FROM Planning pl WHERE pl.id = :id")
+    Long findProjectIdById(@Param("id") Long id);
+    
+    /**
+     * Find the project of a planning with its name, as a {@code [projectId, projectName]} row.
+     * 
+     * @param id the planning ID
+     * @return the row (with nulls if the planning has no project), or no row if the planning does not exist
+     */
+    @Query("SELECT p.id, p.name FROM Planning pl LEFT JOIN pl.project p WHERE pl.id = :id")
+    List<Object[]> findProjectRowById(@Param("id") Long id);
+    
+    /**
+     * Find the IDs of the plannings of a project.
+     * 
+     * @param projectId the project ID
+     * @return the planning IDs
+     */
+    @Query("SELECT pl.id FROM Planning pl WHERE pl.project.id = :projectId")
+    List<Long> findIdsByProjectId(@Param("projectId") Long projectId);
+    
+    /**
+     * Find the IDs of all plannings.
+     * 
+     * @return the planning IDs, in ascending order
+     */
+    @Query("SELECT pl.id FROM Planning pl ORDER BY pl.id")
+    List<Long> findAllIds();
+    
+    /**
+     * Read the stored progress roll-up of several plannings.
+     * Each row holds the planning ID, the sum of action progress and the number of actions.
+     * 
+     * @param planningIds the planning IDs
+     * @return one row per existing planning
+     */
+    @Query("SELECT pl.id, pl.progressSum, pl.actionCount FROM Planning pl WHERE pl.id IN :planningIds")
+    List<Object[]> findProgressRollupsByIdIn(@Param("planningIds") Collection<Long> planningIds);
+    
+    /**
+     * Add to the stored progress roll-up of a planning.
+     * 
+     * @param id the planning ID
+     * @param actions the change in the number of actions
+     * @param progress the change in the sum of action progress
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE Planning pl SET pl.actionCount = pl.actionCount + :actions, pl.progressSum = pl.progressSum + :progress " +
+           "WHERE pl.id = :id")
+    int addToProgressRollup(@Param("id") Long id, @Param("actions") int actions, @Param("progress") double progress);
+    
+    /**
+     * Rebuild the stored progress roll-up of several plannings from their actions.
+     * 
+     * @param planningIds the planning IDs
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE Planning pl SET " +
+           "pl.actionCount = (SELECT COUNT(a) FROM Action a WHERE a.planning = pl), " +
+           "pl.progressSum = (SELECT COALESCE(SUM(COALESCE(a.progress, 0)), 0) FROM Action a WHERE a.planning = pl) " +
+           "WHERE pl.id IN :planningIds")
+    int rebuildProgressRollupByIdIn(@Param("planningIds") Collection<Long> planningIds);
+}
@@ -1,19 +1,30 @@
 package com.projectmanagement.repository;
 
+import com.projectmanagement.dto.ProjectExportRow;
 import com.projectmanagement.entity.Project;
 import com.projectmanagement.entity.Direction;
 import com.projectmanagement.entity.Status;
 import com.projectmanagement.entity.ProjectType;
 import com.projectmanagement.entity.Priority;
 import com.projectmanagement.entity.ProjectTeam;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository for projects.
@@ -27,6 +38,7 @@ public interface ProjectRepository extends BaseRepository<Project, Long> {
      * @param pageable the pagination information
      * @return a page of projects
      */
+    @EntityGraph("Project.summary")
     Page<Project> findByStatusAndActifTrue(Status status, Pageable pageable);
     
     /**
@@ -36,6 +48,7 @@ public interface ProjectRepository extends BaseRepository<Project, Long> {
      * @param pageable the pagination information
      * @return a page of projects
      */
+    @EntityGraph("Project.summary")
     Page<Project> findByDirectionAndActifTrue(Direction direction, Pageable pageable);
     
     /**
@@ -45,6 +58,7 @@ public interface ProjectRepository extends BaseRepository<Project, Long> {
      * @param pageable the pagination information
      * @return a page of projects
      */
+    @EntityGraph("Project.summary")
     Page<Project> findByTypeAndActifTrue(ProjectType type, Pageable pageable);
     
     /**
@@ -54,6 +68,7 @@ public interface ProjectRepository extends BaseRepository<Project, Long> {
      * @param pageable the pagination information
      * @return a page of projects
      */
+    @EntityGraph("Project.summary")
     Page<Project> findByPriorityAndActifTrue(Priority priority, Pageable pageable);
     
     /**
@@ -63,6 +78,7 @@ public interface ProjectRepository extends BaseRepository<Project, Long> {
      * @param pageable the pagination information
      * @return a page of projects
      */
+    @EntityGraph("Project.summary")
     Page<Project> findByTeamAndActifTrue(ProjectTeam team, Pageable pageable);
     
     /**
@@ -105,6 +121,7 @@ public interface ProjectRepository extends BaseRepository<Project, Long> {
      * @param pageable the pagination information
      * @return a page of projects
      */
+    @EntityGraph("Project.summary")
     @Query("SELECT p FROM Project p WHERE " +
            "(:name IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))) AND " +
            "(:statusId IS NULL OR p.status.id = :statusId) AND " +
@@ -123,4 +140,161 @@ public interface ProjectRepository extends BaseRepository<Project, Long> {
             @Param("startDate") LocalDate startDate,
             @Param("endDate") LocalDate endDate,
             Pageable pageable);
-} 
\ No newline at end of file
+    
+    /**
+     * Find the IDs of all projects, in ascending order.
+     * 
+     * @return the list of project IDs
+     */
+    @Query("SELECT p.id FROM Project p ORDER BY p.id")
+    List<Long> findAllIds();
+    
+    /**
+     * Find projects by ID with their plannings fetched.
+     * 
+     * @param ids the project IDs
+     * @return the list of projects
+     */
+    @Query("SELECT DISTINCT p FROM Project p LEFT JOIN FETCH p.plannings WHERE p.id IN :ids")
+    List<Project> findWithPlanningsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Find projects by ID with their budgets fetched.
+     * 
+     * @param ids the project IDs
+     * @return the list of projects
+     */
+    @Query("SELECT DISTINCT p FROM Project p LEFT JOIN FETCH p.budgets WHERE p.id IN :ids")
+    List<Project> findWithBudgetsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Find projects by ID with their documents fetched.
+     * 
+     * @param ids the project IDs
+     * @return the list of projects
+     */
+    @Query("SELECT DISTINCT p FROM Project p LEFT JOIN FETCH p.documents WHERE p.id IN :ids")
+    List<Project> findWithDocumentsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Read the stored progress roll-up of several projects.
+     * Each row holds the project ID, the sum of action progress and the number of actions.
+     * 
+     * @param projectIds the project IDs
+     * @return one row per existing project
+     */
+    @Query("SELECT p.id, p.progressSum, p.actionCount FROM Project p WHERE p.id IN :projectIds")
+    List<Object[]> findProgressRollupsByIdIn(@Param("projectIds") Collection<Long> projectIds);
+    
+    /**
+     * Add to the stored progress roll-up of a project.
+     * 
+     * @param id the project ID
+     * @param actions the change in the number of actions
+     * @param progress the change in the sum of action progress
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE Project p SET p.actionCount = p.actionCount + :actions, p.progressSum = p.progressSum + :progress " +
+           "WHERE p.id = :id")
+    int addToProgressRollup(@Param("id") Long id, @Param("actions") int actions, @Param("progress") double progress);
+    
+    /**
+     * Rebuild the stored progress roll-up of several projects from the roll-ups of their plannings.
+     * 
+     * @param projectIds the project IDs
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE Project p SET " +
+           "p.actionCount = (SELECT COALESCE(SUM(pl.actionCount), 0) FROM Planning pl WHERE pl.project = p), " +
+           "p.progressSum = (SELECT COALESCE(SUM(pl.progressSum), 0) FROM Planning pl WHERE pl.project = p) " +
+           "WHERE p.id IN :projectIds")
+    int rebuildProgressRollupByIdIn(@Param("projectIds") Collection<Long> projectIds);
+    
+    /**
+     * Find a project and lock its row until the end of the transaction.
+     * 
+     * @param id the project ID
+     * @return the project if found, empty otherwise
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Project p WHERE p.id = :id")
+    Optional<Project> findByIdForUpdate(@Param("id") Long id);
+    
+    /**
+     * Read the dependency version of a project and lock its row until the end of the transaction.
+     * 
+     * @param id the project ID
+     * @return the version, empty if the project does not exist
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p.dependencyVersion FROM Project p WHERE p.id = :id")
+    Optional<Long> findDependencyVersionForUpdate(@Param("id") Long id);
+    
+    /**
+     * Read the dependency version of a project.
+     * 
+     * @param id the project ID
+     * @return the version, empty if the project does not exist
+     */
+    @Query("SELECT p.dependencyVersion FROM Project p WHERE p.id = :id")
+    Optional<Long> findDependencyVersionById(@Param("id") Long id);
+    
+    /**
+     * Increment the dependency version of several projects.
+     * 
+     * @param projectIds the project IDs
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE Project p SET p.dependencyVersion = p.dependencyVersion + 1 WHERE p.id IN :projectIds")
+    int incrementDependencyVersion(@Param("projectIds") Collection<Long> projectIds);
+    
+    /**
+     * Count active projects per status.
+     * Each row holds the status name (null for projects without status), the number of
+     * projects and the number of unfinished projects past their planned end date.
+     * 
+     * @param currentDate the current date
+     * @return one row per status
+     */
+    @Query("SELECT s.name, COUNT(p), " +
+           "SUM(CASE WHEN p.plannedEndDate < :currentDate AND p.actualEndDate IS NULL THEN 1 ELSE 0 END) " +
+           "FROM Project p LEFT JOIN p.status s WHERE p.actif = true GROUP BY s.name")
+    List<Object[]> countActiveByStatus(@Param("currentDate") LocalDate currentDate);
+    
+    /**
+     * Count active projects per priority.
+     * Each row holds the priority name (null for projects without priority) and the number of projects.
+     * 
+     * @return one row per priority
+     */
+    @Query("SELECT pr.name, COUNT(p) FROM Project p LEFT JOIN p.priority pr WHERE p.actif = true GROUP BY pr.name")
+    List<Object[]> countActiveByPriority();
+    
+    /**
+     * Count active projects completed per month.
+     * Each row holds the year, the month (1-12) and the number of projects whose actual end date falls in that month.
+     * 
+     * @param fromDate the first actual end date to count
+     * @return one row per month having completed projects
+     */
+    @Query("SELECT YEAR(p.actualEndDate), MONTH(p.actualEndDate), COUNT(p) FROM Project p " +
+           "WHERE p.actualEndDate >= :fromDate AND p.actif = true " +
+           "GROUP BY YEAR(p.actualEndDate), MONTH(p.actualEndDate)")
+    List<Object[]> countCompletedByMonth(@Param("fromDate") LocalDate fromDate);
+
+    /**
+     * Stream the export rows of all active projects, read from a cursor.
+     * Must be consumed (and closed) inside a transaction.
+     *
+     * @return the export rows, ordered by ID
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.projectmanagement.dto.ProjectExportRow(p.id, p.name, t.name, s.name, pr.name, d.name, " +
+           "p.startDate, p.plannedEndDate, p.actualEndDate, p.actionCount, p.progressSum) " +
+           "FROM Project p LEFT JOIN p.type t LEFT JOIN p.status s LEFT JOIN p.priority pr LEFT JOIN p.direction d " +
+           "WHERE p.actif = true ORDER BY p.id")
+    Stream<ProjectExportRow> streamExportRows();
+}
@@ -1,12 +1,20 @@
 package com.projectmanagement.repository;
 
+import com.projectmanagement.dto.SubActionExportRow;
 import com.projectmanagement.entity.SubAction;
 import com.projectmanagement.entity.Action;
 import com.projectmanagement.entity.Status;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository for sub-actions.
@@ -52,4 +60,40 @@ public interface SubActionRepository extends BaseRepository<SubAction, Long> {
      * @return the list of sub-actions
      */
     List<SubAction> findByPlannedEndDateAfter(LocalDate date);
+    
+    /**
+     * Find the parent action of a sub-action.
+     * 
+     * @param id the sub-action ID
+     * @return the action ID, or empty if the sub-action does not exist or has no action
+     */
+    @Query("SELECT sa.action.id FROM SubAction sa WHERE sa.id = :id")
+    Optional<Long> findActionIdById(@Param("id") Long id);
+
+    /**
+     * Stream the export rows of the active sub-actions of an action, read from a cursor.
+     * Must be consumed (and closed) inside a transaction.
+     *
+     * @param actionId the action ID
+     * @return the export rows, ordered by ID
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.projectmanagement.dto.SubActionExportRow(sa.id, sa.name, sa.description, s.name, " +
+           "sa.startDate, sa.plannedEndDate, sa.actualEndDate) " +
+           "FROM SubAction sa LEFT JOIN sa.status s " +
+           "WHERE sa.action.id = :actionId AND sa.actif = true ORDER BY sa.id")
+    Stream<SubActionExportRow> streamExportRowsByActionId(@Param("actionId") Long actionId);
+
+    /**
+     * Find the Gantt rows of the active sub-actions of the active actions of a planning:
+     * {@code [id, actionId, name, startDate, plannedEndDate, actualEndDate, statusName]}.
+     *
+     * @param planningId the planning ID
+     * @return the rows, ordered by action ID and ID
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT sa.id, a.id, sa.name, sa.startDate, sa.plannedEndDate, sa.actualEndDate, s.name " +
+           "FROM SubAction sa JOIN sa.action a LEFT JOIN sa.status s " +
+           "WHERE a.planning.id = :planningId AND a.actif = true AND sa.actif = true ORDER BY a.id, sa.id")
+    List<Object[]> findGanttRowsByPlanningId(@Param("planningId") Long planningId);
 } 
\ No newline at end of file
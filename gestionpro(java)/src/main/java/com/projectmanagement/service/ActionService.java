@@ -2,6 +2,8 @@ package com.projectmanagement.service;
 
 import com.projectmanagement.dto.ActionDTO;
 import com.projectmanagement.entity.Action;
+import com.projectmanagement.export.ExportFormat;
+import com.projectmanagement.export.ExportWriter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -21,6 +23,15 @@ public interface ActionService extends BaseService<Action, Long> {
      */
     ActionDTO toDTO(Action action);
     
+    /**
+     * Convert a list of Action entities to ActionDTOs.
+     * The progress of all actions is computed with a single aggregate query.
+     * 
+     * @param actions the entities to convert
+     * @return the DTO representations, in the same order
+     */
+    List<ActionDTO> toDTOs(List<Action> actions);
+    
     /**
      * Convert an ActionDTO to an Action entity.
      * 
@@ -100,15 +111,53 @@ public interface ActionService extends BaseService<Action, Long> {
      */
     ActionDTO updateProgress(Long actionId);
     
+    /**
+     * Set the progress of an action without sub-actions.
+     * The progress of an action having sub-actions is derived from them and cannot be set.
+     * 
+     * @param actionId the ID of the action to update
+     * @param progress the new progress value (0-100)
+     * @return the updated action DTO
+     * @throws IllegalArgumentException if the progress is out of range or the action has sub-actions
+     */
+    ActionDTO updateProgress(Long actionId, double progress);
+    
+    /**
+     * Mark a sub-action as finished and update the progress of its action.
+     * 
+     * @param subActionId the ID of the sub-action
+     * @param actualEndDate the actual end date, or null for today
+     * @return the updated action DTO
+     */
+    ActionDTO completeSubAction(Long subActionId, LocalDate actualEndDate);
+    
+    /**
+     * Mark a sub-action as not finished and update the progress of its action.
+     * 
+     * @param subActionId the ID of the sub-action
+     * @return the updated action DTO
+     */
+    ActionDTO reopenSubAction(Long subActionId);
+    
     /**
      * Add a dependency between two actions.
      * 
      * @param actionId the ID of the action
      * @param dependsOnId the ID of the action it depends on
      * @return the updated action DTO
+     * @throws IllegalArgumentException if the dependency already exists or would create a cycle
      */
     ActionDTO addDependency(Long actionId, Long dependsOnId);
     
+    /**
+     * Find the actions an action depends on.
+     * 
+     * @param actionId the ID of the action
+     * @return the prerequisite action DTOs
+     * @throws jakarta.persistence.EntityNotFoundException if the action does not exist
+     */
+    List<ActionDTO> findDependencies(Long actionId);
+    
     /**
      * Remove a dependency between two actions.
      * 
@@ -117,4 +166,15 @@ public interface ActionService extends BaseService<Action, Long> {
      * @return the updated action DTO
      */
     ActionDTO removeDependency(Long actionId, Long dependsOnId);
+    
+    /**
+     * Export the sub-actions of an action.
+     * The rows are read from a database cursor while the export is written.
+     * 
+     * @param actionId the ID of the action
+     * @param format the export format
+     * @return the export writer
+     * @throws jakarta.persistence.EntityNotFoundException if the action does not exist
+     */
+    ExportWriter exportAction(Long actionId, ExportFormat format);
 } 
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.projectmanagement.service;
+
+import java.util.Map;
+
+/**
+ * Service interface for dashboard data.
+ * Results are cached for a short time and evicted when projects or actions are written.
+ */
+public interface DashboardService {
+
+    /**
+     * Get summary data for the dashboard: active project counts by status and priority,
+     * active action counts by status, totals and overdue counts.
+     *
+     * @return map containing summary data
+     */
+    Map<String, Object> getSummary();
+
+    /**
+     * Get the number of projects completed per month, from the oldest month to the current one.
+     * Months without completed projects are included with a count of 0.
+     *
+     * @param months the number of months to look back, including the current month
+     * @return number of completed projects by month label ("MMM yyyy")
+     */
+    Map<String, Long> getProjectCompletionTrend(int months);
+}
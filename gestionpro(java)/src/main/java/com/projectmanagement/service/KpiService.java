@@ -1,14 +1,18 @@
 package com.projectmanagement.service;
 
 import com.projectmanagement.dto.KpiMetricDTO;
+import com.projectmanagement.dto.KpiTrendDTO;
 import com.projectmanagement.dto.KpiValueDTO;
+import com.projectmanagement.dto.KpiValuePageDTO;
 import com.projectmanagement.entity.KpiMetric;
 import com.projectmanagement.entity.KpiValue;
 import com.projectmanagement.entity.Project;
 import com.projectmanagement.export.ExportFormat;
+import com.projectmanagement.export.ExportWriter;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Service interface for KPI operations.
@@ -86,17 +90,86 @@ public interface KpiService extends BaseService<KpiMetric, Long> {
      * @param projectId the ID of the project
      * @param startDate the start date
      * @param endDate the end date
-     * @return list of KPI values within the date range
+     * @return list of KPI values within the date range, in measurement date order
+     * @throws jakarta.persistence.EntityNotFoundException if the project does not exist
      */
     List<KpiValueDTO> findKpiValuesForProjectInDateRange(Long projectId, LocalDateTime startDate, LocalDateTime endDate);
     
+    /**
+     * Find one page of the KPI values of a project within a date range, in measurement date
+     * then ID order. Pages are positioned by the last value of the previous page (keyset
+     * pagination), so reading deep pages costs the same as the first one.
+     *
+     * @param projectId the ID of the project
+     * @param metricIds the IDs of the metrics to include, or null or empty for all metrics
+     * @param startDate the start date
+     * @param endDate the end date
+     * @param afterDate the measurement date of the last value of the previous page, or null for the first page
+     * @param afterId the ID of the last value of the previous page, or null for the first page
+     * @param size the maximum number of values of the page
+     * @return the page, with the position of the next page if there are more values
+     * @throws jakarta.persistence.EntityNotFoundException if the project does not exist
+     * @throws IllegalArgumentException if the period, the position or the size is invalid
+     */
+    KpiValuePageDTO findKpiValueHistoryPage(Long projectId, List<Long> metricIds, LocalDateTime startDate,
+                                            LocalDateTime endDate, LocalDateTime afterDate, Long afterId, int size);
+    
+    /**
+     * Stream the KPI values of a project within a date range, in measurement date then ID order.
+     * The values are read page by page as the stream is consumed, each page in its own
+     * transaction, so the stream can be consumed outside of any transaction and should be closed.
+     *
+     * @param projectId the ID of the project
+     * @param metricIds the IDs of the metrics to include, or null or empty for all metrics
+     * @param startDate the start date
+     * @param endDate the end date
+     * @return the stream of KPI values
+     * @throws jakarta.persistence.EntityNotFoundException if the project does not exist
+     * @throws IllegalArgumentException if startDate is after endDate
+     */
+    Stream<KpiValueDTO> streamKpiValueHistory(Long projectId, List<Long> metricIds,
+                                              LocalDateTime startDate, LocalDateTime endDate);
+    
+    /**
+     * Read the KPI trend of a project from the pre-aggregated roll-ups.
+     * The finest resolution (hour, day, month) giving at most {@code maxPoints} buckets
+     * per metric over the period is used.
+     *
+     * @param projectId the ID of the project
+     * @param metricIds the IDs of the metrics to include, or null or empty for all metrics
+     * @param startDate the start date
+     * @param endDate the end date
+     * @param maxPoints the maximum number of points per metric
+     * @return the trend, with points ordered by metric then by bucket
+     * @throws jakarta.persistence.EntityNotFoundException if the project does not exist
+     * @throws IllegalArgumentException if maxPoints is below 1 or startDate is after endDate
+     */
+    KpiTrendDTO findKpiTrend(Long projectId, List<Long> metricIds, LocalDateTime startDate,
+                             LocalDateTime endDate, int maxPoints);
+    
+    /**
+     * Rebuild the KPI value roll-ups from all recorded values.
+     *
+     * @return the number of values read
+     */
+    long rebuildKpiRollups();
+    
+    /**
+     * Move the KPI values older than the retention horizon to the archive.
+     * Archived values are still returned by the history queries, but no longer by the
+     * latest-value, export and dashboard queries.
+     *
+     * @return the number of archived values
+     */
+    long archiveKpiValues();
+    
     /**
      * Update KPIs automatically based on their calculation formulas and frequencies.
      */
     void updateKpisAutomatically();
     
     /**
-     * Check for threshold breaches and send notifications if needed.
+     * Send the pending threshold breach notifications queued when KPI values were recorded.
      */
     void checkThresholdsAndNotify();
     
@@ -109,15 +182,6 @@ public interface KpiService extends BaseService<KpiMetric, Long> {
      */
     Double calculateKpiValue(Long metricId, Long projectId);
     
-    /**
-     * Export KPI data for a project to a file.
-     *
-     * @param projectId the ID of the project
-     * @param format the export format (e.g., "excel", "pdf", "csv")
-     * @return byte array containing the exported data
-     */
-    byte[] exportKpiData(Long projectId, String format);
-    
     /**
      * Batch updates KPI values for multiple metrics on a project.
      *
@@ -129,11 +193,13 @@ public interface KpiService extends BaseService<KpiMetric, Long> {
     List<KpiValueDTO> batchUpdateKpiValues(Long projectId, List<Long> metricsIds, LocalDateTime currentDate);
     
     /**
-     * Export KPI data for a project in the specified format.
+     * Export the latest KPI values of a project in the specified format.
+     * The rows are read from a database cursor while the export is written.
      *
      * @param projectId the ID of the project
      * @param format the export format
-     * @return the exported data as a string
+     * @return the export writer
+     * @throws jakarta.persistence.EntityNotFoundException if the project does not exist
      */
-    String exportKpiData(Long projectId, ExportFormat format);
+    ExportWriter exportKpiData(Long projectId, ExportFormat format);
 } 
\ No newline at end of file
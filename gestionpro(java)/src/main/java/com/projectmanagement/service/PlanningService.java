@@ -1,7 +1,11 @@
 package com.projectmanagement.service;
 
 import com.projectmanagement.dto.PlanningDTO;
+import com.projectmanagement.dto.PlanningGanttDTO;
+import com.projectmanagement.dto.PlanningScheduleDTO;
 import com.projectmanagement.entity.Planning;
+import com.projectmanagement.export.ExportFormat;
+import com.projectmanagement.export.ExportWriter;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +22,16 @@ public interface PlanningService extends BaseService<Planning, Long> {
      */
     PlanningDTO toDTO(Planning planning);
     
+    /**
+     * Convert a list of Planning entities to PlanningDTOs.
+     * The progress of all plannings and of their actions is computed with one
+     * aggregate query each.
+     * 
+     * @param plannings the entities to convert
+     * @return the DTO representations, in the same order
+     */
+    List<PlanningDTO> toDTOs(List<Planning> plannings);
+    
     /**
      * Convert a PlanningDTO to a Planning entity.
      * 
@@ -84,4 +98,46 @@ public interface PlanningService extends BaseService<Planning, Long> {
      * @return the updated planning DTO
      */
     PlanningDTO removeAction(Long planningId, Long actionId);
+    
+    /**
+     * Export the actions of a planning.
+     * The rows are read from a database cursor while the export is written.
+     * 
+     * @param planningId the ID of the planning
+     * @param format the export format
+     * @return the export writer
+     * @throws jakarta.persistence.EntityNotFoundException if the planning does not exist
+     */
+    ExportWriter exportPlanning(Long planningId, ExportFormat format);
+    
+    /**
+     * Compute the critical path schedule of the active actions of a planning from their
+     * finish-to-start dependencies. Dependencies on actions of other plannings are ignored.
+     * 
+     * @param planningId the ID of the planning
+     * @return the schedule
+     * @throws jakarta.persistence.EntityNotFoundException if the planning does not exist
+     * @throws IllegalArgumentException if the dependencies contain a cycle
+     */
+    PlanningScheduleDTO computeSchedule(Long planningId);
+    
+    /**
+     * Compute the critical path schedule of the active actions of all the plannings of a project.
+     * 
+     * @param projectId the ID of the project
+     * @return the schedule
+     * @throws jakarta.persistence.EntityNotFoundException if the project does not exist
+     * @throws IllegalArgumentException if the dependencies contain a cycle
+     */
+    PlanningScheduleDTO computeProjectSchedule(Long projectId);
+    
+    /**
+     * Read the Gantt chart of a planning: its active actions with their sub-actions and
+     * dependencies, in a fixed number of queries whatever the number of actions.
+     * 
+     * @param planningId the ID of the planning
+     * @return the Gantt chart
+     * @throws jakarta.persistence.EntityNotFoundException if the planning does not exist
+     */
+    PlanningGanttDTO findGantt(Long planningId);
 } 
\ No newline at end of file
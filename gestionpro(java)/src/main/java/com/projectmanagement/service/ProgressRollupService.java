@@ -0,0 +1,93 @@
+package com.projectmanagement.service;
+
+import java.util.function.Supplier;
+
+/**
+ * Service maintaining the stored progress roll-ups of actions, plannings and projects.
+ * <p>
+ * An action stores its number of sub-actions and of finished sub-actions, and a planning
+ * or a project stores its number of actions and the sum of their progress, so that
+ * {@link ProgressService} reads progress without scanning the children.
+ * <p>
+ * Changes to an action are applied incrementally: the action row is locked, its
+ * contribution (planning and progress) is read before and after the change, and only
+ * the difference is added to the plannings and projects with atomic
+ * {@code SET x = x + delta} updates. Concurrent changes to different actions of the same
+ * planning therefore never overwrite each other, and plannings and projects are always
+ * updated in ID order so concurrent moves cannot deadlock. The {@code recalculate}
+ * methods rebuild the roll-ups from the children, to repair them after direct database
+ * changes.
+ */
+public interface ProgressRollupService {
+
+    /**
+     * Add a newly saved action to the roll-ups of its planning and project.
+     *
+     * @param actionId the action ID
+     */
+    void actionCreated(Long actionId);
+
+    /**
+     * Run a change to an action (or to its sub-actions) and update the roll-ups accordingly.
+     * The change may move the action to another planning or delete it.
+     *
+     * @param actionId the action ID
+     * @param change   the change, run after the action row is locked
+     * @param <T>      the type of the change result
+     * @return the result of the change
+     * @throws jakarta.persistence.EntityNotFoundException if the action does not exist
+     */
+    <T> T changeAction(Long actionId, Supplier<T> change);
+
+    /**
+     * Recount the sub-actions of an action, derive its progress from them when it has any,
+     * and update the roll-ups of its planning and project.
+     *
+     * @param actionId the action ID
+     * @throws jakarta.persistence.EntityNotFoundException if the action does not exist
+     */
+    void refreshAction(Long actionId);
+
+    /**
+     * Run a change to a planning and update the roll-ups accordingly.
+     * The change may replace the actions of the planning, move it to another project or delete it.
+     *
+     * @param planningId the planning ID
+     * @param change     the change, run after the planning row is locked
+     * @param <T>        the type of the change result
+     * @return the result of the change
+     * @throws jakarta.persistence.EntityNotFoundException if the planning does not exist
+     */
+    <T> T changePlanning(Long planningId, Supplier<T> change);
+
+    /**
+     * Run a change to a project and rebuild its roll-up from its plannings.
+     *
+     * @param projectId the project ID
+     * @param change    the change
+     * @param <T>       the type of the change result
+     * @return the result of the change
+     */
+    <T> T changeProject(Long projectId, Supplier<T> change);
+
+    /**
+     * Rebuild the roll-ups of a planning, of its actions and of its project.
+     *
+     * @param planningId the planning ID
+     * @throws jakarta.persistence.EntityNotFoundException if the planning does not exist
+     */
+    void recalculatePlanning(Long planningId);
+
+    /**
+     * Rebuild the roll-ups of a project, of its plannings and of their actions.
+     *
+     * @param projectId the project ID
+     * @throws jakarta.persistence.EntityNotFoundException if the project does not exist
+     */
+    void recalculateProject(Long projectId);
+
+    /**
+     * Rebuild all roll-ups.
+     */
+    void recalculateAll();
+}
@@ -0,0 +1,40 @@
+package com.projectmanagement.service;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Service reading project, planning and action progress.
+ * <p>
+ * Progress is read from the roll-up columns maintained by {@link ProgressRollupService},
+ * with one query for a whole batch of IDs and the same rules as the entities'
+ * {@code calculateProgress} methods: a project or a planning averages the progress of its
+ * actions, and an action with sub-actions reports the share of finished sub-actions.
+ * Every requested ID is present in the returned maps; IDs without actions map to 0.
+ */
+public interface ProgressService {
+
+    /**
+     * Read the progress of several projects.
+     *
+     * @param projectIds the project IDs
+     * @return progress (0-100) by project ID
+     */
+    Map<Long, Double> findProjectProgress(Collection<Long> projectIds);
+
+    /**
+     * Read the progress of several plannings.
+     *
+     * @param planningIds the planning IDs
+     * @return progress (0-100) by planning ID
+     */
+    Map<Long, Double> findPlanningProgress(Collection<Long> planningIds);
+
+    /**
+     * Read the progress of several actions.
+     *
+     * @param actionIds the action IDs
+     * @return progress (0-100) by action ID
+     */
+    Map<Long, Double> findActionProgress(Collection<Long> actionIds);
+}
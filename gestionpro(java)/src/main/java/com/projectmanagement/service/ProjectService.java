@@ -2,6 +2,8 @@ package com.projectmanagement.service;
 
 import com.projectmanagement.dto.ProjectDTO;
 import com.projectmanagement.entity.Project;
+import com.projectmanagement.export.ExportFormat;
+import com.projectmanagement.export.ExportWriter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -21,6 +23,15 @@ public interface ProjectService extends BaseService<Project, Long> {
      */
     ProjectDTO toDTO(Project project);
     
+    /**
+     * Convert a list of Project entities to ProjectDTOs.
+     * The progress of all projects is computed with a single aggregate query.
+     * 
+     * @param projects the entities to convert
+     * @return the DTO representations, in the same order
+     */
+    List<ProjectDTO> toDTOs(List<Project> projects);
+    
     /**
      * Convert a ProjectDTO to a Project entity.
      * 
@@ -104,4 +115,29 @@ public interface ProjectService extends BaseService<Project, Long> {
      * @return the updated project DTO
      */
     ProjectDTO updateProgress(Long projectId);
+    
+    /**
+     * Recalculate the progress of all projects, plannings and actions.
+     */
+    void recalculateAllProgress();
+    
+    /**
+     * Export the active projects.
+     * The rows are read from a database cursor while the export is written.
+     * 
+     * @param format the export format
+     * @return the export writer
+     */
+    ExportWriter exportProjects(ExportFormat format);
+    
+    /**
+     * Export the actions of a project.
+     * The rows are read from a database cursor while the export is written.
+     * 
+     * @param projectId the ID of the project
+     * @param format the export format
+     * @return the export writer
+     * @throws jakarta.persistence.EntityNotFoundException if the project does not exist
+     */
+    ExportWriter exportProject(Long projectId, ExportFormat format);
 } 
\ No newline at end of file
@@ -2,21 +2,32 @@ package com.projectmanagement.service.impl;
 
 import com.projectmanagement.dto.ActionDTO;
 import com.projectmanagement.dto.SubActionDTO;
+import com.projectmanagement.dto.SubActionExportRow;
 import com.projectmanagement.entity.*;
+import com.projectmanagement.export.ExportFormat;
+import com.projectmanagement.export.ExportOptions;
+import com.projectmanagement.export.ExportWriter;
+import com.projectmanagement.export.StreamingExporter;
+import com.projectmanagement.planning.DependencyIndex;
 import com.projectmanagement.repository.*;
 import com.projectmanagement.service.ActionService;
 import com.projectmanagement.service.BaseServiceImpl;
+import com.projectmanagement.service.ProgressRollupService;
+import com.projectmanagement.service.ProgressService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -31,6 +42,10 @@ public class ActionServiceImpl extends BaseServiceImpl<Action, Long, ActionRepos
     private final UserRepository userRepository;
     private final SubActionRepository subActionRepository;
     private final ActionDependencyRepository dependencyRepository;
+    private final ProgressService progressService;
+    private final ProgressRollupService progressRollupService;
+    private final StreamingExporter streamingExporter;
+    private final DependencyIndex dependencyIndex;
 
     @Autowired
     public ActionServiceImpl(
@@ -39,13 +54,21 @@ public class ActionServiceImpl extends BaseServiceImpl<Action, Long, ActionRepos
             StatusRepository statusRepository,
             UserRepository userRepository,
             SubActionRepository subActionRepository,
-            ActionDependencyRepository dependencyRepository) {
+            ActionDependencyRepository dependencyRepository,
+            ProgressService progressService,
+            ProgressRollupService progressRollupService,
+            StreamingExporter streamingExporter,
+            DependencyIndex dependencyIndex) {
         super(repository);
         this.planningRepository = planningRepository;
         this.statusRepository = statusRepository;
         this.userRepository = userRepository;
         this.subActionRepository = subActionRepository;
         this.dependencyRepository = dependencyRepository;
+        this.progressService = progressService;
+        this.progressRollupService = progressRollupService;
+        this.streamingExporter = streamingExporter;
+        this.dependencyIndex = dependencyIndex;
     }
 
     @Override
@@ -54,12 +77,36 @@ public class ActionServiceImpl extends BaseServiceImpl<Action, Long, ActionRepos
             return null;
         }
 
+        return toDTOs(Collections.singletonList(action)).get(0);
+    }
+
+    @Override
+    public List<ActionDTO> toDTOs(List<Action> actions) {
+        Map<Long, Double> progress = progressService.findActionProgress(actions.stream()
+                .map(Action::getId)
+                .collect(Collectors.toList()));
+        
+        return actions.stream()
+                .map(action -> toDTO(action, action.getId() != null
+                        ? progress.getOrDefault(action.getId(), 0.0)
+                        : action.calculateProgress()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Convert a page of Action entities, computing their progress in one query.
+     */
+    private Page<ActionDTO> toDTOPage(Page<Action> page) {
+        return new PageImpl<>(toDTOs(page.getContent()), page.getPageable(), page.getTotalElements());
+    }
+
+    private ActionDTO toDTO(Action action, double progress) {
         ActionDTO dto = ActionDTO.builder()
                 .name(action.getName())
                 .startDate(action.getStartDate())
                 .plannedEndDate(action.getPlannedEndDate())
                 .actualEndDate(action.getActualEndDate())
-                .progress(action.calculateProgress())
+                .progress(progress)
                 .subActions(new ArrayList<>())
                 .dependencies(new ArrayList<>())
                 .dependentActions(new ArrayList<>())
@@ -152,6 +199,41 @@ public class ActionServiceImpl extends BaseServiceImpl<Action, Long, ActionRepos
         return action;
     }
 
+    @Override
+    @Transactional
+    public Action save(Action action) {
+        if (action.getId() != null) {
+            Long projectBefore = repository.findProjectIdById(action.getId());
+            Action savedAction = progressRollupService.changeAction(action.getId(), () -> super.save(action));
+            dependencyIndex.projectChanged(projectBefore, repository.findProjectIdById(action.getId()));
+            return savedAction;
+        }
+        
+        Action savedAction = super.save(action);
+        progressRollupService.actionCreated(savedAction.getId());
+        return savedAction;
+    }
+
+    @Override
+    @Transactional
+    public Action update(Long id, Action action) {
+        Long projectBefore = repository.findProjectIdById(id);
+        Action updatedAction = progressRollupService.changeAction(id, () -> super.update(id, action));
+        dependencyIndex.projectChanged(projectBefore, repository.findProjectIdById(id));
+        return updatedAction;
+    }
+
+    @Override
+    @Transactional
+    public void deleteById(Long id) {
+        Long projectBefore = repository.findProjectIdById(id);
+        progressRollupService.changeAction(id, () -> {
+            super.deleteById(id);
+            return null;
+        });
+        dependencyIndex.projectChanged(projectBefore, null);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<ActionDTO> findByPlanningId(Long planningId) {
@@ -159,9 +241,7 @@ public class ActionServiceImpl extends BaseServiceImpl<Action, Long, ActionRepos
         Planning planning = planningRepository.findById(planningId)
                 .orElseThrow(() -> new EntityNotFoundException("Planning not found with id: " + planningId));
         
-        return repository.findByPlanningAndActifTrue(planning).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return toDTOs(repository.findByPlanningAndActifTrue(planning));
     }
 
     @Override
@@ -171,9 +251,7 @@ public class ActionServiceImpl extends BaseServiceImpl<Action, Long, ActionRepos
         Status status = statusRepository.findById(statusId)
                 .orElseThrow(() -> new EntityNotFoundException("Status not found with id: " + statusId));
         
-        return repository.findByStatus(status).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return toDTOs(repository.findByStatus(status));
     }
 
     @Override
@@ -183,8 +261,7 @@ public class ActionServiceImpl extends BaseServiceImpl<Action, Long, ActionRepos
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new EntityNotFoundException("User not found with id: " + userId));
         
-        return repository.findByResponsableAndActifTrue(user, pageable)
-                .map(this::toDTO);
+        return toDTOPage(repository.findByResponsableAndActifTrue(user, pageable));
     }
 
     @Override
@@ -193,8 +270,7 @@ public class ActionServiceImpl extends BaseServiceImpl<Action, Long, ActionRepos
         log.debug("Finding actions with deadlines within the next {} days", daysThreshold);
         LocalDate currentDate = LocalDate.now();
         
-        return repository.findUpcomingDeadlines(currentDate, daysThreshold, pageable)
-                .map(this::toDTO);
+        return toDTOPage(repository.findUpcomingDeadlines(currentDate, currentDate.plusDays(daysThreshold), pageable));
     }
 
     @Override
@@ -203,8 +279,7 @@ public class ActionServiceImpl extends BaseServiceImpl<Action, Long, ActionRepos
         log.debug("Finding overdue actions");
         LocalDate currentDate = LocalDate.now();
         
-        return repository.findOverdueActions(currentDate, pageable)
-                .map(this::toDTO);
+        return toDTOPage(repository.findOverdueActions(currentDate, pageable));
     }
 
     @Override
@@ -220,8 +295,7 @@ public class ActionServiceImpl extends BaseServiceImpl<Action, Long, ActionRepos
         log.debug("Searching actions with criteria: name={}, statusId={}, responsableId={}, startDate={}, endDate={}, planningId={}",
                 name, statusId, responsableId, startDate, endDate, planningId);
         
-        return repository.searchActions(name, statusId, responsableId, startDate, endDate, planningId, pageable)
-                .map(this::toDTO);
+        return toDTOPage(repository.searchActions(name, statusId, responsableId, startDate, endDate, planningId, pageable));
     }
 
     @Override
@@ -229,15 +303,61 @@ public class ActionServiceImpl extends BaseServiceImpl<Action, Long, ActionRepos
     public ActionDTO updateProgress(Long actionId) {
         log.debug("Updating progress for action with ID: {}", actionId);
         
-        Action action = repository.findById(actionId)
+        // Recounts the sub-actions and propagates the change to the planning and the project
+        progressRollupService.refreshAction(actionId);
+        
+        Action updatedAction = repository.findById(actionId)
                 .orElseThrow(() -> new EntityNotFoundException("Action not found with id: " + actionId));
         
-        // The progress is calculated by the entity's calculateProgress method
-        // which aggregates the progress of all sub-actions
-        double progress = action.calculateProgress();
-        action.setProgress(progress);
+        return toDTO(updatedAction);
+    }
+
+    @Override
+    @Transactional
+    public ActionDTO updateProgress(Long actionId, double progress) {
+        log.debug("Setting progress of action with ID: {} to {}", actionId, progress);
+        
+        if (progress < 0 || progress > 100) {
+            throw new IllegalArgumentException("Progress must be between 0 and 100");
+        }
         
-        Action updatedAction = repository.save(action);
+        Action updatedAction = progressRollupService.changeAction(actionId, () -> {
+            Action action = repository.findById(actionId)
+                    .orElseThrow(() -> new EntityNotFoundException("Action not found with id: " + actionId));
+            if (action.getSubActionCount() != null && action.getSubActionCount() > 0) {
+                throw new IllegalArgumentException("The progress of an action with sub-actions is derived from them");
+            }
+            action.setProgress(progress);
+            return action;
+        });
+        
+        return toDTO(updatedAction);
+    }
+
+    @Override
+    @Transactional
+    public ActionDTO completeSubAction(Long subActionId, LocalDate actualEndDate) {
+        log.debug("Completing sub-action with ID: {}", subActionId);
+        return setSubActionEndDate(subActionId, actualEndDate != null ? actualEndDate : LocalDate.now());
+    }
+
+    @Override
+    @Transactional
+    public ActionDTO reopenSubAction(Long subActionId) {
+        log.debug("Reopening sub-action with ID: {}", subActionId);
+        return setSubActionEndDate(subActionId, null);
+    }
+
+    private ActionDTO setSubActionEndDate(Long subActionId, LocalDate actualEndDate) {
+        Long actionId = subActionRepository.findActionIdById(subActionId)
+                .orElseThrow(() -> new EntityNotFoundException("Sub-action not found with id: " + subActionId));
+        
+        Action updatedAction = progressRollupService.changeAction(actionId, () -> {
+            SubAction subAction = subActionRepository.findById(subActionId)
+                    .orElseThrow(() -> new EntityNotFoundException("Sub-action not found with id: " + subActionId));
+            subAction.setActualEndDate(actualEndDate);
+            return subAction.getAction();
+        });
         
         return toDTO(updatedAction);
     }
@@ -266,6 +386,10 @@ public class ActionServiceImpl extends BaseServiceImpl<Action, Long, ActionRepos
             throw new IllegalArgumentException("Dependency already exists");
         }
         
+        // Check for a cycle through other actions, and record the dependency in the index
+        dependencyIndex.addDependency(actionId, repository.findProjectIdById(actionId),
+                dependsOnId, repository.findProjectIdById(dependsOnId));
+        
         // Add the dependency
         action.addDependency(dependsOn);
         
@@ -275,6 +399,15 @@ public class ActionServiceImpl extends BaseServiceImpl<Action, Long, ActionRepos
         return toDTO(updatedAction);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<ActionDTO> findDependencies(Long actionId) {
+        if (!repository.existsById(actionId)) {
+            throw new EntityNotFoundException("Action not found with id: " + actionId);
+        }
+        return toDTOs(repository.findDependenciesById(actionId));
+    }
+
     @Override
     @Transactional
     public ActionDTO removeDependency(Long actionId, Long dependsOnId) {
@@ -288,6 +421,7 @@ public class ActionServiceImpl extends BaseServiceImpl<Action, Long, ActionRepos
                 .filter(dep -> dep.getDependsOn().getId().equals(dependsOnId))
                 .findFirst()
                 .orElseThrow(() -> new EntityNotFoundException("Dependency not found"));
+        dependencyIndex.removeDependency(actionId, repository.findProjectIdById(actionId), dependsOnId);
         
         // Remove the dependency
         action.removeDependency(dependencyToRemove);
@@ -297,4 +431,25 @@ public class ActionServiceImpl extends BaseServiceImpl<Action, Long, ActionRepos
         
         return toDTO(updatedAction);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ExportWriter exportAction(Long actionId, ExportFormat format) {
+        log.debug("Exporting sub-actions of action with ID: {} in format: {}", actionId, format);
+        
+        Action action = repository.findById(actionId)
+                .orElseThrow(() -> new EntityNotFoundException("Action not found with id: " + actionId));
+        
+        ExportOptions options = ExportOptions.builder()
+                .title("Action - " + action.getName())
+                .author("Project Management System")
+                .description("Sub-actions of action: " + action.getName())
+                .includeHeaders(true)
+                .formatDates(true)
+                .formatNumbers(true)
+                .build();
+        
+        return streamingExporter.writer(format, () -> subActionRepository.streamExportRowsByActionId(actionId),
+                SubActionExportRow.headers(), options);
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,128 @@
+package com.projectmanagement.service.impl;
+
+import com.projectmanagement.dashboard.DashboardCache;
+import com.projectmanagement.repository.ActionRepository;
+import com.projectmanagement.repository.ProjectRepository;
+import com.projectmanagement.service.DashboardService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of the DashboardService interface.
+ * The summary costs three grouped count queries and the completion trend one, none when cached.
+ */
+@Service
+@Slf4j
+@Transactional(readOnly = true)
+public class DashboardServiceImpl implements DashboardService {
+
+    /**
+     * Label used for projects or actions without status or priority.
+     */
+    private static final String UNDEFINED = "Undefined";
+
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("MMM yyyy");
+
+    private final ProjectRepository projectRepository;
+    private final ActionRepository actionRepository;
+    private final DashboardCache dashboardCache;
+
+    @Autowired
+    public DashboardServiceImpl(
+            ProjectRepository projectRepository,
+            ActionRepository actionRepository,
+            DashboardCache dashboardCache) {
+        this.projectRepository = projectRepository;
+        this.actionRepository = actionRepository;
+        this.dashboardCache = dashboardCache;
+    }
+
+    @Override
+    public Map<String, Object> getSummary() {
+        return dashboardCache.get("summary", this::loadSummary);
+    }
+
+    @Override
+    public Map<String, Long> getProjectCompletionTrend(int months) {
+        if (months < 1) {
+            throw new IllegalArgumentException("The number of months must be at least 1");
+        }
+        return dashboardCache.get("completion-trend:" + months, () -> loadProjectCompletionTrend(months));
+    }
+
+    private Map<String, Object> loadSummary() {
+        log.debug("Loading dashboard summary");
+        LocalDate currentDate = LocalDate.now();
+        Map<String, Object> summary = new HashMap<>();
+
+        Map<String, Long> projectStatusCounts = new HashMap<>();
+        long totalProjects = 0;
+        long overdueProjects = 0;
+        for (Object[] row : projectRepository.countActiveByStatus(currentDate)) {
+            long count = ((Number) row[1]).longValue();
+            projectStatusCounts.merge(label(row[0]), count, Long::sum);
+            totalProjects += count;
+            overdueProjects += row[2] != null ? ((Number) row[2]).longValue() : 0;
+        }
+        summary.put("projectStatusCounts", projectStatusCounts);
+
+        Map<String, Long> projectPriorityCounts = new HashMap<>();
+        for (Object[] row : projectRepository.countActiveByPriority()) {
+            projectPriorityCounts.merge(label(row[0]), ((Number) row[1]).longValue(), Long::sum);
+        }
+        summary.put("projectPriorityCounts", projectPriorityCounts);
+
+        Map<String, Long> actionStatusCounts = new HashMap<>();
+        long totalActions = 0;
+        long overdueActions = 0;
+        for (Object[] row : actionRepository.countActiveByStatus(currentDate)) {
+            long count = ((Number) row[1]).longValue();
+            actionStatusCounts.merge(label(row[0]), count, Long::sum);
+            totalActions += count;
+            overdueActions += row[2] != null ? ((Number) row[2]).longValue() : 0;
+        }
+        summary.put("actionStatusCounts", actionStatusCounts);
+
+        summary.put("totalProjects", totalProjects);
+        summary.put("totalActions", totalActions);
+        summary.put("overdueProjects", overdueProjects);
+        summary.put("overdueActions", overdueActions);
+
+        return Collections.unmodifiableMap(summary);
+    }
+
+    private Map<String, Long> loadProjectCompletionTrend(int months) {
+        log.debug("Loading project completion trend over {} months", months);
+        YearMonth currentMonth = YearMonth.now();
+        YearMonth firstMonth = currentMonth.minusMonths(months - 1L);
+
+        Map<YearMonth, Long> counts = new HashMap<>();
+        List<Object[]> rows = projectRepository.countCompletedByMonth(firstMonth.atDay(1));
+        for (Object[] row : rows) {
+            YearMonth month = YearMonth.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue());
+            counts.put(month, ((Number) row[2]).longValue());
+        }
+
+        // Completion dates in the future are not part of the trend
+        Map<String, Long> trend = new LinkedHashMap<>();
+        for (YearMonth month = firstMonth; !month.isAfter(currentMonth); month = month.plusMonths(1)) {
+            trend.put(month.format(MONTH_FORMAT), counts.getOrDefault(month, 0L));
+        }
+        return Collections.unmodifiableMap(trend);
+    }
+
+    private static String label(Object name) {
+        return name != null ? name.toString() : UNDEFINED;
+    }
+}
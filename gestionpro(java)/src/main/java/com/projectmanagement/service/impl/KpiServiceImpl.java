@@ -1,18 +1,35 @@
 package com.projectmanagement.service.impl;
 
 import com.projectmanagement.dto.KpiMetricDTO;
+import com.projectmanagement.dto.KpiTrendDTO;
+import com.projectmanagement.dto.KpiTrendPointDTO;
 import com.projectmanagement.dto.KpiValueDTO;
-import com.projectmanagement.entity.Action;
+import com.projectmanagement.dto.KpiValuePageDTO;
+import com.projectmanagement.dto.KpiValueExportRow;
 import com.projectmanagement.entity.KpiMetric;
+import com.projectmanagement.entity.KpiNotification;
 import com.projectmanagement.entity.KpiValue;
+import com.projectmanagement.entity.KpiValueRollup;
 import com.projectmanagement.entity.Project;
-import com.projectmanagement.entity.ProjectBudget;
 import com.projectmanagement.export.ExportFormat;
 import com.projectmanagement.export.ExportOptions;
-import com.projectmanagement.export.ExportService;
-import com.projectmanagement.export.ExportServiceFactory;
+import com.projectmanagement.export.ExportWriter;
+import com.projectmanagement.export.StreamingExporter;
+import com.projectmanagement.kpi.KpiCalculator;
+import com.projectmanagement.kpi.KpiMetricDefinition;
+import com.projectmanagement.kpi.KpiMetricRegistry;
+import com.projectmanagement.kpi.KpiNotificationDispatcher;
+import com.projectmanagement.kpi.KpiRecomputeEngine;
+import com.projectmanagement.kpi.KpiRecomputeReport;
+import com.projectmanagement.kpi.KpiRollupRebuilder;
+import com.projectmanagement.kpi.KpiRollupWriter;
+import com.projectmanagement.kpi.KpiValueArchiver;
+import com.projectmanagement.kpi.KpiValueBatchWriter;
+import com.projectmanagement.kpi.KpiValueHistoryReader;
 import com.projectmanagement.repository.KpiMetricRepository;
+import com.projectmanagement.repository.KpiNotificationRepository;
 import com.projectmanagement.repository.KpiValueRepository;
+import com.projectmanagement.repository.KpiValueRollupRepository;
 import com.projectmanagement.repository.ProjectRepository;
 import com.projectmanagement.service.KpiService;
 import jakarta.persistence.EntityNotFoundException;
@@ -20,12 +37,14 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.ByteArrayOutputStream;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Implementation of the KPI service.
@@ -38,17 +57,50 @@ public class KpiServiceImpl implements KpiService {
     private final KpiMetricRepository kpiMetricRepository;
     private final KpiValueRepository kpiValueRepository;
     private final ProjectRepository projectRepository;
-    private final ExportServiceFactory exportServiceFactory;
+    private final StreamingExporter streamingExporter;
+    private final KpiCalculator kpiCalculator;
+    private final KpiRecomputeEngine kpiRecomputeEngine;
+    private final KpiValueBatchWriter kpiValueBatchWriter;
+    private final KpiNotificationRepository kpiNotificationRepository;
+    private final KpiNotificationDispatcher kpiNotificationDispatcher;
+    private final KpiMetricRegistry kpiMetricRegistry;
+    private final KpiRollupWriter kpiRollupWriter;
+    private final KpiRollupRebuilder kpiRollupRebuilder;
+    private final KpiValueRollupRepository kpiValueRollupRepository;
+    private final KpiValueHistoryReader kpiValueHistoryReader;
+    private final KpiValueArchiver kpiValueArchiver;
     
     @Autowired
     public KpiServiceImpl(KpiMetricRepository kpiMetricRepository, 
                          KpiValueRepository kpiValueRepository,
                          ProjectRepository projectRepository,
-                         ExportServiceFactory exportServiceFactory) {
+                         StreamingExporter streamingExporter,
+                         KpiCalculator kpiCalculator,
+                         KpiRecomputeEngine kpiRecomputeEngine,
+                         KpiValueBatchWriter kpiValueBatchWriter,
+                         KpiNotificationRepository kpiNotificationRepository,
+                         KpiNotificationDispatcher kpiNotificationDispatcher,
+                         KpiMetricRegistry kpiMetricRegistry,
+                         KpiRollupWriter kpiRollupWriter,
+                         KpiRollupRebuilder kpiRollupRebuilder,
+                         KpiValueRollupRepository kpiValueRollupRepository,
+                         KpiValueHistoryReader kpiValueHistoryReader,
+                         KpiValueArchiver kpiValueArchiver) {
         this.kpiMetricRepository = kpiMetricRepository;
         this.kpiValueRepository = kpiValueRepository;
         this.projectRepository = projectRepository;
-        this.exportServiceFactory = exportServiceFactory;
+        this.streamingExporter = streamingExporter;
+        this.kpiCalculator = kpiCalculator;
+        this.kpiRecomputeEngine = kpiRecomputeEngine;
+        this.kpiValueBatchWriter = kpiValueBatchWriter;
+        this.kpiNotificationRepository = kpiNotificationRepository;
+        this.kpiNotificationDispatcher = kpiNotificationDispatcher;
+        this.kpiMetricRegistry = kpiMetricRegistry;
+        this.kpiRollupWriter = kpiRollupWriter;
+        this.kpiRollupRebuilder = kpiRollupRebuilder;
+        this.kpiValueRollupRepository = kpiValueRollupRepository;
+        this.kpiValueHistoryReader = kpiValueHistoryReader;
+        this.kpiValueArchiver = kpiValueArchiver;
     }
 
     @Override
@@ -130,12 +182,14 @@ public class KpiServiceImpl implements KpiService {
     // BaseService interface implementation
     @Override
     public KpiMetric save(KpiMetric entity) {
+        kpiMetricRegistry.invalidate();
         return kpiMetricRepository.save(entity);
     }
 
     @Override
     public KpiMetric update(Long id, KpiMetric entity) {
         entity.setId(id);
+        kpiMetricRegistry.invalidate();
         return kpiMetricRepository.save(entity);
     }
 
@@ -156,6 +210,7 @@ public class KpiServiceImpl implements KpiService {
 
     @Override
     public void deleteById(Long id) {
+        kpiMetricRegistry.invalidate();
         kpiMetricRepository.deleteById(id);
     }
 
@@ -163,6 +218,7 @@ public class KpiServiceImpl implements KpiService {
     public KpiMetric deactivate(Long id) {
         return kpiMetricRepository.findById(id)
                 .map(metric -> {
+                    kpiMetricRegistry.invalidate();
                     metric.setActif(false);
                     return kpiMetricRepository.save(metric);
                 })
@@ -173,6 +229,7 @@ public class KpiServiceImpl implements KpiService {
     public KpiMetric reactivate(Long id) {
         return kpiMetricRepository.findById(id)
                 .map(metric -> {
+                    kpiMetricRegistry.invalidate();
                     metric.setActif(true);
                     return kpiMetricRepository.save(metric);
                 })
@@ -217,66 +274,40 @@ public class KpiServiceImpl implements KpiService {
 
     @Override
     public KpiValueDTO recordKpiValue(Long metricId, Long projectId, Double value, String comment) {
-        KpiMetric metric = kpiMetricRepository.findById(metricId)
-                .orElseThrow(() -> new EntityNotFoundException("KPI metric not found with ID: " + metricId));
+        KpiMetricDefinition metric = kpiMetricRegistry.get(metricId);
         
         Project project = projectRepository.findById(projectId)
                 .orElseThrow(() -> new EntityNotFoundException("Project not found with ID: " + projectId));
         
-        KpiValue kpiValue = new KpiValue();
-        kpiValue.setMetric(metric);
-        kpiValue.setProject(project);
-        kpiValue.setValue(value);
-        kpiValue.setMeasurementDate(LocalDateTime.now());
-        kpiValue.setComment(comment);
-        
-        // Set the portfolio phase based on the metric's phase (if it has one)
-        // The database trigger will enforce this rule, but we also implement it here
-        // for better application-level consistency
-        if (metric.getPortfolioPhase() != null) {
-            kpiValue.setPortfolioPhase(metric.getPortfolioPhase());
-        }
-        
-        // Check thresholds
-        if (metric.getThresholdWarning() != null) {
-            boolean breached;
-            if (Boolean.TRUE.equals(metric.getHigherIsBetter())) {
-                breached = value < metric.getThresholdWarning();
-            } else {
-                breached = value > metric.getThresholdWarning();
-            }
-            kpiValue.setWarningThresholdBreached(breached);
-        }
+        KpiValue kpiValue = kpiCalculator.newValue(metric, project, value, comment, LocalDateTime.now());
+        kpiValue = kpiValueRepository.save(kpiValue);
         
-        if (metric.getThresholdCritical() != null) {
-            boolean breached;
-            if (Boolean.TRUE.equals(metric.getHigherIsBetter())) {
-                breached = value < metric.getThresholdCritical();
-            } else {
-                breached = value > metric.getThresholdCritical();
-            }
-            kpiValue.setCriticalThresholdBreached(breached);
+        // Queue the breach notification in the same transaction as the value
+        KpiNotification notification = KpiNotification.forValue(kpiValue);
+        if (notification != null) {
+            kpiNotificationRepository.save(notification);
         }
-        
-        kpiValue = kpiValueRepository.save(kpiValue);
+        kpiRollupWriter.addAll(Collections.singletonList(kpiValue));
         
         return kpiValueToDto(kpiValue);
     }
 
     @Override
     public List<KpiValueDTO> findLatestKpiValuesForProject(Long projectId) {
-        Project project = projectRepository.findById(projectId)
-                .orElseThrow(() -> new EntityNotFoundException("Project not found with ID: " + projectId));
-        
-        // Get all metrics
-        List<KpiMetric> metrics = kpiMetricRepository.findAll();
+        if (!projectRepository.existsById(projectId)) {
+            throw new EntityNotFoundException("Project not found with ID: " + projectId);
+        }
         
-        // For each metric, find the latest value for this project
+        // One greatest-per-group query instead of one query per metric.
+        // Rows are ordered by metric then by descending ID, so the first row
+        // of each metric wins when two values share the same measurement date.
         List<KpiValueDTO> result = new ArrayList<>();
-        for (KpiMetric metric : metrics) {
-            List<KpiValue> values = kpiValueRepository.findLatestForProjectAndMetric(project, metric);
-            if (!values.isEmpty()) {
-                result.add(kpiValueToDto(values.get(0)));
+        Long previousMetricId = null;
+        for (KpiValue value : kpiValueRepository.findLatestForProject(projectId)) {
+            Long metricId = value.getMetric().getId();
+            if (!metricId.equals(previousMetricId)) {
+                result.add(kpiValueToDto(value));
+                previousMetricId = metricId;
             }
         }
         
@@ -284,208 +315,165 @@ public class KpiServiceImpl implements KpiService {
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<KpiValueDTO> findKpiValuesForProjectInDateRange(Long projectId, LocalDateTime startDate, LocalDateTime endDate) {
-        Project project = projectRepository.findById(projectId)
-                .orElseThrow(() -> new EntityNotFoundException("Project not found with ID: " + projectId));
-        
-        // Get values in the date range
-        List<KpiValue> values = kpiValueRepository.findByMeasurementDateBetween(startDate, endDate).stream()
-                .filter(value -> value.getProject().equals(project))
-                .collect(Collectors.toList());
-        
-        return values.stream()
-                .map(this::kpiValueToDto)
-                .collect(Collectors.toList());
+        try (Stream<KpiValueDTO> values = streamKpiValueHistory(projectId, null, startDate, endDate)) {
+            return values.collect(Collectors.toList());
+        }
     }
 
     @Override
-    public void updateKpisAutomatically() {
-        log.info("Starting automatic KPI updates");
-        
-        List<KpiMetric> metrics = kpiMetricRepository.findMetricsRequiringUpdates();
-        List<Project> projects = projectRepository.findAll();
-        
-        for (KpiMetric metric : metrics) {
-            log.info("Updating KPI: {}", metric.getCode());
-            
-            for (Project project : projects) {
-                try {
-                    Double value = calculateKpiValue(metric.getId(), project.getId());
-                    if (value != null) {
-                        recordKpiValue(metric.getId(), project.getId(), value, 
-                                "Automatically calculated on " + LocalDateTime.now());
-                    }
-                } catch (Exception e) {
-                    log.error("Error calculating KPI {} for project {}: {}", 
-                            metric.getCode(), project.getName(), e.getMessage(), e);
-                }
-            }
+    @Transactional(readOnly = true)
+    public KpiValuePageDTO findKpiValueHistoryPage(Long projectId, List<Long> metricIds, LocalDateTime startDate,
+                                                   LocalDateTime endDate, LocalDateTime afterDate, Long afterId,
+                                                   int size) {
+        checkHistoryPeriod(projectId, startDate, endDate);
+        if (size < 1 || size > kpiValueHistoryReader.getPageSize()) {
+            throw new IllegalArgumentException("size must be between 1 and " + kpiValueHistoryReader.getPageSize());
+        }
+        if ((afterDate == null) != (afterId == null)) {
+            throw new IllegalArgumentException("afterDate and afterId must be given together");
         }
         
-        log.info("Completed automatic KPI updates");
+        // One extra value tells whether there is a next page
+        List<KpiValue> values = afterId == null
+                ? kpiValueHistoryReader.readPage(projectId, metricIds, startDate, 0, endDate, size + 1)
+                : kpiValueHistoryReader.readPage(projectId, metricIds, afterDate, afterId, endDate, size + 1);
+        
+        KpiValuePageDTO page = new KpiValuePageDTO();
+        if (values.size() > size) {
+            values = values.subList(0, size);
+            KpiValue last = values.get(size - 1);
+            page.setNextAfterDate(last.getMeasurementDate());
+            page.setNextAfterId(last.getId());
+        }
+        page.setValues(values.stream()
+                .map(this::kpiValueToDto)
+                .collect(Collectors.toList()));
+        return page;
     }
 
     @Override
-    public void checkThresholdsAndNotify() {
-        log.info("Checking for KPI threshold breaches");
-        
-        List<KpiValue> breachedValues = kpiValueRepository.findBreachedThresholdsWithoutNotifications();
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Stream<KpiValueDTO> streamKpiValueHistory(Long projectId, List<Long> metricIds,
+                                                     LocalDateTime startDate, LocalDateTime endDate) {
+        checkHistoryPeriod(projectId, startDate, endDate);
         
-        for (KpiValue value : breachedValues) {
-            try {
-                // In a real implementation, this would send an email or other notification
-                String level = value.getCriticalThresholdBreached() ? "CRITICAL" : "WARNING";
-                log.info("KPI Threshold Breach Notification - Level: {}, Project: {}, Metric: {}, Value: {}", 
-                        level, value.getProject().getName(), value.getMetric().getName(), value.getValue());
-                
-                // Mark as notified
-                value.setNotificationSent(true);
-                kpiValueRepository.save(value);
-            } catch (Exception e) {
-                log.error("Error sending notification for KPI threshold breach: {}", e.getMessage(), e);
-            }
+        // Each page is read in its own transaction as the stream is consumed
+        return kpiValueHistoryReader.stream(projectId, metricIds, startDate, endDate, this::kpiValueToDto);
+    }
+    
+    private void checkHistoryPeriod(Long projectId, LocalDateTime startDate, LocalDateTime endDate) {
+        if (!projectRepository.existsById(projectId)) {
+            throw new EntityNotFoundException("Project not found with ID: " + projectId);
+        }
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("startDate must not be after endDate");
         }
-        
-        log.info("Completed threshold breach check");
     }
 
     @Override
-    public Double calculateKpiValue(Long metricId, Long projectId) {
-        KpiMetric metric = kpiMetricRepository.findById(metricId)
-                .orElseThrow(() -> new EntityNotFoundException("KPI metric not found with ID: " + metricId));
-        
-        Project project = projectRepository.findById(projectId)
-                .orElseThrow(() -> new EntityNotFoundException("Project not found with ID: " + projectId));
+    @Transactional(readOnly = true)
+    public KpiTrendDTO findKpiTrend(Long projectId, List<Long> metricIds, LocalDateTime startDate,
+                                    LocalDateTime endDate, int maxPoints) {
+        if (!projectRepository.existsById(projectId)) {
+            throw new EntityNotFoundException("Project not found with ID: " + projectId);
+        }
+        if (maxPoints < 1) {
+            throw new IllegalArgumentException("maxPoints must be at least 1");
+        }
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("startDate must not be after endDate");
+        }
         
-        // Exit early if no calculation formula is defined
-        if (metric.getCalculationFormula() == null || metric.getCalculationFormula().isEmpty()) {
-            log.debug("No calculation formula defined for KPI: {}", metric.getCode());
-            return null;
+        // Finest resolution that keeps each metric within the requested number of points
+        KpiValueRollup.Resolution resolution = KpiValueRollup.Resolution.MONTH;
+        for (KpiValueRollup.Resolution candidate : KpiValueRollup.Resolution.values()) {
+            if (candidate.estimateBuckets(startDate, endDate) <= maxPoints) {
+                resolution = candidate;
+                break;
+            }
         }
         
-        log.debug("Calculating KPI {} for project {}", metric.getCode(), project.getName());
+        LocalDateTime from = resolution.bucketStart(startDate);
+        List<KpiValueRollup> rollups = metricIds == null || metricIds.isEmpty()
+                ? kpiValueRollupRepository.findForProject(projectId, resolution, from, endDate)
+                : kpiValueRollupRepository.findForProjectAndMetrics(projectId, metricIds, resolution, from, endDate);
+        
+        List<KpiTrendPointDTO> points = rollups.stream()
+                .map(rollup -> KpiTrendPointDTO.builder()
+                        .metricId(rollup.getMetricId())
+                        .bucketStart(rollup.getBucketStart())
+                        .count(rollup.getCount())
+                        .minValue(rollup.getMinValue())
+                        .maxValue(rollup.getMaxValue())
+                        .averageValue(rollup.getAverageValue())
+                        .lastValue(rollup.getLastValue())
+                        .lastMeasurementDate(rollup.getLastMeasurementDate())
+                        .build())
+                .collect(Collectors.toList());
         
-        // Implement specific calculations based on KPI code
-        switch (metric.getCode()) {
-            case "COMPLETION_RATE":
-                // Calculate completion rate based on project's actions progress
-                return calculateCompletionRate(project);
-                
-            case "BUDGET_UTILIZATION":
-                // Calculate budget utilization based on project's budget data
-                return calculateBudgetUtilization(project);
-                
-            default:
-                // For custom formulas, try to evaluate the formula string
-                try {
-                    return evaluateCustomFormula(metric.getCalculationFormula(), project);
-                } catch (Exception e) {
-                    log.warn("Error evaluating custom formula for KPI {}: {}", 
-                            metric.getCode(), e.getMessage());
-                    return null;
-                }
-        }
+        return KpiTrendDTO.builder()
+                .projectId(projectId)
+                .resolution(resolution.name())
+                .startDate(startDate)
+                .endDate(endDate)
+                .points(points)
+                .build();
     }
-    
-    /**
-     * Calculate the completion rate of a project based on actions progress.
-     * 
-     * @param project The project to calculate completion rate for
-     * @return The completion rate as a percentage (0-100)
-     */
-    private Double calculateCompletionRate(Project project) {
-        // Use the project's existing calculateProgress method
-        return project.calculateProgress();
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long rebuildKpiRollups() {
+        // Each page of values commits on its own, so no transaction is held here
+        return kpiRollupRebuilder.rebuildAll();
     }
-    
-    /**
-     * Calculate the budget utilization of a project.
-     * 
-     * @param project The project to calculate budget utilization for
-     * @return The budget utilization as a percentage (0-100)
-     */
-    private Double calculateBudgetUtilization(Project project) {
-        if (project.getBudgets() == null || project.getBudgets().isEmpty()) {
-            log.debug("No budget data available for project: {}", project.getName());
-            return null;
-        }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long archiveKpiValues() {
+        // Each batch of values is moved in its own transaction, so no transaction is held here
+        return kpiValueArchiver.archiveExpired();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void updateKpisAutomatically() {
+        log.info("Starting automatic KPI updates");
         
-        // Get the most recent budget entry
-        // In a real implementation, you might want to handle multiple budget entries differently
-        ProjectBudget budget = project.getBudgets().stream()
-                .filter(b -> b.getActif())
-                .findFirst()
-                .orElse(null);
+        // Each chunk of projects commits on its own, so no transaction is held here
+        KpiRecomputeReport report = kpiRecomputeEngine.recomputeAll();
         
-        if (budget == null || budget.getInitialBudget() == null || 
-                budget.getInitialBudget().doubleValue() == 0) {
-            log.debug("Invalid budget data for project: {}", project.getName());
-            return null;
+        for (KpiRecomputeReport.ChunkResult chunk : report.getChunks()) {
+            if (chunk.getFailures() > 0) {
+                log.warn("KPI update chunk {} had {} failures out of {} pairs{}", chunk.getIndex(),
+                        chunk.getFailures(), chunk.getPairsEvaluated(), chunk.isRolledBack() ? " (rolled back)" : "");
+            }
         }
         
-        return budget.getConsumptionPercentage();
+        log.info("Completed automatic KPI updates: {}", report);
     }
-    
-    /**
-     * Evaluate a custom formula for KPI calculation.
-     * 
-     * @param formula The formula string to evaluate
-     * @param project The project context for the formula
-     * @return The calculated value
-     */
-    private Double evaluateCustomFormula(String formula, Project project) {
-        // This is a placeholder for a real formula evaluation engine
-        // In a real implementation, you would parse and evaluate the formula
-        // using a library like MVEL, SpEL, or a custom parser
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void checkThresholdsAndNotify() {
+        log.info("Checking for KPI threshold breaches");
         
-        log.debug("Formula evaluation not fully implemented, using placeholder");
+        // Breaches are queued in the outbox when values are recorded and sent as one digest
+        // per direction; each digest commits on its own
+        int sent = kpiNotificationDispatcher.dispatchPending();
         
-        // For now, return a random value as placeholder
-        // This should be replaced with actual formula evaluation logic
-        return Math.random() * 100.0;
+        log.info("Completed threshold breach check: {} digests sent", sent);
     }
 
     @Override
-    public byte[] exportKpiData(Long projectId, String format) {
+    public Double calculateKpiValue(Long metricId, Long projectId) {
+        KpiMetricDefinition metric = kpiMetricRegistry.get(metricId);
+        
         Project project = projectRepository.findById(projectId)
                 .orElseThrow(() -> new EntityNotFoundException("Project not found with ID: " + projectId));
         
-        // Get KPI data for the project
-        List<KpiValueDTO> kpiValues = findLatestKpiValuesForProject(projectId);
-        
-        // Convert to export format
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            ExportFormat exportFormat = ExportFormat.valueOf(format.toUpperCase());
-            ExportService exportService = exportServiceFactory.getExportService(exportFormat);
-            
-            // Define headers
-            Map<String, String> headers = new LinkedHashMap<>();
-            headers.put("metricCode", "Metric Code");
-            headers.put("metricName", "Metric Name");
-            headers.put("value", "Value");
-            headers.put("measurementDate", "Measurement Date");
-            headers.put("warningThresholdBreached", "Warning Threshold Breached");
-            headers.put("criticalThresholdBreached", "Critical Threshold Breached");
-            
-            // Configure export options
-            ExportOptions options = ExportOptions.builder()
-                    .title("KPI Report - " + project.getName())
-                    .author("Project Management System")
-                    .description("KPI values for project: " + project.getName())
-                    .includeHeaders(true)
-                    .formatDates(true)
-                    .formatNumbers(true)
-                    .datePattern("yyyy-MM-dd HH:mm:ss")
-                    .build();
-            
-            // Perform export
-            exportService.export(kpiValues, headers, outputStream, options);
-            
-            return outputStream.toByteArray();
-        } catch (Exception e) {
-            log.error("Error exporting KPI data: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to export KPI data: " + e.getMessage(), e);
-        }
+        return kpiCalculator.calculate(metric, project);
     }
 
     /**
@@ -504,94 +492,90 @@ public class KpiServiceImpl implements KpiService {
         Project project = projectRepository.findById(projectId)
                 .orElseThrow(() -> new EntityNotFoundException("Project not found with ID: " + projectId));
         
-        LocalDateTime valueDate = currentDate != null ? currentDate : LocalDateTime.now();
+        // Truncated to the second so the returned values match the stored ones on any column precision
+        LocalDateTime valueDate = (currentDate != null ? currentDate : LocalDateTime.now())
+                .truncatedTo(ChronoUnit.SECONDS);
         
-        List<KpiValueDTO> updatedValues = new ArrayList<>();
+        KpiMetricRegistry.Snapshot registry = kpiMetricRegistry.current();
+        List<KpiMetricDefinition> metrics = new ArrayList<>();
+        for (Long metricId : new LinkedHashSet<>(metricsIds)) {
+            KpiMetricDefinition metric = registry.find(metricId);
+            if (metric != null) {
+                metrics.add(metric);
+            }
+        }
+        if (metrics.size() < new HashSet<>(metricsIds).size()) {
+            log.warn("Some KPI metrics were not found among IDs: {}", metricsIds);
+        }
+        
+        List<KpiValue> newValues = new ArrayList<>();
         
-        for (Long metricId : metricsIds) {
+        for (KpiMetricDefinition metric : metrics) {
             try {
                 // Calculate new value
-                Double calculatedValue = calculateKpiValue(metricId, projectId);
-                
-                // Find or create KPI value
-                KpiMetric metric = kpiMetricRepository.findById(metricId)
-                        .orElseThrow(() -> new EntityNotFoundException("KPI metric not found with ID: " + metricId));
-                
-                KpiValue kpiValue = new KpiValue();
-                kpiValue.setMetric(metric);
-                kpiValue.setProject(project);
-                kpiValue.setValue(calculatedValue);
-                kpiValue.setMeasurementDate(valueDate);
-                kpiValue.setComment("Auto-updated via batch process");
+                Double calculatedValue = kpiCalculator.calculate(metric, project);
+                if (calculatedValue == null) {
+                    log.debug("No value calculated for metric ID: {}", metric.getId());
+                    continue;
+                }
                 
-                // Save value
-                KpiValue savedValue = kpiValueRepository.save(kpiValue);
-                updatedValues.add(kpiValueToDto(savedValue));
+                newValues.add(kpiCalculator.newValue(metric, project, calculatedValue,
+                        "Auto-updated via batch process", valueDate));
                 
-                log.debug("Updated KPI value for metric ID: {}, new value: {}", metricId, calculatedValue);
+                log.debug("Updated KPI value for metric ID: {}, new value: {}", metric.getId(), calculatedValue);
             } catch (Exception e) {
-                log.error("Error updating KPI value for metric ID: {}", metricId, e);
+                log.error("Error updating KPI value for metric ID: {}", metric.getId(), e);
                 // Continue with other metrics even if one fails
             }
         }
         
-        return updatedValues;
+        if (newValues.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        // Insert all values in one JDBC batch, which sets their generated IDs
+        kpiValueBatchWriter.insertAll(newValues);
+        
+        return newValues.stream()
+                .map(this::kpiValueToDto)
+                .collect(Collectors.toList());
     }
 
     @Override
-    public String exportKpiData(Long projectId, ExportFormat format) {
+    @Transactional(readOnly = true)
+    public ExportWriter exportKpiData(Long projectId, ExportFormat format) {
         log.debug("Exporting KPI data for project ID: {} in format: {}", projectId, format);
         
-        // Validate project
+        // Validate project before anything is written
         Project project = projectRepository.findById(projectId)
                 .orElseThrow(() -> new EntityNotFoundException("Project not found with ID: " + projectId));
         
-        // Get latest KPI values for project
-        List<KpiValueDTO> kpiValues = findLatestKpiValuesForProject(projectId);
-        
-        if (kpiValues.isEmpty()) {
-            return "No KPI data available for export";
-        }
-        
-        // Get export service based on requested format
-        ExportService exportService = exportServiceFactory.getExportService(format);
-        
-        // Set export options
+        // Configure export options
         ExportOptions options = ExportOptions.builder()
-                .title("KPI Report for Project: " + project.getName())
-                .description("Generated on " + LocalDateTime.now())
+                .title("KPI Report - " + project.getName())
+                .author("Project Management System")
+                .description("KPI values for project: " + project.getName())
+                .includeHeaders(true)
+                .formatDates(true)
+                .formatNumbers(true)
+                .datePattern("yyyy-MM-dd HH:mm:ss")
                 .build();
         
-        // Convert KpiValueDTO list to a format appropriate for export
-        List<Map<String, Object>> exportData = kpiValues.stream()
-                .map(kpi -> {
-                    Map<String, Object> data = new HashMap<>();
-                    data.put("Metric Name", kpi.getMetricName());
-                    data.put("Value", kpi.getValue());
-                    data.put("Measurement Date", kpi.getMeasurementDate());
-                    // These fields aren't in KpiValueDTO, so we'll remove them
-                    // data.put("Target", kpi.getTarget());
-                    // data.put("Status", calculateStatus(kpi.getValue(), kpi.getTarget()));
-                    return data;
-                })
-                .collect(Collectors.toList());
-        
-        // Define headers for the export
-        Map<String, String> headers = new LinkedHashMap<>();
-        headers.put("Metric Name", "Metric Name");
-        headers.put("Value", "Value");
-        headers.put("Measurement Date", "Measurement Date");
-        
-        // Use outputStream for the export
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            // Export the data using the proper method signature
-            exportService.export(exportData, headers, outputStream, options);
-            
-            // Return the result as a string
-            return outputStream.toString();
-        } catch (Exception e) {
-            log.error("Error exporting KPI data: {}", e.getMessage(), e);
-            return "Error exporting KPI data: " + e.getMessage();
-        }
+        return streamingExporter.writer(format,
+                () -> firstPerMetric(kpiValueRepository.streamLatestExportRowsForProject(projectId)),
+                KpiValueExportRow.headers(), options);
+    }
+    
+    /**
+     * Keep the first row of each metric, as {@link #findLatestKpiValuesForProject} does,
+     * when two values of a metric share the latest measurement date.
+     */
+    private static Stream<KpiValueExportRow> firstPerMetric(Stream<KpiValueExportRow> rows) {
+        Long[] previousMetricId = new Long[1];
+        return rows.filter(row -> {
+            boolean first = !row.getMetricId().equals(previousMetricId[0]);
+            previousMetricId[0] = row.getMetricId();
+            return first;
+        });
     }
 } 
\ No newline at end of file
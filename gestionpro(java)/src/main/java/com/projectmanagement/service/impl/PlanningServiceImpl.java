@@ -1,26 +1,43 @@
 package com.projectmanagement.service.impl;
 
 import com.projectmanagement.dto.ActionDTO;
+import com.projectmanagement.dto.ActionExportRow;
 import com.projectmanagement.dto.PlanningDTO;
+import com.projectmanagement.dto.PlanningGanttDTO;
+import com.projectmanagement.dto.PlanningScheduleDTO;
 import com.projectmanagement.entity.Action;
 import com.projectmanagement.entity.Planning;
 import com.projectmanagement.entity.PortfolioPhase;
 import com.projectmanagement.entity.Project;
+import com.projectmanagement.export.ExportFormat;
+import com.projectmanagement.export.ExportOptions;
+import com.projectmanagement.export.ExportWriter;
+import com.projectmanagement.export.StreamingExporter;
+import com.projectmanagement.planning.CriticalPathSchedule;
+import com.projectmanagement.planning.DependencyGraph;
+import com.projectmanagement.planning.DependencyIndex;
 import com.projectmanagement.repository.ActionRepository;
 import com.projectmanagement.repository.PlanningRepository;
 import com.projectmanagement.repository.PortfolioPhaseRepository;
 import com.projectmanagement.repository.ProjectRepository;
+import com.projectmanagement.repository.SubActionRepository;
 import com.projectmanagement.service.ActionService;
 import com.projectmanagement.service.BaseServiceImpl;
 import com.projectmanagement.service.PlanningService;
+import com.projectmanagement.service.ProgressRollupService;
+import com.projectmanagement.service.ProgressService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -34,7 +51,12 @@ public class PlanningServiceImpl extends BaseServiceImpl<Planning, Long, Plannin
     private final ProjectRepository projectRepository;
     private final PortfolioPhaseRepository phaseRepository;
     private final ActionRepository actionRepository;
+    private final SubActionRepository subActionRepository;
     private final ActionService actionService;
+    private final ProgressService progressService;
+    private final ProgressRollupService progressRollupService;
+    private final StreamingExporter streamingExporter;
+    private final DependencyIndex dependencyIndex;
 
     @Autowired
     public PlanningServiceImpl(
@@ -42,12 +64,22 @@ public class PlanningServiceImpl extends BaseServiceImpl<Planning, Long, Plannin
             ProjectRepository projectRepository,
             PortfolioPhaseRepository phaseRepository,
             ActionRepository actionRepository,
-            ActionService actionService) {
+            SubActionRepository subActionRepository,
+            ActionService actionService,
+            ProgressService progressService,
+            ProgressRollupService progressRollupService,
+            StreamingExporter streamingExporter,
+            DependencyIndex dependencyIndex) {
         super(repository);
         this.projectRepository = projectRepository;
         this.phaseRepository = phaseRepository;
         this.actionRepository = actionRepository;
+        this.subActionRepository = subActionRepository;
         this.actionService = actionService;
+        this.progressService = progressService;
+        this.progressRollupService = progressRollupService;
+        this.streamingExporter = streamingExporter;
+        this.dependencyIndex = dependencyIndex;
     }
 
     @Override
@@ -56,9 +88,41 @@ public class PlanningServiceImpl extends BaseServiceImpl<Planning, Long, Plannin
             return null;
         }
 
+        return toDTOs(Collections.singletonList(planning)).get(0);
+    }
+
+    @Override
+    public List<PlanningDTO> toDTOs(List<Planning> plannings) {
+        Map<Long, Double> progress = progressService.findPlanningProgress(plannings.stream()
+                .map(Planning::getId)
+                .collect(Collectors.toList()));
+        
+        // Convert the actions of all plannings at once so their progress is computed in one query
+        List<Action> actions = new ArrayList<>();
+        for (Planning planning : plannings) {
+            if (planning.getActions() != null) {
+                actions.addAll(planning.getActions());
+            }
+        }
+        List<ActionDTO> actionDTOs = actionService.toDTOs(actions);
+        
+        List<PlanningDTO> dtos = new ArrayList<>(plannings.size());
+        int next = 0;
+        for (Planning planning : plannings) {
+            int actionCount = planning.getActions() != null ? planning.getActions().size() : 0;
+            double planningProgress = planning.getId() != null
+                    ? progress.getOrDefault(planning.getId(), 0.0)
+                    : planning.calculateProgress();
+            dtos.add(toDTO(planning, planningProgress, actionDTOs.subList(next, next + actionCount)));
+            next += actionCount;
+        }
+        return dtos;
+    }
+
+    private PlanningDTO toDTO(Planning planning, double progress, List<ActionDTO> actionDTOs) {
         PlanningDTO dto = PlanningDTO.builder()
-                .progress(planning.calculateProgress())
-                .actions(new ArrayList<>())
+                .progress(progress)
+                .actions(new ArrayList<>(actionDTOs))
                 .build();
 
         // Set the base fields
@@ -78,14 +142,6 @@ public class PlanningServiceImpl extends BaseServiceImpl<Planning, Long, Plannin
             dto.setPhaseName(planning.getPhase().getName());
         }
 
-        // Convert actions to DTOs (only include basic info to avoid circular references)
-        if (planning.getActions() != null) {
-            planning.getActions().forEach(action -> {
-                ActionDTO actionDTO = actionService.toDTO(action);
-                dto.getActions().add(actionDTO);
-            });
-        }
-
         return dto;
     }
 
@@ -125,9 +181,7 @@ public class PlanningServiceImpl extends BaseServiceImpl<Planning, Long, Plannin
         Project project = projectRepository.findById(projectId)
                 .orElseThrow(() -> new EntityNotFoundException("Project not found with id: " + projectId));
         
-        return repository.findByProject(project).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return toDTOs(repository.findByProject(project));
     }
 
     @Override
@@ -137,9 +191,7 @@ public class PlanningServiceImpl extends BaseServiceImpl<Planning, Long, Plannin
         Project project = projectRepository.findById(projectId)
                 .orElseThrow(() -> new EntityNotFoundException("Project not found with id: " + projectId));
         
-        return repository.findByProjectAndActifTrue(project).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return toDTOs(repository.findByProjectAndActifTrue(project));
     }
 
     @Override
@@ -149,9 +201,7 @@ public class PlanningServiceImpl extends BaseServiceImpl<Planning, Long, Plannin
         PortfolioPhase phase = phaseRepository.findById(phaseId)
                 .orElseThrow(() -> new EntityNotFoundException("PortfolioPhase not found with id: " + phaseId));
         
-        return repository.findByPhase(phase).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return toDTOs(repository.findByPhase(phase));
     }
 
     @Override
@@ -168,22 +218,36 @@ public class PlanningServiceImpl extends BaseServiceImpl<Planning, Long, Plannin
                 .map(this::toDTO);
     }
 
+    @Override
+    @Transactional
+    public Planning update(Long id, Planning planning) {
+        Long projectBefore = repository.findProjectIdById(id);
+        Planning updatedPlanning = progressRollupService.changePlanning(id, () -> super.update(id, planning));
+        dependencyIndex.projectChanged(projectBefore, repository.findProjectIdById(id));
+        return updatedPlanning;
+    }
+
+    @Override
+    @Transactional
+    public void deleteById(Long id) {
+        Long projectBefore = repository.findProjectIdById(id);
+        progressRollupService.changePlanning(id, () -> {
+            super.deleteById(id);
+            return null;
+        });
+        dependencyIndex.projectChanged(projectBefore, null);
+    }
+
     @Override
     @Transactional
     public PlanningDTO updateProgress(Long planningId) {
         log.debug("Updating progress for planning with ID: {}", planningId);
         
-        Planning planning = repository.findById(planningId)
-                .orElseThrow(() -> new EntityNotFoundException("Planning not found with id: " + planningId));
-        
-        // Update the progress of all actions in the planning
-        planning.getActions().forEach(action -> {
-            actionService.updateProgress(action.getId());
-        });
+        // Rebuilds the stored roll-ups of the actions, the planning and its project
+        progressRollupService.recalculatePlanning(planningId);
         
-        // The progress is calculated by the entity's calculateProgress method
-        // which aggregates the progress of all actions
-        Planning updatedPlanning = repository.save(planning);
+        Planning updatedPlanning = repository.findById(planningId)
+                .orElseThrow(() -> new EntityNotFoundException("Planning not found with id: " + planningId));
         
         return toDTO(updatedPlanning);
     }
@@ -193,6 +257,13 @@ public class PlanningServiceImpl extends BaseServiceImpl<Planning, Long, Plannin
     public PlanningDTO addAction(Long planningId, Long actionId) {
         log.debug("Adding action with ID: {} to planning with ID: {}", actionId, planningId);
         
+        Long projectBefore = actionRepository.findProjectIdById(actionId);
+        Planning planning = progressRollupService.changeAction(actionId, () -> moveAction(planningId, actionId));
+        dependencyIndex.projectChanged(projectBefore, actionRepository.findProjectIdById(actionId));
+        return toDTO(planning);
+    }
+
+    private Planning moveAction(Long planningId, Long actionId) {
         Planning planning = repository.findById(planningId)
                 .orElseThrow(() -> new EntityNotFoundException("Planning not found with id: " + planningId));
         
@@ -204,18 +275,12 @@ public class PlanningServiceImpl extends BaseServiceImpl<Planning, Long, Plannin
             throw new IllegalArgumentException("Action is already in this planning");
         }
         
-        // If action is already in another planning, remove it from there
-        if (action.getPlanning() != null) {
-            action.getPlanning().removeAction(action);
-        }
-        
-        // Add the action to the planning
+        // Add the action to the planning: it leaves its previous planning through its
+        // foreign key, as removing it from that planning's actions would delete it as an orphan
         planning.addAction(action);
         
         // Save the planning
-        Planning updatedPlanning = repository.save(planning);
-        
-        return toDTO(updatedPlanning);
+        return repository.save(planning);
     }
 
     @Override
@@ -223,6 +288,13 @@ public class PlanningServiceImpl extends BaseServiceImpl<Planning, Long, Plannin
     public PlanningDTO removeAction(Long planningId, Long actionId) {
         log.debug("Removing action with ID: {} from planning with ID: {}", actionId, planningId);
         
+        Long projectBefore = actionRepository.findProjectIdById(actionId);
+        Planning planning = progressRollupService.changeAction(actionId, () -> detachAction(planningId, actionId));
+        dependencyIndex.projectChanged(projectBefore, actionRepository.findProjectIdById(actionId));
+        return toDTO(planning);
+    }
+
+    private Planning detachAction(Long planningId, Long actionId) {
         Planning planning = repository.findById(planningId)
                 .orElseThrow(() -> new EntityNotFoundException("Planning not found with id: " + planningId));
         
@@ -238,8 +310,209 @@ public class PlanningServiceImpl extends BaseServiceImpl<Planning, Long, Plannin
         planning.removeAction(action);
         
         // Save the planning
-        Planning updatedPlanning = repository.save(planning);
+        return repository.save(planning);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ExportWriter exportPlanning(Long planningId, ExportFormat format) {
+        log.debug("Exporting actions of planning with ID: {} in format: {}", planningId, format);
         
-        return toDTO(updatedPlanning);
+        if (!repository.existsById(planningId)) {
+            throw new EntityNotFoundException("Planning not found with id: " + planningId);
+        }
+        
+        ExportOptions options = ExportOptions.builder()
+                .title("Planning " + planningId)
+                .author("Project Management System")
+                .description("Actions of planning " + planningId)
+                .includeHeaders(true)
+                .formatDates(true)
+                .formatNumbers(true)
+                .build();
+        
+        return streamingExporter.writer(format, () -> actionRepository.streamExportRowsByPlanningId(planningId),
+                ActionExportRow.headers(), options);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PlanningScheduleDTO computeSchedule(Long planningId) {
+        if (!repository.existsById(planningId)) {
+            throw new EntityNotFoundException("Planning not found with id: " + planningId);
+        }
+        return toScheduleDTO(actionRepository.findScheduleRowsByPlanningId(planningId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PlanningScheduleDTO computeProjectSchedule(Long projectId) {
+        if (!projectRepository.existsById(projectId)) {
+            throw new EntityNotFoundException("Project not found with id: " + projectId);
+        }
+        return toScheduleDTO(actionRepository.findScheduleRowsByProjectId(projectId));
+    }
+
+    private PlanningScheduleDTO toScheduleDTO(List<Object[]> rows) {
+        long start = System.nanoTime();
+        DependencyGraph graph = DependencyGraph.fromRows(rows);
+        CriticalPathSchedule schedule = CriticalPathSchedule.compute(graph);
+
+        int[] order = schedule.getOrder();
+        int n = order.length;
+        long[] actionIds = new long[n];
+        int[] earliestStart = new int[n];
+        int[] earliestFinish = new int[n];
+        int[] latestStart = new int[n];
+        int[] latestFinish = new int[n];
+        int[] totalFloat = new int[n];
+        for (int i = 0; i < n; i++) {
+            int u = order[i];
+            actionIds[i] = graph.actionId(u);
+            earliestStart[i] = schedule.earliestStart(u);
+            earliestFinish[i] = schedule.earliestFinish(u);
+            latestStart[i] = schedule.latestStart(u);
+            latestFinish[i] = schedule.latestFinish(u);
+            totalFloat[i] = schedule.totalFloat(u);
+        }
+        int[] critical = schedule.getCriticalPath();
+        long[] criticalPath = new long[critical.length];
+        for (int i = 0; i < critical.length; i++) {
+            criticalPath[i] = graph.actionId(critical[i]);
+        }
+        log.debug("Scheduled {} actions and {} dependencies in {} ms", n, graph.edgeCount(),
+                (System.nanoTime() - start) / 1_000_000);
+
+        return PlanningScheduleDTO.builder()
+                .startDate(graph.getOrigin())
+                .endDate(graph.getOrigin().plusDays(Math.max(0, schedule.getDuration() - 1)))
+                .duration(schedule.getDuration())
+                .actionIds(actionIds)
+                .earliestStart(earliestStart)
+                .earliestFinish(earliestFinish)
+                .latestStart(latestStart)
+                .latestFinish(latestFinish)
+                .totalFloat(totalFloat)
+                .criticalPath(criticalPath)
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PlanningGanttDTO findGantt(Long planningId) {
+        List<Object[]> projectRows = repository.findProjectRowById(planningId);
+        if (projectRows.isEmpty()) {
+            throw new EntityNotFoundException("Planning not found with id: " + planningId);
+        }
+        long start = System.nanoTime();
+        List<Object[]> actions = actionRepository.findGanttRowsByPlanningId(planningId);
+        List<Object[]> subActions = subActionRepository.findGanttRowsByPlanningId(planningId);
+        List<Object[]> dependencies = actionRepository.findDependencyEdgesByPlanningId(planningId);
+        LocalDate origin = earliestDate(subActions, 3, 6, earliestDate(actions, 2, 5, null));
+
+        int n = actions.size();
+        long[] actionIds = new long[n];
+        String[] actionNames = new String[n];
+        Integer[] actionStarts = new Integer[n];
+        Integer[] actionPlannedEnds = new Integer[n];
+        Integer[] actionActualEnds = new Integer[n];
+        double[] actionProgress = new double[n];
+        String[] actionStatuses = new String[n];
+        String[] actionResponsables = new String[n];
+        for (int i = 0; i < n; i++) {
+            Object[] row = actions.get(i);
+            actionIds[i] = ((Number) row[0]).longValue();
+            actionNames[i] = (String) row[1];
+            actionStarts[i] = dayOffset(origin, row[2]);
+            actionPlannedEnds[i] = dayOffset(origin, row[3]);
+            actionActualEnds[i] = dayOffset(origin, row[4]);
+            int subActionCount = row[6] != null ? ((Number) row[6]).intValue() : 0;
+            if (subActionCount > 0) {
+                int completed = row[7] != null ? ((Number) row[7]).intValue() : 0;
+                actionProgress[i] = ((double) completed / subActionCount) * 100;
+            } else {
+                actionProgress[i] = row[5] != null ? ((Number) row[5]).doubleValue() : 0;
+            }
+            actionStatuses[i] = (String) row[8];
+            if (row[9] != null || row[10] != null) {
+                actionResponsables[i] = row[9] + " " + row[10];
+            }
+        }
+
+        int m = subActions.size();
+        long[] subActionIds = new long[m];
+        long[] subActionActionIds = new long[m];
+        String[] subActionNames = new String[m];
+        Integer[] subActionStarts = new Integer[m];
+        Integer[] subActionPlannedEnds = new Integer[m];
+        Integer[] subActionActualEnds = new Integer[m];
+        String[] subActionStatuses = new String[m];
+        for (int i = 0; i < m; i++) {
+            Object[] row = subActions.get(i);
+            subActionIds[i] = ((Number) row[0]).longValue();
+            subActionActionIds[i] = ((Number) row[1]).longValue();
+            subActionNames[i] = (String) row[2];
+            subActionStarts[i] = dayOffset(origin, row[3]);
+            subActionPlannedEnds[i] = dayOffset(origin, row[4]);
+            subActionActualEnds[i] = dayOffset(origin, row[5]);
+            subActionStatuses[i] = (String) row[6];
+        }
+
+        int e = dependencies.size();
+        long[] dependencyActionIds = new long[e];
+        long[] dependencyDependsOnIds = new long[e];
+        for (int i = 0; i < e; i++) {
+            dependencyActionIds[i] = ((Number) dependencies.get(i)[0]).longValue();
+            dependencyDependsOnIds[i] = ((Number) dependencies.get(i)[1]).longValue();
+        }
+        log.debug("Read Gantt chart of planning {}: {} actions, {} sub-actions and {} dependencies in {} ms",
+                planningId, n, m, e, (System.nanoTime() - start) / 1_000_000);
+
+        Object[] project = projectRows.get(0);
+        return PlanningGanttDTO.builder()
+                .planningId(planningId)
+                .projectId(project[0] != null ? ((Number) project[0]).longValue() : null)
+                .projectName((String) project[1])
+                .startDate(origin)
+                .actionIds(actionIds)
+                .actionNames(actionNames)
+                .actionStarts(actionStarts)
+                .actionPlannedEnds(actionPlannedEnds)
+                .actionActualEnds(actionActualEnds)
+                .actionProgress(actionProgress)
+                .actionStatuses(actionStatuses)
+                .actionResponsables(actionResponsables)
+                .subActionIds(subActionIds)
+                .subActionActionIds(subActionActionIds)
+                .subActionNames(subActionNames)
+                .subActionStarts(subActionStarts)
+                .subActionPlannedEnds(subActionPlannedEnds)
+                .subActionActualEnds(subActionActualEnds)
+                .subActionStatuses(subActionStatuses)
+                .dependencyActionIds(dependencyActionIds)
+                .dependencyDependsOnIds(dependencyDependsOnIds)
+                .build();
+    }
+
+    /**
+     * Find the earliest date in columns {@code from} to {@code to - 1} of the rows.
+     *
+     * @param earliest the earliest date so far, or null
+     * @return the earliest date, or null if there is none
+     */
+    private static LocalDate earliestDate(List<Object[]> rows, int from, int to, LocalDate earliest) {
+        for (Object[] row : rows) {
+            for (int column = from; column < to; column++) {
+                LocalDate date = (LocalDate) row[column];
+                if (date != null && (earliest == null || date.isBefore(earliest))) {
+                    earliest = date;
+                }
+            }
+        }
+        return earliest;
+    }
+
+    private static Integer dayOffset(LocalDate origin, Object date) {
+        return date != null ? (int) ChronoUnit.DAYS.between(origin, (LocalDate) date) : null;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,282 @@
+package com.projectmanagement.service.impl;
+
+import com.projectmanagement.kpi.KpiDirtyProjectListener;
+import com.projectmanagement.repository.ActionRepository;
+import com.projectmanagement.repository.InClauses;
+import com.projectmanagement.repository.PlanningRepository;
+import com.projectmanagement.repository.ProjectRepository;
+import com.projectmanagement.service.ProgressRollupService;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Implementation of the ProgressRollupService interface.
+ * <p>
+ * The roll-ups are adjusted with bulk updates, which bypass the entity listeners, so every
+ * planning and project whose roll-up is adjusted, including the previous planning and
+ * project of a moved action or planning, is marked for the KPI updates here.
+ */
+@Service
+@Slf4j
+@Transactional
+public class ProgressRollupServiceImpl implements ProgressRollupService {
+
+    private final ActionRepository actionRepository;
+    private final PlanningRepository planningRepository;
+    private final ProjectRepository projectRepository;
+    private final KpiDirtyProjectListener kpiDirtyProjectListener;
+
+    @Autowired
+    public ProgressRollupServiceImpl(
+            ActionRepository actionRepository,
+            PlanningRepository planningRepository,
+            ProjectRepository projectRepository,
+            KpiDirtyProjectListener kpiDirtyProjectListener) {
+        this.actionRepository = actionRepository;
+        this.planningRepository = planningRepository;
+        this.projectRepository = projectRepository;
+        this.kpiDirtyProjectListener = kpiDirtyProjectListener;
+    }
+
+    @Override
+    public void actionCreated(Long actionId) {
+        actionRepository.flush();
+        apply(Contribution.NONE, syncAction(actionId));
+    }
+
+    @Override
+    public <T> T changeAction(Long actionId, Supplier<T> change) {
+        lockAction(actionId);
+        Contribution before = readContribution(actionId);
+
+        T result = change.get();
+        actionRepository.flush();
+
+        apply(before, syncAction(actionId));
+        return result;
+    }
+
+    @Override
+    public void refreshAction(Long actionId) {
+        lockAction(actionId);
+        apply(readContribution(actionId), syncAction(actionId));
+    }
+
+    @Override
+    public <T> T changePlanning(Long planningId, Supplier<T> change) {
+        planningRepository.findByIdForUpdate(planningId)
+                .orElseThrow(() -> new EntityNotFoundException("Planning not found with id: " + planningId));
+        Long projectBefore = planningRepository.findProjectIdById(planningId);
+
+        T result = change.get();
+        planningRepository.flush();
+
+        // Merging a planning replaces its action list, so rebuild its roll-up from what is left
+        Long projectAfter = planningRepository.findProjectIdById(planningId);
+        planningRepository.rebuildProgressRollupByIdIn(Collections.singletonList(planningId));
+
+        TreeSet<Long> projectIds = new TreeSet<>();
+        if (projectBefore != null) {
+            projectIds.add(projectBefore);
+        }
+        if (projectAfter != null) {
+            projectIds.add(projectAfter);
+        }
+        if (!projectIds.isEmpty()) {
+            lockProjects(projectIds);
+            projectRepository.rebuildProgressRollupByIdIn(projectIds);
+            kpiDirtyProjectListener.markProjects(projectIds);
+        }
+        return result;
+    }
+
+    @Override
+    public <T> T changeProject(Long projectId, Supplier<T> change) {
+        T result = change.get();
+        projectRepository.flush();
+
+        lockProjects(Collections.singleton(projectId));
+        projectRepository.rebuildProgressRollupByIdIn(Collections.singletonList(projectId));
+        kpiDirtyProjectListener.markProjects(Collections.singletonList(projectId));
+        return result;
+    }
+
+    @Override
+    public void recalculatePlanning(Long planningId) {
+        log.debug("Recalculating progress roll-up of planning with ID: {}", planningId);
+        planningRepository.findByIdForUpdate(planningId)
+                .orElseThrow(() -> new EntityNotFoundException("Planning not found with id: " + planningId));
+
+        rebuildPlannings(Collections.singletonList(planningId));
+        Long projectId = planningRepository.findProjectIdById(planningId);
+        if (projectId != null) {
+            lockProjects(Collections.singleton(projectId));
+            projectRepository.rebuildProgressRollupByIdIn(Collections.singletonList(projectId));
+        }
+        kpiDirtyProjectListener.markPlanning(planningId);
+    }
+
+    @Override
+    public void recalculateProject(Long projectId) {
+        log.debug("Recalculating progress roll-up of project with ID: {}", projectId);
+        if (!projectRepository.existsById(projectId)) {
+            throw new EntityNotFoundException("Project not found with id: " + projectId);
+        }
+
+        rebuildPlannings(planningRepository.findIdsByProjectId(projectId));
+        lockProjects(Collections.singleton(projectId));
+        projectRepository.rebuildProgressRollupByIdIn(Collections.singletonList(projectId));
+        kpiDirtyProjectListener.markProjects(Collections.singletonList(projectId));
+    }
+
+    @Override
+    public void recalculateAll() {
+        List<Long> planningIds = planningRepository.findAllIds();
+        rebuildPlannings(planningIds);
+
+        List<Long> projectIds = projectRepository.findAllIds();
+        for (List<Long> batch : InClauses.partition(projectIds)) {
+            projectRepository.rebuildProgressRollupByIdIn(batch);
+        }
+        kpiDirtyProjectListener.markProjects(projectIds);
+        log.info("Recalculated progress roll-ups of {} plannings and {} projects", planningIds.size(), projectIds.size());
+    }
+
+    private void lockAction(Long actionId) {
+        actionRepository.findByIdForUpdate(actionId)
+                .orElseThrow(() -> new EntityNotFoundException("Action not found with id: " + actionId));
+    }
+
+    /**
+     * Lock the rows of the projects about to be rebuilt, in ascending ID order, so that no
+     * delta of a concurrent action change lands between the rebuild's read and its write.
+     * Called after the plannings are locked or updated, in the order apply() locks them.
+     */
+    private void lockProjects(Collection<Long> projectIds) {
+        for (Long projectId : new TreeSet<>(projectIds)) {
+            projectRepository.findByIdForUpdate(projectId);
+        }
+    }
+
+    /**
+     * Read what an action currently contributes to the roll-ups, as stored in the database.
+     */
+    private Contribution readContribution(Long actionId) {
+        List<Object[]> rows = actionRepository.findPlanningAndProgressById(actionId);
+        if (rows.isEmpty()) {
+            return Contribution.NONE;
+        }
+        Object[] row = rows.get(0);
+        return new Contribution((Long) row[0], row[1] != null ? ((Number) row[1]).doubleValue() : 0);
+    }
+
+    /**
+     * Recount the sub-actions of an action, store them with the derived progress and
+     * return the resulting contribution (NONE if the action no longer exists).
+     */
+    private Contribution syncAction(Long actionId) {
+        List<Object[]> rows = actionRepository.findPlanningAndProgressById(actionId);
+        if (rows.isEmpty()) {
+            return Contribution.NONE;
+        }
+        Long planningId = (Long) rows.get(0)[0];
+        Double progress = rows.get(0)[1] != null ? ((Number) rows.get(0)[1]).doubleValue() : null;
+
+        Object[] counts = actionRepository.countSubActions(actionId).get(0);
+        int subActions = ((Number) counts[0]).intValue();
+        int completedSubActions = ((Number) counts[1]).intValue();
+        if (subActions > 0) {
+            progress = ((double) completedSubActions / subActions) * 100;
+        }
+        actionRepository.updateRollup(actionId, subActions, completedSubActions, progress);
+
+        return new Contribution(planningId, progress != null ? progress : 0);
+    }
+
+    /**
+     * Add the difference between two contributions of an action to the plannings and projects.
+     */
+    private void apply(Contribution before, Contribution after) {
+        Map<Long, Delta> planningDeltas = new TreeMap<>();
+        if (before.planningId != null) {
+            planningDeltas.computeIfAbsent(before.planningId, id -> new Delta()).add(-1, -before.progress);
+        }
+        if (after.planningId != null) {
+            planningDeltas.computeIfAbsent(after.planningId, id -> new Delta()).add(1, after.progress);
+        }
+
+        Map<Long, Delta> projectDeltas = new TreeMap<>();
+        for (Map.Entry<Long, Delta> entry : planningDeltas.entrySet()) {
+            Delta delta = entry.getValue();
+            if (delta.isZero()) {
+                continue;
+            }
+            planningRepository.addToProgressRollup(entry.getKey(), delta.actions, delta.progress);
+            kpiDirtyProjectListener.markPlanning(entry.getKey());
+
+            Long projectId = planningRepository.findProjectIdById(entry.getKey());
+            if (projectId != null) {
+                projectDeltas.computeIfAbsent(projectId, id -> new Delta()).add(delta.actions, delta.progress);
+            }
+        }
+
+        for (Map.Entry<Long, Delta> entry : projectDeltas.entrySet()) {
+            if (!entry.getValue().isZero()) {
+                projectRepository.addToProgressRollup(entry.getKey(), entry.getValue().actions, entry.getValue().progress);
+            }
+        }
+    }
+
+    private void rebuildPlannings(List<Long> planningIds) {
+        for (List<Long> batch : InClauses.partition(planningIds)) {
+            actionRepository.recountSubActionsByPlanningIdIn(batch);
+            actionRepository.updateProgressFromSubActionsByPlanningIdIn(batch);
+            planningRepository.rebuildProgressRollupByIdIn(batch);
+        }
+    }
+
+    /**
+     * What one action adds to the roll-ups: one action and its progress, in a planning.
+     */
+    private static final class Contribution {
+
+        static final Contribution NONE = new Contribution(null, 0);
+
+        final Long planningId;
+        final double progress;
+
+        Contribution(Long planningId, double progress) {
+            this.planningId = planningId;
+            this.progress = progress;
+        }
+    }
+
+    /**
+     * Change to apply to the roll-up of one planning or project.
+     */
+    private static final class Delta {
+
+        int actions;
+        double progress;
+
+        void add(int actions, double progress) {
+            this.actions += actions;
+            this.progress += progress;
+        }
+
+        boolean isZero() {
+            return actions == 0 && progress == 0;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.projectmanagement.service.impl;
+
+import com.projectmanagement.repository.ActionRepository;
+import com.projectmanagement.repository.InClauses;
+import com.projectmanagement.repository.PlanningRepository;
+import com.projectmanagement.repository.ProjectRepository;
+import com.projectmanagement.service.ProgressService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Implementation of the ProgressService interface.
+ */
+@Service
+@Slf4j
+@Transactional(readOnly = true)
+public class ProgressServiceImpl implements ProgressService {
+
+    private final ActionRepository actionRepository;
+    private final PlanningRepository planningRepository;
+    private final ProjectRepository projectRepository;
+
+    @Autowired
+    public ProgressServiceImpl(
+            ActionRepository actionRepository,
+            PlanningRepository planningRepository,
+            ProjectRepository projectRepository) {
+        this.actionRepository = actionRepository;
+        this.planningRepository = planningRepository;
+        this.projectRepository = projectRepository;
+    }
+
+    @Override
+    public Map<Long, Double> findProjectProgress(Collection<Long> projectIds) {
+        return average(projectIds, projectRepository::findProgressRollupsByIdIn);
+    }
+
+    @Override
+    public Map<Long, Double> findPlanningProgress(Collection<Long> planningIds) {
+        return average(planningIds, planningRepository::findProgressRollupsByIdIn);
+    }
+
+    @Override
+    public Map<Long, Double> findActionProgress(Collection<Long> actionIds) {
+        Map<Long, Double> progress = new HashMap<>();
+        for (List<Long> batch : InClauses.partition(actionIds)) {
+            for (Object[] row : actionRepository.findProgressRollupsByIdIn(batch)) {
+                Long actionId = ((Number) row[0]).longValue();
+                long subActions = row[2] != null ? ((Number) row[2]).longValue() : 0;
+                if (subActions == 0) {
+                    progress.put(actionId, row[1] != null ? ((Number) row[1]).doubleValue() : 0);
+                } else {
+                    long completed = row[3] != null ? ((Number) row[3]).longValue() : 0;
+                    progress.put(actionId, ((double) completed / subActions) * 100);
+                }
+            }
+        }
+        return withDefaults(actionIds, progress);
+    }
+
+    /**
+     * Read "sum of progress, number of actions" roll-ups by batches and average them.
+     */
+    private Map<Long, Double> average(Collection<Long> ids, Function<List<Long>, List<Object[]>> query) {
+        Map<Long, Double> progress = new HashMap<>();
+        for (List<Long> batch : InClauses.partition(ids)) {
+            for (Object[] row : query.apply(batch)) {
+                long actions = row[2] != null ? ((Number) row[2]).longValue() : 0;
+                if (actions > 0) {
+                    progress.put(((Number) row[0]).longValue(), ((Number) row[1]).doubleValue() / actions);
+                }
+            }
+        }
+        log.debug("Read progress of {} entities", progress.size());
+        return withDefaults(ids, progress);
+    }
+
+    private static Map<Long, Double> withDefaults(Collection<Long> ids, Map<Long, Double> progress) {
+        for (Long id : ids) {
+            if (id != null) {
+                progress.putIfAbsent(id, 0.0);
+            }
+        }
+        return progress;
+    }
+}
@@ -1,20 +1,32 @@
 package com.projectmanagement.service.impl;
 
+import com.projectmanagement.dto.ActionExportRow;
 import com.projectmanagement.dto.ProjectDTO;
+import com.projectmanagement.dto.ProjectExportRow;
 import com.projectmanagement.entity.*;
+import com.projectmanagement.export.ExportFormat;
+import com.projectmanagement.export.ExportOptions;
+import com.projectmanagement.export.ExportWriter;
+import com.projectmanagement.export.StreamingExporter;
 import com.projectmanagement.repository.*;
 import com.projectmanagement.service.BaseServiceImpl;
+import com.projectmanagement.service.ProgressRollupService;
+import com.projectmanagement.service.ProgressService;
 import com.projectmanagement.service.ProjectService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -29,6 +41,10 @@ public class ProjectServiceImpl extends BaseServiceImpl<Project, Long, ProjectRe
     private final ProjectTypeRepository typeRepository;
     private final PriorityRepository priorityRepository;
     private final ProjectTeamRepository teamRepository;
+    private final ProgressService progressService;
+    private final ProgressRollupService progressRollupService;
+    private final ActionRepository actionRepository;
+    private final StreamingExporter streamingExporter;
 
     @Autowired
     public ProjectServiceImpl(
@@ -37,13 +53,21 @@ public class ProjectServiceImpl extends BaseServiceImpl<Project, Long, ProjectRe
             DirectionRepository directionRepository,
             ProjectTypeRepository typeRepository,
             PriorityRepository priorityRepository,
-            ProjectTeamRepository teamRepository) {
+            ProjectTeamRepository teamRepository,
+            ProgressService progressService,
+            ProgressRollupService progressRollupService,
+            ActionRepository actionRepository,
+            StreamingExporter streamingExporter) {
         super(repository);
         this.statusRepository = statusRepository;
         this.directionRepository = directionRepository;
         this.typeRepository = typeRepository;
         this.priorityRepository = priorityRepository;
         this.teamRepository = teamRepository;
+        this.progressService = progressService;
+        this.progressRollupService = progressRollupService;
+        this.actionRepository = actionRepository;
+        this.streamingExporter = streamingExporter;
     }
 
     @Override
@@ -52,13 +76,37 @@ public class ProjectServiceImpl extends BaseServiceImpl<Project, Long, ProjectRe
             return null;
         }
 
+        return toDTOs(Collections.singletonList(project)).get(0);
+    }
+
+    @Override
+    public List<ProjectDTO> toDTOs(List<Project> projects) {
+        Map<Long, Double> progress = progressService.findProjectProgress(projects.stream()
+                .map(Project::getId)
+                .collect(Collectors.toList()));
+        
+        return projects.stream()
+                .map(project -> toDTO(project, project.getId() != null
+                        ? progress.getOrDefault(project.getId(), 0.0)
+                        : project.calculateProgress()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Convert a page of Project entities, computing their progress in one query.
+     */
+    private Page<ProjectDTO> toDTOPage(Page<Project> page) {
+        return new PageImpl<>(toDTOs(page.getContent()), page.getPageable(), page.getTotalElements());
+    }
+
+    private ProjectDTO toDTO(Project project, double progress) {
         ProjectDTO dto = ProjectDTO.builder()
                 .name(project.getName())
                 .description(project.getDescription())
                 .startDate(project.getStartDate())
                 .plannedEndDate(project.getPlannedEndDate())
                 .actualEndDate(project.getActualEndDate())
-                .progress(project.calculateProgress())
+                .progress(progress)
                 .build();
 
         // Set the base fields
@@ -154,8 +202,7 @@ public class ProjectServiceImpl extends BaseServiceImpl<Project, Long, ProjectRe
         Status status = statusRepository.findById(statusId)
                 .orElseThrow(() -> new EntityNotFoundException("Status not found with id: " + statusId));
         
-        return repository.findByStatusAndActifTrue(status, pageable)
-                .map(this::toDTO);
+        return toDTOPage(repository.findByStatusAndActifTrue(status, pageable));
     }
 
     @Override
@@ -165,8 +212,7 @@ public class ProjectServiceImpl extends BaseServiceImpl<Project, Long, ProjectRe
         Direction direction = directionRepository.findById(directionId)
                 .orElseThrow(() -> new EntityNotFoundException("Direction not found with id: " + directionId));
         
-        return repository.findByDirectionAndActifTrue(direction, pageable)
-                .map(this::toDTO);
+        return toDTOPage(repository.findByDirectionAndActifTrue(direction, pageable));
     }
 
     @Override
@@ -176,8 +222,7 @@ public class ProjectServiceImpl extends BaseServiceImpl<Project, Long, ProjectRe
         ProjectType type = typeRepository.findById(typeId)
                 .orElseThrow(() -> new EntityNotFoundException("ProjectType not found with id: " + typeId));
         
-        return repository.findByTypeAndActifTrue(type, pageable)
-                .map(this::toDTO);
+        return toDTOPage(repository.findByTypeAndActifTrue(type, pageable));
     }
 
     @Override
@@ -187,8 +232,7 @@ public class ProjectServiceImpl extends BaseServiceImpl<Project, Long, ProjectRe
         Priority priority = priorityRepository.findById(priorityId)
                 .orElseThrow(() -> new EntityNotFoundException("Priority not found with id: " + priorityId));
         
-        return repository.findByPriorityAndActifTrue(priority, pageable)
-                .map(this::toDTO);
+        return toDTOPage(repository.findByPriorityAndActifTrue(priority, pageable));
     }
 
     @Override
@@ -198,8 +242,7 @@ public class ProjectServiceImpl extends BaseServiceImpl<Project, Long, ProjectRe
         ProjectTeam team = teamRepository.findById(teamId)
                 .orElseThrow(() -> new EntityNotFoundException("ProjectTeam not found with id: " + teamId));
         
-        return repository.findByTeamAndActifTrue(team, pageable)
-                .map(this::toDTO);
+        return toDTOPage(repository.findByTeamAndActifTrue(team, pageable));
     }
 
     @Override
@@ -216,8 +259,14 @@ public class ProjectServiceImpl extends BaseServiceImpl<Project, Long, ProjectRe
         log.debug("Searching projects with criteria: name={}, statusId={}, directionId={}, typeId={}, priorityId={}, startDate={}, endDate={}",
                 name, statusId, directionId, typeId, priorityId, startDate, endDate);
         
-        return repository.searchProjects(name, statusId, directionId, typeId, priorityId, startDate, endDate, pageable)
-                .map(this::toDTO);
+        return toDTOPage(repository.searchProjects(name, statusId, directionId, typeId, priorityId, startDate, endDate, pageable));
+    }
+
+    @Override
+    @Transactional
+    public Project update(Long id, Project project) {
+        // Merging a project replaces its planning list, so its roll-up is rebuilt afterwards
+        return progressRollupService.changeProject(id, () -> super.update(id, project));
     }
 
     @Override
@@ -225,17 +274,56 @@ public class ProjectServiceImpl extends BaseServiceImpl<Project, Long, ProjectRe
     public ProjectDTO updateProgress(Long projectId) {
         log.debug("Updating progress for project with ID: {}", projectId);
         
-        Project project = repository.findById(projectId)
+        // Rebuilds the stored roll-ups of the project, its plannings and their actions
+        progressRollupService.recalculateProject(projectId);
+        
+        Project updatedProject = repository.findById(projectId)
                 .orElseThrow(() -> new EntityNotFoundException("Project not found with id: " + projectId));
         
-        // The progress is calculated by the entity's calculateProgress method
-        // which aggregates the progress of all actions in the project's plannings
-        double progress = project.calculateProgress();
+        return toDTO(updatedProject);
+    }
+
+    @Override
+    @Transactional
+    public void recalculateAllProgress() {
+        log.debug("Recalculating progress of all projects");
+        progressRollupService.recalculateAll();
+    }
+
+    @Override
+    public ExportWriter exportProjects(ExportFormat format) {
+        log.debug("Exporting projects in format: {}", format);
+        
+        ExportOptions options = ExportOptions.builder()
+                .title("Projects")
+                .author("Project Management System")
+                .description("Active projects")
+                .includeHeaders(true)
+                .formatDates(true)
+                .formatNumbers(true)
+                .build();
         
-        // We don't need to explicitly set the progress on the entity as it's calculated
-        // We just save the entity to update any other fields that might have changed
-        Project updatedProject = repository.save(project);
+        return streamingExporter.writer(format, repository::streamExportRows, ProjectExportRow.headers(), options);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ExportWriter exportProject(Long projectId, ExportFormat format) {
+        log.debug("Exporting actions of project with ID: {} in format: {}", projectId, format);
         
-        return toDTO(updatedProject);
+        Project project = repository.findById(projectId)
+                .orElseThrow(() -> new EntityNotFoundException("Project not found with id: " + projectId));
+        
+        ExportOptions options = ExportOptions.builder()
+                .title("Project - " + project.getName())
+                .author("Project Management System")
+                .description("Actions of project: " + project.getName())
+                .includeHeaders(true)
+                .formatDates(true)
+                .formatNumbers(true)
+                .build();
+        
+        return streamingExporter.writer(format, () -> actionRepository.streamExportRowsByProjectId(projectId),
+                ActionExportRow.headers(), options);
     }
 } 
\ No newline at end of file
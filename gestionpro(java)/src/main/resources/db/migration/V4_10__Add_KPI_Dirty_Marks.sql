@@ -0,0 +1,32 @@
+-- Script de migration : projets modifiés depuis la dernière mise à jour des KPI
+-- V4_10__Add_KPI_Dirty_Marks.sql
+
+-- Marks of the projects whose KPI inputs changed, inserted by
+-- KpiDirtyProjectListener in the transaction of the change and read by
+-- KpiUpdateScheduler to recompute only the changed projects. A mark names the
+-- project, or the planning or action that changed. Marks are purged once all
+-- metrics were updated after them. On MySQL the table is created from the
+-- entity mapping.
+CREATE TABLE tbkpidrt (
+  id      NUMBER PRIMARY KEY,
+  idpro   NUMBER,
+  idplan  NUMBER,
+  idact   NUMBER,
+  dmark   TIMESTAMP NOT NULL,
+  dtcrea  TIMESTAMP NOT NULL,
+  dtmod   TIMESTAMP,
+  actif   NUMBER(1) DEFAULT 1 NOT NULL
+);
+
+CREATE INDEX ix_tbkpidrt_dmark ON tbkpidrt (dmark);
+
+-- Sequence for tbkpidrt
+CREATE SEQUENCE seq_tbkpidrt START WITH 1 INCREMENT BY 1 NOCACHE NOCYCLE;
+
+-- Trigger for tbkpidrt ID generation
+CREATE OR REPLACE TRIGGER trg_tbkpidrt_bi
+BEFORE INSERT ON tbkpidrt FOR EACH ROW WHEN (new.id IS NULL)
+BEGIN SELECT seq_tbkpidrt.NEXTVAL INTO :new.id FROM dual; END;
+/
+
+COMMIT;
@@ -0,0 +1,30 @@
+-- Script de migration : verrous des tâches planifiées partagés entre les nœuds
+-- V4_11__Add_Job_Locks.sql
+
+-- Leases on the scheduled jobs and job partitions, maintained by
+-- JobLeaseManager so that each run is done by one application node. Rows are
+-- created on first use, so no backfill is needed. On MySQL the table is
+-- created from the entity mapping.
+CREATE TABLE tbjoblck (
+  id      NUMBER PRIMARY KEY,
+  lib     VARCHAR2(100) NOT NULL,
+  owner   VARCHAR2(100),
+  dexp    TIMESTAMP,
+  token   NUMBER(19) DEFAULT 0 NOT NULL,
+  drun    TIMESTAMP,
+  dtcrea  TIMESTAMP NOT NULL,
+  dtmod   TIMESTAMP,
+  actif   NUMBER(1) DEFAULT 1 NOT NULL,
+  CONSTRAINT uk_tbjoblck UNIQUE (lib)
+);
+
+-- Sequence for tbjoblck
+CREATE SEQUENCE seq_tbjoblck START WITH 1 INCREMENT BY 1 NOCACHE NOCYCLE;
+
+-- Trigger for tbjoblck ID generation
+CREATE OR REPLACE TRIGGER trg_tbjoblck_bi
+BEFORE INSERT ON tbjoblck FOR EACH ROW WHEN (new.id IS NULL)
+BEGIN SELECT seq_tbjoblck.NEXTVAL INTO :new.id FROM dual; END;
+/
+
+COMMIT;
@@ -0,0 +1,11 @@
+-- Script de migration : version des dépendances d'actions par projet
+-- V4_12__Add_Dependency_Versions.sql
+
+-- Version of the action dependencies of each project, incremented by
+-- DependencyIndex whenever a dependency is added or removed or an action
+-- enters or leaves the project, so that every application node reloads its
+-- cached dependency graph of the project. On MySQL the column is created from
+-- the entity mapping.
+ALTER TABLE tbpro ADD (
+  vdep NUMBER(19) DEFAULT 0 NOT NULL
+);
@@ -0,0 +1,11 @@
+-- Script de migration : index pour la lecture des dernières valeurs KPI
+-- V4_2__Add_KPI_Latest_Index.sql
+
+-- Composite index used by the "latest value per metric" query
+-- (findLatestForProject): the correlated MAX(mdate) subquery is answered
+-- from the index alone for each (idpro, idkpim) pair.
+-- On MySQL the same index is declared on the KpiValue entity mapping.
+CREATE INDEX ix_tbkpiv_pro_met_date ON tbkpiv (idpro, idkpim, mdate DESC);
+
+-- The single-column index on idpro is a prefix of the new index
+DROP INDEX ix_tbkpiv_pro;
@@ -0,0 +1,40 @@
+-- Script de migration : colonnes de cumul de l'avancement
+-- V4_3__Add_Progress_Rollups.sql
+
+-- Roll-up columns maintained incrementally by ProgressRollupService:
+-- sub-action counters on actions, action count and progress sum on
+-- plannings and projects. On MySQL the columns are created from the entity
+-- mappings; run POST /api/projects/recalculate-progress once to fill them.
+ALTER TABLE tbact ADD (
+  nbsact  NUMBER(10) DEFAULT 0 NOT NULL,
+  nbsactc NUMBER(10) DEFAULT 0 NOT NULL
+);
+
+ALTER TABLE tbplan ADD (
+  nbact NUMBER(10) DEFAULT 0 NOT NULL,
+  sprog NUMBER DEFAULT 0 NOT NULL
+);
+
+ALTER TABLE tbpro ADD (
+  nbact NUMBER(10) DEFAULT 0 NOT NULL,
+  sprog NUMBER DEFAULT 0 NOT NULL
+);
+
+-- 1. Sub-action counters, and action progress derived from them
+UPDATE tbact a SET
+  nbsact  = (SELECT COUNT(*) FROM tbiact sa WHERE sa.idact = a.id),
+  nbsactc = (SELECT COUNT(*) FROM tbiact sa WHERE sa.idact = a.id AND sa.dfr IS NOT NULL);
+
+UPDATE tbact SET prog = nbsactc * 100 / nbsact WHERE nbsact > 0;
+
+-- 2. Planning roll-ups
+UPDATE tbplan pl SET
+  nbact = (SELECT COUNT(*) FROM tbact a WHERE a.idplan = pl.id),
+  sprog = (SELECT NVL(SUM(NVL(a.prog, 0)), 0) FROM tbact a WHERE a.idplan = pl.id);
+
+-- 3. Project roll-ups
+UPDATE tbpro p SET
+  nbact = (SELECT NVL(SUM(pl.nbact), 0) FROM tbplan pl WHERE pl.idpro = p.id),
+  sprog = (SELECT NVL(SUM(pl.sprog), 0) FROM tbplan pl WHERE pl.idpro = p.id);
+
+COMMIT;
@@ -0,0 +1,47 @@
+-- Script de migration : file d'envoi des notifications KPI
+-- V4_4__Add_KPI_Notification_Outbox.sql
+
+-- Threshold breach notifications are queued in tbkpinot in the same transaction
+-- as the KPI value, then sent by batches by KpiNotificationDispatcher.
+-- dtenv stays NULL until the notification is sent. On MySQL the table is
+-- created from the entity mapping.
+CREATE TABLE tbkpinot (
+  id      NUMBER PRIMARY KEY,
+  idkpiv  NUMBER,
+  idkpim  NUMBER NOT NULL,
+  idpro   NUMBER,
+  lvl     VARCHAR2(10) NOT NULL,
+  val     NUMBER NOT NULL,
+  mdate   TIMESTAMP NOT NULL,
+  libkpim VARCHAR2(100),
+  libpro  VARCHAR2(200),
+  dtenv   TIMESTAMP,
+  dtcrea  TIMESTAMP NOT NULL,
+  dtmod   TIMESTAMP,
+  actif   NUMBER(1) DEFAULT 1 NOT NULL
+);
+
+-- Sequence for tbkpinot
+CREATE SEQUENCE seq_tbkpinot START WITH 1 INCREMENT BY 1 NOCACHE NOCYCLE;
+
+-- Trigger for tbkpinot ID generation
+CREATE OR REPLACE TRIGGER trg_tbkpinot_bi
+BEFORE INSERT ON tbkpinot FOR EACH ROW WHEN (new.id IS NULL)
+BEGIN SELECT seq_tbkpinot.NEXTVAL INTO :new.id FROM dual; END;
+/
+
+-- Pending notifications in ID order
+CREATE INDEX ix_tbkpinot_dtenv ON tbkpinot (dtenv, id);
+
+-- Queue the breaches recorded before this migration that were not notified yet
+INSERT INTO tbkpinot (idkpiv, idkpim, idpro, lvl, val, mdate, libkpim, libpro, dtcrea, actif)
+SELECT kv.id, kv.idkpim, kv.idpro,
+       CASE WHEN kv.critbr = 1 THEN 'CRITICAL' ELSE 'WARNING' END,
+       kv.val, kv.mdate, m.lib, p.lib, SYSTIMESTAMP, 1
+FROM tbkpiv kv
+JOIN pkpim m ON m.id = kv.idkpim
+LEFT JOIN tbpro p ON p.id = kv.idpro
+WHERE (kv.warnbr = 1 OR kv.critbr = 1) AND NVL(kv.notsnt, 0) = 0
+ORDER BY kv.id;
+
+COMMIT;
@@ -0,0 +1,43 @@
+-- Script de migration : regroupement des notifications KPI par direction
+-- V4_5__Add_KPI_Notification_Digests.sql
+
+-- Notifications are sent as one digest per project direction. A digest is
+-- stored in tbkpidig and claims its notifications (tbkpinot.iddig) before it
+-- is sent; dtenv stays NULL until it is delivered. On MySQL the table and the
+-- columns are created from the entity mappings.
+ALTER TABLE tbkpinot ADD (
+  iddir NUMBER,
+  iddig NUMBER
+);
+
+UPDATE tbkpinot n SET iddir = (SELECT p.iddir FROM tbpro p WHERE p.id = n.idpro);
+
+DROP INDEX ix_tbkpinot_dtenv;
+CREATE INDEX ix_tbkpinot_pend ON tbkpinot (dtenv, iddig, iddir);
+CREATE INDEX ix_tbkpinot_dig ON tbkpinot (iddig);
+
+CREATE TABLE tbkpidig (
+  id      NUMBER PRIMARY KEY,
+  iddir   NUMBER,
+  libdir  VARCHAR2(100),
+  nbcrit  NUMBER(10) DEFAULT 0 NOT NULL,
+  nbwarn  NUMBER(10) DEFAULT 0 NOT NULL,
+  dtenv   TIMESTAMP,
+  dtcrea  TIMESTAMP NOT NULL,
+  dtmod   TIMESTAMP,
+  actif   NUMBER(1) DEFAULT 1 NOT NULL
+);
+
+-- Sequence for tbkpidig
+CREATE SEQUENCE seq_tbkpidig START WITH 1 INCREMENT BY 1 NOCACHE NOCYCLE;
+
+-- Trigger for tbkpidig ID generation
+CREATE OR REPLACE TRIGGER trg_tbkpidig_bi
+BEFORE INSERT ON tbkpidig FOR EACH ROW WHEN (new.id IS NULL)
+BEGIN SELECT seq_tbkpidig.NEXTVAL INTO :new.id FROM dual; END;
+/
+
+-- Undelivered digests, and digests sent in the coalescing window
+CREATE INDEX ix_tbkpidig_dtenv ON tbkpidig (dtenv, iddir);
+
+COMMIT;
@@ -0,0 +1,54 @@
+-- Script de migration : agrégats des valeurs KPI par heure, jour et mois
+-- V4_6__Add_KPI_Rollups.sql
+
+-- One row per project, metric, resolution (HOUR, DAY, MONTH) and bucket
+-- start, merged by KpiRollupWriter as values are recorded. On MySQL the table
+-- is created from the entity mapping; run POST /api/kpis/rollups/rebuild once
+-- to fill it from the existing values.
+CREATE TABLE tbkpir (
+  id      NUMBER PRIMARY KEY,
+  idpro   NUMBER NOT NULL,
+  idkpim  NUMBER NOT NULL,
+  res     VARCHAR2(10) NOT NULL,
+  dbuck   TIMESTAMP NOT NULL,
+  nb      NUMBER(19) NOT NULL,
+  vmin    NUMBER NOT NULL,
+  vmax    NUMBER NOT NULL,
+  vsum    NUMBER NOT NULL,
+  vlast   NUMBER NOT NULL,
+  dlast   TIMESTAMP NOT NULL,
+  dtcrea  TIMESTAMP NOT NULL,
+  dtmod   TIMESTAMP,
+  actif   NUMBER(1) DEFAULT 1 NOT NULL,
+  CONSTRAINT uk_tbkpir UNIQUE (idpro, idkpim, res, dbuck)
+);
+
+-- Sequence for tbkpir
+CREATE SEQUENCE seq_tbkpir START WITH 1 INCREMENT BY 1 NOCACHE NOCYCLE;
+
+-- Trigger for tbkpir ID generation
+CREATE OR REPLACE TRIGGER trg_tbkpir_bi
+BEFORE INSERT ON tbkpir FOR EACH ROW WHEN (new.id IS NULL)
+BEGIN SELECT seq_tbkpir.NEXTVAL INTO :new.id FROM dual; END;
+/
+
+-- Backfill from the existing values, one pass per resolution
+INSERT INTO tbkpir (idpro, idkpim, res, dbuck, nb, vmin, vmax, vsum, vlast, dlast, dtcrea, actif)
+SELECT idpro, idkpim, 'HOUR', CAST(TRUNC(mdate, 'HH24') AS TIMESTAMP), COUNT(*), MIN(val), MAX(val), SUM(val),
+       MAX(val) KEEP (DENSE_RANK LAST ORDER BY mdate, id), MAX(mdate), SYSTIMESTAMP, 1
+FROM tbkpiv WHERE idpro IS NOT NULL
+GROUP BY idpro, idkpim, TRUNC(mdate, 'HH24');
+
+INSERT INTO tbkpir (idpro, idkpim, res, dbuck, nb, vmin, vmax, vsum, vlast, dlast, dtcrea, actif)
+SELECT idpro, idkpim, 'DAY', CAST(TRUNC(mdate, 'DD') AS TIMESTAMP), COUNT(*), MIN(val), MAX(val), SUM(val),
+       MAX(val) KEEP (DENSE_RANK LAST ORDER BY mdate, id), MAX(mdate), SYSTIMESTAMP, 1
+FROM tbkpiv WHERE idpro IS NOT NULL
+GROUP BY idpro, idkpim, TRUNC(mdate, 'DD');
+
+INSERT INTO tbkpir (idpro, idkpim, res, dbuck, nb, vmin, vmax, vsum, vlast, dlast, dtcrea, actif)
+SELECT idpro, idkpim, 'MONTH', CAST(TRUNC(mdate, 'MM') AS TIMESTAMP), COUNT(*), MIN(val), MAX(val), SUM(val),
+       MAX(val) KEEP (DENSE_RANK LAST ORDER BY mdate, id), MAX(mdate), SYSTIMESTAMP, 1
+FROM tbkpiv WHERE idpro IS NOT NULL
+GROUP BY idpro, idkpim, TRUNC(mdate, 'MM');
+
+COMMIT;
@@ -0,0 +1,8 @@
+-- Script de migration : index pour l'historique des valeurs KPI
+-- V4_7__Add_KPI_History_Index.sql
+
+-- Index used by the KPI history pages (findHistoryPage): the values of a
+-- project are read as a range of (mdate, id) positions after the last value of
+-- the previous page, without scanning the values of other projects.
+-- On MySQL the same index is declared on the KpiValue entity mapping.
+CREATE INDEX ix_tbkpiv_pro_date ON tbkpiv (idpro, mdate);
@@ -0,0 +1,48 @@
+-- Script de migration : partitionnement et archivage des valeurs KPI
+-- V4_8__Partition_KPI_Values.sql
+
+-- tbkpiv is range partitioned by month of measurement date (interval
+-- partitioning creates the monthly partitions as values arrive), with local
+-- indexes, so the project and date range queries only visit the partitions of
+-- the requested months. Requires Oracle 12.2 or later for the online
+-- conversion.
+ALTER TABLE tbkpiv MODIFY
+  PARTITION BY RANGE (mdate) INTERVAL (NUMTOYMINTERVAL(1, 'MONTH'))
+  (PARTITION p_tbkpiv_0 VALUES LESS THAN (TIMESTAMP '2024-01-01 00:00:00'))
+  ONLINE
+  UPDATE INDEXES (ix_tbkpiv_pro_met_date LOCAL, ix_tbkpiv_pro_date LOCAL);
+
+-- Values older than app.kpi.archive.retention-days are moved to tbkpiva by
+-- KpiValueArchiver, keeping their IDs. Once a month has been archived its
+-- tbkpiv partition is empty and can be dropped:
+--   ALTER TABLE tbkpiv DROP PARTITION FOR (TIMESTAMP '2024-01-01 00:00:00') UPDATE INDEXES;
+-- Basic compression only applies to direct-path writes; closed archive months
+-- are compressed with:
+--   ALTER TABLE tbkpiva MOVE PARTITION FOR (TIMESTAMP '2024-01-01 00:00:00') COMPRESS UPDATE INDEXES;
+-- On MySQL, where partitioned InnoDB tables cannot have foreign keys, the
+-- archive table alone keeps tbkpiv bounded; it is created from the entity
+-- mapping.
+CREATE TABLE tbkpiva (
+  id      NUMBER PRIMARY KEY,
+  idkpim  NUMBER NOT NULL,
+  idpro   NUMBER,
+  idkpi   NUMBER,
+  val     NUMBER NOT NULL,
+  mdate   TIMESTAMP NOT NULL,
+  comm    VARCHAR2(500),
+  warnbr  NUMBER(1) DEFAULT 0,
+  critbr  NUMBER(1) DEFAULT 0,
+  notsnt  NUMBER(1) DEFAULT 0,
+  dtcrea  TIMESTAMP NOT NULL,
+  dtmod   TIMESTAMP,
+  actif   NUMBER(1) DEFAULT 1 NOT NULL,
+  dtarch  TIMESTAMP NOT NULL
+)
+COMPRESS
+PARTITION BY RANGE (mdate) INTERVAL (NUMTOYMINTERVAL(1, 'MONTH'))
+  (PARTITION p_tbkpiva_0 VALUES LESS THAN (TIMESTAMP '2024-01-01 00:00:00'));
+
+-- Archived history of a project, read by KpiValueHistoryReader
+CREATE INDEX ix_tbkpiva_pro_date ON tbkpiva (idpro, mdate) LOCAL;
+
+COMMIT;
@@ -0,0 +1,29 @@
+-- Script de migration : échéances de mise à jour des indicateurs KPI
+-- V4_9__Add_KPI_Metric_Schedules.sql
+
+-- Next due date of the automatic update of each metric with a frequency,
+-- maintained by KpiUpdateScheduler. Rows are created on the first start, so
+-- no backfill is needed. On MySQL the table is created from the entity
+-- mapping.
+CREATE TABLE tbkpisch (
+  id      NUMBER PRIMARY KEY,
+  idkpim  NUMBER NOT NULL,
+  freq    NUMBER(10) NOT NULL,
+  dnext   TIMESTAMP NOT NULL,
+  dlast   TIMESTAMP,
+  dtcrea  TIMESTAMP NOT NULL,
+  dtmod   TIMESTAMP,
+  actif   NUMBER(1) DEFAULT 1 NOT NULL,
+  CONSTRAINT uk_tbkpisch UNIQUE (idkpim)
+);
+
+-- Sequence for tbkpisch
+CREATE SEQUENCE seq_tbkpisch START WITH 1 INCREMENT BY 1 NOCACHE NOCYCLE;
+
+-- Trigger for tbkpisch ID generation
+CREATE OR REPLACE TRIGGER trg_tbkpisch_bi
+BEFORE INSERT ON tbkpisch FOR EACH ROW WHEN (new.id IS NULL)
+BEGIN SELECT seq_tbkpisch.NEXTVAL INTO :new.id FROM dual; END;
+/
+
+COMMIT;
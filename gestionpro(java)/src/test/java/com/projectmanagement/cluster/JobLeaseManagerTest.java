@@ -0,0 +1,280 @@
+package com.projectmanagement.cluster;
+
+import com.projectmanagement.dashboard.DashboardCache;
+import com.projectmanagement.dashboard.DashboardCacheListener;
+import com.projectmanagement.entity.JobLock;
+import com.projectmanagement.kpi.KpiDirtyProjectListener;
+import com.projectmanagement.repository.JobLockRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjIntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Two nodes sharing the job leases of one H2 database.
+ * <p>
+ * The test methods run outside any transaction, as the schedulers do: each manager
+ * acquires and releases its leases in its own transactions.
+ */
+@DataJpaTest(properties = "spring.profiles.active=")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JobLeaseManagerTest {
+
+    @Configuration
+    @EnableJpaAuditing
+    @EnableJpaRepositories(basePackageClasses = JobLockRepository.class)
+    @EntityScan(basePackageClasses = JobLock.class)
+    @Import({DashboardCache.class, DashboardCacheListener.class, KpiDirtyProjectListener.class})
+    static class Config {
+    }
+
+    @Autowired
+    private JobLockRepository jobLockRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private JobLeaseManager nodeA;
+    private JobLeaseManager nodeB;
+
+    @BeforeEach
+    void startNodes() {
+        nodeA = new JobLeaseManager(jobLockRepository, transactionManager, "node-a", 3, 1);
+        nodeB = new JobLeaseManager(jobLockRepository, transactionManager, "node-b", 3, 1);
+        nodeA.start();
+        nodeB.start();
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodeA.stop();
+        nodeB.stop();
+        jobLockRepository.deleteAll();
+    }
+
+    @Test
+    void runOnceRunsTheJobOnOneNodeOnly() throws Exception {
+        LocalDateTime runDate = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Runnable job = () -> {
+            runs.incrementAndGet();
+            sleep(300);
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Boolean>> results = List.of(
+                    executor.submit(() -> {
+                        start.await();
+                        return nodeA.runOnce("report", runDate, job);
+                    }),
+                    executor.submit(() -> {
+                        start.await();
+                        return nodeB.runOnce("report", runDate, job);
+                    }));
+            start.countDown();
+            int ran = 0;
+            for (Future<Boolean> result : results) {
+                ran += result.get(10, TimeUnit.SECONDS) ? 1 : 0;
+            }
+            assertThat(ran).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(runs.get()).isEqualTo(1);
+
+        // The run is completed: neither node runs it again, but both run the next one
+        assertThat(nodeA.runOnce("report", runDate, job)).isFalse();
+        assertThat(nodeB.runOnce("report", runDate, job)).isFalse();
+        assertThat(nodeB.runOnce("report", runDate.plusDays(1), job)).isTrue();
+        assertThat(runs.get()).isEqualTo(2);
+    }
+
+    @Test
+    void expiredLeaseIsTakenOverByTheOtherNode() {
+        LocalDateTime runDate = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        Optional<JobLease> leaseA = nodeA.tryAcquire("import", runDate);
+        assertThat(leaseA).isPresent();
+        assertThat(nodeB.tryAcquire("import", runDate)).isEmpty();
+
+        // Node A stops without releasing the lease
+        expire("import");
+
+        AtomicInteger runs = new AtomicInteger();
+        assertThat(nodeB.runOnce("import", runDate, runs::incrementAndGet)).isTrue();
+        assertThat(runs.get()).isEqualTo(1);
+
+        JobLock lock = jobLockRepository.findByName("import").orElseThrow();
+        assertThat(lock.getOwner()).isEqualTo("node-b");
+        assertThat(lock.getLastRunDate()).isEqualTo(runDate);
+    }
+
+    @Test
+    void staleLeaseIsFencedOff() {
+        LocalDateTime runDate = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        JobLease leaseA = nodeA.tryAcquire("purge", runDate).orElseThrow();
+        nodeA.checkHeld(leaseA);
+
+        expire("purge");
+        JobLease leaseB = nodeB.tryAcquire("purge", runDate).orElseThrow();
+        assertThat(leaseB.getToken()).isGreaterThan(leaseA.getToken());
+
+        assertThatThrownBy(() -> nodeA.checkHeld(leaseA))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("taken over");
+        nodeB.checkHeld(leaseB);
+    }
+
+    @Test
+    void partitionedRunRunsEveryPartitionOnceAcrossBothNodes() throws Exception {
+        LocalDateTime runDate = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        Map<Integer, AtomicInteger> runs = new ConcurrentHashMap<>();
+        ObjIntConsumer<JobLease> job = (lease, partition) -> {
+            runs.computeIfAbsent(partition, p -> new AtomicInteger()).incrementAndGet();
+            sleep(100);
+        };
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Integer>> results = List.of(
+                    executor.submit(() -> {
+                        start.await();
+                        return nodeA.runPartitioned("kpi", runDate, 6, job);
+                    }),
+                    executor.submit(() -> {
+                        start.await();
+                        return nodeB.runPartitioned("kpi", runDate, 6, job);
+                    }));
+            start.countDown();
+            int ran = 0;
+            for (Future<Integer> result : results) {
+                ran += result.get(10, TimeUnit.SECONDS);
+            }
+            assertThat(ran).isEqualTo(6);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(runs).hasSize(6);
+        assertThat(runs.values()).allSatisfy(count -> assertThat(count.get()).isEqualTo(1));
+    }
+
+    @Test
+    void partitionHeldByOneNodeIsSkippedByTheOther() throws Exception {
+        LocalDateTime runDate = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        Map<Integer, String> ranBy = new ConcurrentHashMap<>();
+        CountDownLatch heldByA = new CountDownLatch(1);
+        CountDownLatch releaseA = new CountDownLatch(1);
+        CountDownLatch othersRunByB = new CountDownLatch(2);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // Node A runs partition 1 on its own and keeps its lease renewed until released
+            Future<Boolean> runA = executor.submit(() -> nodeA.runOnce("kpi#1", runDate, () -> {
+                ranBy.put(1, nodeA.getNodeId());
+                heldByA.countDown();
+                await(releaseA);
+            }));
+            assertThat(heldByA.await(10, TimeUnit.SECONDS)).isTrue();
+
+            Future<Integer> runB = executor.submit(() -> nodeB.runPartitioned("kpi", runDate, 3, (lease, partition) -> {
+                ranBy.putIfAbsent(partition, nodeB.getNodeId());
+                othersRunByB.countDown();
+            }));
+            assertThat(othersRunByB.await(10, TimeUnit.SECONDS)).isTrue();
+            sleep(1500);
+            assertThat(runB.isDone()).isFalse();
+
+            // Node B waits for partition 1 and returns once node A completes it
+            releaseA.countDown();
+            assertThat(runA.get(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(runB.get(10, TimeUnit.SECONDS)).isEqualTo(2);
+        } finally {
+            releaseA.countDown();
+            executor.shutdownNow();
+        }
+        assertThat(ranBy).containsEntry(0, "node-b").containsEntry(1, "node-a").containsEntry(2, "node-b");
+    }
+
+    @Test
+    void completedPartitionIsSkipped() {
+        LocalDateTime runDate = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        assertThat(nodeA.runOnce("kpi#0", runDate, () -> { })).isTrue();
+
+        List<Integer> ran = new CopyOnWriteArrayList<>();
+        long started = System.nanoTime();
+        assertThat(nodeB.runPartitioned("kpi", runDate, 2, (lease, partition) -> ran.add(partition))).isEqualTo(1);
+
+        // Returned without waiting for the completed partition
+        assertThat(ran).containsExactly(1);
+        assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started)).isLessThan(1);
+    }
+
+    @Test
+    void expiredPartitionLeaseIsTakenOver() {
+        LocalDateTime runDate = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        // Node A stops without renewing or releasing its lease of partition 0
+        assertThat(nodeA.tryAcquire("kpi#0", runDate)).isPresent();
+
+        List<Integer> ran = new CopyOnWriteArrayList<>();
+        assertThat(nodeB.runPartitioned("kpi", runDate, 2, (lease, partition) -> ran.add(partition))).isEqualTo(2);
+
+        assertThat(ran).containsExactlyInAnyOrder(0, 1);
+        JobLock lock = jobLockRepository.findByName("kpi#0").orElseThrow();
+        assertThat(lock.getOwner()).isEqualTo("node-b");
+        assertThat(lock.getLastRunDate()).isEqualTo(runDate);
+    }
+
+    /**
+     * Move the end of a lease to the past, as if its holder had stopped renewing it.
+     */
+    private void expire(String name) {
+        JobLock lock = jobLockRepository.findByName(name).orElseThrow();
+        lock.setExpiryDate(LocalDateTime.now().minusSeconds(1));
+        jobLockRepository.save(lock);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
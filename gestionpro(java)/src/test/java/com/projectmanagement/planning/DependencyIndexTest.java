@@ -0,0 +1,129 @@
+package com.projectmanagement.planning;
+
+import com.projectmanagement.dashboard.DashboardCache;
+import com.projectmanagement.dashboard.DashboardCacheListener;
+import com.projectmanagement.entity.Action;
+import com.projectmanagement.entity.Planning;
+import com.projectmanagement.entity.Project;
+import com.projectmanagement.export.ExportServiceFactory;
+import com.projectmanagement.export.StreamingExporter;
+import com.projectmanagement.export.impl.CsvExportService;
+import com.projectmanagement.export.impl.ExcelExportService;
+import com.projectmanagement.export.impl.PdfExportService;
+import com.projectmanagement.kpi.KpiDirtyProjectListener;
+import com.projectmanagement.repository.ActionRepository;
+import com.projectmanagement.service.ActionService;
+import com.projectmanagement.service.PlanningService;
+import com.projectmanagement.service.impl.ActionServiceImpl;
+import com.projectmanagement.service.impl.PlanningServiceImpl;
+import com.projectmanagement.service.impl.ProgressRollupServiceImpl;
+import com.projectmanagement.service.impl.ProgressServiceImpl;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Cycle checks of the dependency index once its project graphs are cached.
+ * <p>
+ * The service calls run in their own transactions, as from the controllers, so the
+ * index caches the graphs it loads between the calls.
+ * <p>
+ * H2 runs in MySQL mode, as the local-mysql profile, since the H2 dialect renders the
+ * progress roll-up updates of the planning calls with casts H2 cannot parse.
+ */
+@DataJpaTest(properties = {
+        "spring.profiles.active=",
+        "spring.datasource.url=jdbc:h2:mem:dependencies;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.database-platform=org.hibernate.dialect.MySQLDialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DependencyIndexTest {
+
+    @Configuration
+    @EnableJpaAuditing
+    @EnableJpaRepositories(basePackageClasses = ActionRepository.class)
+    @EntityScan(basePackageClasses = Action.class)
+    @Import({ActionServiceImpl.class, PlanningServiceImpl.class, ProgressServiceImpl.class,
+            ProgressRollupServiceImpl.class, DependencyIndex.class, StreamingExporter.class,
+            ExportServiceFactory.class, CsvExportService.class, ExcelExportService.class, PdfExportService.class,
+            DashboardCache.class, DashboardCacheListener.class, KpiDirtyProjectListener.class})
+    static class Config {
+    }
+
+    @Autowired
+    private ActionService actionService;
+
+    @Autowired
+    private PlanningService planningService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Long secondPlanningId;
+    private Long firstActionId;
+    private Long secondActionId;
+    private Long thirdActionId;
+    private Long fourthActionId;
+
+    @BeforeEach
+    void seed() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Planning first = planning("Projet A");
+            Planning second = planning("Projet B");
+            secondPlanningId = second.getId();
+            firstActionId = action(first, "Action A.1");
+            secondActionId = action(first, "Action A.2");
+            thirdActionId = action(second, "Action B.1");
+            fourthActionId = action(second, "Action B.2");
+        });
+    }
+
+    @Test
+    void actionMovedToAnotherPlanningKeepsItsDependenciesInTheCycleCheck() {
+        // Caches the graphs of both projects
+        actionService.addDependency(secondActionId, firstActionId);
+        actionService.addDependency(fourthActionId, thirdActionId);
+
+        planningService.addAction(secondPlanningId, secondActionId);
+
+        assertThatThrownBy(() -> actionService.addDependency(firstActionId, secondActionId))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Planning planning(String projectName) {
+        Project project = new Project();
+        project.setName(projectName);
+        entityManager.persist(project);
+        Planning planning = new Planning();
+        planning.setProject(project);
+        entityManager.persist(planning);
+        return planning;
+    }
+
+    private Long action(Planning planning, String name) {
+        Action action = new Action();
+        action.setName(name);
+        action.setPlanning(planning);
+        entityManager.persist(action);
+        return action.getId();
+    }
+}
@@ -0,0 +1,235 @@
+package com.projectmanagement.service;
+
+import com.projectmanagement.dashboard.DashboardCache;
+import com.projectmanagement.dashboard.DashboardCacheListener;
+import com.projectmanagement.entity.Action;
+import com.projectmanagement.entity.Direction;
+import com.projectmanagement.entity.Planning;
+import com.projectmanagement.entity.Priority;
+import com.projectmanagement.entity.Project;
+import com.projectmanagement.entity.ProjectTeam;
+import com.projectmanagement.entity.ProjectType;
+import com.projectmanagement.entity.Status;
+import com.projectmanagement.entity.SubAction;
+import com.projectmanagement.entity.User;
+import com.projectmanagement.export.ExportServiceFactory;
+import com.projectmanagement.export.StreamingExporter;
+import com.projectmanagement.export.impl.CsvExportService;
+import com.projectmanagement.export.impl.ExcelExportService;
+import com.projectmanagement.export.impl.PdfExportService;
+import com.projectmanagement.kpi.KpiDirtyProjectListener;
+import com.projectmanagement.planning.DependencyIndex;
+import com.projectmanagement.repository.ActionRepository;
+import com.projectmanagement.service.impl.ActionServiceImpl;
+import com.projectmanagement.service.impl.ProgressRollupServiceImpl;
+import com.projectmanagement.service.impl.ProgressServiceImpl;
+import com.projectmanagement.service.impl.ProjectServiceImpl;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Number of statements run by the action and project list calls behind the REST endpoints.
+ * <p>
+ * Each call must run a fixed number of statements, whatever the number of rows listed:
+ * the references shown in the DTOs are fetched with the list query, the sub-actions in
+ * batches and the progress with one roll-up query. The service calls run in their own
+ * transactions, as from the controllers, so nothing is served from a shared session.
+ */
+@DataJpaTest(properties = {
+        "spring.profiles.active=",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ListQueryCountTest {
+
+    private static final int PROJECTS = 12;
+    private static final int ACTIONS_PER_PLANNING = 4;
+
+    @Configuration
+    @EnableJpaAuditing
+    @EnableJpaRepositories(basePackageClasses = ActionRepository.class)
+    @EntityScan(basePackageClasses = Action.class)
+    @Import({ActionServiceImpl.class, ProjectServiceImpl.class, ProgressServiceImpl.class,
+            ProgressRollupServiceImpl.class, DependencyIndex.class, StreamingExporter.class,
+            ExportServiceFactory.class, CsvExportService.class, ExcelExportService.class, PdfExportService.class,
+            DashboardCache.class, DashboardCacheListener.class, KpiDirtyProjectListener.class})
+    static class Config {
+    }
+
+    @Autowired
+    private ActionService actionService;
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+    private Long planningId;
+    private Long statusId;
+    private Long userId;
+    private Long typeId;
+    private Long priorityId;
+    private Long directionId;
+    private Long teamId;
+
+    @BeforeAll
+    void seed() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Status started = new Status();
+            started.setName("En cours");
+            entityManager.persist(started);
+            ProjectType type = new ProjectType();
+            type.setName("Interne");
+            entityManager.persist(type);
+            Priority priority = new Priority();
+            priority.setName("Haute");
+            entityManager.persist(priority);
+            Direction direction = new Direction();
+            direction.setCode("DSI");
+            direction.setName("Direction des systèmes d'information");
+            entityManager.persist(direction);
+            ProjectTeam team = new ProjectTeam();
+            team.setName("Equipe projet");
+            entityManager.persist(team);
+            User user = new User();
+            user.setFirstName("Awa");
+            user.setLastName("Kone");
+            user.setEmail("awa.kone@example.com");
+            entityManager.persist(user);
+
+            LocalDate today = LocalDate.now();
+            for (int p = 0; p < PROJECTS; p++) {
+                Project project = new Project();
+                project.setName("Projet " + p);
+                project.setType(type);
+                project.setStatus(started);
+                project.setPriority(priority);
+                project.setDirection(direction);
+                project.setTeam(team);
+                project.setStartDate(today.minusDays(30));
+                project.setPlannedEndDate(today.plusDays(p));
+                entityManager.persist(project);
+
+                Planning planning = new Planning();
+                planning.setProject(project);
+                entityManager.persist(planning);
+                if (p == 0) {
+                    planningId = planning.getId();
+                }
+
+                for (int a = 0; a < ACTIONS_PER_PLANNING; a++) {
+                    Action action = new Action();
+                    action.setName("Action " + p + "." + a);
+                    action.setPlanning(planning);
+                    action.setStatus(started);
+                    action.setResponsable(user);
+                    action.setStartDate(today.minusDays(10));
+                    action.setPlannedEndDate(a % 2 == 0 ? today.minusDays(1) : today.plusDays(3));
+                    entityManager.persist(action);
+                    for (int s = 0; s < 2; s++) {
+                        SubAction subAction = new SubAction();
+                        subAction.setName("Sous-action " + s);
+                        subAction.setAction(action);
+                        entityManager.persist(subAction);
+                    }
+                }
+            }
+            statusId = started.getId();
+            userId = user.getId();
+            typeId = type.getId();
+            priorityId = priority.getId();
+            directionId = direction.getId();
+            teamId = team.getId();
+        });
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void actionListsRunAFixedNumberOfStatements() {
+        Pageable page = PageRequest.of(0, 100, Sort.by("plannedEndDate"));
+
+        // Planning, actions with their references and sub-actions, progress
+        assertStatements(3, ACTIONS_PER_PLANNING, () -> actionService.findByPlanningId(planningId));
+        // Status, actions, sub-action batch, progress
+        assertStatements(4, PROJECTS * ACTIONS_PER_PLANNING, () -> actionService.findByStatusId(statusId));
+        // User, page of actions, sub-action batch, progress (one page: no count query)
+        assertStatements(4, PROJECTS * ACTIONS_PER_PLANNING,
+                () -> actionService.findByResponsableId(userId, page));
+        assertStatements(3, PROJECTS * ACTIONS_PER_PLANNING / 2, () -> actionService.findOverdueActions(page));
+        assertStatements(3, PROJECTS * ACTIONS_PER_PLANNING / 2, () -> actionService.findUpcomingDeadlines(7L, page));
+        assertStatements(3, PROJECTS * ACTIONS_PER_PLANNING,
+                () -> actionService.searchActions(null, null, null, LocalDate.now().minusDays(20), null, null, page));
+    }
+
+    @Test
+    void pagedActionListsCountTheirRowsInOneStatement() {
+        Pageable page = PageRequest.of(0, 10, Sort.by("plannedEndDate"));
+
+        // Page of actions, count, sub-action batch, progress
+        assertStatements(4, 10,
+                () -> actionService.searchActions(null, null, null, null, LocalDate.now().plusDays(30), null, page));
+        assertStatements(4, 10, () -> actionService.findOverdueActions(page));
+    }
+
+    @Test
+    void projectListsRunAFixedNumberOfStatements() {
+        Pageable page = PageRequest.of(0, 5, Sort.by("plannedEndDate"));
+
+        // Reference, page of projects with their references, count, progress
+        assertStatements(4, 5, () -> projectService.findByStatusId(statusId, page));
+        assertStatements(4, 5, () -> projectService.findByTypeId(typeId, page));
+        assertStatements(4, 5, () -> projectService.findByPriorityId(priorityId, page));
+        assertStatements(4, 5, () -> projectService.findByDirectionId(directionId, page));
+        assertStatements(4, 5, () -> projectService.findByTeamId(teamId, page));
+        // Page of projects, count, progress
+        assertStatements(3, 5, () -> projectService.searchProjects(null, null, null, null, null,
+                null, LocalDate.now().plusDays(PROJECTS), page));
+    }
+
+    private void assertStatements(long expected, int rows, Supplier<?> call) {
+        statistics.clear();
+        Object result = call.get();
+        long statements = statistics.getPrepareStatementCount();
+
+        Collection<?> content = result instanceof Page ? ((Page<?>) result).getContent() : (Collection<?>) result;
+        assertThat(content).hasSize(rows);
+        assertThat(statements).as("statements run").isEqualTo(expected);
+    }
+}